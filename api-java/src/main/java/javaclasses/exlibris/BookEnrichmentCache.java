@@ -0,0 +1,130 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import io.spine.core.Subscribe;
+import io.spine.server.event.EventSubscriber;
+import javaclasses.exlibris.c.BookAdded;
+import javaclasses.exlibris.c.BookRemoved;
+import javaclasses.exlibris.c.BookUpdated;
+import javaclasses.exlibris.c.book.BookRepository;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The books used to enrich the inventory events.
+ *
+ * <p>The book details change rarely, so the recently used books are kept in memory and
+ * updated from the {@code BookAdded}, {@code BookUpdated} and {@code BookRemoved} events.
+ * The book state is loaded only for a book which is not cached, e.g. a book added before
+ * the cache was subscribed to the events or evicted from the cache.
+ *
+ * <p>A removed book is dropped from the cache. The repository does not find a removed book,
+ * so the enrichment obtains the default {@code Book}, the same value it has for a missing
+ * aggregate.
+ */
+public class BookEnrichmentCache extends EventSubscriber {
+
+    /**
+     * The default maximum number of the cached books.
+     */
+    static final long DEFAULT_MAXIMUM_SIZE = 100_000;
+
+    private final LoadingCache<BookId, Book> books;
+    private final BookRepository bookRepo;
+
+    BookEnrichmentCache(BookRepository bookRepo) {
+        this(bookRepo, DEFAULT_MAXIMUM_SIZE);
+    }
+
+    @VisibleForTesting
+    BookEnrichmentCache(BookRepository bookRepo, long maximumSize) {
+        super();
+        checkArgument(maximumSize >= 0, "The maximum size must not be negative.");
+        this.bookRepo = checkNotNull(bookRepo);
+        this.books = CacheBuilder.newBuilder()
+                                 .maximumSize(maximumSize)
+                                 .recordStats()
+                                 .build(CacheLoader.from(this::load));
+    }
+
+    /**
+     * Obtains the book by its identifier.
+     *
+     * @param bookId the identifier of the book
+     * @return the book or the default {@code Book} if there is no such book
+     */
+    Book get(BookId bookId) {
+        checkNotNull(bookId);
+        final Book result = books.getUnchecked(bookId);
+        return result;
+    }
+
+    /**
+     * Obtains the number of the cached books.
+     */
+    long size() {
+        return books.size();
+    }
+
+    /**
+     * Obtains the hits, misses and evictions counts of the cache.
+     */
+    CacheStats getStats() {
+        return books.stats();
+    }
+
+    @Subscribe
+    public void on(BookAdded event) {
+        final Book book = Book.newBuilder()
+                              .setBookId(event.getBookId())
+                              .setBookDetails(event.getDetails())
+                              .build();
+        books.put(event.getBookId(), book);
+    }
+
+    @Subscribe
+    public void on(BookUpdated event) {
+        final Book book = Book.newBuilder()
+                              .setBookId(event.getBookId())
+                              .setBookDetails(event.getBookDetailsChange()
+                                                   .getNewBookDetails())
+                              .build();
+        books.put(event.getBookId(), book);
+    }
+
+    @Subscribe
+    public void on(BookRemoved event) {
+        books.invalidate(event.getBookId());
+    }
+
+    private Book load(BookId bookId) {
+        final Optional<Book> book = bookRepo.findState(bookId);
+        return book.or(Book.getDefaultInstance());
+    }
+}
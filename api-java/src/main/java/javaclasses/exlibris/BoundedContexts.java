@@ -22,28 +22,60 @@ package javaclasses.exlibris;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.Message;
 import io.spine.server.BoundedContext;
+import io.spine.server.entity.Repository;
 import io.spine.server.event.EventBus;
 import io.spine.server.event.EventEnricher;
+import io.spine.server.projection.ProjectionRepository;
 import io.spine.server.storage.StorageFactory;
 import io.spine.server.storage.memory.InMemoryStorageFactory;
 import javaclasses.exlibris.c.book.BookRepository;
+import javaclasses.exlibris.c.deadline.DueDateScheduler;
 import javaclasses.exlibris.c.inventory.InventoryRepository;
 import javaclasses.exlibris.c.procman.LoansExtensionProcmanRepository;
 import javaclasses.exlibris.c.procman.ReservationQueueProcmanRepository;
+import javaclasses.exlibris.c.procman.ReturnDeskProcmanRepository;
+import javaclasses.exlibris.q.BookDetailsView;
+import javaclasses.exlibris.q.BookEventLogView;
+import javaclasses.exlibris.q.BookInventoryView;
+import javaclasses.exlibris.q.BookLoanView;
+import javaclasses.exlibris.q.BookLoansIndexView;
+import javaclasses.exlibris.q.BookReservationView;
+import javaclasses.exlibris.q.BookView;
+import javaclasses.exlibris.q.BorrowedBooksListView;
+import javaclasses.exlibris.q.ExpectedSoonBooksListView;
+import javaclasses.exlibris.q.InventoryItemView;
+import javaclasses.exlibris.q.LoansDueDateSummary;
+import javaclasses.exlibris.q.LoansDueDateView;
+import javaclasses.exlibris.q.LostBookView;
+import javaclasses.exlibris.q.ReaderEventLogView;
+import javaclasses.exlibris.q.ReaderLoanView;
+import javaclasses.exlibris.q.ReaderLoansIndexView;
+import javaclasses.exlibris.q.ReservedBooksListView;
 import javaclasses.exlibris.q.admin.BookDetailsViewRepository;
 import javaclasses.exlibris.q.admin.BookEventLogViewRepository;
 import javaclasses.exlibris.q.admin.BookInventoryViewRepository;
 import javaclasses.exlibris.q.admin.BookLoanViewRepository;
+import javaclasses.exlibris.q.admin.BookLoansIndexRepository;
 import javaclasses.exlibris.q.admin.BookReservationViewRepository;
+import javaclasses.exlibris.q.admin.InventoryItemViewRepository;
+import javaclasses.exlibris.q.admin.LoanDueDateMigration;
+import javaclasses.exlibris.q.admin.LoansDueDateSummaryRepository;
+import javaclasses.exlibris.q.admin.LoansDueDateViewRepository;
 import javaclasses.exlibris.q.admin.LostBookViewRepository;
 import javaclasses.exlibris.q.admin.ReaderEventLogViewRepository;
 import javaclasses.exlibris.q.admin.ReaderLoanViewRepository;
+import javaclasses.exlibris.q.admin.ReaderLoansIndexRepository;
 import javaclasses.exlibris.q.user.BookViewRepository;
 import javaclasses.exlibris.q.user.BorrowedBooksListViewRepository;
 import javaclasses.exlibris.q.user.ExpectedSoonBooksListViewRepository;
 import javaclasses.exlibris.q.user.ReservedBooksListViewRepository;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 import static io.spine.util.Exceptions.newIllegalStateException;
 
@@ -60,6 +92,32 @@ public final class BoundedContexts {
     private static final StorageFactory IN_MEMORY_FACTORY =
             InMemoryStorageFactory.newInstance(BoundedContext.newName(NAME), false);
 
+    /** The settings of the bounded contexts without a {@link DueDateScheduler}. */
+    private static final SchedulingSettings WITHOUT_SCHEDULER =
+            SchedulingSettings.newBuilder()
+                              .setSchedulerEnabled(false)
+                              .build();
+
+    /** The states of the projections registered in the {@code BoundedContext}. */
+    private static final ImmutableList<Class<? extends Message>> PROJECTION_STATES =
+            ImmutableList.of(BookView.class,
+                             ExpectedSoonBooksListView.class,
+                             BorrowedBooksListView.class,
+                             ReservedBooksListView.class,
+                             BookDetailsView.class,
+                             BookEventLogView.class,
+                             BookInventoryView.class,
+                             InventoryItemView.class,
+                             BookLoanView.class,
+                             BookLoansIndexView.class,
+                             ReaderLoansIndexView.class,
+                             BookReservationView.class,
+                             LostBookView.class,
+                             ReaderEventLogView.class,
+                             ReaderLoanView.class,
+                             LoansDueDateView.class,
+                             LoansDueDateSummary.class);
+
     private BoundedContexts() {
         // Disable instantiation from outside.
     }
@@ -83,12 +141,84 @@ public final class BoundedContexts {
      * @return the bounded context created with the storage factory
      */
     public static BoundedContext create(StorageFactory storageFactory) {
+        final BoundedContext result = create(storageFactory, new InMemoryUserDirectory());
+        return result;
+    }
+
+    /**
+     * Creates the {@link BoundedContext} instance
+     * using {@code InMemoryStorageFactory} for a single tenant.
+     *
+     * @param userDirectory the directory to look up the user profiles in
+     * @return the {@link BoundedContext} instance
+     */
+    public static BoundedContext create(UserDirectory userDirectory) {
+        final BoundedContext result = create(IN_MEMORY_FACTORY, userDirectory);
+        return result;
+    }
+
+    /**
+     * Creates a new instance of the {@link BoundedContext}
+     * using the specified {@link StorageFactory} and {@link UserDirectory}.
+     *
+     * <p>The bounded context has no {@link DueDateScheduler}, so the deadline commands are
+     * posted only by a scheduler {@linkplain DueDateScheduler#newInstance(BoundedContext)
+     * created} by the caller. Use {@link #createContext(StorageFactory, UserDirectory,
+     * SchedulingSettings) createContext()} to obtain a bounded context with a scheduler.
+     *
+     * @param storageFactory the storage factory to use
+     * @param userDirectory  the directory to look up the user profiles in
+     * @return the bounded context created with the storage factory
+     */
+    public static BoundedContext create(StorageFactory storageFactory,
+                                        UserDirectory userDirectory) {
+        final BoundedContext result = createContext(storageFactory, userDirectory,
+                                                    WITHOUT_SCHEDULER).getBoundedContext();
+        return result;
+    }
+
+    /**
+     * Creates the {@link BoundedContext} instance
+     * using {@code InMemoryStorageFactory} for a single tenant.
+     *
+     * @param settings the settings of the deadlines scheduling
+     * @return the bounded context and its scheduler
+     * @see #createContext(StorageFactory, UserDirectory, SchedulingSettings)
+     */
+    public static ExlibrisContext createContext(SchedulingSettings settings) {
+        final ExlibrisContext result = createContext(IN_MEMORY_FACTORY,
+                                                     new InMemoryUserDirectory(), settings);
+        return result;
+    }
+
+    /**
+     * Creates a new instance of the {@link BoundedContext}
+     * using the specified {@link StorageFactory}, {@link UserDirectory}
+     * and {@link SchedulingSettings}.
+     *
+     * <p>If the {@linkplain SchedulingSettings#isSchedulerEnabled() scheduler is enabled},
+     * a {@link DueDateScheduler} is rebuilt from the stored inventories and started.
+     * The scheduler is stopped when the returned {@link ExlibrisContext} is closed.
+     * The loans extension changes are coalesced as specified by the settings.
+     *
+     * @param storageFactory the storage factory to use
+     * @param userDirectory  the directory to look up the user profiles in
+     * @param settings       the settings of the deadlines scheduling
+     * @return the bounded context created with the storage factory and its scheduler
+     */
+    public static ExlibrisContext createContext(StorageFactory storageFactory,
+                                                UserDirectory userDirectory,
+                                                SchedulingSettings settings) {
         checkNotNull(storageFactory);
+        checkNotNull(userDirectory);
+        checkNotNull(settings);
 
         final BookRepository bookRepository = new BookRepository();
         final InventoryRepository inventoryRepository = InventoryRepository.getRepository();
         final ReservationQueueProcmanRepository reservationQueueRepository = new ReservationQueueProcmanRepository();
-        final LoansExtensionProcmanRepository loansExtensionRepository = new LoansExtensionProcmanRepository();
+        final LoansExtensionProcmanRepository loansExtensionRepository =
+                new LoansExtensionProcmanRepository(settings.getLoansExtensionBatchSize());
+        final ReturnDeskProcmanRepository returnDeskRepository = new ReturnDeskProcmanRepository();
 
         final BookViewRepository allBooksRepo = new BookViewRepository();
         final ExpectedSoonBooksListViewRepository expectedSoonRepo = new ExpectedSoonBooksListViewRepository();
@@ -98,21 +228,37 @@ public final class BoundedContexts {
         final BookDetailsViewRepository bookDetailsViewRepo = new BookDetailsViewRepository();
         final BookEventLogViewRepository bookEventLogViewRepo = new BookEventLogViewRepository();
         final BookInventoryViewRepository bookInventoryViewRepo = new BookInventoryViewRepository();
+        final InventoryItemViewRepository inventoryItemViewRepo = new InventoryItemViewRepository();
         final BookLoanViewRepository bookLoanViewRepository = new BookLoanViewRepository();
+        final BookLoansIndexRepository bookLoansIndexRepo = new BookLoansIndexRepository();
+        final ReaderLoansIndexRepository readerLoansIndexRepo = new ReaderLoansIndexRepository();
         final BookReservationViewRepository bookReservationViewRepo = new BookReservationViewRepository();
         final LostBookViewRepository lostBookViewRepo = new LostBookViewRepository();
         final ReaderEventLogViewRepository readerEventLogViewRepo = new ReaderEventLogViewRepository();
         final ReaderLoanViewRepository readerLoanViewRepo = new ReaderLoanViewRepository();
+        final LoansDueDateSummaryRepository loansDueDateSummaryRepo =
+                new LoansDueDateSummaryRepository();
+        final LoansDueDateViewRepository loansDueDateViewRepo =
+                new LoansDueDateViewRepository(loansDueDateSummaryRepo);
 
-        final EventBus.Builder eventBus = createEventBus(storageFactory, bookRepository);
+        final ExlibrisEnrichments enrichments = ExlibrisEnrichments.newBuilder()
+                                                                   .setBookRepository(
+                                                                           bookRepository)
+                                                                   .setUserDirectory(
+                                                                           userDirectory)
+                                                                   .build();
+        final EventBus.Builder eventBus = createEventBus(storageFactory, enrichments);
 
         final BoundedContext boundedContext = createBoundedContext(eventBus);
+        boundedContext.getEventBus()
+                      .register(enrichments.getBookCache());
 
         boundedContext.register(bookRepository);
         boundedContext.register(inventoryRepository);
 
         boundedContext.register(reservationQueueRepository);
         boundedContext.register(loansExtensionRepository);
+        boundedContext.register(returnDeskRepository);
 
         boundedContext.register(allBooksRepo);
         boundedContext.register(expectedSoonRepo);
@@ -122,21 +268,93 @@ public final class BoundedContexts {
         boundedContext.register(bookDetailsViewRepo);
         boundedContext.register(bookEventLogViewRepo);
         boundedContext.register(bookInventoryViewRepo);
+        boundedContext.register(inventoryItemViewRepo);
         boundedContext.register(bookLoanViewRepository);
+        boundedContext.register(bookLoansIndexRepo);
+        boundedContext.register(readerLoansIndexRepo);
         boundedContext.register(bookReservationViewRepo);
         boundedContext.register(lostBookViewRepo);
         boundedContext.register(readerEventLogViewRepo);
         boundedContext.register(readerLoanViewRepo);
+        boundedContext.register(loansDueDateViewRepo);
+        boundedContext.register(loansDueDateSummaryRepo);
 
-        return boundedContext;
+        if (!settings.isSchedulerEnabled()) {
+            return new ExlibrisContext(boundedContext, Optional.absent());
+        }
+        final DueDateScheduler scheduler = DueDateScheduler.newInstance(boundedContext);
+        scheduler.setLoansExtensionWindow(settings.getLoansExtensionWindow());
+        scheduler.rebuild(inventoryRepository.getAllStates());
+        scheduler.start();
+        return new ExlibrisContext(boundedContext, Optional.of(scheduler));
+    }
+
+    /**
+     * Rebuilds all the projections of the bounded context from the event history.
+     *
+     * <p>The projection repositories are caught up in parallel by the {@link ProjectionCatchUp}.
+     * The events are enriched the same way as by the {@code EventBus} of the context.
+     * The profiles of the users named in a chunk of the history are looked up in
+     * the directory together before the chunk is enriched. The due dates missing in
+     * the older loan events are filled in by the {@link LoanDueDateMigration}.
+     *
+     * <p>The projection storage of the context should be empty, for example, a new storage
+     * after the projections were changed. Otherwise the events are applied on top of
+     * the current states.
+     *
+     * @param boundedContext the bounded context {@linkplain #create() created} by this class
+     * @param userDirectory  the directory to look up the user profiles in
+     * @param listener       the listener of the catch-up progress
+     * @return the final progress of the catch-up
+     */
+    public static ProjectionCatchUp.Progress
+    rebuildProjections(BoundedContext boundedContext,
+                       UserDirectory userDirectory,
+                       ProjectionCatchUp.ProgressListener listener) {
+        checkNotNull(boundedContext);
+        checkNotNull(userDirectory);
+        checkNotNull(listener);
+
+        final BookRepository bookRepository = (BookRepository) findRepository(boundedContext,
+                                                                              Book.class);
+        final ExlibrisEnrichments enrichments = ExlibrisEnrichments.newBuilder()
+                                                                   .setBookRepository(
+                                                                           bookRepository)
+                                                                   .setUserDirectory(
+                                                                           userDirectory)
+                                                                   .build();
+        final ProjectionCatchUp catchUp =
+                ProjectionCatchUp.newBuilder()
+                                 .setEventStore(boundedContext.getEventBus()
+                                                              .getEventStore())
+                                 .setEnricher(enrichments.createEnricher())
+                                 .setChunkListener(enrichments.getUserProfiles()::preloadUsersOf)
+                                 .setMigration(new LoanDueDateMigration())
+                                 .setProgressListener(listener)
+                                 .build();
+
+        final List<ProjectionRepository<?, ?, ?>> repositories = new ArrayList<>();
+        for (Class<? extends Message> state : PROJECTION_STATES) {
+            repositories.add((ProjectionRepository<?, ?, ?>) findRepository(boundedContext,
+                                                                             state));
+        }
+        final ProjectionCatchUp.Progress result = catchUp.catchUp(repositories);
+        return result;
+    }
+
+    private static Repository findRepository(BoundedContext boundedContext,
+                                             Class<? extends Message> stateClass) {
+        final Optional<Repository> result = boundedContext.findRepository(stateClass);
+        if (!result.isPresent()) {
+            throw newIllegalStateException("No repository of %s is registered.",
+                                           stateClass.getSimpleName());
+        }
+        return result.get();
     }
 
     private static EventBus.Builder createEventBus(StorageFactory storageFactory,
-                                                   BookRepository bookRepo) {
-        final EventEnricher enricher = ExlibrisEnrichments.newBuilder()
-                                                          .setBookRepository(bookRepo)
-                                                          .build()
-                                                          .createEnricher();
+                                                   ExlibrisEnrichments enrichments) {
+        final EventEnricher enricher = enrichments.createEnricher();
         final EventBus.Builder eventBus = EventBus.newBuilder()
                                                   .setEnricher(enricher)
                                                   .setStorageFactory(storageFactory);
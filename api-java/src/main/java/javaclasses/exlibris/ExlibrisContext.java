@@ -0,0 +1,68 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris;
+
+import com.google.common.base.Optional;
+import io.spine.server.BoundedContext;
+import javaclasses.exlibris.c.deadline.DueDateScheduler;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The bounded context {@linkplain BoundedContexts#createContext(
+ * io.spine.server.storage.StorageFactory, UserDirectory, SchedulingSettings) created}
+ * by {@link BoundedContexts} together with its {@link DueDateScheduler}.
+ *
+ * <p>Closing the instance stops the scheduler and then closes the bounded context.
+ */
+public final class ExlibrisContext implements AutoCloseable {
+
+    private final BoundedContext boundedContext;
+    private final Optional<DueDateScheduler> scheduler;
+
+    ExlibrisContext(BoundedContext boundedContext, Optional<DueDateScheduler> scheduler) {
+        this.boundedContext = checkNotNull(boundedContext);
+        this.scheduler = checkNotNull(scheduler);
+    }
+
+    public BoundedContext getBoundedContext() {
+        return boundedContext;
+    }
+
+    /**
+     * Obtains the started scheduler of the bounded context.
+     *
+     * @return the scheduler or {@code Optional.absent()} if
+     *         the {@linkplain SchedulingSettings#isSchedulerEnabled() scheduler is disabled}
+     */
+    public Optional<DueDateScheduler> getScheduler() {
+        return scheduler;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (scheduler.isPresent()) {
+            scheduler.get()
+                     .stop();
+        }
+        boundedContext.close();
+    }
+}
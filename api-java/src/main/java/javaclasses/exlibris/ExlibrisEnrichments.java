@@ -21,33 +21,62 @@
 package javaclasses.exlibris;
 
 import com.google.common.base.Function;
-import com.google.common.base.Optional;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
 import io.spine.server.event.EventBus;
 import io.spine.server.event.EventEnricher;
-import javaclasses.exlibris.c.book.BookAggregate;
 import javaclasses.exlibris.c.book.BookRepository;
 
+import java.util.Map;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Serves as class which adds enrichment fields to the {@link EventBus}.
  *
+ * <p>The books are taken from the {@link BookEnrichmentCache}, which should be
+ * {@linkplain #getBookCache() registered} in the {@code EventBus} to follow the book changes.
+ * The user profiles are looked up in the {@link UserDirectory} through
+ * the {@link UserProfileCache}.
+ *
  * @author Yurii Haidamaka
  */
 @SuppressWarnings("Guava") // Because com.google.common.base.Function is used
 // until the migration of Spine to Java 8 is performed.
 public class ExlibrisEnrichments {
 
-    private final BookRepository bookRepo;
+    private final BookEnrichmentCache bookCache;
+    private final UserProfileCache userProfiles;
 
     private ExlibrisEnrichments(Builder builder) {
-        this.bookRepo = builder.bookRepo;
+        this.bookCache = new BookEnrichmentCache(builder.bookRepo);
+        this.userProfiles = new UserProfileCache(builder.userDirectory);
+    }
+
+    /**
+     * Obtains the cache of the books used for the enrichment.
+     *
+     * @return the event subscriber to register in the {@code EventBus}
+     */
+    BookEnrichmentCache getBookCache() {
+        return bookCache;
+    }
+
+    /**
+     * Obtains the cache of the user profiles used for the enrichment.
+     */
+    UserProfileCache getUserProfiles() {
+        return userProfiles;
     }
 
     EventEnricher createEnricher() {
         final EventEnricher enricher =
                 EventEnricher.newBuilder()
                              .add(InventoryId.class, Book.class, inventoryIdToBook())
+                             .add(InventoryId.class, BookSummary.class,
+                                  inventoryIdToBookSummary())
+                             .add(UserId.class, UserProfile.class, userIdToProfile())
                              .build();
         return enricher;
     }
@@ -57,17 +86,59 @@ public class ExlibrisEnrichments {
             if (inventoryId == null) {
                 return Book.getDefaultInstance();
             }
-            final Optional<BookAggregate> aggregate = bookRepo.find(inventoryId.getBookId());
-            if (!aggregate.isPresent()) {
-                return Book.getDefaultInstance();
+            final Book book = bookCache.get(inventoryId.getBookId());
+            return book;
+        };
+        return result;
+    }
+
+    private Function<InventoryId, BookSummary> inventoryIdToBookSummary() {
+        final Function<InventoryId, BookSummary> result = inventoryId -> {
+            if (inventoryId == null) {
+                return BookSummary.getDefaultInstance();
+            }
+            final Book book = bookCache.get(inventoryId.getBookId());
+            return selectFields(book.getBookDetails(), BookSummary.getDefaultInstance());
+        };
+        return result;
+    }
+
+    private Function<UserId, UserProfile> userIdToProfile() {
+        final Function<UserId, UserProfile> result = userId -> {
+            if (userId == null) {
+                return UserProfile.getDefaultInstance();
             }
-            final Book state = aggregate.get()
-                                        .getState();
-            return state;
+            final UserProfile profile = userProfiles.get(userId);
+            return profile;
         };
         return result;
     }
 
+    /**
+     * Copies the book details fields which are declared in the enrichment value type.
+     *
+     * <p>A field is copied if the value type has a field with the same name. This way
+     * an enrichment declares the book details it needs by its own fields.
+     *
+     * @param details         the book details to copy the fields from
+     * @param defaultInstance the default instance of the value type
+     * @param <T>             the value type
+     * @return the value with the selected fields
+     */
+    @SuppressWarnings("unchecked") // The builder of the message of type T builds T.
+    static <T extends Message> T selectFields(BookDetails details, T defaultInstance) {
+        final Message.Builder builder = defaultInstance.newBuilderForType();
+        final Descriptor descriptor = builder.getDescriptorForType();
+        for (Map.Entry<FieldDescriptor, Object> field : details.getAllFields()
+                                                              .entrySet()) {
+            final FieldDescriptor targetField = descriptor.findFieldByName(field.getKey()
+                                                                                .getName());
+            if (targetField != null) {
+                builder.setField(targetField, field.getValue());
+            }
+        }
+        return (T) builder.build();
+    }
 
     /**
      * Creates a new builder for (@code ExlibrisEnrichments).
@@ -84,6 +155,7 @@ public class ExlibrisEnrichments {
     public static class Builder {
 
         private BookRepository bookRepo;
+        private UserDirectory userDirectory = new InMemoryUserDirectory();
 
         private Builder() {
         }
@@ -94,6 +166,18 @@ public class ExlibrisEnrichments {
             return this;
         }
 
+        /**
+         * Sets the directory to look up the user profiles in.
+         *
+         * <p>If not set, an empty {@link InMemoryUserDirectory} is used and the users
+         * are named by their e-mails.
+         */
+        public Builder setUserDirectory(UserDirectory userDirectory) {
+            checkNotNull(userDirectory);
+            this.userDirectory = userDirectory;
+            return this;
+        }
+
         public ExlibrisEnrichments build() {
             return new ExlibrisEnrichments(this);
         }
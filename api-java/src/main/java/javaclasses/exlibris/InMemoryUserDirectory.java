@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris;
+
+import com.google.common.base.Splitter;
+import io.spine.net.EmailAddress;
+import io.spine.people.PersonName;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The {@link UserDirectory} which keeps the profiles in memory.
+ *
+ * <p>The profiles can be {@linkplain #put(UserId, UserProfile) put} one by one or
+ * {@linkplain #fromFile(Path) read} from a file with a line per user:
+ * <pre>
+ *     email,given name,family name
+ * </pre>
+ * The empty lines and the lines starting with {@code #} are skipped.
+ */
+public class InMemoryUserDirectory implements UserDirectory {
+
+    private static final Splitter FIELD_SPLITTER = Splitter.on(',')
+                                                           .trimResults();
+    private static final String COMMENT_PREFIX = "#";
+
+    private final ConcurrentMap<UserId, UserProfile> profiles = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the directory reading the profiles from the file.
+     *
+     * @param file the file to read
+     * @return new directory instance
+     * @throws UncheckedIOException     if the file cannot be read
+     * @throws IllegalArgumentException if a line does not have three fields
+     */
+    public static InMemoryUserDirectory fromFile(Path file) {
+        checkNotNull(file);
+        final List<String> lines;
+        try {
+            lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final InMemoryUserDirectory result = new InMemoryUserDirectory();
+        for (String line : lines) {
+            final String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith(COMMENT_PREFIX)) {
+                continue;
+            }
+            final List<String> fields = FIELD_SPLITTER.splitToList(trimmed);
+            checkArgument(fields.size() == 3, "Expected `email,given name,family name`: %s",
+                          line);
+            final EmailAddress email = EmailAddress.newBuilder()
+                                                   .setValue(fields.get(0))
+                                                   .build();
+            final UserId userId = UserId.newBuilder()
+                                        .setEmail(email)
+                                        .build();
+            final PersonName name = PersonName.newBuilder()
+                                              .setGivenName(fields.get(1))
+                                              .setFamilyName(fields.get(2))
+                                              .build();
+            final UserProfile profile = UserProfile.newBuilder()
+                                                   .setName(name)
+                                                   .build();
+            result.put(userId, profile);
+        }
+        return result;
+    }
+
+    /**
+     * Adds or replaces the profile of the user.
+     *
+     * @param userId  the identifier of the user
+     * @param profile the profile of the user
+     */
+    public void put(UserId userId, UserProfile profile) {
+        checkNotNull(userId);
+        checkNotNull(profile);
+        profiles.put(userId, profile);
+    }
+
+    @Override
+    public Map<UserId, UserProfile> findAll(Set<UserId> users) {
+        checkNotNull(users);
+        final Map<UserId, UserProfile> result = new HashMap<>();
+        for (UserId user : users) {
+            final UserProfile profile = profiles.get(user);
+            if (profile != null) {
+                result.put(user, profile);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Allocates unique {@link LoanId}s without coordination between the aggregates.
+ *
+ * <p>The value of an identifier consists of:
+ *
+ * <ol>
+ *     <li>41 bits of milliseconds since {@link #EPOCH_MILLIS};
+ *     <li>10 bits of the node number;
+ *     <li>12 bits of the sequence number within a millisecond.
+ * </ol>
+ *
+ * <p>The identifiers allocated by the same node are strictly increasing. When the sequence
+ * is exhausted within a millisecond, or the system clock goes back, the allocator borrows
+ * the next millisecond instead of waiting, so the allocation never blocks.
+ *
+ * <p>The node number of the {@linkplain #getInstance() default allocator} is taken from
+ * the {@value #NODE_ID_PROPERTY} system property. Each of the JVMs that serve the bounded
+ * context should be started with a different value.
+ */
+public final class LoanIds {
+
+    /**
+     * The system property that contains the node number of the default allocator.
+     */
+    public static final String NODE_ID_PROPERTY = "exlibris.node.id";
+
+    /**
+     * The start of the time counted by the identifiers, 2018-01-01T00:00:00Z.
+     */
+    static final long EPOCH_MILLIS = 1514764800000L;
+
+    static final int SEQUENCE_BITS = 12;
+    static final int NODE_BITS = 10;
+    static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final LoanIds defaultInstance = new LoanIds(nodeIdFromProperty());
+
+    private final long nodeId;
+
+    /**
+     * The last allocated millisecond shifted left by {@link #SEQUENCE_BITS}
+     * combined with the last allocated sequence number.
+     *
+     * <p>Incrementing the value when the sequence is exhausted carries over
+     * to the next millisecond.
+     */
+    private final AtomicLong lastTick = new AtomicLong();
+
+    @VisibleForTesting
+    LoanIds(long nodeId) {
+        checkArgument(nodeId >= 0 && nodeId <= MAX_NODE_ID,
+                      "The node ID should be in range [0, %s] but was %s.",
+                      MAX_NODE_ID, nodeId);
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * Obtains the allocator of the current node.
+     */
+    public static LoanIds getInstance() {
+        return defaultInstance;
+    }
+
+    /**
+     * Allocates a new unique {@link LoanId}.
+     */
+    public LoanId next() {
+        final LoanId result = LoanId.newBuilder()
+                                    .setValue(nextValue())
+                                    .build();
+        return result;
+    }
+
+    @VisibleForTesting
+    long nextValue() {
+        final long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        final long tick = lastTick.updateAndGet(last -> now > last ? now : last + 1);
+        final long millis = tick >>> SEQUENCE_BITS;
+        final long sequence = tick & SEQUENCE_MASK;
+        final long value = (millis << (NODE_BITS + SEQUENCE_BITS))
+                | (nodeId << SEQUENCE_BITS)
+                | sequence;
+        return value;
+    }
+
+    private static long nodeIdFromProperty() {
+        final String nodeId = System.getProperty(NODE_ID_PROPERTY, "0");
+        return Long.parseLong(nodeId);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris;
+
+import com.google.protobuf.Timestamp;
+import io.spine.time.LocalDate;
+import io.spine.time.MonthOfYear;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.Math.floorDiv;
+
+/**
+ * Converts the {@link Timestamp} values to the {@link LocalDate} in a time zone.
+ *
+ * <p>The converter keeps the boundaries of the recently converted days. A timestamp
+ * within a known day is converted by comparing the seconds, and the same
+ * {@code LocalDate} instance is returned. The {@code java.time} calculation is
+ * performed once per day, including the days with a daylight saving time transition.
+ *
+ * <p>The converters are {@linkplain #of(ZoneId) shared} per time zone.
+ */
+public final class LocalDateConverter {
+
+    private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
+    /** The number of the kept days; a power of two. */
+    private static final int DAY_SLOTS = 64;
+
+    private static final ConcurrentMap<ZoneId, LocalDateConverter> converters =
+            new ConcurrentHashMap<>();
+
+    private final ZoneId zone;
+    private final AtomicReferenceArray<Day> days = new AtomicReferenceArray<>(DAY_SLOTS);
+
+    private LocalDateConverter(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    /**
+     * Obtains the converter for the time zone.
+     *
+     * @param zone the time zone of the local dates
+     * @return the converter shared by all the users of the time zone
+     */
+    public static LocalDateConverter of(ZoneId zone) {
+        checkNotNull(zone);
+        final LocalDateConverter result = converters.computeIfAbsent(zone,
+                                                                     LocalDateConverter::new);
+        return result;
+    }
+
+    /**
+     * Obtains the time zone of the local dates.
+     */
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    /**
+     * Obtains the date of the timestamp in the time zone of the converter.
+     *
+     * @param timestamp the timestamp to convert
+     * @return the local date
+     */
+    public LocalDate toLocalDate(Timestamp timestamp) {
+        checkNotNull(timestamp);
+        final long seconds = timestamp.getSeconds();
+        final int slot = (int) (floorDiv(seconds, SECONDS_PER_DAY) & (DAY_SLOTS - 1));
+        final Day known = days.get(slot);
+        if (known != null && known.contains(seconds)) {
+            return known.date;
+        }
+        final Day day = dayOf(seconds);
+        days.set(slot, day);
+        return day.date;
+    }
+
+    private Day dayOf(long seconds) {
+        final java.time.LocalDate date = Instant.ofEpochSecond(seconds)
+                                                .atZone(zone)
+                                                .toLocalDate();
+        final long start = date.atStartOfDay(zone)
+                               .toEpochSecond();
+        final long end = date.plusDays(1)
+                             .atStartOfDay(zone)
+                             .toEpochSecond();
+        final LocalDate localDate = LocalDate.newBuilder()
+                                             .setYear(date.getYear())
+                                             .setMonth(MonthOfYear.forNumber(
+                                                     date.getMonthValue()))
+                                             .setDay(date.getDayOfMonth())
+                                             .build();
+        return new Day(start, end, localDate);
+    }
+
+    /**
+     * The local date and the seconds it lasts from inclusive to exclusive.
+     */
+    private static final class Day {
+
+        private final long start;
+        private final long end;
+        private final LocalDate date;
+
+        private Day(long start, long end, LocalDate date) {
+            this.start = start;
+            this.end = end;
+            this.date = date;
+        }
+
+        private boolean contains(long seconds) {
+            return seconds >= start && seconds < end;
+        }
+    }
+}
@@ -0,0 +1,523 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableMap;
+import io.grpc.stub.StreamObserver;
+import io.spine.core.Event;
+import io.spine.core.EventClass;
+import io.spine.core.EventEnvelope;
+import io.spine.server.event.EventEnricher;
+import io.spine.server.event.EventStore;
+import io.spine.server.event.EventStreamQuery;
+import io.spine.server.projection.ProjectionRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static io.spine.util.Exceptions.newIllegalStateException;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Rebuilds the projections from the event history.
+ *
+ * <p>The history is streamed from the {@link EventStore} in chunks of
+ * the {@linkplain Builder#setChunkSize(int) chunk size}. A chunk is read, enriched once for all
+ * the repositories and dispatched to them in parallel in a {@link ForkJoinPool}. The next chunk
+ * is read when all the repositories are done with the current one, so the memory used does not
+ * depend on the length of the history. Before the dispatching, the store is read once more
+ * just to count the events for the progress reports.
+ *
+ * <p>The events of a repository are dispatched by a single task in the order of the history,
+ * so every projection receives its events in the original order. The entity routing of Spine
+ * repositories is not accessible from the outside, so the events are partitioned by
+ * the repository rather than by the projection identifier. As a result, the catch-up is never
+ * faster than dispatching all the events of the busiest repository one by one, and
+ * the parallelism helps only as much as the events are spread over the repositories.
+ *
+ * <p>The events stored in an older format may be upgraded by the {@link EventMigration} before
+ * they are enriched.
+ *
+ * <p>The progress is reported to the {@link ProgressListener} every
+ * {@linkplain Builder#setProgressInterval(int) progress interval} of dispatched events.
+ */
+public class ProjectionCatchUp {
+
+    /** The default number of the dispatched events between the progress reports. */
+    public static final int DEFAULT_PROGRESS_INTERVAL = 1000;
+
+    /** The default number of the events read from the store at once. */
+    public static final int DEFAULT_CHUNK_SIZE = 10_000;
+
+    private final EventStore eventStore;
+    private final Optional<EventEnricher> enricher;
+    private final int parallelism;
+    private final int chunkSize;
+    private final int progressInterval;
+    private final ProgressListener listener;
+    private final ChunkListener chunkListener;
+    private final EventMigration migration;
+
+    private ProjectionCatchUp(Builder builder) {
+        this.eventStore = builder.eventStore;
+        this.enricher = builder.enricher;
+        this.parallelism = builder.parallelism;
+        this.chunkSize = builder.chunkSize;
+        this.progressInterval = builder.progressInterval;
+        this.listener = builder.listener;
+        this.chunkListener = builder.chunkListener;
+        this.migration = builder.migration;
+    }
+
+    /**
+     * Dispatches the event history to the repositories.
+     *
+     * <p>The repositories must be registered in a bounded context. Their projections should be
+     * cleared beforehand, otherwise the events are applied on top of the current states.
+     *
+     * @param repositories the repositories to catch up
+     * @return the final progress of the catch-up
+     */
+    public Progress catchUp(Collection<? extends ProjectionRepository<?, ?, ?>> repositories) {
+        checkNotNull(repositories);
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        final ImmutableMap.Builder<ProjectionRepository<?, ?, ?>, Set<EventClass>> builder =
+                ImmutableMap.builder();
+        for (ProjectionRepository<?, ?, ?> repository : repositories) {
+            builder.put(repository, repository.getMessageClasses());
+        }
+        final Map<ProjectionRepository<?, ?, ?>, Set<EventClass>> subscriptions = builder.build();
+
+        final long total = countEvents(subscriptions.values());
+        final ProgressCounter counter = new ProgressCounter(total, stopwatch);
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            final List<Event> chunk = new ArrayList<>(chunkSize);
+            read(event -> {
+                chunk.add(event);
+                if (chunk.size() == chunkSize) {
+                    dispatch(chunk, subscriptions, pool, counter);
+                    chunk.clear();
+                }
+            });
+            if (!chunk.isEmpty()) {
+                dispatch(chunk, subscriptions, pool, counter);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        final Progress result = counter.current();
+        listener.onProgress(result);
+        return result;
+    }
+
+    /**
+     * Counts the events of the history to dispatch.
+     *
+     * <p>An event is counted once per repository it is dispatched to.
+     */
+    private long countEvents(Collection<Set<EventClass>> subscriptions) {
+        final AtomicLong result = new AtomicLong();
+        read(event -> {
+            final EventClass eventClass = EventEnvelope.of(event)
+                                                       .getMessageClass();
+            for (Set<EventClass> eventClasses : subscriptions) {
+                if (eventClasses.contains(eventClass)) {
+                    result.incrementAndGet();
+                }
+            }
+        });
+        return result.get();
+    }
+
+    /**
+     * Migrates and enriches the chunk of the events and dispatches it to the repositories
+     * in parallel.
+     *
+     * <p>Returns when all the repositories are done with the chunk.
+     */
+    private void dispatch(List<Event> chunk,
+                          Map<ProjectionRepository<?, ?, ?>, Set<EventClass>> subscriptions,
+                          ForkJoinPool pool,
+                          ProgressCounter counter) {
+        chunkListener.onChunkRead(chunk);
+        final List<EventEnvelope> enriched = new ArrayList<>(chunk.size());
+        for (Event event : chunk) {
+            enriched.add(enrich(EventEnvelope.of(migration.migrate(event))));
+        }
+
+        final List<ForkJoinTask<?>> tasks = new ArrayList<>(subscriptions.size());
+        for (Map.Entry<ProjectionRepository<?, ?, ?>, Set<EventClass>> subscription
+                : subscriptions.entrySet()) {
+            final List<EventEnvelope> events = eventsOf(subscription.getValue(), enriched);
+            if (!events.isEmpty()) {
+                final CatchUpTask task = new CatchUpTask(subscription.getKey(), events, counter);
+                tasks.add(pool.submit(task));
+            }
+        }
+        try {
+            for (ForkJoinTask<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                  .interrupt();
+            throw newIllegalStateException(e, "The catch-up was interrupted.");
+        } catch (ExecutionException e) {
+            throw newIllegalStateException(e.getCause(), "The catch-up failed.");
+        }
+    }
+
+    /**
+     * Reads all the events of the store in the order they were emitted.
+     *
+     * <p>After the consumer fails, the rest of the events are skipped and
+     * the failure is rethrown.
+     */
+    private void read(Consumer<Event> consumer) {
+        final CountDownLatch completed = new CountDownLatch(1);
+        final List<RuntimeException> errors = new ArrayList<>(1);
+        eventStore.read(EventStreamQuery.getDefaultInstance(), new StreamObserver<Event>() {
+            @Override
+            public void onNext(Event event) {
+                if (!errors.isEmpty()) {
+                    return;
+                }
+                try {
+                    consumer.accept(event);
+                } catch (RuntimeException e) {
+                    errors.add(e);
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                errors.add(newIllegalStateException(t, "Cannot read the events."));
+                completed.countDown();
+            }
+
+            @Override
+            public void onCompleted() {
+                completed.countDown();
+            }
+        });
+        try {
+            completed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                  .interrupt();
+            throw newIllegalStateException(e, "Reading of the events was interrupted.");
+        }
+        if (!errors.isEmpty()) {
+            throw errors.get(0);
+        }
+    }
+
+    private EventEnvelope enrich(EventEnvelope envelope) {
+        if (!enricher.isPresent() || !enricher.get()
+                                              .canBeEnriched(envelope)) {
+            return envelope;
+        }
+        return enricher.get()
+                       .enrich(envelope);
+    }
+
+    /**
+     * Creates a new builder for {@code ProjectionCatchUp}.
+     *
+     * @return new builder instance
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Selects the events of the chunk which the repository subscribes to.
+     */
+    private static List<EventEnvelope> eventsOf(Set<EventClass> eventClasses,
+                                                List<EventEnvelope> chunk) {
+        final List<EventEnvelope> result = new ArrayList<>();
+        for (EventEnvelope envelope : chunk) {
+            if (eventClasses.contains(envelope.getMessageClass())) {
+                result.add(envelope);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Dispatches the events to the repository one by one.
+     */
+    private static final class CatchUpTask implements Runnable {
+
+        private final ProjectionRepository<?, ?, ?> repository;
+        private final List<EventEnvelope> events;
+        private final ProgressCounter counter;
+
+        private CatchUpTask(ProjectionRepository<?, ?, ?> repository,
+                            List<EventEnvelope> events,
+                            ProgressCounter counter) {
+            this.repository = repository;
+            this.events = events;
+            this.counter = counter;
+        }
+
+        @Override
+        public void run() {
+            for (EventEnvelope envelope : events) {
+                repository.dispatch(envelope);
+                counter.increment();
+            }
+        }
+    }
+
+    /**
+     * Counts the dispatched events and reports the progress.
+     */
+    private final class ProgressCounter {
+
+        private final long total;
+        private final Stopwatch stopwatch;
+        private final AtomicLong done = new AtomicLong();
+
+        private ProgressCounter(long total, Stopwatch stopwatch) {
+            this.total = total;
+            this.stopwatch = stopwatch;
+        }
+
+        private void increment() {
+            final long value = done.incrementAndGet();
+            if (value % progressInterval == 0) {
+                listener.onProgress(current());
+            }
+        }
+
+        private Progress current() {
+            final Duration elapsed = Duration.ofNanos(stopwatch.elapsed(NANOSECONDS));
+            return new Progress(done.get(), total, elapsed);
+        }
+    }
+
+    /**
+     * The progress of the catch-up.
+     */
+    public static final class Progress {
+
+        private final long done;
+        private final long total;
+        private final Duration elapsed;
+
+        private Progress(long done, long total, Duration elapsed) {
+            this.done = done;
+            this.total = total;
+            this.elapsed = elapsed;
+        }
+
+        /**
+         * Obtains the number of the dispatched events.
+         *
+         * <p>An event is counted once per repository it is dispatched to.
+         */
+        public long getDone() {
+            return done;
+        }
+
+        /**
+         * Obtains the number of the events to dispatch.
+         */
+        public long getTotal() {
+            return total;
+        }
+
+        /**
+         * Obtains the time passed since the start of the catch-up.
+         */
+        public Duration getElapsed() {
+            return elapsed;
+        }
+
+        /**
+         * Estimates the remaining time by the rate of the dispatched events.
+         *
+         * @return the estimated time or {@code Optional.absent()} if no events are dispatched yet
+         */
+        public Optional<Duration> getEstimatedRemaining() {
+            if (done == 0) {
+                return Optional.absent();
+            }
+            final long remaining = total - done;
+            final Duration result = elapsed.multipliedBy(remaining)
+                                           .dividedBy(done);
+            return Optional.of(result);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d of %d events in %s", done, total, elapsed);
+        }
+    }
+
+    /**
+     * Receives the progress of the catch-up.
+     *
+     * <p>Called from the threads of the catch-up, so should be thread-safe.
+     */
+    public interface ProgressListener {
+
+        void onProgress(Progress progress);
+    }
+
+    /**
+     * Receives the chunks of the history before they are enriched.
+     *
+     * <p>Allows to prepare the data needed for the enrichment of the whole chunk at once.
+     */
+    public interface ChunkListener {
+
+        void onChunkRead(List<Event> chunk);
+    }
+
+    /**
+     * Upgrades the events of the history stored in an older format.
+     *
+     * <p>Receives all the events of the history one by one in the order they were emitted,
+     * so it may follow the history to fill in the data missing in the older events.
+     */
+    public interface EventMigration {
+
+        /**
+         * Obtains the event in the current format.
+         *
+         * @param event the event as it is stored
+         * @return the upgraded event or the same event if it needs no changes
+         */
+        Event migrate(Event event);
+    }
+
+    /**
+     * A builder for {@code ProjectionCatchUp} instances.
+     */
+    public static class Builder {
+
+        private EventStore eventStore;
+        private Optional<EventEnricher> enricher = Optional.absent();
+        private int parallelism = Runtime.getRuntime()
+                                         .availableProcessors();
+        private int chunkSize = DEFAULT_CHUNK_SIZE;
+        private int progressInterval = DEFAULT_PROGRESS_INTERVAL;
+        private ProgressListener listener = progress -> {};
+        private ChunkListener chunkListener = chunk -> {};
+        private EventMigration migration = event -> event;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the store to read the event history from.
+         */
+        public Builder setEventStore(EventStore eventStore) {
+            checkNotNull(eventStore);
+            this.eventStore = eventStore;
+            return this;
+        }
+
+        /**
+         * Sets the enricher of the events.
+         *
+         * <p>The events are stored without the enrichments, so the enricher should be
+         * the same as the one of the {@code EventBus}.
+         */
+        public Builder setEnricher(EventEnricher enricher) {
+            checkNotNull(enricher);
+            this.enricher = Optional.of(enricher);
+            return this;
+        }
+
+        /**
+         * Sets the number of the repositories caught up at the same time.
+         *
+         * <p>If not set, the number of the available processors is used.
+         */
+        public Builder setParallelism(int parallelism) {
+            checkArgument(parallelism > 0, "The parallelism must be positive.");
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Sets the number of the events read from the store and held in memory at once.
+         *
+         * <p>If not set, {@link #DEFAULT_CHUNK_SIZE} is used.
+         */
+        public Builder setChunkSize(int chunkSize) {
+            checkArgument(chunkSize > 0, "The chunk size must be positive.");
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        /**
+         * Sets the number of the dispatched events between the progress reports.
+         */
+        public Builder setProgressInterval(int progressInterval) {
+            checkArgument(progressInterval > 0, "The progress interval must be positive.");
+            this.progressInterval = progressInterval;
+            return this;
+        }
+
+        public Builder setProgressListener(ProgressListener listener) {
+            checkNotNull(listener);
+            this.listener = listener;
+            return this;
+        }
+
+        public Builder setChunkListener(ChunkListener chunkListener) {
+            checkNotNull(chunkListener);
+            this.chunkListener = chunkListener;
+            return this;
+        }
+
+        public Builder setMigration(EventMigration migration) {
+            checkNotNull(migration);
+            this.migration = migration;
+            return this;
+        }
+
+        public ProjectionCatchUp build() {
+            checkState(eventStore != null, "The event store must be set.");
+            return new ProjectionCatchUp(this);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris;
+
+import io.spine.server.BoundedContext;
+import javaclasses.exlibris.c.deadline.DueDateScheduler;
+import javaclasses.exlibris.c.procman.LoansExtensionProcmanRepository;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static javaclasses.exlibris.c.procman.LoansExtensionProcmanRepository.NO_COALESCING;
+
+/**
+ * The settings of the deadlines scheduling in the bounded context
+ * {@linkplain BoundedContexts#createContext(io.spine.server.storage.StorageFactory,
+ * UserDirectory, SchedulingSettings) created} by {@link BoundedContexts}.
+ *
+ * <p>The settings also include the coalescing of the loans extension changes. The coalesced
+ * changes are flushed at the end of the window, so a batch size above
+ * {@link LoansExtensionProcmanRepository#NO_COALESCING NO_COALESCING} requires a window.
+ */
+public final class SchedulingSettings {
+
+    private final boolean schedulerEnabled;
+    private final int loansExtensionBatchSize;
+    private final int loansExtensionWindow;
+
+    private SchedulingSettings(Builder builder) {
+        this.schedulerEnabled = builder.schedulerEnabled;
+        this.loansExtensionBatchSize = builder.loansExtensionBatchSize;
+        this.loansExtensionWindow = builder.loansExtensionWindow;
+    }
+
+    /**
+     * Obtains the settings with the started {@link DueDateScheduler}.
+     */
+    public static SchedulingSettings getDefault() {
+        return newBuilder().build();
+    }
+
+    /**
+     * Shows whether the bounded context has its own started {@link DueDateScheduler}.
+     */
+    public boolean isSchedulerEnabled() {
+        return schedulerEnabled;
+    }
+
+    /**
+     * Obtains the maximum number of the loans extension changes collected before routing
+     * a command.
+     */
+    public int getLoansExtensionBatchSize() {
+        return loansExtensionBatchSize;
+    }
+
+    /**
+     * Obtains the coalescing window of the loans extension changes in seconds.
+     */
+    public int getLoansExtensionWindow() {
+        return loansExtensionWindow;
+    }
+
+    /**
+     * Creates a new builder for {@code SchedulingSettings}.
+     *
+     * @return new builder instance
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * A builder for {@code SchedulingSettings} instances.
+     */
+    public static class Builder {
+
+        private boolean schedulerEnabled = true;
+        private int loansExtensionBatchSize = NO_COALESCING;
+        private int loansExtensionWindow;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets whether the bounded context posts the deadline commands by itself.
+         *
+         * <p>If disabled, no {@link DueDateScheduler} is created and the deadlines are posted
+         * only by a scheduler {@linkplain DueDateScheduler#newInstance(BoundedContext) created}
+         * by the caller. Enabled by default.
+         */
+        public Builder setSchedulerEnabled(boolean schedulerEnabled) {
+            this.schedulerEnabled = schedulerEnabled;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of the loans extension changes of an inventory collected
+         * before routing a command.
+         *
+         * <p>{@link LoansExtensionProcmanRepository#NO_COALESCING NO_COALESCING} by default.
+         *
+         * @see LoansExtensionProcmanRepository#LoansExtensionProcmanRepository(int)
+         */
+        public Builder setLoansExtensionBatchSize(int batchSize) {
+            checkArgument(batchSize >= NO_COALESCING,
+                          "The coalescing batch size must be positive.");
+            this.loansExtensionBatchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Sets the time in seconds after which the coalesced loans extension changes
+         * are flushed.
+         *
+         * <p>If the {@linkplain #setSchedulerEnabled(boolean) scheduler is disabled},
+         * the window should be set to the scheduler created by the caller.
+         *
+         * @see DueDateScheduler#setLoansExtensionWindow(int)
+         */
+        public Builder setLoansExtensionWindow(int seconds) {
+            checkArgument(seconds >= 0, "The window must not be negative.");
+            this.loansExtensionWindow = seconds;
+            return this;
+        }
+
+        /**
+         * Creates the settings.
+         *
+         * @throws IllegalStateException if the changes are coalesced without a window,
+         *                               so the rest of a batch would never be flushed
+         */
+        public SchedulingSettings build() {
+            checkState(loansExtensionBatchSize == NO_COALESCING || loansExtensionWindow > 0,
+                       "The coalescing batch size %s requires a positive window.",
+                       loansExtensionBatchSize);
+            return new SchedulingSettings(this);
+        }
+    }
+}
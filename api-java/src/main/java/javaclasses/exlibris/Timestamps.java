@@ -22,32 +22,53 @@ package javaclasses.exlibris;
 
 import com.google.protobuf.Timestamp;
 import io.spine.time.LocalDate;
-import io.spine.time.MonthOfYear;
 
-import java.util.Calendar;
+import java.time.ZoneId;
 import java.util.TimeZone;
 
-import static io.spine.time.Timestamps2.toDate;
+import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Utility class for working with {@link Timestamp}.
  *
+ * <p>The dates are obtained in the time zone of the library, which is
+ * the {@linkplain ZoneId#systemDefault() system default} unless
+ * {@linkplain #setLibraryTimeZone(ZoneId) configured} for the deployment.
+ *
  * @author Yurii Haidamaka
  */
 public class Timestamps {
 
+    private static volatile LocalDateConverter libraryConverter =
+            LocalDateConverter.of(ZoneId.systemDefault());
+
     private Timestamps() {
         // Prevent instantiation of this utility class.
     }
 
+    /**
+     * Sets the time zone of the library used for the dates of the projections.
+     *
+     * @param zone the time zone of the library
+     */
+    public static void setLibraryTimeZone(ZoneId zone) {
+        checkNotNull(zone);
+        libraryConverter = LocalDateConverter.of(zone);
+    }
+
+    /**
+     * Obtains the time zone of the library.
+     */
+    public static ZoneId getLibraryTimeZone() {
+        return libraryConverter.getZone();
+    }
+
     /**
      * Obtains a {@link LocalDate} from the {@link Timestamp} object
-     * using the current timezone.
+     * using the time zone of the library.
      */
     public static LocalDate toLocalDate(Timestamp timestamp) {
-        final Calendar calendar = Calendar.getInstance();
-        calendar.setTime(toDate(timestamp));
-        final LocalDate localDate = toLocalDate(calendar);
+        final LocalDate localDate = libraryConverter.toLocalDate(timestamp);
         return localDate;
     }
 
@@ -56,20 +77,8 @@ public class Timestamps {
      * and {@link TimeZone}.
      */
     public static LocalDate toLocalDate(Timestamp timestamp, TimeZone timeZone) {
-        final Calendar calendar = Calendar.getInstance(timeZone);
-        calendar.setTime(toDate(timestamp));
-        final LocalDate localDate = toLocalDate(calendar);
+        final LocalDate localDate = LocalDateConverter.of(timeZone.toZoneId())
+                                                      .toLocalDate(timestamp);
         return localDate;
     }
-
-    private static LocalDate toLocalDate(Calendar calendar) {
-        final LocalDate date = LocalDate.newBuilder()
-                                        .setDay(calendar.get(Calendar.DAY_OF_MONTH))
-                                        .setMonth(
-                                                MonthOfYear.valueOf(
-                                                        calendar.get(Calendar.MONTH) + 1))
-                                        .setYear(calendar.get(Calendar.YEAR))
-                                        .build();
-        return date;
-    }
 }
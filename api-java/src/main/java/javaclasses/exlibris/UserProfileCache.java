@@ -0,0 +1,199 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.protobuf.Message;
+import io.spine.core.Event;
+import io.spine.people.PersonName;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static io.spine.protobuf.AnyPacker.unpack;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * The user profiles used to enrich the events.
+ *
+ * <p>The profiles are kept for the time to live and then looked up in the
+ * {@link UserDirectory} again, so a renamed user is shown with the new name soon.
+ * The users unknown to the directory are cached as well and shown
+ * {@linkplain #defaultProfile(UserId) by their e-mail}.
+ *
+ * <p>The events are enriched one by one, so the directory is called per user on a miss.
+ * Before replaying many events the users of the events should be
+ * {@linkplain #preloadUsersOf(Iterable) preloaded}, then the directory is called once per batch
+ * of users.
+ */
+public class UserProfileCache {
+
+    /** The default time a profile is kept for. */
+    public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(10);
+
+    /** The default number of the users looked up in the directory at once. */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    private static final long MAXIMUM_SIZE = 100_000;
+    private static final String EMAIL_DOMAIN_SEPARATOR = "@";
+
+    private final LoadingCache<UserId, UserProfile> profiles;
+    private final int batchSize;
+
+    UserProfileCache(UserDirectory directory) {
+        this(directory, DEFAULT_TIME_TO_LIVE, DEFAULT_BATCH_SIZE, Ticker.systemTicker());
+    }
+
+    UserProfileCache(UserDirectory directory, Duration timeToLive, int batchSize, Ticker ticker) {
+        checkNotNull(directory);
+        checkNotNull(timeToLive);
+        checkNotNull(ticker);
+        checkArgument(!timeToLive.isNegative(), "The time to live must not be negative.");
+        checkArgument(batchSize > 0, "The batch size must be positive.");
+        this.batchSize = batchSize;
+        this.profiles = CacheBuilder.newBuilder()
+                                    .maximumSize(MAXIMUM_SIZE)
+                                    .expireAfterWrite(timeToLive.toMillis(), MILLISECONDS)
+                                    .ticker(ticker)
+                                    .recordStats()
+                                    .build(new DirectoryLoader(directory));
+    }
+
+    /**
+     * Obtains the profile of the user.
+     *
+     * @param userId the identifier of the user
+     * @return the profile from the directory or the default profile for an unknown user
+     */
+    UserProfile get(UserId userId) {
+        checkNotNull(userId);
+        final UserProfile result = profiles.getUnchecked(userId);
+        return result;
+    }
+
+    /**
+     * Looks up the profiles of the users which are not cached yet.
+     *
+     * @param users the identifiers of the users
+     */
+    void preload(Iterable<UserId> users) {
+        checkNotNull(users);
+        for (List<UserId> batch : Iterables.partition(ImmutableSet.copyOf(users), batchSize)) {
+            profiles.getAllUnchecked(batch);
+        }
+    }
+
+    /**
+     * Looks up the profiles of the users named in the events which are not cached yet.
+     *
+     * <p>The users are taken from the {@link UserId} fields of the event messages.
+     *
+     * @param events the events to enrich
+     */
+    void preloadUsersOf(Iterable<Event> events) {
+        checkNotNull(events);
+        final ImmutableSet.Builder<UserId> users = ImmutableSet.builder();
+        for (Event event : events) {
+            final Message message = unpack(event.getMessage());
+            for (Object value : message.getAllFields()
+                                       .values()) {
+                if (value instanceof UserId) {
+                    users.add((UserId) value);
+                }
+            }
+        }
+        preload(users.build());
+    }
+
+    /**
+     * Obtains the statistics of the cache.
+     */
+    public CacheStats getStats() {
+        return profiles.stats();
+    }
+
+    /**
+     * Creates the profile of the user unknown to the directory.
+     *
+     * <p>The user is named by the local part of the e-mail.
+     *
+     * @param userId the identifier of the user
+     * @return the profile with the given name only
+     */
+    static UserProfile defaultProfile(UserId userId) {
+        final String email = userId.getEmail()
+                                   .getValue();
+        final int separatorIndex = email.indexOf(EMAIL_DOMAIN_SEPARATOR);
+        final String givenName = separatorIndex > 0
+                                 ? email.substring(0, separatorIndex)
+                                 : email;
+        final PersonName name = PersonName.newBuilder()
+                                          .setGivenName(givenName)
+                                          .build();
+        final UserProfile result = UserProfile.newBuilder()
+                                              .setName(name)
+                                              .build();
+        return result;
+    }
+
+    /**
+     * Looks up the missing profiles in the directory in a single call.
+     */
+    private static class DirectoryLoader extends CacheLoader<UserId, UserProfile> {
+
+        private final UserDirectory directory;
+
+        private DirectoryLoader(UserDirectory directory) {
+            super();
+            this.directory = directory;
+        }
+
+        @Override
+        public UserProfile load(UserId userId) {
+            final Map<UserId, UserProfile> loaded = loadAll(ImmutableSet.of(userId));
+            return loaded.get(userId);
+        }
+
+        @Override
+        public Map<UserId, UserProfile> loadAll(Iterable<? extends UserId> users) {
+            final Set<UserId> requested = ImmutableSet.copyOf(users);
+            final Map<UserId, UserProfile> found = directory.findAll(requested);
+            final Map<UserId, UserProfile> result = new HashMap<>(found);
+            for (UserId user : requested) {
+                if (!result.containsKey(user)) {
+                    result.put(user, defaultProfile(user));
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.c;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.protobuf.Message;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The bounded cache of the states of the recently used aggregates.
+ *
+ * <p>Only the immutable state messages are cached, never the aggregates themselves, so
+ * the callers reading the same aggregate concurrently do not share a mutable object.
+ *
+ * <p>The cache serves the readers of the aggregate states, such as the process managers.
+ * The commands are dispatched to the aggregates loaded from the storage by the repository,
+ * so the command handling does not use the cache.
+ *
+ * <p>The size of the cache is measured in the bytes of the serialized states,
+ * so a few inventories with long loan histories do not take the place of thousands of
+ * ordinary ones. When the size exceeds the maximum weight, the least recently used
+ * states are evicted.
+ *
+ * <p>A state loaded by a reader may become stale before it is cached if the events of
+ * the aggregate are stored meanwhile. To detect this, every update is counted in the stripe
+ * of the aggregate identifier. A loaded state is cached only if no update of its stripe was
+ * counted since the load started, otherwise the cached state is removed again. An update
+ * counted after that check finds the loaded state in the cache and replaces it.
+ *
+ * <p>The cache keeps the statistics of the hits, the misses and the evictions. Use them to
+ * adjust the maximum weight to the size of the catalog.
+ *
+ * @param <I> the type of the aggregate identifiers
+ * @param <S> the type of the aggregate states
+ */
+public final class AggregateCache<I, S extends Message> {
+
+    /** The number of the stripes of the updates counters. */
+    private static final int STRIPES = 64;
+
+    /** The default number of the threads expected to update the cache concurrently. */
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 4;
+
+    private final Cache<I, S> cache;
+    private final AtomicLongArray updates = new AtomicLongArray(STRIPES);
+
+    private AggregateCache(long maximumWeight, int concurrencyLevel) {
+        this.cache = CacheBuilder.newBuilder()
+                                 .maximumWeight(maximumWeight)
+                                 .<I, S>weigher((id, state) -> state.getSerializedSize())
+                                 .concurrencyLevel(concurrencyLevel)
+                                 .recordStats()
+                                 .build();
+    }
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maximumWeight the maximum total size of the cached states in bytes,
+     *                      {@code 0} disables caching
+     * @param <I>           the type of the aggregate identifiers
+     * @param <S>           the type of the aggregate states
+     * @return new instance
+     */
+    public static <I, S extends Message> AggregateCache<I, S> newInstance(long maximumWeight) {
+        return newInstance(maximumWeight, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Creates a new cache with the specified concurrency level.
+     *
+     * <p>The maximum weight is split between the segments of the cache and the least recently
+     * used states are evicted within a segment, so the eviction order is exact only with
+     * the concurrency level of {@code 1}.
+     */
+    @VisibleForTesting
+    static <I, S extends Message> AggregateCache<I, S> newInstance(long maximumWeight,
+                                                                   int concurrencyLevel) {
+        checkArgument(maximumWeight >= 0, "The maximum weight must not be negative.");
+        checkArgument(concurrencyLevel > 0, "The concurrency level must be positive.");
+        return new AggregateCache<>(maximumWeight, concurrencyLevel);
+    }
+
+    /**
+     * Obtains the aggregate state from the cache or loads it.
+     *
+     * @param id     the aggregate identifier
+     * @param loader the function loading the aggregate state from the storage
+     * @return the state or {@code Optional.absent()} if there is no such aggregate
+     */
+    public Optional<S> find(I id, Function<I, Optional<S>> loader) {
+        checkNotNull(id);
+        final S cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        final int stripe = stripeOf(id);
+        final long updatesBefore = updates.get(stripe);
+        final Optional<S> loaded = loader.apply(id);
+        if (loaded.isPresent()) {
+            final ConcurrentMap<I, S> states = cache.asMap();
+            states.putIfAbsent(id, loaded.get());
+            if (updates.get(stripe) != updatesBefore) {
+                states.remove(id, loaded.get());
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Replaces the cached state of the aggregate which events have just been stored.
+     *
+     * <p>Should be called after the events are stored, so a reader loading the state
+     * concurrently either loads the new state or finds the update counted.
+     *
+     * <p>Does nothing if the state was not cached, so the aggregates which are only
+     * modified do not evict the ones which are read.
+     *
+     * @param id    the aggregate identifier
+     * @param state the new state of the aggregate
+     */
+    public void update(I id, S state) {
+        checkNotNull(id);
+        checkNotNull(state);
+        updates.incrementAndGet(stripeOf(id));
+        cache.asMap()
+             .replace(id, state);
+    }
+
+    /**
+     * Obtains the hits, misses and evictions counts since the cache was created.
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Obtains the number of the cached states.
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    private static int stripeOf(Object id) {
+        return Math.floorMod(id.hashCode(), STRIPES);
+    }
+}
@@ -20,7 +20,9 @@
 
 package javaclasses.exlibris.c.book;
 
+import com.google.common.base.Optional;
 import io.spine.server.aggregate.AggregateRepository;
+import javaclasses.exlibris.Book;
 import javaclasses.exlibris.BookId;
 
 /**
@@ -29,4 +31,50 @@ import javaclasses.exlibris.BookId;
  * @author Alexander Karpets
  */
 public class BookRepository extends AggregateRepository<BookId, BookAggregate> {
+
+    /**
+     * The number of events after which the snapshot of a {@code BookAggregate} is stored.
+     */
+    public static final int DEFAULT_SNAPSHOT_TRIGGER = 20;
+
+    /**
+     * Creates the repository with the {@linkplain #DEFAULT_SNAPSHOT_TRIGGER default}
+     * snapshot trigger.
+     */
+    public BookRepository() {
+        this(DEFAULT_SNAPSHOT_TRIGGER);
+    }
+
+    /**
+     * Creates the repository storing a snapshot of an aggregate after
+     * the specified number of events.
+     *
+     * @param snapshotTrigger the number of events between the snapshots
+     */
+    public BookRepository(int snapshotTrigger) {
+        super();
+        setSnapshotTrigger(snapshotTrigger);
+    }
+
+    /**
+     * Loads the state of the book from the storage.
+     *
+     * <p>The books read to enrich the events are cached by
+     * the {@link javaclasses.exlibris.BookEnrichmentCache BookEnrichmentCache}, which
+     * follows the book events, so the repository does not cache the states.
+     *
+     * @param id the book identifier
+     * @return the book state or {@code Optional.absent()} if there is no such book or
+     * the book was removed
+     */
+    public Optional<Book> findState(BookId id) {
+        final Optional<BookAggregate> aggregate = find(id);
+        if (!aggregate.isPresent() || aggregate.get()
+                                               .getLifecycleFlags()
+                                               .getDeleted()) {
+            return Optional.absent();
+        }
+        return Optional.of(aggregate.get()
+                                    .getState());
+    }
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.c.deadline;
+
+import com.google.protobuf.Message;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The queue of the commands to post at the specified time.
+ *
+ * <p>The commands are ordered by their deadlines in a binary heap, so that scheduling and
+ * obtaining the next due command take {@code O(log n)}. A cancelled or rescheduled command
+ * is not searched for in the heap. Its stale entry is skipped when it reaches the top.
+ *
+ * <p>The command message itself is the key of the deadline. Scheduling an equal command
+ * again replaces its deadline.
+ */
+final class DeadlineQueue {
+
+    private final PriorityQueue<Entry> heap =
+            new PriorityQueue<>(Comparator.comparingLong(Entry::getDueSeconds));
+
+    /**
+     * The actual deadlines of the scheduled commands.
+     */
+    private final Map<Message, Long> deadlines = new HashMap<>();
+
+    /**
+     * Schedules the command to be due at the specified time.
+     *
+     * @param command    the command message to post
+     * @param dueSeconds the deadline in seconds since the epoch
+     */
+    synchronized void schedule(Message command, long dueSeconds) {
+        checkNotNull(command);
+        deadlines.put(command, dueSeconds);
+        heap.add(new Entry(command, dueSeconds));
+    }
+
+    /**
+     * Schedules the command unless an equal command is already scheduled.
+     *
+     * @param command    the command message to post
+     * @param dueSeconds the deadline in seconds since the epoch
+     * @return {@code true} if the command was scheduled
+     */
+    synchronized boolean scheduleIfAbsent(Message command, long dueSeconds) {
+        checkNotNull(command);
+        if (deadlines.containsKey(command)) {
+            return false;
+        }
+        schedule(command, dueSeconds);
+        return true;
+    }
+
+    /**
+     * Cancels the scheduled command if any.
+     */
+    synchronized void cancel(Message command) {
+        checkNotNull(command);
+        deadlines.remove(command);
+    }
+
+    /**
+     * Removes and obtains the commands which deadlines have come.
+     *
+     * @param nowSeconds the current time in seconds since the epoch
+     * @param maxCount   the maximum number of commands to obtain
+     * @return the due commands in the order of their deadlines
+     */
+    synchronized List<Message> pollDue(long nowSeconds, int maxCount) {
+        final List<Message> result = new ArrayList<>();
+        while (result.size() < maxCount && !heap.isEmpty()
+                && heap.peek()
+                       .getDueSeconds() <= nowSeconds) {
+            final Entry entry = heap.poll();
+            final Message command = entry.getCommand();
+            final Long actualDeadline = deadlines.get(command);
+            if (actualDeadline != null && actualDeadline == entry.getDueSeconds()) {
+                deadlines.remove(command);
+                result.add(command);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Obtains the number of the scheduled commands.
+     */
+    synchronized int size() {
+        return deadlines.size();
+    }
+
+    synchronized void clear() {
+        deadlines.clear();
+        heap.clear();
+    }
+
+    private static final class Entry {
+
+        private final Message command;
+        private final long dueSeconds;
+
+        private Entry(Message command, long dueSeconds) {
+            this.command = command;
+            this.dueSeconds = dueSeconds;
+        }
+
+        private Message getCommand() {
+            return command;
+        }
+
+        private long getDueSeconds() {
+            return dueSeconds;
+        }
+    }
+}
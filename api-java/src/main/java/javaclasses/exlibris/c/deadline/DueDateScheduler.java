@@ -0,0 +1,365 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.c.deadline;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.protobuf.Message;
+import com.google.protobuf.Timestamp;
+import io.spine.client.ActorRequestFactory;
+import io.spine.core.Command;
+import io.spine.core.Subscribe;
+import io.spine.grpc.StreamObservers;
+import io.spine.server.BoundedContext;
+import io.spine.server.commandbus.CommandBus;
+import io.spine.server.event.EventSubscriber;
+import javaclasses.exlibris.Inventory;
+import javaclasses.exlibris.InventoryId;
+import javaclasses.exlibris.Loan;
+import javaclasses.exlibris.LoanId;
+import javaclasses.exlibris.LoanStatus;
+import javaclasses.exlibris.Reservation;
+import javaclasses.exlibris.UserId;
+import javaclasses.exlibris.c.BalanceLoansExtension;
+import javaclasses.exlibris.c.BookBorrowed;
+import javaclasses.exlibris.c.BookLost;
+import javaclasses.exlibris.c.BookReadyToPickup;
+import javaclasses.exlibris.c.BookReturned;
+import javaclasses.exlibris.c.LoanPeriodExtended;
+import javaclasses.exlibris.c.MarkLoanOverdue;
+import javaclasses.exlibris.c.MarkLoanShouldReturnSoon;
+import javaclasses.exlibris.c.MarkReservationExpired;
+import javaclasses.exlibris.c.ReservationAdded;
+import javaclasses.exlibris.c.ReservationBecameLoan;
+import javaclasses.exlibris.c.ReservationCanceled;
+import javaclasses.exlibris.c.ReservationPickUpPeriodExpired;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static io.spine.time.Time.getCurrentTime;
+import static javaclasses.exlibris.LoanStatus.LOAN_OVERDUE;
+import static javaclasses.exlibris.LoanStatus.LOAN_RECENT;
+import static javaclasses.exlibris.LoanStatus.LOAN_SOULD_RETURN_SOON;
+
+/**
+ * Posts the system commands when the loan and reservation deadlines come.
+ *
+ * <p>Issues the following commands:
+ *
+ * <ul>
+ *     <li>{@code MarkLoanShouldReturnSoon} - {@link #SHOULD_RETURN_SOON_PERIOD} before
+ *         the loan is due;
+ *     <li>{@code MarkLoanOverdue} - when the loan is due;
+ *     <li>{@code MarkReservationExpired} - when the pick up deadline of a satisfied
+ *         reservation comes;
+ *     <li>{@code BalanceLoansExtension} - at the end of the
+ *         {@linkplain #setLoansExtensionWindow(int) coalescing window} of the loans extension
+ *         changes.
+ * </ul>
+ *
+ * <p>The deadlines are fed from the inventory events and kept in a {@link DeadlineQueue},
+ * so that each tick only looks at the deadlines which have come instead of scanning
+ * the inventories. After a restart the deadlines should be {@linkplain #rebuild(Iterable)
+ * rebuilt} from the inventory states.
+ *
+ * <p>The bounded context {@linkplain javaclasses.exlibris.BoundedContexts#createContext(
+ * javaclasses.exlibris.SchedulingSettings) created} with the default settings has a started
+ * scheduler, which is stopped when the {@link javaclasses.exlibris.ExlibrisContext} is closed.
+ */
+public class DueDateScheduler extends EventSubscriber {
+
+    /**
+     * The time in seconds before the due date when the loan should be returned soon.
+     */
+    public static final int SHOULD_RETURN_SOON_PERIOD = 60 * 60 * 24 * 2;
+
+    /**
+     * The maximum number of commands posted in one batch.
+     */
+    @VisibleForTesting
+    static final int BATCH_SIZE = 500;
+
+    /**
+     * The period in seconds between the checks of the deadlines.
+     */
+    private static final int TICK_PERIOD = 60;
+
+    private static final String THREAD_NAME = "DueDateScheduler-%d";
+
+    private static final io.spine.core.UserId ACTOR =
+            io.spine.core.UserId.newBuilder()
+                                .setValue("DueDateScheduler")
+                                .build();
+
+    private final DeadlineQueue deadlines = new DeadlineQueue();
+    private final CommandBus commandBus;
+    private final ActorRequestFactory requestFactory;
+    private ScheduledExecutorService executor;
+
+    /**
+     * The coalescing window of the loans extension changes in seconds.
+     */
+    private volatile int loansExtensionWindow;
+
+    @VisibleForTesting
+    DueDateScheduler(CommandBus commandBus) {
+        super();
+        this.commandBus = checkNotNull(commandBus);
+        this.requestFactory = ActorRequestFactory.newBuilder()
+                                                 .setActor(ACTOR)
+                                                 .build();
+    }
+
+    /**
+     * Creates a new scheduler subscribed to the events of the bounded context.
+     *
+     * <p>The scheduler posts the commands after it is {@linkplain #start() started}.
+     *
+     * @param boundedContext the bounded context to subscribe to and post the commands to
+     * @return a new instance
+     */
+    public static DueDateScheduler newInstance(BoundedContext boundedContext) {
+        checkNotNull(boundedContext);
+        final DueDateScheduler result = new DueDateScheduler(boundedContext.getCommandBus());
+        boundedContext.getEventBus()
+                      .register(result);
+        return result;
+    }
+
+    /**
+     * Starts posting the due commands periodically.
+     *
+     * <p>The commands are posted from a daemon thread, so the scheduler does not keep
+     * the application running.
+     */
+    public synchronized void start() {
+        checkState(executor == null, "The scheduler is already started.");
+        final ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat(THREAD_NAME)
+                                                                      .setDaemon(true)
+                                                                      .build();
+        executor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        executor.scheduleWithFixedDelay(this::postDue, TICK_PERIOD, TICK_PERIOD,
+                                        TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops posting the due commands.
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    /**
+     * Shows whether the scheduler posts the due commands periodically.
+     */
+    public synchronized boolean isStarted() {
+        return executor != null;
+    }
+
+    /**
+     * Replaces the scheduled deadlines with the ones of the open loans
+     * and satisfied reservations of the specified inventories.
+     *
+     * @param inventories the states of all the inventories
+     */
+    public void rebuild(Iterable<Inventory> inventories) {
+        checkNotNull(inventories);
+        deadlines.clear();
+        for (Inventory inventory : inventories) {
+            final InventoryId inventoryId = inventory.getInventoryId();
+            for (Loan loan : inventory.getLoansList()) {
+                scheduleLoan(inventoryId, loan.getLoanId(), loan.getWhenDue(), loan.getStatus());
+            }
+            for (Reservation reservation : inventory.getReservationsList()) {
+                if (reservation.getIsSatisfied() && reservation.hasPickUpDeadline()) {
+                    final MarkReservationExpired command =
+                            markReservationExpired(inventoryId, reservation.getWhoReserved());
+                    deadlines.schedule(command, reservation.getPickUpDeadline()
+                                                           .getSeconds());
+                }
+            }
+        }
+    }
+
+    /**
+     * Posts all the commands which deadlines have come in batches.
+     *
+     * @return the number of posted commands
+     */
+    public int postDue() {
+        final long nowSeconds = getCurrentTime().getSeconds();
+        int postedCount = 0;
+        List<Message> batch = deadlines.pollDue(nowSeconds, BATCH_SIZE);
+        while (!batch.isEmpty()) {
+            for (Message commandMessage : batch) {
+                final Command command = requestFactory.command()
+                                                      .create(commandMessage);
+                commandBus.post(command, StreamObservers.noOpObserver());
+            }
+            postedCount += batch.size();
+            batch = deadlines.pollDue(nowSeconds, BATCH_SIZE);
+        }
+        return postedCount;
+    }
+
+    /**
+     * Sets the time in seconds during which the changes of an inventory reservations queue
+     * are collected before {@code BalanceLoansExtension} is posted.
+     *
+     * <p>The window starts with the first change after the previous command. It takes effect
+     * only if the {@code LoansExtensionProcman} changes are coalesced. The default value
+     * {@code 0} means no {@code BalanceLoansExtension} is posted.
+     *
+     * @param seconds the window duration in seconds
+     */
+    public void setLoansExtensionWindow(int seconds) {
+        checkArgument(seconds >= 0, "The window must not be negative.");
+        this.loansExtensionWindow = seconds;
+    }
+
+    /**
+     * Obtains the number of the scheduled commands.
+     */
+    public int getScheduledCount() {
+        return deadlines.size();
+    }
+
+    @Subscribe
+    public void on(BookBorrowed event) {
+        scheduleLoan(event.getInventoryId(), event.getLoanId(), event.getWhenDue(),
+                     LOAN_RECENT);
+    }
+
+    @Subscribe
+    public void on(LoanPeriodExtended event) {
+        scheduleLoan(event.getInventoryId(), event.getLoanId(), event.getNewDueDate(),
+                     LOAN_RECENT);
+    }
+
+    @Subscribe
+    public void on(BookReturned event) {
+        cancelLoan(event.getInventoryId(), event.getLoanId());
+    }
+
+    @Subscribe
+    public void on(BookLost event) {
+        if (event.hasLoanId()) {
+            cancelLoan(event.getInventoryId(), event.getLoanId());
+        }
+    }
+
+    @Subscribe
+    public void on(ReservationAdded event) {
+        scheduleLoansExtensionBalance(event.getInventoryId());
+    }
+
+    @Subscribe
+    public void on(BookReadyToPickup event) {
+        final MarkReservationExpired command = markReservationExpired(event.getInventoryId(),
+                                                                      event.getForWhom());
+        deadlines.schedule(command, event.getPickUpDeadline()
+                                         .getSeconds());
+        scheduleLoansExtensionBalance(event.getInventoryId());
+    }
+
+    @Subscribe
+    public void on(ReservationBecameLoan event) {
+        deadlines.cancel(markReservationExpired(event.getInventoryId(), event.getUserId()));
+    }
+
+    @Subscribe
+    public void on(ReservationCanceled event) {
+        deadlines.cancel(markReservationExpired(event.getInventoryId(), event.getWhoCanceled()));
+        if (!event.getWasSatisfied()) {
+            scheduleLoansExtensionBalance(event.getInventoryId());
+        }
+    }
+
+    @Subscribe
+    public void on(ReservationPickUpPeriodExpired event) {
+        deadlines.cancel(markReservationExpired(event.getInventoryId(), event.getUserId()));
+    }
+
+    private void scheduleLoan(InventoryId inventoryId, LoanId loanId, Timestamp whenDue,
+                              LoanStatus status) {
+        final long dueSeconds = whenDue.getSeconds();
+        if (status != LOAN_OVERDUE) {
+            deadlines.schedule(markLoanOverdue(inventoryId, loanId), dueSeconds);
+        }
+        if (status != LOAN_OVERDUE && status != LOAN_SOULD_RETURN_SOON) {
+            deadlines.schedule(markLoanShouldReturnSoon(inventoryId, loanId),
+                               dueSeconds - SHOULD_RETURN_SOON_PERIOD);
+        }
+    }
+
+    private void scheduleLoansExtensionBalance(InventoryId inventoryId) {
+        final int window = loansExtensionWindow;
+        if (window > 0) {
+            final BalanceLoansExtension command = BalanceLoansExtension.newBuilder()
+                                                                       .setInventoryId(
+                                                                               inventoryId)
+                                                                       .build();
+            deadlines.scheduleIfAbsent(command, getCurrentTime().getSeconds() + window);
+        }
+    }
+
+    private void cancelLoan(InventoryId inventoryId, LoanId loanId) {
+        deadlines.cancel(markLoanOverdue(inventoryId, loanId));
+        deadlines.cancel(markLoanShouldReturnSoon(inventoryId, loanId));
+    }
+
+    private static MarkLoanOverdue markLoanOverdue(InventoryId inventoryId, LoanId loanId) {
+        final MarkLoanOverdue result = MarkLoanOverdue.newBuilder()
+                                                      .setInventoryId(inventoryId)
+                                                      .setLoanId(loanId)
+                                                      .build();
+        return result;
+    }
+
+    private static MarkLoanShouldReturnSoon markLoanShouldReturnSoon(InventoryId inventoryId,
+                                                                     LoanId loanId) {
+        final MarkLoanShouldReturnSoon result = MarkLoanShouldReturnSoon.newBuilder()
+                                                                        .setInventoryId(
+                                                                                inventoryId)
+                                                                        .setLoanId(loanId)
+                                                                        .build();
+        return result;
+    }
+
+    private static MarkReservationExpired markReservationExpired(InventoryId inventoryId,
+                                                                 UserId userId) {
+        final MarkReservationExpired result = MarkReservationExpired.newBuilder()
+                                                                    .setInventoryId(inventoryId)
+                                                                    .setUserId(userId)
+                                                                    .build();
+        return result;
+    }
+}
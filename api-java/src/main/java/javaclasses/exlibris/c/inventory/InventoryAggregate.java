@@ -21,8 +21,8 @@
 package javaclasses.exlibris.c.inventory;
 
 import com.google.common.base.Optional;
-import com.google.common.collect.Iterables;
 import com.google.protobuf.Empty;
+import com.google.protobuf.Message;
 import com.google.protobuf.Timestamp;
 import io.spine.core.React;
 import io.spine.server.aggregate.Aggregate;
@@ -38,12 +38,14 @@ import javaclasses.exlibris.InventoryVBuilder;
 import javaclasses.exlibris.Isbn62;
 import javaclasses.exlibris.Loan;
 import javaclasses.exlibris.LoanId;
+import javaclasses.exlibris.LoanIds;
 import javaclasses.exlibris.LoanStatus;
 import javaclasses.exlibris.Reservation;
 import javaclasses.exlibris.UserId;
 import javaclasses.exlibris.WriteOffReason;
 import javaclasses.exlibris.c.AllowLoansExtension;
 import javaclasses.exlibris.c.AppendInventory;
+import javaclasses.exlibris.c.AppendInventoryBatch;
 import javaclasses.exlibris.c.BookAdded;
 import javaclasses.exlibris.c.BookBecameAvailable;
 import javaclasses.exlibris.c.BookBorrowed;
@@ -51,11 +53,14 @@ import javaclasses.exlibris.c.BookLost;
 import javaclasses.exlibris.c.BookReadyToPickup;
 import javaclasses.exlibris.c.BookRemoved;
 import javaclasses.exlibris.c.BookReturned;
+import javaclasses.exlibris.c.BookReturnResult;
 import javaclasses.exlibris.c.BorrowBook;
 import javaclasses.exlibris.c.CancelReservation;
 import javaclasses.exlibris.c.ExtendLoanPeriod;
 import javaclasses.exlibris.c.ForbidLoansExtension;
 import javaclasses.exlibris.c.InventoryAppended;
+import javaclasses.exlibris.c.InventoryBatchAppended;
+import javaclasses.exlibris.c.InventoryBooksReturned;
 import javaclasses.exlibris.c.InventoryCreated;
 import javaclasses.exlibris.c.InventoryDecreased;
 import javaclasses.exlibris.c.InventoryRemoved;
@@ -75,10 +80,13 @@ import javaclasses.exlibris.c.ReservationCanceled;
 import javaclasses.exlibris.c.ReservationPickUpPeriodExpired;
 import javaclasses.exlibris.c.ReserveBook;
 import javaclasses.exlibris.c.ReturnBook;
+import javaclasses.exlibris.c.ReturnInventoryBooks;
+import javaclasses.exlibris.c.ReturnedItem;
 import javaclasses.exlibris.c.SatisfyReservation;
 import javaclasses.exlibris.c.WriteBookOff;
 import javaclasses.exlibris.c.rejection.BookAlreadyBorrowed;
 import javaclasses.exlibris.c.rejection.BookAlreadyReserved;
+import javaclasses.exlibris.c.rejection.CannotAppendInventoryBatch;
 import javaclasses.exlibris.c.rejection.CannotCancelMissingReservation;
 import javaclasses.exlibris.c.rejection.CannotExtendLoanPeriod;
 import javaclasses.exlibris.c.rejection.CannotReserveAvailableBook;
@@ -86,8 +94,12 @@ import javaclasses.exlibris.c.rejection.CannotReturnMissingBook;
 import javaclasses.exlibris.c.rejection.CannotReturnNonBorrowedBook;
 import javaclasses.exlibris.c.rejection.CannotWriteBookOff;
 import javaclasses.exlibris.c.rejection.NonAvailableBook;
+import javaclasses.exlibris.c.rejection.Rejections;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static io.spine.time.Time.getCurrentTime;
 import static javaclasses.exlibris.LoanStatus.LOAN_OVERDUE;
@@ -100,7 +112,10 @@ import static javaclasses.exlibris.c.inventory.InventoryAggregateRejections.Rese
 import static javaclasses.exlibris.c.inventory.InventoryAggregateRejections.ReserveBookRejection.cannotReserveAvailableBook;
 import static javaclasses.exlibris.c.inventory.InventoryAggregateRejections.ReturnBookRejection.cannotReturnNonBorrowedBook;
 import static javaclasses.exlibris.c.inventory.InventoryAggregateRejections.ReturnBookRejection.throwCannotReturnMissingBook;
+import static javaclasses.exlibris.c.inventory.InventoryAggregateRejections.MarkLoanRejection.cannotMarkMissingLoan;
+import static javaclasses.exlibris.c.inventory.InventoryAggregateRejections.cannotAppendInventoryBatch;
 import static javaclasses.exlibris.c.inventory.InventoryAggregateRejections.cannotCancelMissingReservation;
+import static javaclasses.exlibris.c.inventory.InventoryAggregateRejections.cannotExpireMissingReservation;
 import static javaclasses.exlibris.c.inventory.InventoryAggregateRejections.cannotExtendLoanPeriod;
 import static javaclasses.exlibris.c.inventory.InventoryAggregateRejections.cannotWriteBookOff;
 
@@ -138,6 +153,24 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
      */
     private static final int OPEN_FOR_BORROW_PERIOD = 60 * 60 * 24 * 2;
 
+    /**
+     * The lookup index over the inventory items, loans and reservations.
+     *
+     * <p>Is updated by the event appliers along with the aggregate state.
+     */
+    private InventoryIndex inventoryIndex = new InventoryIndex();
+
+    /**
+     * The state which the {@link #inventoryIndex} was last checked against.
+     */
+    private Inventory indexedState;
+
+    /**
+     * The builder of the transaction which the {@link #inventoryIndex} was last
+     * checked against.
+     */
+    private InventoryVBuilder indexedBuilder;
+
     /**
      * Creates a new instance.
      *
@@ -161,6 +194,65 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
         return inventoryAppended;
     }
 
+    // @formatter:off
+    /**
+     * Handles a {@code AppendInventoryBatch} command.
+     *
+     * <p>For details see {@link AppendInventoryBatch}.
+     *
+     * <p>Emits the following events:
+     *
+     * <ul>
+     *      <li>{@code InventoryBatchAppended} - for all the appended items.
+     *      <li>{@code BookReadyToPickup} - for each of the eldest unsatisfied reservations
+     *          as long as there are appended items for them.
+     *      <li>{@code BookBecameAvailable} - when there are appended items left after
+     *          the reservations are satisfied.
+     * </ul>
+     *
+     * @param cmd command with the identifiers of the appended items.
+     * @return the list of events.
+     * @throws CannotAppendInventoryBatch if the batch is empty, repeats an item or has
+     *                                    an item which is already in the inventory.
+     */
+    // @formatter:on
+    @Assign
+    List<Message> handle(AppendInventoryBatch cmd) throws CannotAppendInventoryBatch {
+        checkBatchItems(cmd);
+        final InventoryId inventoryId = cmd.getInventoryId();
+        final int appendedItemsCount = cmd.getInventoryItemIdsCount();
+        final Timestamp currentTime = getCurrentTime();
+        final List<Message> result = new ArrayList<>();
+        result.add(createInventoryBatchAppendedEvent(cmd, currentTime));
+
+        final List<Reservation> reservationsToSatisfy = stateIndex().waitlist()
+                                                                    .next(appendedItemsCount);
+        for (Reservation reservation : reservationsToSatisfy) {
+            final UserId userId = reservation.getWhoReserved();
+            result.add(createBookReadyToPickupEvent(inventoryId, userId, currentTime));
+        }
+
+        final int itemsLeftCount = appendedItemsCount - reservationsToSatisfy.size();
+        if (itemsLeftCount > 0) {
+            final int availableItemsCount = getAvailableInventoryItemsCount() + itemsLeftCount;
+            result.add(createBookBecameAvailableEvent(availableItemsCount, currentTime));
+        }
+        return result;
+    }
+
+    private void checkBatchItems(AppendInventoryBatch cmd) throws CannotAppendInventoryBatch {
+        final List<InventoryItemId> itemIds = cmd.getInventoryItemIdsList();
+        if (itemIds.isEmpty()) {
+            throw cannotAppendInventoryBatch(cmd, InventoryItemId.getDefaultInstance());
+        }
+        final Set<InventoryItemId> batchItemIds = new HashSet<>();
+        for (InventoryItemId itemId : itemIds) {
+            if (!batchItemIds.add(itemId) || inventoryItemExists(itemId)) {
+                throw cannotAppendInventoryBatch(cmd, itemId);
+            }
+        }
+    }
+
     /**
      * Handles a {@code WriteBookOff} command.
      *
@@ -243,6 +335,7 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
                                                                                NonAvailableBook {
         final UserId userId = cmd.getUserId();
         final InventoryItemId inventoryItemId = cmd.getInventoryItemId();
+        final Timestamp currentTime = getCurrentTime();
 
         if (isBookBorrowedByUser(userId)) {
             throw bookAlreadyBorrowed(cmd);
@@ -251,28 +344,26 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
             throw nonAvailableBook(cmd);
         }
 
-        final List<Reservation> reservations = getState().getReservationsList();
-
         if (isBookReservedByUser(userId)) {
-            final Reservation reservation = getReservationByUserId(userId, reservations);
+            final Reservation reservation = getReservationByUserId(userId);
             if (!reservation.getIsSatisfied()) {
                 throw nonAvailableBook(cmd);
             }
             final int availableItemsCount = getAvailableInventoryItemsCount();
             final BookBorrowed bookBorrowedEvent =
-                    createBookBorrowedEvent(cmd, availableItemsCount);
+                    createBookBorrowedEvent(cmd, availableItemsCount, currentTime);
             final ReservationBecameLoan reservationBecameLoanEvent =
-                    createReservationBecameLoanEvent(cmd);
+                    createReservationBecameLoanEvent(cmd, currentTime);
             final Pair result = Pair.of(bookBorrowedEvent, reservationBecameLoanEvent);
             return result;
         }
 
-        if (!isThereInventoryItemsFreeForBorrowing()) {
+        final int availableItemsCount = getAvailableInventoryItemsCount();
+        if (availableItemsCount <= 0) {
             throw nonAvailableBook(cmd);
         }
-        final int availableItemsCount = getAvailableInventoryItemsCount();
         final BookBorrowed bookBorrowedEvent =
-                createBookBorrowedEvent(cmd, availableItemsCount - 1);
+                createBookBorrowedEvent(cmd, availableItemsCount - 1, currentTime);
         final Pair result = Pair.withNullable(bookBorrowedEvent, null);
         return result;
     }
@@ -284,9 +375,13 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
      *
      * @param cmd command from system that marks the loan as overdue.
      * @return a {@code LoanBecameOverdue} event.
+     * @throws CannotMarkMissingLoan if the loan is already closed.
      */
     @Assign
-    LoanBecameOverdue handle(MarkLoanOverdue cmd) {
+    LoanBecameOverdue handle(MarkLoanOverdue cmd) throws CannotMarkMissingLoan {
+        if (!loanExists(cmd.getLoanId())) {
+            throw cannotMarkMissingLoan(cmd);
+        }
         final LoanBecameOverdue becameOverdueEvent = createLoanBecameOverdueEvent(cmd);
         return becameOverdueEvent;
     }
@@ -298,9 +393,14 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
      *
      * @param cmd command from system that marks the loan as should be returned soon.
      * @return a {@code LoanBecameShouldReturnSoon} event.
+     * @throws CannotMarkMissingLoan if the loan is already closed.
      */
     @Assign
-    LoanBecameShouldReturnSoon handle(MarkLoanShouldReturnSoon cmd) {
+    LoanBecameShouldReturnSoon handle(MarkLoanShouldReturnSoon cmd)
+            throws CannotMarkMissingLoan {
+        if (!loanExists(cmd.getLoanId())) {
+            throw cannotMarkMissingLoan(cmd);
+        }
         final LoanBecameShouldReturnSoon shouldReturnSoonEvent =
                 createLoanBecameShouldReturnSoonEvent(cmd);
         return shouldReturnSoonEvent;
@@ -355,9 +455,14 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
      *
      * @param cmd system command that contains the identifier of an expired reservation.
      * @return the {@code ReservationPickUpPeriodExpired} event.
+     * @throws CannotExpireMissingReservation if the reservation is already removed.
      */
     @Assign
-    ReservationPickUpPeriodExpired handle(MarkReservationExpired cmd) {
+    ReservationPickUpPeriodExpired handle(MarkReservationExpired cmd)
+            throws CannotExpireMissingReservation {
+        if (!isBookReservedByUser(cmd.getUserId())) {
+            throw cannotExpireMissingReservation(cmd);
+        }
         final ReservationPickUpPeriodExpired reservationExpiredEvent =
                 createReservationPickUpPeriodExpiredEvent(cmd);
         return reservationExpiredEvent;
@@ -385,10 +490,78 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
             throw cannotReturnNonBorrowedBook(cmd);
         }
 
-        final BookReturned bookReturnedEvent = createBookReturnedEvent(cmd);
+        final BookReturned bookReturnedEvent = createBookReturnedEvent(cmd.getInventoryId(),
+                                                                       inventoryItemId, userId,
+                                                                       getCurrentTime());
         return bookReturnedEvent;
     }
 
+    // @formatter:off
+    /**
+     * Handles a {@code ReturnInventoryBooks} command.
+     *
+     * <p>For details see {@link ReturnInventoryBooks}.
+     *
+     * <p>Unlike {@link ReturnBook}, the items that cannot be returned do not reject
+     * the whole command. Emits the following events:
+     *
+     * <ul>
+     *      <li>{@code BookReturned} - for each of the returned items.
+     *      <li>{@code InventoryBooksReturned} - with the outcome for each of the items
+     *          including the rejected ones.
+     * </ul>
+     *
+     * @param cmd command with the items returned at the return desk.
+     * @return the list of events.
+     */
+    // @formatter:on
+    @Assign
+    List<Message> handle(ReturnInventoryBooks cmd) {
+        final InventoryId inventoryId = cmd.getInventoryId();
+        final Timestamp currentTime = getCurrentTime();
+        final List<Message> result = new ArrayList<>();
+        final InventoryBooksReturned.Builder booksReturned =
+                InventoryBooksReturned.newBuilder()
+                                      .setInventoryId(inventoryId)
+                                      .setWhenProcessed(currentTime);
+        final Set<InventoryItemId> returnedItems = new HashSet<>();
+        for (ReturnedItem item : cmd.getItemsList()) {
+            final InventoryItemId inventoryItemId = item.getInventoryItemId();
+            final UserId userId = item.getUserId();
+            final BookReturnResult.Builder returnResult =
+                    BookReturnResult.newBuilder()
+                                    .setInventoryItemId(inventoryItemId)
+                                    .setUserId(userId);
+            if (!inventoryItemExists(inventoryItemId)) {
+                returnResult.setMissingBook(
+                        Rejections.CannotReturnMissingBook.newBuilder()
+                                                          .setInventoryId(inventoryId)
+                                                          .setInventoryItemId(inventoryItemId)
+                                                          .setUserId(userId)
+                                                          .setWhenRejected(currentTime));
+            } else if (returnedItems.contains(inventoryItemId)
+                    || !isInventoryItemBorrowedByUser(inventoryItemId, userId)) {
+                returnResult.setNonBorrowedBook(
+                        Rejections.CannotReturnNonBorrowedBook.newBuilder()
+                                                              .setInventoryId(inventoryId)
+                                                              .setInventoryItemId(inventoryItemId)
+                                                              .setUserId(userId)
+                                                              .setWhenRejected(currentTime));
+            } else {
+                final BookReturned bookReturned = createBookReturnedEvent(inventoryId,
+                                                                          inventoryItemId,
+                                                                          userId,
+                                                                          currentTime);
+                returnedItems.add(inventoryItemId);
+                returnResult.setLoanId(bookReturned.getLoanId());
+                result.add(bookReturned);
+            }
+            booksReturned.addResults(returnResult);
+        }
+        result.add(booksReturned.build());
+        return result;
+    }
+
     /**
      * Handles a {@code ReportLostBook} command.
      *
@@ -444,7 +617,9 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
      */
     @Assign
     BookReadyToPickup handle(SatisfyReservation cmd) {
-        final BookReadyToPickup result = createBookReadyToPickupEvent(cmd);
+        final BookReadyToPickup result = createBookReadyToPickupEvent(cmd.getInventoryId(),
+                                                                      cmd.getUserId(),
+                                                                      getCurrentTime());
         return result;
     }
 
@@ -458,7 +633,9 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
      */
     @Assign
     BookBecameAvailable handle(MarkBookAsAvailable cmd) {
-        final BookBecameAvailable result = createBookBecameAvailableEvent();
+        final int availableItemsCount = getAvailableInventoryItemsCount();
+        final BookBecameAvailable result = createBookBecameAvailableEvent(availableItemsCount,
+                                                                          getCurrentTime());
         return result;
     }
 
@@ -521,17 +698,38 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
         getBuilder().clearInventoryId()
                     .clearInventoryItems()
                     .clearLoans()
-                    .clearReservations();
+                    .clearReservations()
+                    .clearInLibraryCount()
+                    .clearSatisfiedReservationsCount()
+                    .clearUnsatisfiedReservationsCount()
+                    .clearExtensionForbiddenLoansCount();
+        inventoryIndex.clear();
     }
 
     @Apply
     void inventoryAppended(InventoryAppended event) {
         final InventoryItemId inventoryItemId = event.getInventoryItemId();
+        appendInventoryItem(inventoryItemId);
+    }
+
+    @Apply
+    void inventoryBatchAppended(InventoryBatchAppended event) {
+        for (InventoryItemId inventoryItemId : event.getInventoryItemIdsList()) {
+            appendInventoryItem(inventoryItemId);
+        }
+    }
+
+    private void appendInventoryItem(InventoryItemId inventoryItemId) {
+        final InventoryIndex index = builderIndex();
         final InventoryItem newInventoryItem = InventoryItem.newBuilder()
                                                             .setInLibrary(true)
                                                             .setInventoryItemId(inventoryItemId)
                                                             .build();
-        getBuilder().addInventoryItems(newInventoryItem);
+        final int itemPosition = getBuilder().getInventoryItems()
+                                             .size();
+        getBuilder().addInventoryItems(newInventoryItem)
+                    .setInLibraryCount(getBuilder().getInLibraryCount() + 1);
+        index.itemAdded(inventoryItemId, itemPosition);
     }
 
     @Apply
@@ -542,36 +740,49 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
 
     @Apply
     void bookReadyToPickup(BookReadyToPickup event) {
+        final InventoryIndex index = builderIndex();
         final List<Reservation> reservations = getBuilder().getReservations();
         final UserId forWhom = event.getForWhom();
-        final Reservation reservation = getReservationByUserId(forWhom, reservations);
-        final int reservationIndex = getReservationIndexByUserId(forWhom, reservations);
+        final int reservationIndex = index.reservationPositionOf(forWhom);
+        final Reservation reservation = reservations.get(reservationIndex);
 
         final Reservation satisfiedReservation = Reservation.newBuilder(reservation)
                                                             .setIsSatisfied(true)
+                                                            .setPickUpDeadline(
+                                                                    event.getPickUpDeadline())
                                                             .build();
-        getBuilder().setReservations(reservationIndex, satisfiedReservation);
+        getBuilder().setReservations(reservationIndex, satisfiedReservation)
+                    .setUnsatisfiedReservationsCount(
+                            getBuilder().getUnsatisfiedReservationsCount() - 1)
+                    .setSatisfiedReservationsCount(
+                            getBuilder().getSatisfiedReservationsCount() + 1);
+        index.reservationSatisfied(forWhom);
     }
 
     @Apply
     void reservationBecameLoan(ReservationBecameLoan event) {
-        final List<Reservation> reservations = getBuilder().getReservations();
         final UserId userId = event.getUserId();
-        final int reservationIndex = getReservationIndexByUserId(userId, reservations);
-        getBuilder().removeReservations(reservationIndex);
+        removeReservation(userId);
     }
 
     @Apply
     void inventoryDecreased(InventoryDecreased event) {
-        final List<InventoryItem> inventoryItems = getBuilder().getInventoryItems();
+        final InventoryIndex index = builderIndex();
         final InventoryItemId inventoryItemId = event.getInventoryItemId();
-        final int itemIndex = getInventoryItemIndexById(inventoryItemId, inventoryItems);
+        final int itemIndex = index.itemPosition(inventoryItemId);
+        final InventoryItem inventoryItem = getBuilder().getInventoryItems()
+                                                        .get(itemIndex);
 
         getBuilder().removeInventoryItems(itemIndex);
+        if (inventoryItem.getInLibrary()) {
+            getBuilder().setInLibraryCount(getBuilder().getInLibraryCount() - 1);
+        }
+        index.itemRemoved(inventoryItemId);
     }
 
     @Apply
     void reservationAdded(ReservationAdded event) {
+        final InventoryIndex index = builderIndex();
         final Isbn62 isbn62 = event.getInventoryId()
                                    .getBookId()
                                    .getIsbn62();
@@ -589,14 +800,21 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
             final Timestamp whenExpected = event.getWhenExpected();
             reservation.setWhenExpected(whenExpected);
         }
-        getBuilder().addReservations(reservation.build());
+        final Reservation newReservation = reservation.build();
+        final int reservationPosition = getBuilder().getReservations()
+                                                    .size();
+        getBuilder().addReservations(newReservation)
+                    .setUnsatisfiedReservationsCount(
+                            getBuilder().getUnsatisfiedReservationsCount() + 1);
+        index.reservationAdded(newReservation, reservationPosition);
     }
 
     @Apply
     void bookBorrowed(BookBorrowed event) {
+        final InventoryIndex index = builderIndex();
         final List<InventoryItem> inventoryItems = getBuilder().getInventoryItems();
         final InventoryItemId inventoryItemId = event.getInventoryItemId();
-        final int itemPosition = getInventoryItemIndexById(inventoryItemId, inventoryItems);
+        final int itemPosition = index.itemPosition(inventoryItemId);
         final InventoryItem inventoryItem = inventoryItems.get(itemPosition);
         final UserId whoBorrowed = event.getWhoBorrowed();
         final InventoryItem borrowedItem = InventoryItem.newBuilder(inventoryItem)
@@ -616,9 +834,15 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
                               .setWhenDue(whenDue)
                               .setIsAllowedExtension(true)
                               .build();
+        final int loanPosition = getBuilder().getLoans()
+                                             .size();
 
         getBuilder().setInventoryItems(itemPosition, borrowedItem)
                     .addLoans(loan);
+        if (inventoryItem.getInLibrary()) {
+            getBuilder().setInLibraryCount(getBuilder().getInLibraryCount() - 1);
+        }
+        index.loanAdded(loan, loanPosition);
     }
 
     @Apply
@@ -635,7 +859,7 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
 
     private void updateLoanStatus(LoanId loanId, LoanStatus newLoanStatus) {
         final List<Loan> loans = getBuilder().getLoans();
-        final int loanPosition = getLoanIndexByLoanId(loanId, loans);
+        final int loanPosition = builderIndex().loanPosition(loanId);
         final Loan loan = loans.get(loanPosition);
         final Loan updatedLoan = Loan.newBuilder(loan)
                                      .setStatus(newLoanStatus)
@@ -648,7 +872,7 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
         final LoanId loanId = event.getLoanId();
         final Timestamp newDueDate = event.getNewDueDate();
         final List<Loan> loans = getBuilder().getLoans();
-        final int loanPosition = getLoanIndexByLoanId(loanId, loans);
+        final int loanPosition = builderIndex().loanPosition(loanId);
         final Loan loan = loans.get(loanPosition);
         final Loan updatedLoan = Loan.newBuilder(loan)
                                      .setStatus(LOAN_RECENT)
@@ -660,48 +884,72 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
     @Apply
     void reservationCanceled(ReservationCanceled event) {
         final UserId whoCanceled = event.getWhoCanceled();
-        final List<Reservation> reservations = getBuilder().getReservations();
-        final int reservationIndex = getReservationIndexByUserId(whoCanceled, reservations);
-
-        getBuilder().removeReservations(reservationIndex);
+        removeReservation(whoCanceled);
     }
 
     @Apply
     void reservationPickUpPeriodExpired(ReservationPickUpPeriodExpired event) {
         final UserId userId = event.getUserId();
-        final List<Reservation> reservations = getBuilder().getReservations();
-        final int reservationPosition = getReservationIndexByUserId(userId, reservations);
+        removeReservation(userId);
+    }
+
+    private void removeReservation(UserId userId) {
+        final InventoryIndex index = builderIndex();
+        final int reservationPosition = index.reservationPositionOf(userId);
+        final Reservation reservation = getBuilder().getReservations()
+                                                    .get(reservationPosition);
 
         getBuilder().removeReservations(reservationPosition);
+        if (reservation.getIsSatisfied()) {
+            getBuilder().setSatisfiedReservationsCount(
+                    getBuilder().getSatisfiedReservationsCount() - 1);
+        } else {
+            getBuilder().setUnsatisfiedReservationsCount(
+                    getBuilder().getUnsatisfiedReservationsCount() - 1);
+        }
+        index.reservationRemoved(userId);
     }
 
     @Apply
     void bookReturned(BookReturned event) {
+        final InventoryIndex index = builderIndex();
         final UserId whoReturned = event.getWhoReturned();
         final InventoryItemId inventoryItemId = event.getInventoryItemId();
         final List<InventoryItem> inventoryItems = getBuilder().getInventoryItems();
         final List<Loan> loans = getBuilder().getLoans();
-        final int returnedItemPosition = getInventoryItemIndexById(inventoryItemId, inventoryItems);
+        final int returnedItemPosition = index.itemPosition(inventoryItemId);
         final InventoryItem inventoryItem = inventoryItems.get(returnedItemPosition);
-        final int loanIndex = getLoanIndexByUserId(whoReturned, loans);
+        final int loanIndex = index.loanPositionOf(whoReturned);
+        final Loan loan = loans.get(loanIndex);
         final InventoryItem returnedItem = InventoryItem.newBuilder(inventoryItem)
                                                         .clearBorrowed()
                                                         .clearUserId()
                                                         .setInLibrary(true)
                                                         .build();
         getBuilder().setInventoryItems(returnedItemPosition, returnedItem);
-        getBuilder().removeLoans(loanIndex);
+        if (!inventoryItem.getInLibrary()) {
+            getBuilder().setInLibraryCount(getBuilder().getInLibraryCount() + 1);
+        }
+        removeLoan(loanIndex, loan);
+    }
+
+    @Apply
+    void inventoryBooksReturned(InventoryBooksReturned event) {
+        // The returned items are applied by the BookReturned events.
+        // Used to notify the return desk about the outcome for each of the items.
     }
 
     @Apply
     void bookLost(BookLost event) {
+        final InventoryIndex index = builderIndex();
         final UserId whoLost = event.getWhoLost();
         final InventoryItemId inventoryItemId = event.getInventoryItemId();
         final List<InventoryItem> inventoryItems = getBuilder().getInventoryItems();
         final List<Loan> loans = getBuilder().getLoans();
-        final int returnedItemPosition = getInventoryItemIndexById(inventoryItemId, inventoryItems);
+        final int returnedItemPosition = index.itemPosition(inventoryItemId);
         final InventoryItem inventoryItem = inventoryItems.get(returnedItemPosition);
-        final int loanIndex = getLoanIndexByUserId(whoLost, loans);
+        final int loanIndex = index.loanPositionOf(whoLost);
+        final Loan loan = loans.get(loanIndex);
         final InventoryItem returnedItem = InventoryItem.newBuilder(inventoryItem)
                                                         .clearBorrowed()
                                                         .clearUserId()
@@ -709,43 +957,66 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
                                                         .setLost(true)
                                                         .build();
         getBuilder().setInventoryItems(returnedItemPosition, returnedItem);
+        if (inventoryItem.getInLibrary()) {
+            getBuilder().setInLibraryCount(getBuilder().getInLibraryCount() - 1);
+        }
+        removeLoan(loanIndex, loan);
+    }
+
+    private void removeLoan(int loanIndex, Loan loan) {
         getBuilder().removeLoans(loanIndex);
+        if (!loan.getIsAllowedExtension()) {
+            getBuilder().setExtensionForbiddenLoansCount(
+                    getBuilder().getExtensionForbiddenLoansCount() - 1);
+        }
+        inventoryIndex.loanRemoved(loan);
     }
 
     @Apply
     void loansExtensionAllowed(LoansExtensionAllowed event) {
+        final InventoryIndex index = builderIndex();
         final List<UserId> borrowersList = event.getBorrowersList();
         final List<Loan> loans = getBuilder().getLoans();
 
         for (UserId borrower : borrowersList) {
-            final int loanIndex = getLoanIndexByUserId(borrower, loans);
+            final int loanIndex = index.loanPositionOf(borrower);
             final Loan loan = loans.get(loanIndex);
+            if (!loan.getIsAllowedExtension()) {
+                getBuilder().setExtensionForbiddenLoansCount(
+                        getBuilder().getExtensionForbiddenLoansCount() - 1);
+            }
             final Loan updatedLoan = Loan.newBuilder(loan)
                                          .setIsAllowedExtension(true)
                                          .build();
             getBuilder().setLoans(loanIndex, updatedLoan);
+            index.loanUpdated(updatedLoan, loanIndex);
         }
     }
 
     @Apply
     void loansExtensionForbidden(LoansExtensionForbidden event) {
+        final InventoryIndex index = builderIndex();
         final List<UserId> borrowersList = event.getBorrowersList();
         final List<Loan> loans = getBuilder().getLoans();
 
         for (UserId borrower : borrowersList) {
-            final int loanIndex = getLoanIndexByUserId(borrower, loans);
+            final int loanIndex = index.loanPositionOf(borrower);
             final Loan loan = loans.get(loanIndex);
+            if (loan.getIsAllowedExtension()) {
+                getBuilder().setExtensionForbiddenLoansCount(
+                        getBuilder().getExtensionForbiddenLoansCount() + 1);
+            }
             final Loan updatedLoan = Loan.newBuilder(loan)
                                          .setIsAllowedExtension(false)
                                          .build();
             getBuilder().setLoans(loanIndex, updatedLoan);
+            index.loanUpdated(updatedLoan, loanIndex);
         }
     }
 
-    private BookBecameAvailable createBookBecameAvailableEvent() {
+    private BookBecameAvailable createBookBecameAvailableEvent(int availableItemsCount,
+                                                               Timestamp currentTime) {
         final InventoryId inventoryId = getState().getInventoryId();
-        final Timestamp currentTime = getCurrentTime();
-        final int availableItemsCount = getAvailableInventoryItemsCount();
         final BookBecameAvailable bookBecameAvailable =
                 BookBecameAvailable.newBuilder()
                                    .setInventoryId(inventoryId)
@@ -755,14 +1026,13 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
         return bookBecameAvailable;
     }
 
-    private BookReadyToPickup createBookReadyToPickupEvent(SatisfyReservation cmd) {
-        final UserId userId = cmd.getUserId();
-        final Timestamp currentTime = getCurrentTime();
+    private BookReadyToPickup createBookReadyToPickupEvent(InventoryId inventoryId,
+                                                           UserId userId,
+                                                           Timestamp currentTime) {
         final long pickupDeadlineTimeSeconds = currentTime.getSeconds() + OPEN_FOR_BORROW_PERIOD;
         final Timestamp pickUpDeadline = Timestamp.newBuilder()
                                                   .setSeconds(pickupDeadlineTimeSeconds)
                                                   .build();
-        final InventoryId inventoryId = cmd.getInventoryId();
         final BookReadyToPickup bookReadyToPickup =
                 BookReadyToPickup.newBuilder()
                                  .setInventoryId(inventoryId)
@@ -788,21 +1058,38 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
         return inventoryAppended;
     }
 
+    private InventoryBatchAppended createInventoryBatchAppendedEvent(AppendInventoryBatch cmd,
+                                                                     Timestamp currentTime) {
+        final InventoryId inventoryId = cmd.getInventoryId();
+        final List<InventoryItemId> inventoryItemIds = cmd.getInventoryItemIdsList();
+        final UserId userId = cmd.getLibrarianId();
+
+        final InventoryBatchAppended inventoryBatchAppended =
+                InventoryBatchAppended.newBuilder()
+                                      .setInventoryId(inventoryId)
+                                      .addAllInventoryItemIds(inventoryItemIds)
+                                      .setWhenAppended(currentTime)
+                                      .setLibrarianId(userId)
+                                      .build();
+        return inventoryBatchAppended;
+    }
+
     private InventoryDecreased createInventoryDecreasedEvent(WriteBookOff cmd) {
         final InventoryId inventoryId = cmd.getInventoryId();
         final InventoryItemId inventoryItemId = cmd.getInventoryItemId();
         final UserId librarianId = cmd.getLibrarianId();
         final WriteOffReason writeOffReason = cmd.getWriteBookOffReason();
         final List<InventoryItem> inventoryItems = getState().getInventoryItemsList();
-        final int index = getInventoryItemIndexById(inventoryItemId, inventoryItems);
+        final int index = stateIndex().itemPosition(inventoryItemId);
         final InventoryItem inventoryItem = inventoryItems.get(index);
 
         // current available count should be decreased to match its value
         // after applying this event. If the book was lost by user it is already
         // non available.
+        final int currentAvailableItemsCount = getAvailableInventoryItemsCount();
         final int availableItemsCount = inventoryItem.getLost()
-                                        ? getAvailableInventoryItemsCount()
-                                        : getAvailableInventoryItemsCount() - 1;
+                                        ? currentAvailableItemsCount
+                                        : currentAvailableItemsCount - 1;
         final InventoryDecreased inventoryDecreased =
                 InventoryDecreased.newBuilder()
                                   .setInventoryId(inventoryId)
@@ -819,9 +1106,9 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
         final InventoryId inventoryId = cmd.getInventoryId();
         final UserId userId = cmd.getUserId();
         final List<Loan> loans = getState().getLoansList();
-        final List<Reservation> reservations = getState().getReservationsList();
+        final int unsatisfiedReservationsCount = getState().getUnsatisfiedReservationsCount();
         final Optional<Timestamp> readyToPickUpExpectedTime =
-                getReadyToPickUpExpectedTime(loans, reservations);
+                getReadyToPickUpExpectedTime(loans, unsatisfiedReservationsCount);
         final ReservationAdded.Builder reservationAddedBuilder =
                 ReservationAdded.newBuilder()
                                 .setInventoryId(inventoryId)
@@ -856,14 +1143,13 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
         return loansExtensionForbidden;
     }
 
-    private BookBorrowed createBookBorrowedEvent(BorrowBook cmd, int availableItemsCount) {
+    private BookBorrowed createBookBorrowedEvent(BorrowBook cmd, int availableItemsCount,
+                                                 Timestamp whenBorrowed) {
         final InventoryId inventoryId = cmd.getInventoryId();
         final InventoryItemId inventoryItemId = cmd.getInventoryItemId();
         final UserId userId = cmd.getUserId();
-        final LoanId loanId = LoanId.newBuilder()
-                                    .setValue(getCurrentTime().getSeconds())
-                                    .build();
-        final Timestamp whenBorrowed = getCurrentTime();
+        final LoanId loanId = LoanIds.getInstance()
+                                     .next();
         final Timestamp whenDue = Timestamp.newBuilder()
                                            .setSeconds(whenBorrowed.getSeconds() + LOAN_PERIOD)
                                            .build();
@@ -879,14 +1165,15 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
         return bookBorrowed;
     }
 
-    private ReservationBecameLoan createReservationBecameLoanEvent(BorrowBook cmd) {
+    private ReservationBecameLoan createReservationBecameLoanEvent(BorrowBook cmd,
+                                                                   Timestamp currentTime) {
         final InventoryId inventoryId = cmd.getInventoryId();
         final UserId userId = cmd.getUserId();
         final ReservationBecameLoan reservationBecameLoan =
                 ReservationBecameLoan.newBuilder()
                                      .setInventoryId(inventoryId)
                                      .setUserId(userId)
-                                     .setWhenBecameLoan(getCurrentTime())
+                                     .setWhenBecameLoan(currentTime)
                                      .build();
         return reservationBecameLoan;
     }
@@ -895,7 +1182,7 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
         final InventoryId inventoryId = cmd.getInventoryId();
         final LoanId loanId = cmd.getLoanId();
         final List<Loan> loans = getState().getLoansList();
-        final int loanPosition = getLoanIndexByLoanId(loanId, loans);
+        final int loanPosition = stateIndex().loanPosition(loanId);
         final Loan loan = loans.get(loanPosition);
         final UserId whoBorrowed = loan.getWhoBorrowed();
         final InventoryItemId inventoryItemId = loan.getInventoryItemId();
@@ -909,6 +1196,7 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
                                  .setUserId(whoBorrowed)
                                  .setWhenBecameOverdue(getCurrentTime())
                                  .setIsAllowedExtension(isAllowedExtension)
+                                 .setWhenDue(loan.getWhenDue())
                                  .build();
         return becameOverdue;
     }
@@ -918,7 +1206,7 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
         final InventoryId inventoryId = cmd.getInventoryId();
         final LoanId loanId = cmd.getLoanId();
         final List<Loan> loans = getState().getLoansList();
-        final int loanPosition = getLoanIndexByLoanId(loanId, loans);
+        final int loanPosition = stateIndex().loanPosition(loanId);
         final Loan loan = loans.get(loanPosition);
         final UserId whoBorrowed = loan.getWhoBorrowed();
         final boolean isAllowedExtension = loan.getIsAllowedExtension();
@@ -941,7 +1229,7 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
         final LoanId loanId = cmd.getLoanId();
         final UserId userId = cmd.getUserId();
         final List<Loan> loans = getState().getLoansList();
-        final int loanPosition = getLoanIndexByLoanId(loanId, loans);
+        final int loanPosition = stateIndex().loanPosition(loanId);
         final Loan loan = loans.get(loanPosition);
         final InventoryItemId inventoryItemId = loan.getInventoryItemId();
         final Timestamp previousDueDate = loan.getWhenDue();
@@ -965,8 +1253,7 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
     private ReservationCanceled createReservationCanceledEvent(CancelReservation cmd) {
         final InventoryId inventoryId = cmd.getInventoryId();
         final UserId userId = cmd.getUserId();
-        final List<Reservation> reservations = getState().getReservationsList();
-        final Reservation reservation = getReservationByUserId(userId, reservations);
+        final Reservation reservation = getReservationByUserId(userId);
         final boolean isSatisfied = reservation.getIsSatisfied();
         final ReservationCanceled reservationCanceledEvent =
                 ReservationCanceled.newBuilder()
@@ -991,20 +1278,21 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
         return pickUpPeriodExpired;
     }
 
-    private BookReturned createBookReturnedEvent(ReturnBook cmd) {
-        final InventoryId inventoryId = cmd.getInventoryId();
-        final InventoryItemId inventoryItemId = cmd.getInventoryItemId();
-        final UserId userId = cmd.getUserId();
+    private BookReturned createBookReturnedEvent(InventoryId inventoryId,
+                                                 InventoryItemId inventoryItemId,
+                                                 UserId userId,
+                                                 Timestamp currentTime) {
         final List<Loan> loans = getState().getLoansList();
-        final int loanIndex = getLoanIndexByUserId(userId, loans);
+        final int loanIndex = stateIndex().loanPositionOf(userId);
         final Loan loan = loans.get(loanIndex);
         final LoanId loanId = loan.getLoanId();
         final BookReturned bookReturned = BookReturned.newBuilder()
                                                       .setInventoryId(inventoryId)
                                                       .setInventoryItemId(inventoryItemId)
                                                       .setWhoReturned(userId)
-                                                      .setWhenReturned(getCurrentTime())
+                                                      .setWhenReturned(currentTime)
                                                       .setLoanId(loanId)
+                                                      .setWhenDue(loan.getWhenDue())
                                                       .build();
         return bookReturned;
     }
@@ -1013,96 +1301,117 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
         final InventoryId inventoryId = cmd.getInventoryId();
         final InventoryItemId inventoryItemId = cmd.getInventoryItemId();
         final UserId userId = cmd.getWhoLost();
-        final BookLost bookLost = BookLost.newBuilder()
-                                          .setInventoryId(inventoryId)
-                                          .setInventoryItemId(inventoryItemId)
-                                          .setWhoLost(userId)
-                                          .setWhenReported(getCurrentTime())
-                                          .build();
-        return bookLost;
+        final BookLost.Builder bookLost = BookLost.newBuilder()
+                                                  .setInventoryId(inventoryId)
+                                                  .setInventoryItemId(inventoryItemId)
+                                                  .setWhoLost(userId)
+                                                  .setWhenReported(getCurrentTime());
+        final int loanPosition = stateIndex().loanPositionOf(userId);
+        if (loanPosition != InventoryIndex.ABSENT) {
+            final Loan loan = getState().getLoans(loanPosition);
+            bookLost.setLoanId(loan.getLoanId())
+                    .setWhenDue(loan.getWhenDue());
+        }
+        return bookLost.build();
     }
 
     private boolean isBookReservedByUser(UserId userId) {
-        final List<Reservation> reservations = getState().getReservationsList();
-        final boolean isReserved = Iterables.any(reservations, item -> item.getWhoReserved()
-                                                                           .equals(userId));
+        final boolean isReserved = stateIndex().waitlist()
+                                               .contains(userId);
         return isReserved;
     }
 
     private boolean isBookBorrowedByUser(UserId userId) {
-        final List<Loan> loans = getState().getLoansList();
-        final boolean isBorrowed = Iterables.any(loans, item -> item.getWhoBorrowed()
-                                                                    .equals(userId));
+        final boolean isBorrowed = stateIndex().hasLoanOf(userId);
         return isBorrowed;
     }
 
     private boolean isInventoryItemBorrowedByUser(InventoryItemId itemId, UserId userId) {
-        final List<InventoryItem> inventoryItems = getState().getInventoryItemsList();
-        final boolean isBorrowed = Iterables.any(inventoryItems,
-                                                 item -> item.getUserId()
-                                                             .equals(userId) &&
-                                                         item.getInventoryItemId()
-                                                             .equals(itemId));
+        final int itemIndex = stateIndex().itemPosition(itemId);
+        if (itemIndex == InventoryIndex.ABSENT) {
+            return false;
+        }
+        final InventoryItem inventoryItem = getState().getInventoryItems(itemIndex);
+        final boolean isBorrowed = inventoryItem.getUserId()
+                                                .equals(userId);
         return isBorrowed;
     }
 
     private boolean isInventoryItemBorrowed(InventoryItemId itemId) {
-        final List<InventoryItem> inventoryItems = getState().getInventoryItemsList();
-        final int itemIndex = getInventoryItemIndexById(itemId, inventoryItems);
-        final InventoryItem inventoryItem = inventoryItems.get(itemIndex);
+        final int itemIndex = stateIndex().itemPosition(itemId);
+        final InventoryItem inventoryItem = getState().getInventoryItems(itemIndex);
         return inventoryItem.getBorrowed();
     }
 
     private boolean inventoryItemExists(InventoryItemId inventoryItemId) {
-        final List<InventoryItem> inventoryItems = getState().getInventoryItemsList();
-        final boolean exists = Iterables.any(inventoryItems, item -> item.getInventoryItemId()
-                                                                         .equals(inventoryItemId));
+        final boolean exists = stateIndex().containsItem(inventoryItemId);
         return exists;
     }
 
     private boolean loanExists(LoanId loanId) {
-        final List<Loan> loans = getState().getLoansList();
-        final boolean exsists = Iterables.any(loans, item -> item.getLoanId()
-                                                                 .equals(loanId));
-        return exsists;
+        final boolean exists = stateIndex().containsLoan(loanId);
+        return exists;
     }
 
-    private Reservation getReservationByUserId(UserId userId, List<Reservation> reservations) {
-        final int index = Iterables.indexOf(reservations, item -> item.getWhoReserved()
-                                                                      .equals(userId));
-        final Reservation reservation = reservations.get(index);
+    private Reservation getReservationByUserId(UserId userId) {
+        final int index = stateIndex().reservationPositionOf(userId);
+        final Reservation reservation = getState().getReservations(index);
         return reservation;
     }
 
-    private int getReservationIndexByUserId(UserId userId, List<Reservation> reservations) {
-        final int index = Iterables.indexOf(reservations, item -> item.getWhoReserved()
-                                                                      .equals(userId));
-        return index;
-    }
-
-    private int getLoanIndexByUserId(UserId userId, List<Loan> loanList) {
-        final int index = Iterables.indexOf(loanList, item -> item.getWhoBorrowed()
-                                                                  .equals(userId));
-        return index;
+    /**
+     * Obtains the index corresponding to the current aggregate state.
+     *
+     * <p>Is used by the command handlers. The index is checked against the state once,
+     * as the state does not change while a command is handled.
+     */
+    private InventoryIndex stateIndex() {
+        final Inventory state = getState();
+        if (state != indexedState) {
+            ensureIndexed(state.getInventoryItemsList(),
+                          state.getLoansList(),
+                          state.getReservationsList());
+            indexedState = state;
+        }
+        return inventoryIndex;
     }
 
-    private int getLoanIndexByLoanId(LoanId loanId, List<Loan> loansList) {
-        final int index = Iterables.indexOf(loansList, item -> item.getLoanId()
-                                                                   .equals(loanId));
-        return index;
+    /**
+     * Obtains the index corresponding to the state being built by the current transaction.
+     *
+     * <p>Is used by the event appliers before they modify the state. The builder of
+     * a transaction starts as a copy of the aggregate state, so the index already checked
+     * against the state is not checked against the builder again. Otherwise the index is
+     * checked against the builder once per transaction, as the appliers keep it up to date
+     * after that.
+     */
+    private InventoryIndex builderIndex() {
+        final InventoryVBuilder builder = getBuilder();
+        if (builder != indexedBuilder) {
+            final boolean stateIndexed = indexedState != null && indexedState == getState();
+            if (!stateIndexed) {
+                ensureIndexed(builder.getInventoryItems(),
+                              builder.getLoans(),
+                              builder.getReservations());
+            }
+            indexedBuilder = builder;
+            // The transaction changes the index, so the resulting state is checked again.
+            indexedState = null;
+        }
+        return inventoryIndex;
     }
 
-    private int getInventoryItemIndexById(InventoryItemId inventoryItemId,
-                                          List<InventoryItem> inventoryItems) {
-        final int index = Iterables.indexOf(inventoryItems, item -> item.getInventoryItemId()
-                                                                        .equals(inventoryItemId));
-        return index;
+    private void ensureIndexed(List<InventoryItem> inventoryItems,
+                               List<Loan> loans,
+                               List<Reservation> reservations) {
+        if (!inventoryIndex.matches(inventoryItems, loans, reservations)) {
+            inventoryIndex = InventoryIndex.of(inventoryItems, loans, reservations);
+        }
     }
 
     private boolean isLoanAllowedForExtension(LoanId loanId) {
-        final List<Loan> loans = getState().getLoansList();
-        final int loanIndex = getLoanIndexByLoanId(loanId, loans);
-        final Loan loan = loans.get(loanIndex);
+        final int loanIndex = stateIndex().loanPosition(loanId);
+        final Loan loan = getState().getLoans(loanIndex);
         final LoanStatus status = loan.getStatus();
         final boolean isAllowed =
                 (status.equals(LOAN_OVERDUE) || status.equals(LOAN_SOULD_RETURN_SOON)) &&
@@ -1116,14 +1425,9 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
     }
 
     private int getAvailableInventoryItemsCount() {
-        final List<InventoryItem> inventoryItems = getState().getInventoryItemsList();
-        final List<Reservation> reservations = getState().getReservationsList();
-        final int satisfiedReservationsCount = (int) reservations.stream()
-                                                                 .filter(Reservation::getIsSatisfied)
-                                                                 .count();
-        final int inLibraryCount = (int) inventoryItems.stream()
-                                                       .filter(InventoryItem::getInLibrary)
-                                                       .count();
+        final Inventory state = getState();
+        final int satisfiedReservationsCount = state.getSatisfiedReservationsCount();
+        final int inLibraryCount = state.getInLibraryCount();
         return inLibraryCount - satisfiedReservationsCount;
     }
 
@@ -1143,26 +1447,23 @@ public class InventoryAggregate extends Aggregate<InventoryId, Inventory, Invent
      *</ul>
      *
      * @param loans the list of loans
-     * @param reservations the list of reservations
+     * @param unsatisfiedReservationsCount the number of unsatisfied reservations
      * @return {@code Optional} expected time when the reservation should be satisfied.
      */
     // @formatter:on
     private Optional<Timestamp> getReadyToPickUpExpectedTime(List<Loan> loans,
-                                                             List<Reservation> reservations) {
+                                                             int unsatisfiedReservationsCount) {
         if (loans.isEmpty()) {
             return Optional.absent();
         }
 
-        final int index = Iterables.indexOf(loans, Loan::getIsAllowedExtension);
-        if (index != -1) {
+        final int index = stateIndex().firstLoanAllowedForExtension();
+        if (index != InventoryIndex.ABSENT) {
             final Loan firstAllowedForExtensionLoan = loans.get(index);
             return Optional.of(firstAllowedForExtensionLoan.getWhenDue());
         }
 
         final Loan lastLoan = loans.get(loans.size() - 1);
-        final int unsatisfiedReservationsCount = (int) reservations.stream()
-                                                                   .filter(item -> !item.getIsSatisfied())
-                                                                   .count();
         final long expectedTimeSeconds = lastLoan.getWhenDue()
                                                  .getSeconds() +
                 (unsatisfiedReservationsCount - loans.size() + 1) * LOAN_PERIOD;
@@ -20,16 +20,24 @@
 
 package javaclasses.exlibris.c.inventory;
 
+import javaclasses.exlibris.InventoryItemId;
+import javaclasses.exlibris.c.AppendInventoryBatch;
 import javaclasses.exlibris.c.BorrowBook;
 import javaclasses.exlibris.c.CancelReservation;
 import javaclasses.exlibris.c.ExtendLoanPeriod;
+import javaclasses.exlibris.c.MarkLoanOverdue;
+import javaclasses.exlibris.c.MarkLoanShouldReturnSoon;
+import javaclasses.exlibris.c.MarkReservationExpired;
 import javaclasses.exlibris.c.ReserveBook;
 import javaclasses.exlibris.c.ReturnBook;
 import javaclasses.exlibris.c.WriteBookOff;
 import javaclasses.exlibris.c.rejection.BookAlreadyBorrowed;
 import javaclasses.exlibris.c.rejection.BookAlreadyReserved;
+import javaclasses.exlibris.c.rejection.CannotAppendInventoryBatch;
 import javaclasses.exlibris.c.rejection.CannotCancelMissingReservation;
+import javaclasses.exlibris.c.rejection.CannotExpireMissingReservation;
 import javaclasses.exlibris.c.rejection.CannotExtendLoanPeriod;
+import javaclasses.exlibris.c.rejection.CannotMarkMissingLoan;
 import javaclasses.exlibris.c.rejection.CannotReserveAvailableBook;
 import javaclasses.exlibris.c.rejection.CannotReturnMissingBook;
 import javaclasses.exlibris.c.rejection.CannotReturnNonBorrowedBook;
@@ -92,6 +100,23 @@ class InventoryAggregateRejections {
         }
     }
 
+    /**
+     * Throws a rejection when a librarian tries to append an empty batch, a batch repeating
+     * an item or a batch with an item which is already in the inventory.
+     *
+     * @param cmd            the rejected command
+     * @param rejectedItemId the first repeated or existing item, or the default instance
+     *                       if the batch is empty
+     */
+    static CannotAppendInventoryBatch cannotAppendInventoryBatch(AppendInventoryBatch cmd,
+                                                                 InventoryItemId rejectedItemId)
+            throws CannotAppendInventoryBatch {
+        checkNotNull(cmd);
+        checkNotNull(rejectedItemId);
+        throw new CannotAppendInventoryBatch(cmd.getInventoryId(), cmd.getLibrarianId(),
+                                             rejectedItemId, getCurrentTime());
+    }
+
     /**
      * Throws a rejection when a user tries to cancel a missing reservation.
      */
@@ -155,6 +180,49 @@ class InventoryAggregateRejections {
                                          getCurrentTime());
     }
 
+    /**
+     * Holds two rejections for the system commands which come after the loan is closed:
+     * <ol>
+     * <li>{@link CannotMarkMissingLoan} a rejection when a closed loan becomes overdue.</li>
+     * <li>{@link CannotMarkMissingLoan} a rejection when a closed loan should be returned soon.</li>
+     * </ol>
+     */
+    static class MarkLoanRejection {
+        private MarkLoanRejection() {
+        }
+
+        /**
+         * Throws a rejection when the system tries to mark a closed loan as overdue.
+         */
+        static CannotMarkMissingLoan cannotMarkMissingLoan(MarkLoanOverdue cmd)
+                throws CannotMarkMissingLoan {
+            checkNotNull(cmd);
+            throw new CannotMarkMissingLoan(cmd.getInventoryId(), cmd.getLoanId(),
+                                            getCurrentTime());
+        }
+
+        /**
+         * Throws a rejection when the system tries to mark a closed loan
+         * as should be returned soon.
+         */
+        static CannotMarkMissingLoan cannotMarkMissingLoan(MarkLoanShouldReturnSoon cmd)
+                throws CannotMarkMissingLoan {
+            checkNotNull(cmd);
+            throw new CannotMarkMissingLoan(cmd.getInventoryId(), cmd.getLoanId(),
+                                            getCurrentTime());
+        }
+    }
+
+    /**
+     * Throws a rejection when the system tries to expire a removed reservation.
+     */
+    static CannotExpireMissingReservation cannotExpireMissingReservation(
+            MarkReservationExpired cmd) throws CannotExpireMissingReservation {
+        checkNotNull(cmd);
+        throw new CannotExpireMissingReservation(cmd.getInventoryId(), cmd.getUserId(),
+                                                 getCurrentTime());
+    }
+
     /**
      * Holds two rejections:
      * <ol>
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.c.inventory;
+
+import javaclasses.exlibris.InventoryItem;
+import javaclasses.exlibris.InventoryItemId;
+import javaclasses.exlibris.Loan;
+import javaclasses.exlibris.LoanId;
+import javaclasses.exlibris.Reservation;
+import javaclasses.exlibris.UserId;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * The lookup index over the repeated fields of the {@link javaclasses.exlibris.Inventory} state.
+ *
+ * <p>Maps inventory items, loans and reservations to their positions in the corresponding
+ * lists, so that the {@link InventoryAggregate} finds them without scanning the lists.
+ * Also keeps the positions of the loans allowed for extension in the ascending order.
+ *
+ * <p>The index is not a part of the aggregate state. It is built while the events are applied
+ * to the aggregate and rebuilt from the state when it does not correspond to it,
+ * e.g. after the state is restored from a snapshot.
+ *
+ * <p>An aggregate is loaded for each command, so the index is built once per command while
+ * the events following the snapshot are played, and checked once against the loaded state.
+ * Both take {@code O(n)}, the same as reading the loaded state from the snapshot. The index is
+ * not checked again when the emitted events are applied, as their transaction starts from
+ * the checked state. The index saves the repeated scans of the lists by the command handler
+ * and by the appliers of the emitted events, but not the shift of the positions following
+ * a removed element.
+ */
+final class InventoryIndex {
+
+    /** The position returned for the items absent in the index. */
+    static final int ABSENT = -1;
+
+    private final Map<InventoryItemId, Integer> items = new HashMap<>();
+    private final Map<LoanId, Integer> loans = new HashMap<>();
+    private final Map<UserId, Integer> loansByBorrower = new HashMap<>();
+    private final NavigableSet<Integer> loansAllowedForExtension = new TreeSet<>();
+    private final Map<UserId, Integer> reservations = new HashMap<>();
+    private final ReservationWaitlist waitlist = new ReservationWaitlist();
+
+    /**
+     * Creates the index of the specified inventory lists.
+     *
+     * @param items        the inventory items
+     * @param loans        the loans
+     * @param reservations the reservations
+     * @return new index instance
+     */
+    static InventoryIndex of(List<InventoryItem> items,
+                             List<Loan> loans,
+                             List<Reservation> reservations) {
+        final InventoryIndex index = new InventoryIndex();
+        for (int i = 0; i < items.size(); i++) {
+            index.itemAdded(items.get(i)
+                                 .getInventoryItemId(), i);
+        }
+        for (int i = 0; i < loans.size(); i++) {
+            index.loanAdded(loans.get(i), i);
+        }
+        for (int i = 0; i < reservations.size(); i++) {
+            index.reservationAdded(reservations.get(i), i);
+        }
+        return index;
+    }
+
+    /**
+     * Checks whether the index corresponds to the specified inventory lists.
+     *
+     * <p>Verifies the indexed position of each item, loan and reservation, which
+     * takes {@code O(n)}. The aggregate checks each state and each transaction builder
+     * only once, and the appliers keep the index up to date after that.
+     */
+    boolean matches(List<InventoryItem> items,
+                    List<Loan> loans,
+                    List<Reservation> reservations) {
+        final boolean sizesMatch = this.items.size() == items.size()
+                && this.loans.size() == loans.size()
+                && this.reservations.size() == reservations.size();
+        if (!sizesMatch) {
+            return false;
+        }
+        for (int i = 0; i < items.size(); i++) {
+            if (itemPosition(items.get(i)
+                                  .getInventoryItemId()) != i) {
+                return false;
+            }
+        }
+        int allowedForExtensionCount = 0;
+        for (int i = 0; i < loans.size(); i++) {
+            final Loan loan = loans.get(i);
+            final boolean allowedForExtension = loan.getIsAllowedExtension();
+            if (loanPosition(loan.getLoanId()) != i
+                    || loanPositionOf(loan.getWhoBorrowed()) != i
+                    || loansAllowedForExtension.contains(i) != allowedForExtension) {
+                return false;
+            }
+            if (allowedForExtension) {
+                allowedForExtensionCount++;
+            }
+        }
+        if (loansAllowedForExtension.size() != allowedForExtensionCount) {
+            return false;
+        }
+        for (int i = 0; i < reservations.size(); i++) {
+            final Reservation reservation = reservations.get(i);
+            final UserId user = reservation.getWhoReserved();
+            if (reservationPositionOf(user) != i
+                    || waitlist.isPending(user) == reservation.getIsSatisfied()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean containsItem(InventoryItemId itemId) {
+        return items.containsKey(itemId);
+    }
+
+    boolean containsLoan(LoanId loanId) {
+        return loans.containsKey(loanId);
+    }
+
+    boolean hasLoanOf(UserId borrower) {
+        return loansByBorrower.containsKey(borrower);
+    }
+
+    /**
+     * Obtains the position of the inventory item or {@link #ABSENT} if there is no such item.
+     */
+    int itemPosition(InventoryItemId itemId) {
+        return items.getOrDefault(itemId, ABSENT);
+    }
+
+    /**
+     * Obtains the position of the loan or {@link #ABSENT} if there is no such loan.
+     */
+    int loanPosition(LoanId loanId) {
+        return loans.getOrDefault(loanId, ABSENT);
+    }
+
+    /**
+     * Obtains the position of the user loan or {@link #ABSENT} if the user has no loan.
+     */
+    int loanPositionOf(UserId borrower) {
+        return loansByBorrower.getOrDefault(borrower, ABSENT);
+    }
+
+    /**
+     * Obtains the position of the first loan allowed for extension or {@link #ABSENT}
+     * if no loan is allowed for extension.
+     */
+    int firstLoanAllowedForExtension() {
+        return loansAllowedForExtension.isEmpty()
+               ? ABSENT
+               : loansAllowedForExtension.first();
+    }
+
+    /**
+     * Obtains the position of the user reservation or {@link #ABSENT}
+     * if the user has no reservation.
+     */
+    int reservationPositionOf(UserId user) {
+        return reservations.getOrDefault(user, ABSENT);
+    }
+
+    void itemAdded(InventoryItemId itemId, int position) {
+        items.put(itemId, position);
+    }
+
+    void itemRemoved(InventoryItemId itemId) {
+        remove(items, itemId);
+    }
+
+    void loanAdded(Loan loan, int position) {
+        loans.put(loan.getLoanId(), position);
+        loansByBorrower.put(loan.getWhoBorrowed(), position);
+        loanUpdated(loan, position);
+    }
+
+    /**
+     * Updates the loan which was allowed or forbidden for extension.
+     */
+    void loanUpdated(Loan loan, int position) {
+        if (loan.getIsAllowedExtension()) {
+            loansAllowedForExtension.add(position);
+        } else {
+            loansAllowedForExtension.remove(position);
+        }
+    }
+
+    void loanRemoved(Loan loan) {
+        final Integer position = loans.get(loan.getLoanId());
+        remove(loans, loan.getLoanId());
+        remove(loansByBorrower, loan.getWhoBorrowed());
+        if (position != null) {
+            remove(loansAllowedForExtension, position);
+        }
+    }
+
+    void reservationAdded(Reservation reservation, int position) {
+        reservations.put(reservation.getWhoReserved(), position);
+        waitlist.add(reservation);
+    }
+
+    void reservationSatisfied(UserId user) {
+        waitlist.satisfy(user);
+    }
+
+    void reservationRemoved(UserId user) {
+        remove(reservations, user);
+        waitlist.remove(user);
+    }
+
+    /**
+     * Obtains the waitlist of the indexed reservations.
+     */
+    ReservationWaitlist waitlist() {
+        return waitlist;
+    }
+
+    void clear() {
+        items.clear();
+        loans.clear();
+        loansByBorrower.clear();
+        loansAllowedForExtension.clear();
+        reservations.clear();
+        waitlist.clear();
+    }
+
+    /**
+     * Removes the key and shifts the positions following the removed one
+     * the same way the repeated field does.
+     *
+     * <p>Updates all the positions, so it takes {@code O(n)}, as does the removal
+     * from the repeated field itself. The index saves only the search of the removed
+     * element, not the shift.
+     */
+    private static <K> void remove(Map<K, Integer> index, K key) {
+        final Integer removedPosition = index.remove(key);
+        if (removedPosition == null) {
+            return;
+        }
+        index.replaceAll((k, position) -> position > removedPosition ? position - 1 : position);
+    }
+
+    /**
+     * Removes the position and shifts the positions following it the same way
+     * the repeated field does.
+     */
+    private static void remove(NavigableSet<Integer> positions, int removedPosition) {
+        final List<Integer> following = new ArrayList<>(positions.tailSet(removedPosition,
+                                                                          false));
+        positions.tailSet(removedPosition, true)
+                 .clear();
+        for (Integer position : following) {
+            positions.add(position - 1);
+        }
+    }
+}
@@ -21,11 +21,19 @@
 package javaclasses.exlibris.c.inventory;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.base.Predicates;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import io.spine.server.aggregate.AggregateReadRequest;
 import io.spine.server.aggregate.AggregateRepository;
+import io.spine.server.aggregate.AggregateStateRecord;
 import io.spine.server.route.EventRouting;
 import javaclasses.exlibris.BookId;
+import javaclasses.exlibris.Inventory;
 import javaclasses.exlibris.InventoryId;
+import javaclasses.exlibris.c.AggregateCache;
 import javaclasses.exlibris.c.BookAdded;
 import javaclasses.exlibris.c.BookRemoved;
 
@@ -41,6 +49,29 @@ import static com.google.common.collect.ImmutableSet.of;
  */
 public class InventoryRepository extends AggregateRepository<InventoryId, InventoryAggregate> {
 
+    /**
+     * The number of events after which the snapshot of an {@code InventoryAggregate} is stored.
+     *
+     * <p>Inventories of the circulating books accumulate thousands of loan events,
+     * so an aggregate is loaded from the latest snapshot and the events that follow it.
+     *
+     * <p>Use {@link #setSnapshotTrigger(int)} to change the value.
+     */
+    public static final int DEFAULT_SNAPSHOT_TRIGGER = 50;
+
+    /**
+     * The default maximum size of the serialized inventory states kept in the cache, in bytes.
+     *
+     * <p>An inventory with a few loans and reservations takes about 1 KB, so the default value
+     * keeps about a quarter of a million inventories.
+     *
+     * <p>Use {@link #setCacheMaximumWeight(long)} to change the value.
+     */
+    public static final long DEFAULT_CACHE_MAXIMUM_WEIGHT = 256L * 1024 * 1024;
+
+    private volatile AggregateCache<InventoryId, Inventory> cache =
+            AggregateCache.newInstance(DEFAULT_CACHE_MAXIMUM_WEIGHT);
+
     /**
      * Returns instance of the InventoryRepository
      */
@@ -63,9 +94,80 @@ public class InventoryRepository extends AggregateRepository<InventoryId, Invent
 
     private InventoryRepository() {
         super();
+        setSnapshotTrigger(DEFAULT_SNAPSHOT_TRIGGER);
         setUpEventRouting();
     }
 
+    /**
+     * Finds the state of the inventory in the cache of the recently used ones or loads it
+     * from the storage.
+     *
+     * <p>The process managers read the inventory for each event they react on, so the loaded
+     * states are cached. The commands are dispatched to the inventories loaded from
+     * the storage and do not use the cache.
+     *
+     * @param id the inventory identifier
+     * @return the inventory state or {@code Optional.absent()} if there is no such inventory
+     */
+    public Optional<Inventory> findState(InventoryId id) {
+        return cache.find(id, this::loadState);
+    }
+
+    private Optional<Inventory> loadState(InventoryId id) {
+        return find(id).transform(InventoryAggregate::getState);
+    }
+
+    /**
+     * Stores the aggregate and updates the cached inventory state.
+     */
+    @Override
+    public void store(InventoryAggregate aggregate) {
+        super.store(aggregate);
+        cache.update(aggregate.getId(), aggregate.getState());
+    }
+
+    /**
+     * Reads the latest snapshot of the inventory and the events stored after it.
+     *
+     * <p>These are the records played to load the inventory.
+     *
+     * @param id the inventory identifier
+     * @return the record or {@code Optional.absent()} if there is no such inventory
+     */
+    @VisibleForTesting
+    Optional<AggregateStateRecord> readStateRecord(InventoryId id) {
+        final AggregateReadRequest<InventoryId> request =
+                new AggregateReadRequest<>(id, getSnapshotTrigger());
+        return aggregateStorage().read(request);
+    }
+
+    /**
+     * Obtains the states of all the stored inventories.
+     *
+     * <p>The inventories are loaded one by one during the iteration.
+     */
+    public Iterable<Inventory> getAllStates() {
+        return () -> Iterators.transform(iterator(Predicates.alwaysTrue()),
+                                         InventoryAggregate::getState);
+    }
+
+    /**
+     * Replaces the cache with an empty one of the specified size.
+     *
+     * @param maximumWeight the maximum size of the cached inventory states in bytes,
+     *                      {@code 0} disables caching
+     */
+    public void setCacheMaximumWeight(long maximumWeight) {
+        cache = AggregateCache.newInstance(maximumWeight);
+    }
+
+    /**
+     * Obtains the hits, misses and evictions counts of the inventory cache.
+     */
+    public CacheStats getCacheStats() {
+        return cache.getStats();
+    }
+
     private void setUpEventRouting() {
         final EventRouting<InventoryId> routing = getEventRouting();
         routing.route(BookAdded.class, (message, context) -> getInventoryIds(message));
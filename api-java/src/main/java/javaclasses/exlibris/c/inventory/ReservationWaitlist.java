@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.c.inventory;
+
+import com.google.common.annotations.VisibleForTesting;
+import javaclasses.exlibris.Reservation;
+import javaclasses.exlibris.UserId;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The reservations of an inventory ordered as a waitlist.
+ *
+ * <p>Keeps the pending and the satisfied reservations apart. Both preserve the order
+ * in which the reservations were added, which is the order of
+ * {@link Reservation#getWhenCreated() the creation time}. So the eldest pending reservation
+ * is the next to satisfy.
+ *
+ * <p>Obtaining the next reservation to satisfy and removing a reservation of a user
+ * take constant time.
+ */
+final class ReservationWaitlist {
+
+    private final Map<UserId, Reservation> pending = new LinkedHashMap<>();
+    private final Map<UserId, Reservation> satisfied = new LinkedHashMap<>();
+
+    /**
+     * Creates the waitlist of the specified reservations.
+     *
+     * @param reservations the reservations in the order they were added
+     * @return new waitlist instance
+     */
+    @VisibleForTesting
+    static ReservationWaitlist of(List<Reservation> reservations) {
+        final ReservationWaitlist waitlist = new ReservationWaitlist();
+        for (Reservation reservation : reservations) {
+            waitlist.add(reservation);
+        }
+        return waitlist;
+    }
+
+    /**
+     * Appends the reservation to the end of the waitlist.
+     */
+    void add(Reservation reservation) {
+        final UserId user = reservation.getWhoReserved();
+        if (reservation.getIsSatisfied()) {
+            satisfied.put(user, reservation);
+        } else {
+            pending.put(user, reservation);
+        }
+    }
+
+    /**
+     * Moves the pending reservation of the user to the satisfied ones.
+     */
+    void satisfy(UserId user) {
+        final Reservation reservation = pending.remove(user);
+        if (reservation == null) {
+            return;
+        }
+        final Reservation satisfiedReservation = Reservation.newBuilder(reservation)
+                                                            .setIsSatisfied(true)
+                                                            .build();
+        satisfied.put(user, satisfiedReservation);
+    }
+
+    void remove(UserId user) {
+        if (pending.remove(user) == null) {
+            satisfied.remove(user);
+        }
+    }
+
+    boolean contains(UserId user) {
+        return pending.containsKey(user) || satisfied.containsKey(user);
+    }
+
+    /**
+     * Shows whether the user has a reservation which is not satisfied yet.
+     */
+    boolean isPending(UserId user) {
+        return pending.containsKey(user);
+    }
+
+    /**
+     * Obtains the eldest pending reservations.
+     *
+     * @param count the maximum number of reservations to obtain
+     * @return the reservations to satisfy in the order they should be satisfied
+     */
+    List<Reservation> next(int count) {
+        final List<Reservation> result = new ArrayList<>();
+        final Iterator<Reservation> iterator = pending.values()
+                                                      .iterator();
+        while (iterator.hasNext() && result.size() < count) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+
+    void clear() {
+        pending.clear();
+        satisfied.clear();
+    }
+}
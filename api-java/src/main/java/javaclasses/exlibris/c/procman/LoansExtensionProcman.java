@@ -18,47 +18,61 @@
  * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+
 package javaclasses.exlibris.c.procman;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.Lists;
+import com.google.protobuf.Message;
 import io.spine.core.CommandContext;
 import io.spine.core.EventContext;
 import io.spine.core.React;
+import io.spine.server.command.Assign;
 import io.spine.server.procman.CommandRouted;
-import io.spine.server.procman.CommandRouter;
 import io.spine.server.procman.ProcessManager;
+import javaclasses.exlibris.ExtensionLoan;
 import javaclasses.exlibris.InventoryId;
-import javaclasses.exlibris.Loan;
 import javaclasses.exlibris.LoansExtension;
 import javaclasses.exlibris.LoansExtensionId;
 import javaclasses.exlibris.LoansExtensionVBuilder;
-import javaclasses.exlibris.Reservation;
 import javaclasses.exlibris.UserId;
 import javaclasses.exlibris.c.AllowLoansExtension;
+import javaclasses.exlibris.c.BalanceLoansExtension;
+import javaclasses.exlibris.c.BookBorrowed;
+import javaclasses.exlibris.c.BookLost;
 import javaclasses.exlibris.c.BookReadyToPickup;
+import javaclasses.exlibris.c.BookReturned;
 import javaclasses.exlibris.c.ForbidLoansExtension;
+import javaclasses.exlibris.c.InventoryRemoved;
+import javaclasses.exlibris.c.LoansExtensionAllowed;
+import javaclasses.exlibris.c.LoansExtensionForbidden;
 import javaclasses.exlibris.c.ReservationAdded;
 import javaclasses.exlibris.c.ReservationCanceled;
-import javaclasses.exlibris.c.inventory.InventoryAggregate;
-import javaclasses.exlibris.c.inventory.InventoryRepository;
 
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
 
+/**
+ * Keeps the count of the loans forbidden for extension equal to the count of the unsatisfied
+ * reservations of an inventory.
+ *
+ * <p>The loans and the reservations count are tracked from the inventory events, so
+ * the reactions do not load the {@code InventoryAggregate}. The count of the loans forbidden
+ * for extension is kept along with the loans, so it is not recounted for each change.
+ *
+ * <p>By default each change of the reservations queue is followed by a command. When
+ * the changes are {@linkplain LoansExtensionProcmanRepository#LoansExtensionProcmanRepository(int)
+ * coalesced}, a single command with the net result is routed after the specified number of
+ * changes or when {@link BalanceLoansExtension} is received, whichever happens first.
+ */
 public class LoansExtensionProcman extends ProcessManager<LoansExtensionId, LoansExtension, LoansExtensionVBuilder> {
 
     /**
-     * As long as the {@code LoansExtensionProcman} is an {@code InventoryAggregate}
-     * service and does not hold model state it is a singleton. All subscribed events
-     * are routed to the single instance.
+     * The number of the reservations queue changes collected before routing a command.
      */
-    protected static final LoansExtensionId ID =
-            LoansExtensionId.newBuilder()
-                            .setValue("ReservationQueueSingleton")
-                            .build();
+    private int coalescingBatchSize = 1;
 
     /**
      * Creates a new instance.
@@ -71,18 +85,24 @@ public class LoansExtensionProcman extends ProcessManager<LoansExtensionId, Loan
         super(id);
     }
 
+    void setCoalescingBatchSize(int coalescingBatchSize) {
+        this.coalescingBatchSize = coalescingBatchSize;
+    }
+
     @React
     CommandRouted on(ReservationAdded event, EventContext eventContext) {
-        final InventoryId inventoryId = event.getInventoryId();
-        final CommandContext commandContext = eventContext.getCommandContext();
-        return updateLoansExtensionStateRouter(inventoryId, commandContext);
+        getBuilder().setInventoryId(event.getInventoryId())
+                    .setUnsatisfiedReservationsCount(
+                            getBuilder().getUnsatisfiedReservationsCount() + 1);
+        return onReservationsChanged(eventContext.getCommandContext());
     }
 
     @React
     CommandRouted on(BookReadyToPickup event, EventContext eventContext) {
-        final InventoryId inventoryId = event.getInventoryId();
-        final CommandContext commandContext = eventContext.getCommandContext();
-        return updateLoansExtensionStateRouter(inventoryId, commandContext);
+        getBuilder().setInventoryId(event.getInventoryId())
+                    .setUnsatisfiedReservationsCount(
+                            getBuilder().getUnsatisfiedReservationsCount() - 1);
+        return onReservationsChanged(eventContext.getCommandContext());
     }
 
     /**
@@ -99,158 +119,204 @@ public class LoansExtensionProcman extends ProcessManager<LoansExtensionId, Loan
     CommandRouted on(ReservationCanceled event, EventContext eventContext) {
         final boolean wasSatisfied = event.getWasSatisfied();
         if (!wasSatisfied) {
-            final InventoryId inventoryId = event.getInventoryId();
-            final CommandContext commandContext = eventContext.getCommandContext();
-            return updateLoansExtensionStateRouter(inventoryId, commandContext);
+            getBuilder().setInventoryId(event.getInventoryId())
+                        .setUnsatisfiedReservationsCount(
+                                getBuilder().getUnsatisfiedReservationsCount() - 1);
+            return onReservationsChanged(eventContext.getCommandContext());
         }
         return null;
     }
 
     /**
-     * Checks the {@code InventoryAggregate} state reservation queue and the loans list.
+     * Handles a {@code BalanceLoansExtension} command.
      *
-     * Collates the unsatisfied reservations count with the forbidden for extension loans count.
-     * Performs action to equalize those values if possible.
+     * <p>Routes the command with the net result of the collected changes if there are any.
      *
-     * @param inventoryId    the identifier of the {@code InventoryAggregate} to check
+     * @param cmd            the command ending the coalescing window
      * @param commandContext the command context
      * @return the routed command
      */
-    private CommandRouted updateLoansExtensionStateRouter(InventoryId inventoryId,
-                                                          CommandContext commandContext) {
-        final Optional<InventoryAggregate> inventoryOptional = getInventory(inventoryId);
-        if (!inventoryOptional.isPresent()) {
-            final String errorMessage = "The aggregate state for %s identifier not found in the InventoryRepository.";
-            throw new IllegalArgumentException(String.format(errorMessage, inventoryId.getBookId()
-                                                                                      .getIsbn62()));
+    @Assign
+    CommandRouted handle(BalanceLoansExtension cmd, CommandContext commandContext) {
+        if (getBuilder().getPendingChangesCount() == 0) {
+            return null;
         }
-        final InventoryAggregate inventory = inventoryOptional.get();
-        final List<Reservation> reservations = inventory.getState()
-                                                        .getReservationsList();
-        final List<Loan> loans = inventory.getState()
-                                          .getLoansList();
-        final int unsatisfiedReservationsCount = getUnsatisfiedReservationsCount(reservations);
-        final int forbiddenToExtendLoansCount = getForbiddenToExtendLoansCount(loans);
-        final int queueDifference = unsatisfiedReservationsCount - forbiddenToExtendLoansCount;
+        getBuilder().clearPendingChangesCount();
+        return updateLoansExtensionStateRouter(commandContext);
+    }
 
-        if (queueDifference > 0) {
-            final Optional<CommandRouter> routerOptional =
-                    forbidLoansExtensionRouter(inventoryId, commandContext, loans, queueDifference);
-            return routerOptional.isPresent() ? routerOptional.get()
-                                                              .routeAll()
-                                              : null;
+    @React
+    CommandRouted on(BookBorrowed event) {
+        final ExtensionLoan loan = ExtensionLoan.newBuilder()
+                                                .setWhoBorrowed(event.getWhoBorrowed())
+                                                .setIsAllowedExtension(true)
+                                                .build();
+        getBuilder().setInventoryId(event.getInventoryId())
+                    .addLoans(loan);
+        return null;
+    }
+
+    @React
+    CommandRouted on(BookReturned event) {
+        removeLoan(event.getWhoReturned());
+        return null;
+    }
+
+    @React
+    CommandRouted on(BookLost event) {
+        removeLoan(event.getWhoLost());
+        return null;
+    }
+
+    @React
+    CommandRouted on(LoansExtensionAllowed event) {
+        updateLoans(event.getBorrowersList(), true);
+        return null;
+    }
+
+    @React
+    CommandRouted on(LoansExtensionForbidden event) {
+        updateLoans(event.getBorrowersList(), false);
+        return null;
+    }
+
+    @React
+    CommandRouted on(InventoryRemoved event) {
+        getBuilder().clearLoans()
+                    .clearForbiddenLoansCount()
+                    .clearUnsatisfiedReservationsCount()
+                    .clearPendingChangesCount();
+        return null;
+    }
+
+    private CommandRouted onReservationsChanged(CommandContext commandContext) {
+        final int pendingChangesCount = getBuilder().getPendingChangesCount() + 1;
+        if (pendingChangesCount < coalescingBatchSize) {
+            getBuilder().setPendingChangesCount(pendingChangesCount);
+            return null;
         }
-        final Optional<CommandRouter> routerOptional =
-                allowLoansExtensionRouter(inventoryId, commandContext, loans,
-                                          Math.abs(queueDifference));
-        return routerOptional.isPresent() ? routerOptional.get()
-                                                          .routeAll()
-                                          : null;
+        getBuilder().clearPendingChangesCount();
+        return updateLoansExtensionStateRouter(commandContext);
     }
 
     /**
-     * Creates routed command to forbid extension for as many loans as possible to rich the
-     * {@code numberToForbid} count.
+     * Collates the unsatisfied reservations count with the forbidden for extension loans count.
+     * Performs action to equalize those values if possible.
+     *
+     * <p>The loans are updated right away instead of waiting for the
+     * {@code LoansExtensionAllowed} or {@code LoansExtensionForbidden} event, because the event
+     * is dispatched before the state of this reaction is stored.
      *
-     * @param inventoryId    the identifier of the {@code InventoryAggregate}
      * @param commandContext the command context
-     * @param loans          the list of loans
-     * @param numberToForbid the target number to forbid
-     * @return the routed command to forbid loans extension
+     * @return the routed command
      */
-    private Optional<CommandRouter> forbidLoansExtensionRouter(InventoryId inventoryId,
-                                                               CommandContext commandContext,
-                                                               List<Loan> loans,
-                                                               int numberToForbid) {
-        final List<Loan> allowedForExtensionLoans = loans.stream()
-                                                         .filter(Loan::getIsAllowedExtension)
-                                                         .collect(Collectors.toList());
-
-        final List<UserId> userIds = allowedForExtensionLoans.stream()
-                                                             .map(Loan::getWhoBorrowed)
-                                                             .collect(Collectors.toList());
-        final Iterator<UserId> iterator = userIds.iterator();
-        final List<UserId> resultUserIds = new ArrayList<>();
-
-        while (iterator.hasNext() && resultUserIds.size() < numberToForbid) {
-            resultUserIds.add(iterator.next());
+    private CommandRouted updateLoansExtensionStateRouter(CommandContext commandContext) {
+        final Optional<Message> command =
+                balanceCommand(getBuilder().getInventoryId(), getBuilder().getLoans(),
+                               getBuilder().getForbiddenLoansCount(),
+                               getBuilder().getUnsatisfiedReservationsCount());
+        if (!command.isPresent()) {
+            return null;
         }
-
-        if (!resultUserIds.isEmpty()) {
-            final ForbidLoansExtension forbidLoansExtensionCmd =
-                    ForbidLoansExtension.newBuilder()
-                                        .setInventoryId(inventoryId)
-                                        .addAllBorrowers(resultUserIds)
-                                        .build();
-            final CommandRouter commandRouter =
-                    newRouterFor(forbidLoansExtensionCmd, commandContext)
-                            .add(forbidLoansExtensionCmd);
-            return Optional.of(commandRouter);
+        final Message commandMessage = command.get();
+        if (commandMessage instanceof AllowLoansExtension) {
+            updateLoans(((AllowLoansExtension) commandMessage).getBorrowersList(), true);
+        } else {
+            updateLoans(((ForbidLoansExtension) commandMessage).getBorrowersList(), false);
         }
-        return Optional.absent();
+        return newRouterFor(commandMessage, commandContext).add(commandMessage)
+                                                           .routeAll();
     }
 
     /**
-     * Creates routed command to allow extension for as many loans as possible to rich the
-     * {@code numberToAllow} count. Loans extension permission goes from the end of the loans list.
+     * Creates the command equalizing the unsatisfied reservations count with the forbidden for
+     * extension loans count.
      *
-     * @param inventoryId    the identifier of the {@code InventoryAggregate}
-     * @param commandContext the command context
-     * @param loans          the list of loans
-     * @param numberToAllow  the target number to allow
-     * @return the routed command to allow loans extension
+     * <p>The extension is forbidden starting from the eldest loan allowed for extension and
+     * allowed starting from the latest forbidden one.
+     *
+     * @param inventoryId                  the identifier of the inventory
+     * @param loans                        the loans in the order they were taken
+     * @param forbiddenLoansCount          the count of the loans forbidden for extension
+     * @param unsatisfiedReservationsCount the count of the unsatisfied reservations
+     * @return {@code ForbidLoansExtension}, {@code AllowLoansExtension} or
+     * {@code Optional.absent()} if nothing can be changed
      */
-    private Optional<CommandRouter> allowLoansExtensionRouter(InventoryId inventoryId,
-                                                              CommandContext commandContext,
-                                                              List<Loan> loans,
-                                                              int numberToAllow) {
-        final List<Loan> forbiddenForExtensionLoans = loans.stream()
-                                                           .filter(item -> !item.getIsAllowedExtension())
-                                                           .collect(Collectors.toList());
+    static Optional<Message> balanceCommand(InventoryId inventoryId, List<ExtensionLoan> loans,
+                                            int forbiddenLoansCount,
+                                            int unsatisfiedReservationsCount) {
+        final int queueDifference = unsatisfiedReservationsCount - forbiddenLoansCount;
 
-        final List<UserId> userIds = forbiddenForExtensionLoans.stream()
-                                                               .map(Loan::getWhoBorrowed)
-                                                               .collect(Collectors.toList());
-        final List<UserId> reverseUserIds = Lists.reverse(userIds);
-
-        final Iterator<UserId> iterator = reverseUserIds.iterator();
-        final List<UserId> resultUserIds = new ArrayList<>();
-        while (iterator.hasNext() && resultUserIds.size() < numberToAllow) {
-            resultUserIds.add(iterator.next());
+        if (queueDifference > 0) {
+            final List<UserId> borrowers = borrowers(loans, true, queueDifference);
+            if (borrowers.isEmpty()) {
+                return Optional.absent();
+            }
+            final ForbidLoansExtension result = ForbidLoansExtension.newBuilder()
+                                                                    .setInventoryId(inventoryId)
+                                                                    .addAllBorrowers(borrowers)
+                                                                    .build();
+            return Optional.of(result);
         }
-
-        if (!resultUserIds.isEmpty()) {
-            final AllowLoansExtension allowLoansExtension =
-                    AllowLoansExtension.newBuilder()
-                                       .setInventoryId(inventoryId)
-                                       .addAllBorrowers(resultUserIds)
-                                       .build();
-            final CommandRouter commandRouter =
-                    newRouterFor(allowLoansExtension, commandContext)
-                            .add(allowLoansExtension);
-            return Optional.of(commandRouter);
+        final List<UserId> borrowers =
+                borrowers(Lists.reverse(loans), false, Math.abs(queueDifference));
+        if (borrowers.isEmpty()) {
+            return Optional.absent();
         }
-        return Optional.absent();
+        final AllowLoansExtension result = AllowLoansExtension.newBuilder()
+                                                              .setInventoryId(inventoryId)
+                                                              .addAllBorrowers(borrowers)
+                                                              .build();
+        return Optional.of(result);
     }
 
-    private int getUnsatisfiedReservationsCount(List<Reservation> reservations) {
-        final int unsatisfiedReservationsCount = (int) reservations.stream()
-                                                                   .filter(item -> !item.getIsSatisfied())
-                                                                   .count();
-        return unsatisfiedReservationsCount;
+    private static List<UserId> borrowers(List<ExtensionLoan> loans,
+                                          boolean isAllowedExtension,
+                                          int limit) {
+        final List<UserId> result = new ArrayList<>();
+        for (ExtensionLoan loan : loans) {
+            if (result.size() == limit) {
+                break;
+            }
+            if (loan.getIsAllowedExtension() == isAllowedExtension) {
+                result.add(loan.getWhoBorrowed());
+            }
+        }
+        return result;
     }
 
-    private int getForbiddenToExtendLoansCount(List<Loan> loans) {
-        final int forbiddenToExtendLoansCount = (int) loans.stream()
-                                                           .filter(item -> !item.getIsAllowedExtension())
-                                                           .count();
-        return forbiddenToExtendLoansCount;
+    private void updateLoans(List<UserId> borrowers, boolean isAllowedExtension) {
+        final Set<UserId> borrowersSet = new HashSet<>(borrowers);
+        final List<ExtensionLoan> loans = getBuilder().getLoans();
+        int forbiddenLoansCount = getBuilder().getForbiddenLoansCount();
+        for (int i = 0; i < loans.size(); i++) {
+            final ExtensionLoan loan = loans.get(i);
+            if (borrowersSet.contains(loan.getWhoBorrowed())
+                    && loan.getIsAllowedExtension() != isAllowedExtension) {
+                final ExtensionLoan updatedLoan =
+                        ExtensionLoan.newBuilder(loan)
+                                     .setIsAllowedExtension(isAllowedExtension)
+                                     .build();
+                getBuilder().setLoans(i, updatedLoan);
+                forbiddenLoansCount += isAllowedExtension ? -1 : 1;
+            }
+        }
+        getBuilder().setForbiddenLoansCount(forbiddenLoansCount);
     }
 
-    private Optional<InventoryAggregate> getInventory(InventoryId inventoryId) {
-        final InventoryRepository inventoryRepository = InventoryRepository.getRepository();
-        final Optional<InventoryAggregate> inventoryOptional =
-                inventoryRepository.find(inventoryId);
-        return inventoryOptional;
+    private void removeLoan(UserId borrower) {
+        final List<ExtensionLoan> loans = getBuilder().getLoans();
+        for (int i = 0; i < loans.size(); i++) {
+            final ExtensionLoan loan = loans.get(i);
+            if (loan.getWhoBorrowed()
+                    .equals(borrower)) {
+                getBuilder().removeLoans(i);
+                if (!loan.getIsAllowedExtension()) {
+                    getBuilder().setForbiddenLoansCount(
+                            getBuilder().getForbiddenLoansCount() - 1);
+                }
+                return;
+            }
+        }
     }
 }
@@ -18,22 +18,123 @@
  * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+
 package javaclasses.exlibris.c.procman;
 
 import io.spine.server.procman.ProcessManagerRepository;
+import io.spine.server.route.EventRouting;
+import javaclasses.exlibris.InventoryId;
 import javaclasses.exlibris.LoansExtension;
 import javaclasses.exlibris.LoansExtensionId;
+import javaclasses.exlibris.c.BalanceLoansExtension;
+import javaclasses.exlibris.c.BookBorrowed;
+import javaclasses.exlibris.c.BookLost;
+import javaclasses.exlibris.c.BookReadyToPickup;
+import javaclasses.exlibris.c.BookReturned;
+import javaclasses.exlibris.c.InventoryRemoved;
+import javaclasses.exlibris.c.LoansExtensionAllowed;
+import javaclasses.exlibris.c.LoansExtensionForbidden;
+import javaclasses.exlibris.c.ReservationAdded;
+import javaclasses.exlibris.c.ReservationCanceled;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Collections.singleton;
-import static javaclasses.exlibris.c.procman.LoansExtensionProcman.ID;
 
+/**
+ * Repository for the {@link LoansExtensionProcman}.
+ *
+ * <p>There is a process manager for each inventory.
+ *
+ * <p>When a popular book gets lots of reservations at once, the changes of its reservations
+ * queue may be coalesced. In this mode the process manager routes a single command with
+ * the net result after the specified number of changes. The rest of the changes is applied
+ * when {@code BalanceLoansExtension} is posted by the
+ * {@link javaclasses.exlibris.c.deadline.DueDateScheduler DueDateScheduler} at the end of
+ * the coalescing window.
+ */
 public class LoansExtensionProcmanRepository extends ProcessManagerRepository<LoansExtensionId, LoansExtensionProcman, LoansExtension> {
+
+    /**
+     * The batch size meaning each change is followed by a command.
+     */
+    public static final int NO_COALESCING = 1;
+
+    private final int coalescingBatchSize;
+
+    /**
+     * Creates a repository routing a command on each change of the reservations queue.
+     */
     public LoansExtensionProcmanRepository() {
+        this(NO_COALESCING);
+    }
+
+    /**
+     * Creates a repository coalescing the changes of the reservations queue.
+     *
+     * <p>With a batch size above {@link #NO_COALESCING} the changes left over after a burst
+     * are applied only by {@code BalanceLoansExtension}, so the
+     * {@link javaclasses.exlibris.c.deadline.DueDateScheduler DueDateScheduler} must have
+     * a positive coalescing window. {@link javaclasses.exlibris.SchedulingSettings} checks that
+     * for the bounded context created by {@link javaclasses.exlibris.BoundedContexts}.
+     *
+     * @param coalescingBatchSize the maximum number of changes collected before routing
+     *                            a command
+     */
+    public LoansExtensionProcmanRepository(int coalescingBatchSize) {
         super();
+        checkArgument(coalescingBatchSize >= NO_COALESCING,
+                      "The coalescing batch size must be positive.");
+        this.coalescingBatchSize = coalescingBatchSize;
         setUpEventRoute();
+        setUpCommandRoute();
+    }
+
+    @Override
+    public LoansExtensionProcman create(LoansExtensionId id) {
+        final LoansExtensionProcman result = super.create(id);
+        result.setCoalescingBatchSize(coalescingBatchSize);
+        return result;
     }
 
     protected void setUpEventRoute() {
-        getEventRouting().replaceDefault(((message, context) -> singleton(ID)));
+        final EventRouting<LoansExtensionId> routing = getEventRouting();
+        routing.route(ReservationAdded.class,
+                      (message, context) -> singleton(idOf(message.getInventoryId())));
+        routing.route(BookReadyToPickup.class,
+                      (message, context) -> singleton(idOf(message.getInventoryId())));
+        routing.route(ReservationCanceled.class,
+                      (message, context) -> singleton(idOf(message.getInventoryId())));
+        routing.route(BookBorrowed.class,
+                      (message, context) -> singleton(idOf(message.getInventoryId())));
+        routing.route(BookReturned.class,
+                      (message, context) -> singleton(idOf(message.getInventoryId())));
+        routing.route(BookLost.class,
+                      (message, context) -> singleton(idOf(message.getInventoryId())));
+        routing.route(LoansExtensionAllowed.class,
+                      (message, context) -> singleton(idOf(message.getInventoryId())));
+        routing.route(LoansExtensionForbidden.class,
+                      (message, context) -> singleton(idOf(message.getInventoryId())));
+        routing.route(InventoryRemoved.class,
+                      (message, context) -> singleton(idOf(message.getInventoryId())));
+    }
+
+    protected void setUpCommandRoute() {
+        getCommandRouting().route(BalanceLoansExtension.class,
+                                  (message, context) -> idOf(message.getInventoryId()));
+    }
+
+    /**
+     * Obtains the identifier of the process manager handling the events of the inventory.
+     *
+     * @param inventoryId the inventory identifier
+     * @return the process manager identifier
+     */
+    static LoansExtensionId idOf(InventoryId inventoryId) {
+        final LoansExtensionId result = LoansExtensionId.newBuilder()
+                                                        .setValue(inventoryId.getBookId()
+                                                                             .getIsbn62()
+                                                                             .getValue())
+                                                        .build();
+        return result;
     }
 }
@@ -21,41 +21,48 @@
 package javaclasses.exlibris.c.procman;
 
 import com.google.common.base.Optional;
-import com.google.common.collect.Iterables;
 import io.spine.core.CommandContext;
 import io.spine.core.EventContext;
 import io.spine.core.React;
 import io.spine.server.procman.CommandRouted;
 import io.spine.server.procman.CommandRouter;
 import io.spine.server.procman.ProcessManager;
+import javaclasses.exlibris.Inventory;
 import javaclasses.exlibris.InventoryId;
 import javaclasses.exlibris.Reservation;
 import javaclasses.exlibris.ReservationQueue;
 import javaclasses.exlibris.ReservationQueueId;
 import javaclasses.exlibris.ReservationQueueVBuilder;
 import javaclasses.exlibris.UserId;
+import javaclasses.exlibris.WaitlistBounds;
+import javaclasses.exlibris.c.BookReadyToPickup;
 import javaclasses.exlibris.c.BookReturned;
 import javaclasses.exlibris.c.InventoryAppended;
+import javaclasses.exlibris.c.InventoryRemoved;
 import javaclasses.exlibris.c.MarkBookAsAvailable;
+import javaclasses.exlibris.c.ReservationAdded;
 import javaclasses.exlibris.c.ReservationCanceled;
 import javaclasses.exlibris.c.ReservationPickUpPeriodExpired;
 import javaclasses.exlibris.c.SatisfyReservation;
-import javaclasses.exlibris.c.inventory.InventoryAggregate;
 import javaclasses.exlibris.c.inventory.InventoryRepository;
 
-import java.util.List;
+import java.util.Map;
 
+/**
+ * Dispatches {@code SatisfyReservation} or {@code MarkBookAsAvailable} when a book copy
+ * becomes free.
+ *
+ * <p>The unsatisfied reservations are kept in the {@link ReservationQueue} state from
+ * the inventory events. Adding a reservation, removing the reservation of a user and finding
+ * the next reservation to satisfy take amortized constant time. The queue of an inventory is
+ * filled from the inventory state only once, when the process manager meets the inventory
+ * for the first time.
+ *
+ * <p>The instances are partitioned by inventory, see {@link ReservationQueueProcmanRepository}.
+ */
 public class ReservationQueueProcman extends ProcessManager<ReservationQueueId, ReservationQueue, ReservationQueueVBuilder> {
 
-    /**
-     * As long as the {@code ReservationQueueProcman} is an {@code InventoryAggregate}
-     * service and does not hold model state it is a singleton. All subscribed events
-     * are routed to the single instance.
-     */
-    protected static final ReservationQueueId ID =
-            ReservationQueueId.newBuilder()
-                              .setValue("ReservationQueueSingleton")
-                              .build();
+    private static final String KEY_SEPARATOR = "/";
 
     /**
      * Creates a new instance.
@@ -68,6 +75,30 @@ public class ReservationQueueProcman extends ProcessManager<ReservationQueueId,
         super(id);
     }
 
+    @React
+    CommandRouted on(ReservationAdded event) {
+        final InventoryId inventoryId = event.getInventoryId();
+        ensureTracked(inventoryId);
+        enqueue(inventoryId, event.getForWhomReserved());
+        return null;
+    }
+
+    @React
+    CommandRouted on(BookReadyToPickup event) {
+        final InventoryId inventoryId = event.getInventoryId();
+        ensureTracked(inventoryId);
+        dequeue(inventoryId, event.getForWhom());
+        return null;
+    }
+
+    @React
+    CommandRouted on(InventoryRemoved event) {
+        final InventoryId inventoryId = event.getInventoryId();
+        ensureTracked(inventoryId);
+        clearQueue(inventoryId);
+        return null;
+    }
+
     @React
     CommandRouted on(BookReturned event, EventContext eventContext) {
         final InventoryId inventoryId = event.getInventoryId();
@@ -99,7 +130,7 @@ public class ReservationQueueProcman extends ProcessManager<ReservationQueueId,
      * Reacts on {@code ReservationCanceled} event.
      *
      * <p>Performs action only when the canceled reservation was satisfied (in that case available
-     * books count has changed).
+     * books count has changed). The unsatisfied reservation leaves the queue.
      *
      * @param event        the {@code ReservationCanceled} event to react on.
      * @param eventContext the event context
@@ -107,14 +138,16 @@ public class ReservationQueueProcman extends ProcessManager<ReservationQueueId,
      */
     @React
     CommandRouted on(ReservationCanceled event, EventContext eventContext) {
+        final InventoryId inventoryId = event.getInventoryId();
         final boolean reservationWasSatisfied = event.getWasSatisfied();
         if (reservationWasSatisfied) {
-            final InventoryId inventoryId = event.getInventoryId();
             final CommandContext commandContext = eventContext.getCommandContext();
             final CommandRouter commandRouter =
                     markBookAsAvailableOrSatisfyReservationRouter(inventoryId, commandContext);
             return commandRouter.routeAll();
         }
+        ensureTracked(inventoryId);
+        dequeue(inventoryId, event.getWhoCanceled());
         return null;
     }
 
@@ -125,15 +158,21 @@ public class ReservationQueueProcman extends ProcessManager<ReservationQueueId,
      * {@link SatisfyReservation} command for it. If there are no reservations to satisfy
      * creates a {@link MarkBookAsAvailable} command.
      *
+     * <p>The reservation leaves the queue right away instead of waiting for
+     * the {@code BookReadyToPickup} event, because the event is dispatched before the state of
+     * this reaction is stored.
+     *
      * @param inventoryId    the inventory identifier to check its reservations.
      * @param commandContext the command context to route commands.
      * @return the command router that routes specified command in one call
      */
     private CommandRouter markBookAsAvailableOrSatisfyReservationRouter(InventoryId inventoryId,
                                                                         CommandContext commandContext) {
-        final Optional<UserId> userIdOptional = findUserToSatisfyReservation(inventoryId);
+        ensureTracked(inventoryId);
+        final Optional<UserId> userIdOptional = nextToSatisfy(inventoryId);
         if (userIdOptional.isPresent()) {
             final UserId userId = userIdOptional.get();
+            dequeue(inventoryId, userId);
             final CommandRouter satisfyReservation = createSatisfyReservationRouter(inventoryId,
                                                                                     commandContext,
                                                                                     userId);
@@ -163,39 +202,127 @@ public class ReservationQueueProcman extends ProcessManager<ReservationQueueId,
         return newRouterFor(satisfyReservation, commandContext).add(satisfyReservation);
     }
 
-    private Optional<InventoryAggregate> getInventory(InventoryId inventoryId) {
-        final InventoryRepository inventoryRepository = InventoryRepository.getRepository();
+    /**
+     * Fills the queue of the inventory from the inventory state if the inventory
+     * is met for the first time.
+     *
+     * <p>This way the reservations added before the queue was kept by the process manager
+     * are not lost.
+     *
+     * @param inventoryId the inventory identifier
+     */
+    private void ensureTracked(InventoryId inventoryId) {
+        final String isbn = isbnOf(inventoryId);
+        if (getBuilder().getBounds()
+                        .containsKey(isbn)) {
+            return;
+        }
+        getBuilder().putBounds(isbn, WaitlistBounds.getDefaultInstance());
+        final Optional<Inventory> inventory = InventoryRepository.getRepository()
+                                                                 .findState(inventoryId);
+        if (inventory.isPresent()) {
+            for (Reservation reservation : inventory.get()
+                                                    .getReservationsList()) {
+                if (!reservation.getIsSatisfied()) {
+                    enqueue(inventoryId, reservation.getWhoReserved());
+                }
+            }
+        }
+    }
 
-        final Optional<InventoryAggregate> inventoryOptional = inventoryRepository.find(
-                inventoryId);
+    /**
+     * Puts the user to the end of the queue of the inventory unless the user is already there.
+     */
+    private void enqueue(InventoryId inventoryId, UserId user) {
+        final String isbn = isbnOf(inventoryId);
+        final String userKey = userKey(isbn, user);
+        if (getBuilder().getPlaces()
+                        .containsKey(userKey)) {
+            return;
+        }
+        final WaitlistBounds bounds = getBuilder().getBounds()
+                                                  .get(isbn);
+        final long place = bounds.getTail();
+        final WaitlistBounds newBounds = WaitlistBounds.newBuilder(bounds)
+                                                       .setTail(place + 1)
+                                                       .build();
+        getBuilder().putWaiting(placeKey(isbn, place), user)
+                    .putPlaces(userKey, place)
+                    .putBounds(isbn, newBounds);
+    }
 
-        return inventoryOptional;
+    /**
+     * Frees the place of the user in the queue of the inventory.
+     */
+    private void dequeue(InventoryId inventoryId, UserId user) {
+        final String isbn = isbnOf(inventoryId);
+        final String userKey = userKey(isbn, user);
+        final Long place = getBuilder().getPlaces()
+                                       .get(userKey);
+        if (place == null) {
+            return;
+        }
+        getBuilder().removePlaces(userKey)
+                    .removeWaiting(placeKey(isbn, place));
     }
 
     /**
-     * Finds first unsatisfied reservation in queue.
+     * Finds the eldest unsatisfied reservation of the inventory.
+     *
+     * <p>Moves the head of the queue past the freed places. Each place is passed only once,
+     * so the lookup takes amortized constant time.
      *
      * @param inventoryId the inventory identifier to check its reservations.
      * @return Optional user identifier to satisfy reservation, Optional.absent if there are no
-     * reservations to satis
+     * reservations to satisfy
      */
-    private Optional<UserId> findUserToSatisfyReservation(InventoryId inventoryId) {
-        final Optional<InventoryAggregate> inventoryOptional = getInventory(inventoryId);
-        if (!inventoryOptional.isPresent()) {
-            final String errorMessage = "The aggregate state for %s identifier not found in the InventoryRepository.";
-            throw new IllegalArgumentException(String.format(errorMessage, inventoryId.getBookId()
-                                                                                      .getIsbn62()));
+    private Optional<UserId> nextToSatisfy(InventoryId inventoryId) {
+        final String isbn = isbnOf(inventoryId);
+        final WaitlistBounds bounds = getBuilder().getBounds()
+                                                  .get(isbn);
+        final Map<String, UserId> waiting = getBuilder().getWaiting();
+        long head = bounds.getHead();
+        UserId result = null;
+        while (head < bounds.getTail() && result == null) {
+            result = waiting.get(placeKey(isbn, head));
+            if (result == null) {
+                head++;
+            }
         }
-        final InventoryAggregate inventory = inventoryOptional.get();
-        final List<Reservation> reservations = inventory.getState()
-                                                        .getReservationsList();
-        final int index = Iterables.indexOf(reservations, item -> !item.getIsSatisfied());
-
-        if (index != -1) {
-            final Reservation reservationToSatisfy = reservations.get(index);
-            final UserId whoReserved = reservationToSatisfy.getWhoReserved();
-            return Optional.of(whoReserved);
+        getBuilder().putBounds(isbn, WaitlistBounds.newBuilder(bounds)
+                                                   .setHead(head)
+                                                   .build());
+        return Optional.fromNullable(result);
+    }
+
+    private void clearQueue(InventoryId inventoryId) {
+        final String isbn = isbnOf(inventoryId);
+        final WaitlistBounds bounds = getBuilder().getBounds()
+                                                  .get(isbn);
+        for (long place = bounds.getHead(); place < bounds.getTail(); place++) {
+            final UserId user = getBuilder().getWaiting()
+                                            .get(placeKey(isbn, place));
+            if (user != null) {
+                dequeue(inventoryId, user);
+            }
         }
-        return Optional.absent();
+        getBuilder().putBounds(isbn, WaitlistBounds.newBuilder(bounds)
+                                                   .setHead(bounds.getTail())
+                                                   .build());
+    }
+
+    private static String isbnOf(InventoryId inventoryId) {
+        return inventoryId.getBookId()
+                          .getIsbn62()
+                          .getValue();
+    }
+
+    private static String placeKey(String isbn, long place) {
+        return isbn + KEY_SEPARATOR + place;
+    }
+
+    private static String userKey(String isbn, UserId user) {
+        return isbn + KEY_SEPARATOR + user.getEmail()
+                                          .getValue();
     }
 }
@@ -18,23 +18,100 @@
  * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+
 package javaclasses.exlibris.c.procman;
 
 import io.spine.server.procman.ProcessManagerRepository;
+import io.spine.server.route.EventRouting;
+import javaclasses.exlibris.InventoryId;
 import javaclasses.exlibris.ReservationQueue;
 import javaclasses.exlibris.ReservationQueueId;
+import javaclasses.exlibris.c.BookReadyToPickup;
+import javaclasses.exlibris.c.BookReturned;
+import javaclasses.exlibris.c.InventoryAppended;
+import javaclasses.exlibris.c.InventoryRemoved;
+import javaclasses.exlibris.c.ReservationAdded;
+import javaclasses.exlibris.c.ReservationCanceled;
+import javaclasses.exlibris.c.ReservationPickUpPeriodExpired;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Collections.singleton;
-import static javaclasses.exlibris.c.procman.ReservationQueueProcman.ID;
 
+/**
+ * Repository for the {@link ReservationQueueProcman}.
+ *
+ * <p>The process managers are partitioned by the {@link InventoryId}, so the events of
+ * unrelated books are handled by different instances. By default each inventory has its own
+ * process manager. When the number of shards is set, inventories are distributed between
+ * the shards by the hash of the book ISBN.
+ */
 public class ReservationQueueProcmanRepository extends ProcessManagerRepository<ReservationQueueId, ReservationQueueProcman, ReservationQueue> {
 
+    /**
+     * The number of shards meaning a separate process manager for each inventory.
+     */
+    public static final int SHARD_PER_INVENTORY = 0;
+
+    private static final String SHARD_PREFIX = "shard-";
+
+    private final int shardCount;
+
+    /**
+     * Creates a repository with a separate process manager for each inventory.
+     */
     public ReservationQueueProcmanRepository() {
+        this(SHARD_PER_INVENTORY);
+    }
+
+    /**
+     * Creates a repository which distributes inventories between the given number of shards.
+     *
+     * @param shardCount the number of shards or {@link #SHARD_PER_INVENTORY}
+     */
+    public ReservationQueueProcmanRepository(int shardCount) {
         super();
+        checkArgument(shardCount >= 0, "The number of shards must not be negative.");
+        this.shardCount = shardCount;
         setUpEventRoute();
     }
 
     protected void setUpEventRoute() {
-        getEventRouting().replaceDefault(((message, context) -> singleton(ID)));
+        final EventRouting<ReservationQueueId> routing = getEventRouting();
+        routing.route(BookReturned.class,
+                      (message, context) -> singleton(idOf(message.getInventoryId())));
+        routing.route(InventoryAppended.class,
+                      (message, context) -> singleton(idOf(message.getInventoryId())));
+        routing.route(ReservationPickUpPeriodExpired.class,
+                      (message, context) -> singleton(idOf(message.getInventoryId())));
+        routing.route(ReservationCanceled.class,
+                      (message, context) -> singleton(idOf(message.getInventoryId())));
+        routing.route(ReservationAdded.class,
+                      (message, context) -> singleton(idOf(message.getInventoryId())));
+        routing.route(BookReadyToPickup.class,
+                      (message, context) -> singleton(idOf(message.getInventoryId())));
+        routing.route(InventoryRemoved.class,
+                      (message, context) -> singleton(idOf(message.getInventoryId())));
+    }
+
+    /**
+     * Obtains the identifier of the process manager handling the events of the inventory.
+     *
+     * <p>The shard is calculated from the {@code String} hash code of the ISBN, which is stable
+     * between JVM runs unlike the hash code of the message itself.
+     *
+     * @param inventoryId the inventory identifier
+     * @return the process manager identifier
+     */
+    ReservationQueueId idOf(InventoryId inventoryId) {
+        final String isbn = inventoryId.getBookId()
+                                       .getIsbn62()
+                                       .getValue();
+        final String value = shardCount == SHARD_PER_INVENTORY
+                             ? isbn
+                             : SHARD_PREFIX + Math.floorMod(isbn.hashCode(), shardCount);
+        final ReservationQueueId result = ReservationQueueId.newBuilder()
+                                                            .setValue(value)
+                                                            .build();
+        return result;
     }
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.c.procman;
+
+import io.spine.core.CommandContext;
+import io.spine.server.command.Assign;
+import io.spine.server.procman.CommandRouted;
+import io.spine.server.procman.CommandRouter;
+import io.spine.server.procman.ProcessManager;
+import javaclasses.exlibris.InventoryId;
+import javaclasses.exlibris.ReturnDesk;
+import javaclasses.exlibris.ReturnDeskId;
+import javaclasses.exlibris.ReturnDeskVBuilder;
+import javaclasses.exlibris.c.ReturnBooks;
+import javaclasses.exlibris.c.ReturnInventoryBooks;
+import javaclasses.exlibris.c.ReturnedItem;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Splits the books scanned at a return desk by their inventories.
+ *
+ * <p>A single scan session may return the books of many inventories, while each inventory
+ * is changed by its own aggregate. The process manager routes one {@link ReturnInventoryBooks}
+ * command per inventory, so an inventory is loaded and stored once per session instead of
+ * once per book.
+ */
+public class ReturnDeskProcman extends ProcessManager<ReturnDeskId, ReturnDesk, ReturnDeskVBuilder> {
+
+    /**
+     * Creates a new instance.
+     *
+     * @param id an ID for the new instance
+     * @throws IllegalArgumentException if the ID type is unsupported
+     * @see ReturnDesk for more details.
+     */
+    protected ReturnDeskProcman(ReturnDeskId id) {
+        super(id);
+    }
+
+    /**
+     * Handles a {@code ReturnBooks} command.
+     *
+     * <p>Groups the returned items by their inventories preserving the scan order and routes
+     * a single {@link ReturnInventoryBooks} command for each of the inventories.
+     *
+     * @param cmd            the command with the returned items
+     * @param commandContext the command context to route commands
+     * @return routed commands
+     */
+    @Assign
+    CommandRouted handle(ReturnBooks cmd, CommandContext commandContext) {
+        final Map<InventoryId, ReturnInventoryBooks.Builder> groups = new LinkedHashMap<>();
+        for (ReturnedItem item : cmd.getItemsList()) {
+            final InventoryId inventoryId = InventoryId.newBuilder()
+                                                       .setBookId(item.getInventoryItemId()
+                                                                      .getBookId())
+                                                       .build();
+            groups.computeIfAbsent(inventoryId, ReturnDeskProcman::newGroup)
+                  .addItems(item);
+        }
+
+        final CommandRouter commandRouter = newRouterFor(cmd, commandContext);
+        for (ReturnInventoryBooks.Builder group : groups.values()) {
+            commandRouter.add(group.build());
+        }
+        return commandRouter.routeAll();
+    }
+
+    private static ReturnInventoryBooks.Builder newGroup(InventoryId inventoryId) {
+        return ReturnInventoryBooks.newBuilder()
+                                   .setInventoryId(inventoryId);
+    }
+}
@@ -27,6 +27,8 @@
  *     <li>{@code ReservationQueueProcmanRepository}
  *     <li>{@code LoansExtensionProcman}
  *     <li>{@code LoansExtensionProcmanRepository}
+ *     <li>{@code ReturnDeskProcman}
+ *     <li>{@code ReturnDeskProcmanRepository}
  * </ul>
  */
 // @formatter:on
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.q.admin;
+
+import com.google.common.base.Optional;
+import com.google.protobuf.Timestamp;
+import javaclasses.exlibris.BookEventLogViewId;
+import javaclasses.exlibris.BookId;
+import javaclasses.exlibris.q.BookEventLogQuery;
+import javaclasses.exlibris.q.BookEventLogQueryResult;
+import javaclasses.exlibris.q.BookEventLogRecord;
+import javaclasses.exlibris.q.BookEventLogView;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static io.spine.time.Time.getCurrentTime;
+
+/**
+ * Utilities for searching the book event log.
+ *
+ * <p>The log of a book is split into the {@link BookEventLogView} segments by month.
+ * A range query reads only the segments of the months in the range and finds the start
+ * of the range in the first segment by the binary search.
+ */
+public final class BookEventLogIndex {
+
+    private static final int EPOCH_YEAR = 1970;
+    private static final int MONTHS_PER_YEAR = 12;
+
+    private static final Comparator<Timestamp> TIMESTAMP_ORDER =
+            Comparator.comparingLong(Timestamp::getSeconds)
+                      .thenComparingInt(Timestamp::getNanos);
+
+    private BookEventLogIndex() {
+        // Prevent instantiation of this utility class.
+    }
+
+    /**
+     * Obtains the identifier of the segment holding the event emitted at the specified time.
+     *
+     * @param bookId      the identifier of the book
+     * @param whenEmitted the time the event was emitted
+     * @return the identifier of the segment
+     */
+    public static BookEventLogViewId segmentOf(BookId bookId, Timestamp whenEmitted) {
+        checkNotNull(bookId);
+        checkNotNull(whenEmitted);
+        return segmentId(bookId, monthOf(whenEmitted));
+    }
+
+    /**
+     * Executes the query against the segments of the log.
+     *
+     * @param query    the query to execute
+     * @param segments the function obtaining the segment by its identifier
+     * @return the page of the records and the query of the next page
+     */
+    public static BookEventLogQueryResult
+    query(BookEventLogQuery query,
+          Function<BookEventLogViewId, Optional<BookEventLogView>> segments) {
+        checkNotNull(query);
+        checkNotNull(segments);
+        checkArgument(query.hasEmittedFrom(), "The start of the range must be set.");
+        checkArgument(query.getPageSize() >= 0, "The page size must not be negative.");
+        final Timestamp from = query.getEmittedFrom();
+        final Timestamp to = query.hasEmittedTo() ? query.getEmittedTo() : getCurrentTime();
+        final int pageSize = query.getPageSize();
+        final BookEventLogQueryResult.Builder result = BookEventLogQueryResult.newBuilder();
+        int toSkip = query.getSkip();
+
+        final int firstMonth = monthOf(from);
+        final int lastMonth = monthOf(to);
+        for (int month = firstMonth; month <= lastMonth; month++) {
+            final Optional<BookEventLogView> segment =
+                    segments.apply(segmentId(query.getBookId(), month));
+            if (!segment.isPresent()) {
+                continue;
+            }
+            final List<BookEventLogRecord> records = segment.get()
+                                                            .getRecordList();
+            final int start = month == firstMonth ? lowerBound(records, from) : 0;
+            for (int i = start; i < records.size(); i++) {
+                final BookEventLogRecord record = records.get(i);
+                if (TIMESTAMP_ORDER.compare(record.getWhenEmitted(), to) >= 0) {
+                    return result.build();
+                }
+                if (toSkip > 0 && record.getWhenEmitted()
+                                        .equals(from)) {
+                    toSkip--;
+                    continue;
+                }
+                if (pageSize > 0 && result.getRecordCount() == pageSize) {
+                    result.setNextPage(nextPage(query, result.getRecordList()));
+                    return result.build();
+                }
+                result.addRecord(record);
+            }
+        }
+        return result.build();
+    }
+
+    /**
+     * Obtains the position to insert the record at to keep the records sorted.
+     *
+     * <p>The record is inserted after the records emitted at the same time.
+     */
+    static int insertionPosition(List<BookEventLogRecord> records, BookEventLogRecord record) {
+        int low = 0;
+        int high = records.size();
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (TIMESTAMP_ORDER.compare(records.get(middle)
+                                               .getWhenEmitted(),
+                                        record.getWhenEmitted()) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int lowerBound(List<BookEventLogRecord> records, Timestamp whenEmitted) {
+        int low = 0;
+        int high = records.size();
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (TIMESTAMP_ORDER.compare(records.get(middle)
+                                               .getWhenEmitted(), whenEmitted) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Creates the query continuing after the last record of the page.
+     */
+    private static BookEventLogQuery nextPage(BookEventLogQuery query,
+                                              List<BookEventLogRecord> page) {
+        final Timestamp last = page.get(page.size() - 1)
+                                   .getWhenEmitted();
+        int skip = 0;
+        for (int i = page.size() - 1; i >= 0 && page.get(i)
+                                                    .getWhenEmitted()
+                                                    .equals(last); i--) {
+            skip++;
+        }
+        if (last.equals(query.getEmittedFrom())) {
+            skip += query.getSkip();
+        }
+        final BookEventLogQuery result = BookEventLogQuery.newBuilder(query)
+                                                          .setEmittedFrom(last)
+                                                          .setSkip(skip)
+                                                          .build();
+        return result;
+    }
+
+    private static int monthOf(Timestamp timestamp) {
+        final ZonedDateTime time = Instant.ofEpochSecond(timestamp.getSeconds())
+                                          .atZone(ZoneOffset.UTC);
+        final int result = (time.getYear() - EPOCH_YEAR) * MONTHS_PER_YEAR
+                + time.getMonthValue() - 1;
+        return result;
+    }
+
+    private static BookEventLogViewId segmentId(BookId bookId, int month) {
+        final BookEventLogViewId result = BookEventLogViewId.newBuilder()
+                                                            .setBookId(bookId)
+                                                            .setMonth(month)
+                                                            .build();
+        return result;
+    }
+}
@@ -20,14 +20,14 @@
 
 package javaclasses.exlibris.q.admin;
 
+import com.google.protobuf.Message;
 import com.google.protobuf.Timestamp;
+import io.spine.core.EventContext;
 import io.spine.core.Subscribe;
-import io.spine.net.EmailAddress;
 import io.spine.people.PersonName;
 import io.spine.server.projection.Projection;
 import javaclasses.exlibris.BookEventLogViewId;
-import javaclasses.exlibris.BookId;
-import javaclasses.exlibris.InventoryItemId;
+import javaclasses.exlibris.UserId;
 import javaclasses.exlibris.c.BookBorrowed;
 import javaclasses.exlibris.c.BookLost;
 import javaclasses.exlibris.c.BookReadyToPickup;
@@ -39,11 +39,19 @@ import javaclasses.exlibris.c.ReservationAdded;
 import javaclasses.exlibris.c.ReservationBecameLoan;
 import javaclasses.exlibris.c.ReservationCanceled;
 import javaclasses.exlibris.c.ReservationPickUpPeriodExpired;
+import javaclasses.exlibris.c.UserProfileEnrichment;
+import javaclasses.exlibris.q.BookEventLogRecord;
 import javaclasses.exlibris.q.BookEventLogView;
 import javaclasses.exlibris.q.BookEventLogViewVBuilder;
 
+import static javaclasses.exlibris.EnrichmentHelper.getEnrichment;
+import static javaclasses.exlibris.q.admin.BookEventLogIndex.insertionPosition;
+
 /**
- * The projection state of a one action with book.
+ * The projection state of a segment of the book event log.
+ *
+ * <p>The records are appended in the order of the events. An event delivered late
+ * is inserted before the records emitted after it.
  *
  * @author Yurii Haidamaka
  */
@@ -57,254 +65,110 @@ public class BookEventLogViewProjection extends Projection<BookEventLogViewId, B
     }
 
     @Subscribe
-    public void on(BookBorrowed event) {
-        final BookId bookId = event.getInventoryId()
-                                   .getBookId();
-        final InventoryItemId itemId = event.getInventoryItemId();
-        // TODO: 4/26/2018 yurii.haidamaka SET USERNAME FROM GOOGLE BY EMAIL
-        final PersonName userName = PersonName.newBuilder()
-                                              .setGivenName("Ivan")
-                                              .setFamilyName("Petrov")
-                                              .build();
-        final EmailAddress email = event.getWhoBorrowed()
-                                        .getEmail();
-        final String eventType = event.getClass()
-                                      .getSimpleName();
-        final Timestamp whenEmitted = event.getWhenBorrowed();
-
-        getBuilder().setBookId(bookId)
-                    .setItemId(itemId)
-                    .setUserName(userName)
-                    .setEmail(email)
-                    .setEventType(eventType)
-                    .setWhenEmitted(whenEmitted);
+    public void on(BookBorrowed event, EventContext context) {
+        final BookEventLogRecord.Builder record = newRecord(event, event.getWhoBorrowed(),
+                                                            event.getWhenBorrowed(), context);
+        record.setItemId(event.getInventoryItemId());
+        append(record.build());
     }
 
     @Subscribe
-    public void on(BookReturned event) {
-        final BookId bookId = event.getInventoryId()
-                                   .getBookId();
-        final InventoryItemId itemId = event.getInventoryItemId();
-        // TODO: 4/26/2018 yurii.haidamaka SET USERNAME FROM GOOGLE BY EMAIL
-        final PersonName userName = PersonName.newBuilder()
-                                              .setGivenName("Ivan")
-                                              .setFamilyName("Petrov")
-                                              .build();
-        final EmailAddress email = event.getWhoReturned()
-                                        .getEmail();
-        final String eventType = event.getClass()
-                                      .getSimpleName();
-        final Timestamp whenEmitted = event.getWhenReturned();
-
-        getBuilder().setBookId(bookId)
-                    .setItemId(itemId)
-                    .setUserName(userName)
-                    .setEmail(email)
-                    .setEventType(eventType)
-                    .setWhenEmitted(whenEmitted);
+    public void on(BookReturned event, EventContext context) {
+        final BookEventLogRecord.Builder record = newRecord(event, event.getWhoReturned(),
+                                                            event.getWhenReturned(), context);
+        record.setItemId(event.getInventoryItemId());
+        append(record.build());
     }
 
     @Subscribe
-    public void on(ReservationAdded event) {
-        final BookId bookId = event.getInventoryId()
-                                   .getBookId();
-        // TODO: 4/26/2018 yurii.haidamaka SET USERNAME FROM GOOGLE BY EMAIL
-        final PersonName userName = PersonName.newBuilder()
-                                              .setGivenName("Ivan")
-                                              .setFamilyName("Petrov")
-                                              .build();
-        final EmailAddress email = event.getForWhomReserved()
-                                        .getEmail();
-        final String eventType = event.getClass()
-                                      .getSimpleName();
-        final Timestamp whenEmitted = event.getWhenCreated();
-        getBuilder().setBookId(bookId)
-                    .setUserName(userName)
-                    .setEmail(email)
-                    .setEventType(eventType)
-                    .setWhenEmitted(whenEmitted);
+    public void on(ReservationAdded event, EventContext context) {
+        final BookEventLogRecord.Builder record = newRecord(event, event.getForWhomReserved(),
+                                                            event.getWhenCreated(), context);
+        append(record.build());
     }
 
     @Subscribe
-    public void on(ReservationCanceled event) {
-        final BookId bookId = event.getInventoryId()
-                                   .getBookId();
-        // TODO: 4/26/2018 yurii.haidamaka SET USERNAME FROM GOOGLE BY EMAIL
-        final PersonName userName = PersonName.newBuilder()
-                                              .setGivenName("Ivan")
-                                              .setFamilyName("Petrov")
-                                              .build();
-        final EmailAddress email = event.getWhoCanceled()
-                                        .getEmail();
-        final String eventType = event.getClass()
-                                      .getSimpleName();
-        final Timestamp whenEmitted = event.getWhenCanceled();
-
-        getBuilder().setBookId(bookId)
-                    .setUserName(userName)
-                    .setEmail(email)
-                    .setEventType(eventType)
-                    .setWhenEmitted(whenEmitted);
+    public void on(ReservationCanceled event, EventContext context) {
+        final BookEventLogRecord.Builder record = newRecord(event, event.getWhoCanceled(),
+                                                            event.getWhenCanceled(), context);
+        append(record.build());
     }
 
     @Subscribe
-    public void on(ReservationPickUpPeriodExpired event) {
-        final BookId bookId = event.getInventoryId()
-                                   .getBookId();
-        // TODO: 4/26/2018 yurii.haidamaka SET USERNAME FROM GOOGLE BY EMAIL
-        final PersonName userName = PersonName.newBuilder()
-                                              .setGivenName("Ivan")
-                                              .setFamilyName("Petrov")
-                                              .build();
-        final EmailAddress email = event.getUserId()
-                                        .getEmail();
-        final String eventType = event.getClass()
-                                      .getSimpleName();
-        final Timestamp whenEmitted = event.getWhenExpired();
-
-        getBuilder().setBookId(bookId)
-                    .setUserName(userName)
-                    .setEmail(email)
-                    .setEventType(eventType)
-                    .setWhenEmitted(whenEmitted);
+    public void on(ReservationPickUpPeriodExpired event, EventContext context) {
+        final BookEventLogRecord.Builder record = newRecord(event, event.getUserId(),
+                                                            event.getWhenExpired(), context);
+        append(record.build());
     }
 
     @Subscribe
-    public void on(ReservationBecameLoan event) {
-        final BookId bookId = event.getInventoryId()
-                                   .getBookId();
-        // TODO: 4/26/2018 yurii.haidamaka SET USERNAME FROM GOOGLE BY EMAIL
-        final PersonName userName = PersonName.newBuilder()
-                                              .setGivenName("Ivan")
-                                              .setFamilyName("Petrov")
-                                              .build();
-        final EmailAddress email = event.getUserId()
-                                        .getEmail();
-        final String eventType = event.getClass()
-                                      .getSimpleName();
-        final Timestamp whenEmitted = event.getWhenBecameLoan();
-
-        getBuilder().setBookId(bookId)
-                    .setUserName(userName)
-                    .setEmail(email)
-                    .setEventType(eventType)
-                    .setWhenEmitted(whenEmitted);
+    public void on(ReservationBecameLoan event, EventContext context) {
+        final BookEventLogRecord.Builder record = newRecord(event, event.getUserId(),
+                                                            event.getWhenBecameLoan(), context);
+        append(record.build());
     }
 
     @Subscribe
-    public void on(LoanBecameOverdue event) {
-        final BookId bookId = event.getInventoryId()
-                                   .getBookId();
-        final InventoryItemId itemId = event.getInventoryItemId();
-        // TODO: 4/26/2018 yurii.haidamaka SET USERNAME FROM GOOGLE BY EMAIL
-        final PersonName userName = PersonName.newBuilder()
-                                              .setGivenName("Ivan")
-                                              .setFamilyName("Petrov")
-                                              .build();
-        final EmailAddress email = event.getUserId()
-                                        .getEmail();
-        final String eventType = event.getClass()
-                                      .getSimpleName();
-        final Timestamp whenEmitted = event.getWhenBecameOverdue();
-        getBuilder().setBookId(bookId)
-                    .setItemId(itemId)
-                    .setUserName(userName)
-                    .setEmail(email)
-                    .setEventType(eventType)
-                    .setWhenEmitted(whenEmitted);
+    public void on(LoanBecameOverdue event, EventContext context) {
+        final BookEventLogRecord.Builder record = newRecord(event, event.getUserId(),
+                                                            event.getWhenBecameOverdue(), context);
+        record.setItemId(event.getInventoryItemId());
+        append(record.build());
     }
 
     @Subscribe
-    public void on(LoanBecameShouldReturnSoon event) {
-        final BookId bookId = event.getInventoryId()
-                                   .getBookId();
-        final InventoryItemId itemId = event.getInventoryItemId();
-        // TODO: 4/26/2018 yurii.haidamaka SET USERNAME FROM GOOGLE BY EMAIL
-        final PersonName userName = PersonName.newBuilder()
-                                              .setGivenName("Ivan")
-                                              .setFamilyName("Petrov")
-                                              .build();
-        final EmailAddress email = event.getUserId()
-                                        .getEmail();
-        final String eventType = event.getClass()
-                                      .getSimpleName();
-        final Timestamp whenEmitted = event.getWhenBecameShouldReturnSoon();
-
-        getBuilder().setBookId(bookId)
-                    .setItemId(itemId)
-                    .setUserName(userName)
-                    .setEmail(email)
-                    .setEventType(eventType)
-                    .setWhenEmitted(whenEmitted);
+    public void on(LoanBecameShouldReturnSoon event, EventContext context) {
+        final BookEventLogRecord.Builder record = newRecord(event, event.getUserId(),
+                                                            event.getWhenBecameShouldReturnSoon(),
+                                                            context);
+        record.setItemId(event.getInventoryItemId());
+        append(record.build());
     }
 
     @Subscribe
-    public void on(LoanPeriodExtended event) {
-        final BookId bookId = event.getInventoryId()
-                                   .getBookId();
-        final InventoryItemId itemId = event.getInventoryItemId();
-        // TODO: 4/26/2018 yurii.haidamaka SET USERNAME FROM GOOGLE BY EMAIL
-        final PersonName userName = PersonName.newBuilder()
-                                              .setGivenName("Ivan")
-                                              .setFamilyName("Petrov")
-                                              .build();
-        final EmailAddress email = event.getUserId()
-                                        .getEmail();
-        final String eventType = event.getClass()
-                                      .getSimpleName();
-        final Timestamp whenEmitted = event.getWhenExtended();
-        getBuilder().setBookId(bookId)
-                    .setItemId(itemId)
-                    .setUserName(userName)
-                    .setEmail(email)
-                    .setEventType(eventType)
-                    .setWhenEmitted(whenEmitted);
+    public void on(LoanPeriodExtended event, EventContext context) {
+        final BookEventLogRecord.Builder record = newRecord(event, event.getUserId(),
+                                                            event.getWhenExtended(), context);
+        record.setItemId(event.getInventoryItemId());
+        append(record.build());
     }
 
     @Subscribe
-    public void on(BookLost event) {
-        final BookId bookId = event.getInventoryId()
-                                   .getBookId();
-        final InventoryItemId itemId = event.getInventoryItemId();
-        // TODO: 4/26/2018 yurii.haidamaka SET USERNAME FROM GOOGLE BY EMAIL
-        final PersonName userName = PersonName.newBuilder()
-                                              .setGivenName("Ivan")
-                                              .setFamilyName("Petrov")
-                                              .build();
-        final EmailAddress email = event.getWhoLost()
-                                        .getEmail();
-        final String eventType = event.getClass()
-                                      .getSimpleName();
-        final Timestamp whenEmitted = event.getWhenReported();
-
-        getBuilder().setBookId(bookId)
-                    .setItemId(itemId)
-                    .setUserName(userName)
-                    .setEmail(email)
-                    .setEventType(eventType)
-                    .setWhenEmitted(whenEmitted);
+    public void on(BookLost event, EventContext context) {
+        final BookEventLogRecord.Builder record = newRecord(event, event.getWhoLost(),
+                                                            event.getWhenReported(), context);
+        record.setItemId(event.getInventoryItemId());
+        append(record.build());
     }
 
     @Subscribe
-    public void on(BookReadyToPickup event) {
-        final BookId bookId = event.getInventoryId()
-                                   .getBookId();
-        // TODO: 4/26/2018 yurii.haidamaka SET USERNAME FROM GOOGLE BY EMAIL
-        final PersonName userName = PersonName.newBuilder()
-                                              .setGivenName("Ivan")
-                                              .setFamilyName("Petrov")
-                                              .build();
-        final EmailAddress email = event.getForWhom()
-                                        .getEmail();
+    public void on(BookReadyToPickup event, EventContext context) {
+        final BookEventLogRecord.Builder record = newRecord(event, event.getForWhom(),
+                                                            event.getWhenBecameReadyToPickup(),
+                                                            context);
+        append(record.build());
+    }
+
+    private static BookEventLogRecord.Builder newRecord(Message event, UserId userId,
+                                                        Timestamp whenEmitted,
+                                                        EventContext context) {
+        final UserProfileEnrichment userEnrichment = getEnrichment(UserProfileEnrichment.class,
+                                                                   context);
+        final PersonName userName = userEnrichment.getUser()
+                                                  .getName();
         final String eventType = event.getClass()
                                       .getSimpleName();
-        final Timestamp whenEmitted = event.getWhenBecameReadyToPickup();
-
-        getBuilder().setBookId(bookId)
-                    .setUserName(userName)
-                    .setEmail(email)
-                    .setEventType(eventType)
-                    .setWhenEmitted(whenEmitted);
+        final BookEventLogRecord.Builder result = BookEventLogRecord.newBuilder()
+                                                                    .setUserName(userName)
+                                                                    .setEmail(userId.getEmail())
+                                                                    .setEventType(eventType)
+                                                                    .setWhenEmitted(whenEmitted);
+        return result;
     }
 
+    private void append(BookEventLogRecord record) {
+        final int position = insertionPosition(getBuilder().getRecord(), record);
+        getBuilder().setId(getId())
+                    .addRecord(position, record);
+    }
 }
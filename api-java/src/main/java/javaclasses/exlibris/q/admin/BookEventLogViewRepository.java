@@ -20,16 +20,32 @@
 
 package javaclasses.exlibris.q.admin;
 
+import com.google.common.base.Optional;
 import io.spine.server.projection.ProjectionRepository;
 import javaclasses.exlibris.BookEventLogViewId;
+import javaclasses.exlibris.c.BookBorrowed;
+import javaclasses.exlibris.c.BookLost;
+import javaclasses.exlibris.c.BookReadyToPickup;
+import javaclasses.exlibris.c.BookReturned;
+import javaclasses.exlibris.c.LoanBecameOverdue;
+import javaclasses.exlibris.c.LoanBecameShouldReturnSoon;
+import javaclasses.exlibris.c.LoanPeriodExtended;
+import javaclasses.exlibris.c.ReservationAdded;
+import javaclasses.exlibris.c.ReservationBecameLoan;
+import javaclasses.exlibris.c.ReservationCanceled;
+import javaclasses.exlibris.c.ReservationPickUpPeriodExpired;
+import javaclasses.exlibris.q.BookEventLogQuery;
+import javaclasses.exlibris.q.BookEventLogQueryResult;
 import javaclasses.exlibris.q.BookEventLogView;
 
-import static io.spine.Identifier.newUuid;
 import static java.util.Collections.singleton;
+import static javaclasses.exlibris.q.admin.BookEventLogIndex.segmentOf;
 
 /**
  * Repository for the {@link BookEventLogViewProjection}.
  *
+ * <p>The events of a book are routed to the segment of the month they were emitted in.
+ *
  * @author Yurii Haidamaka
  */
 public class BookEventLogViewRepository extends ProjectionRepository<BookEventLogViewId, BookEventLogViewProjection, BookEventLogView> {
@@ -39,15 +55,63 @@ public class BookEventLogViewRepository extends ProjectionRepository<BookEventLo
         setUpEventRoute();
     }
 
+    /**
+     * Obtains the page of the book event log.
+     *
+     * @param query the query of the records
+     * @return the matching records and the query of the next page
+     * @see BookEventLogIndex#query(BookEventLogQuery, java.util.function.Function)
+     */
+    public BookEventLogQueryResult query(BookEventLogQuery query) {
+        final BookEventLogQueryResult result = BookEventLogIndex.query(query, this::findSegment);
+        return result;
+    }
+
     /**
      * Adds the {@link io.spine.server.route.EventRoute EventRoute}s to the repository.
      */
     protected void setUpEventRoute() {
-        getEventRouting().replaceDefault(((message, context) -> {
-            final BookEventLogViewId id = BookEventLogViewId.newBuilder()
-                                                            .setValue(newUuid())
-                                                            .build();
-            return singleton(id);
-        }));
+        getEventRouting().route(BookBorrowed.class, (message, context) ->
+                singleton(segmentOf(message.getInventoryId()
+                                           .getBookId(), message.getWhenBorrowed())));
+        getEventRouting().route(BookReturned.class, (message, context) ->
+                singleton(segmentOf(message.getInventoryId()
+                                           .getBookId(), message.getWhenReturned())));
+        getEventRouting().route(ReservationAdded.class, (message, context) ->
+                singleton(segmentOf(message.getInventoryId()
+                                           .getBookId(), message.getWhenCreated())));
+        getEventRouting().route(ReservationCanceled.class, (message, context) ->
+                singleton(segmentOf(message.getInventoryId()
+                                           .getBookId(), message.getWhenCanceled())));
+        getEventRouting().route(ReservationPickUpPeriodExpired.class, (message, context) ->
+                singleton(segmentOf(message.getInventoryId()
+                                           .getBookId(), message.getWhenExpired())));
+        getEventRouting().route(ReservationBecameLoan.class, (message, context) ->
+                singleton(segmentOf(message.getInventoryId()
+                                           .getBookId(), message.getWhenBecameLoan())));
+        getEventRouting().route(LoanBecameOverdue.class, (message, context) ->
+                singleton(segmentOf(message.getInventoryId()
+                                           .getBookId(), message.getWhenBecameOverdue())));
+        getEventRouting().route(LoanBecameShouldReturnSoon.class, (message, context) ->
+                singleton(segmentOf(message.getInventoryId()
+                                           .getBookId(), message.getWhenBecameShouldReturnSoon())));
+        getEventRouting().route(LoanPeriodExtended.class, (message, context) ->
+                singleton(segmentOf(message.getInventoryId()
+                                           .getBookId(), message.getWhenExtended())));
+        getEventRouting().route(BookLost.class, (message, context) ->
+                singleton(segmentOf(message.getInventoryId()
+                                           .getBookId(), message.getWhenReported())));
+        getEventRouting().route(BookReadyToPickup.class, (message, context) ->
+                singleton(segmentOf(message.getInventoryId()
+                                           .getBookId(), message.getWhenBecameReadyToPickup())));
+    }
+
+    private Optional<BookEventLogView> findSegment(BookEventLogViewId id) {
+        final Optional<BookEventLogViewProjection> segment = find(id);
+        if (!segment.isPresent()) {
+            return Optional.absent();
+        }
+        return Optional.of(segment.get()
+                                  .getState());
     }
 }
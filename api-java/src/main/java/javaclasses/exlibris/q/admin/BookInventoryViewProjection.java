@@ -20,44 +20,29 @@
 
 package javaclasses.exlibris.q.admin;
 
-import com.google.protobuf.Timestamp;
 import io.spine.core.EventContext;
 import io.spine.core.Subscribe;
-import io.spine.net.EmailAddress;
-import io.spine.people.PersonName;
 import io.spine.server.projection.Projection;
-import io.spine.time.LocalDate;
-import javaclasses.exlibris.Author;
-import javaclasses.exlibris.BookDetails;
-import javaclasses.exlibris.BookTitle;
+import javaclasses.exlibris.BookSummary;
 import javaclasses.exlibris.InventoryId;
 import javaclasses.exlibris.InventoryItemId;
-import javaclasses.exlibris.UserId;
-import javaclasses.exlibris.c.BookBorrowed;
-import javaclasses.exlibris.c.BookEnrichment;
-import javaclasses.exlibris.c.BookLost;
-import javaclasses.exlibris.c.BookReturned;
+import javaclasses.exlibris.c.BookSummaryEnrichment;
 import javaclasses.exlibris.c.InventoryAppended;
+import javaclasses.exlibris.c.InventoryBatchAppended;
 import javaclasses.exlibris.c.InventoryDecreased;
 import javaclasses.exlibris.c.InventoryRemoved;
-import javaclasses.exlibris.c.LoanBecameOverdue;
-import javaclasses.exlibris.c.LoanPeriodExtended;
 import javaclasses.exlibris.q.BookInventoryView;
 import javaclasses.exlibris.q.BookInventoryViewVBuilder;
-import javaclasses.exlibris.q.InventoryItemState;
-import javaclasses.exlibris.q.LoanDetails;
-
-import java.util.ArrayList;
-import java.util.List;
-import java.util.OptionalInt;
-import java.util.stream.IntStream;
 
 import static javaclasses.exlibris.EnrichmentHelper.getEnrichment;
-import static javaclasses.exlibris.Timestamps.toLocalDate;
 
 /**
  * The projection state of a one inventory.
  *
+ * <p>Contains the summary of the inventory and the numbers of its items. The states of
+ * the items are kept in the {@link InventoryItemViewProjection}s, so a loan of an item
+ * does not change this projection.
+ *
  * @author Yurii Haidamaka
  */
 public class BookInventoryViewProjection extends Projection<InventoryId, BookInventoryView, BookInventoryViewVBuilder> {
@@ -71,146 +56,48 @@ public class BookInventoryViewProjection extends Projection<InventoryId, BookInv
 
     @Subscribe
     public void on(InventoryAppended event, EventContext context) {
-        final BookEnrichment enrichment = getEnrichment(BookEnrichment.class, context);
-        final BookDetails bookDetails = enrichment.getBook()
-                                                  .getBookDetails();
-        final ArrayList<Author> authors = new ArrayList<>(bookDetails.getAuthorList());
-        final BookTitle title = bookDetails.getTitle();
-        final InventoryItemId itemId = event.getInventoryItemId();
-        final InventoryItemState state = InventoryItemState.newBuilder()
-                                                           .setItemId(itemId)
-                                                           .setInLibrary(true)
-                                                           .build();
-        getBuilder().setInventoryId(event.getInventoryId())
-                    .setTitle(title)
-                    .addAllAuthor(authors)
-                    .addItemState(state);
-    }
-
-    @Subscribe
-    public void on(InventoryRemoved event) {
-        setDeleted(true);
-    }
-
-    @Subscribe
-    public void on(InventoryDecreased event) {
-        final List<InventoryItemState> items = new ArrayList<>(getBuilder().getItemState());
-        final int index = getIndexByInventoryItemId(items, event.getInventoryItemId());
-        getBuilder().removeItemState(index);
-    }
-
-    @Subscribe
-    public void on(BookBorrowed event) {
-        final List<InventoryItemState> items = new ArrayList<>(getBuilder().getItemState());
-        final int index = getIndexByInventoryItemId(items, event.getInventoryItemId());
-        final InventoryItemState inventoryItemState = getBuilder().getItemState()
-                                                                  .get(index);
-
-        final InventoryItemId itemId = event.getInventoryItemId();
-        final UserId userId = event.getWhoBorrowed();
-        // TODO: 4/26/2018 yurii.haidamaka SET USERNAME FROM GOOGLE BY EMAIL
-        final PersonName userName = PersonName.newBuilder()
-                                              .setGivenName("Ivan")
-                                              .setFamilyName("Petrov")
-                                              .build();
-        final EmailAddress email = event.getWhoBorrowed()
-                                        .getEmail();
-        final Timestamp whenTakenTimestamp = event.getWhenBorrowed();
-        final LocalDate whenTaken = toLocalDate(whenTakenTimestamp);
-        final Timestamp whenDueTimestamp = event.getWhenDue();
-        final LocalDate whenDue = toLocalDate(whenDueTimestamp);
-        final LoanDetails loanDetails = LoanDetails.newBuilder()
-                                                   .setUserId(userId)
-                                                   .setUserName(userName)
-                                                   .setEmail(email)
-                                                   .setWhenTaken(whenTaken)
-                                                   .setWhenDue(whenDue)
-                                                   .setOverdue(false)
-                                                   .build();
-        final InventoryItemState newInventoryItemState = InventoryItemState.newBuilder(
-                inventoryItemState)
-                                                                           .setItemId(itemId)
-                                                                           .setLoanDetails(
-                                                                                   loanDetails)
-                                                                           .clearInLibrary()
-                                                                           .build();
-        getBuilder().setItemState(index, newInventoryItemState);
+        setSummary(event.getInventoryId(), context);
+        addItem(event.getInventoryItemId());
     }
 
     @Subscribe
-    public void on(BookLost event) {
-        final InventoryItemId itemId = event.getInventoryItemId();
-
-        final List<InventoryItemState> items = new ArrayList<>(getBuilder().getItemState());
-        final int index = getIndexByInventoryItemId(items, event.getInventoryItemId());
-        final InventoryItemState invItemState = items.get(index);
-        final InventoryItemState newInvItemState = InventoryItemState.newBuilder(invItemState)
-                                                                     .setItemId(itemId)
-                                                                     .setLost(true)
-                                                                     .clearLoanDetails()
-                                                                     .build();
-        getBuilder().setItemState(index, newInvItemState);
+    public void on(InventoryBatchAppended event, EventContext context) {
+        setSummary(event.getInventoryId(), context);
+        for (InventoryItemId itemId : event.getInventoryItemIdsList()) {
+            addItem(itemId);
+        }
     }
 
     @Subscribe
-    public void on(LoanBecameOverdue event) {
-        final InventoryItemId itemId = event.getInventoryItemId();
-
-        final List<InventoryItemState> items = new ArrayList<>(getBuilder().getItemState());
-        final int index = getIndexByInventoryItemId(items, event.getInventoryItemId());
-        final InventoryItemState invItemState = items.get(index);
-        final LoanDetails loanDetails = LoanDetails.newBuilder(invItemState.getLoanDetails())
-                                                   .setOverdue(true)
-                                                   .build();
-        final InventoryItemState newInvItemState = InventoryItemState.newBuilder(invItemState)
-                                                                     .setItemId(itemId)
-                                                                     .setLoanDetails(loanDetails)
-                                                                     .build();
-        getBuilder().setItemState(index, newInvItemState);
+    public void on(InventoryRemoved event) {
+        setDeleted(true);
     }
 
     @Subscribe
-    public void on(BookReturned event) {
-        final InventoryItemId itemId = event.getInventoryItemId();
-
-        final List<InventoryItemState> items = new ArrayList<>(getBuilder().getItemState());
-        final int index = getIndexByInventoryItemId(items, event.getInventoryItemId());
-        final InventoryItemState invItemState = items.get(index);
-        final InventoryItemState newInvItemState = InventoryItemState.newBuilder(invItemState)
-                                                                     .setItemId(itemId)
-                                                                     .setInLibrary(true)
-                                                                     .clearLoanDetails()
-                                                                     .build();
-        getBuilder().setItemState(index, newInvItemState);
+    public void on(InventoryDecreased event) {
+        final int index = getBuilder().getItemNumber()
+                                      .indexOf(event.getInventoryItemId()
+                                                    .getItemNumber());
+        if (index != -1) {
+            getBuilder().removeItemNumber(index)
+                        .setItemCount(getBuilder().getItemNumber()
+                                                  .size());
+        }
     }
 
-    @Subscribe
-    public void on(LoanPeriodExtended event) {
-        final InventoryItemId itemId = event.getInventoryItemId();
-        final Timestamp whenDueTimestamp = event.getNewDueDate();
-        final LocalDate whenDue = toLocalDate(whenDueTimestamp);
-
-        final List<InventoryItemState> items = new ArrayList<>(getBuilder().getItemState());
-        final int index = getIndexByInventoryItemId(items, event.getInventoryItemId());
-        final InventoryItemState invItemState = items.get(index);
-
-        final LoanDetails loanDetails = LoanDetails.newBuilder(invItemState.getLoanDetails())
-                                                   .setWhenDue(whenDue)
-                                                   .clearOverdue()
-                                                   .build();
-        final InventoryItemState newInvItemState = InventoryItemState.newBuilder(invItemState)
-                                                                     .setItemId(itemId)
-                                                                     .setLoanDetails(loanDetails)
-                                                                     .build();
-        getBuilder().setItemState(index, newInvItemState);
+    private void setSummary(InventoryId inventoryId, EventContext context) {
+        final BookSummaryEnrichment enrichment = getEnrichment(BookSummaryEnrichment.class,
+                                                               context);
+        final BookSummary book = enrichment.getBook();
+        getBuilder().setInventoryId(inventoryId)
+                    .setTitle(book.getTitle())
+                    .clearAuthor()
+                    .addAllAuthor(book.getAuthorList());
     }
 
-    private int getIndexByInventoryItemId(List<InventoryItemState> items, InventoryItemId id) {
-        final OptionalInt index = IntStream.range(0, items.size())
-                                           .filter(i -> items.get(i)
-                                                             .getItemId()
-                                                             .equals(id))
-                                           .findFirst();
-        return index.isPresent() ? index.getAsInt() : -1;
+    private void addItem(InventoryItemId itemId) {
+        getBuilder().addItemNumber(itemId.getItemNumber())
+                    .setItemCount(getBuilder().getItemNumber()
+                                              .size());
     }
 }
@@ -23,14 +23,10 @@ package javaclasses.exlibris.q.admin;
 import io.spine.server.projection.ProjectionRepository;
 import io.spine.server.route.EventRouting;
 import javaclasses.exlibris.InventoryId;
-import javaclasses.exlibris.c.BookBorrowed;
-import javaclasses.exlibris.c.BookLost;
-import javaclasses.exlibris.c.BookReturned;
 import javaclasses.exlibris.c.InventoryAppended;
+import javaclasses.exlibris.c.InventoryBatchAppended;
 import javaclasses.exlibris.c.InventoryDecreased;
 import javaclasses.exlibris.c.InventoryRemoved;
-import javaclasses.exlibris.c.LoanBecameOverdue;
-import javaclasses.exlibris.c.LoanPeriodExtended;
 import javaclasses.exlibris.q.BookInventoryView;
 
 import static java.util.Collections.singleton;
@@ -38,6 +34,9 @@ import static java.util.Collections.singleton;
 /**
  * Repository for the {@link BookInventoryViewProjection}.
  *
+ * <p>The states of the inventory items are obtained from
+ * the {@link InventoryItemViewRepository#findItems(BookInventoryView)}.
+ *
  * @author Yurii Haidamaka
  */
 public class BookInventoryViewRepository extends ProjectionRepository<InventoryId, BookInventoryViewProjection, BookInventoryView> {
@@ -52,21 +51,13 @@ public class BookInventoryViewRepository extends ProjectionRepository<InventoryI
      */
     protected void setUpEventRoute() {
         final EventRouting<InventoryId> routing = getEventRouting();
-        routing.route(BookBorrowed.class,
-                      (message, context) -> singleton(message.getInventoryId()));
         routing.route(InventoryDecreased.class,
                       (message, context) -> singleton(message.getInventoryId()));
         routing.route(InventoryRemoved.class,
                       (message, context) -> singleton(message.getInventoryId()));
         routing.route(InventoryAppended.class,
                       (message, context) -> singleton(message.getInventoryId()));
-        routing.route(BookLost.class,
-                      (message, context) -> singleton(message.getInventoryId()));
-        routing.route(LoanBecameOverdue.class,
-                      (message, context) -> singleton(message.getInventoryId()));
-        routing.route(BookReturned.class,
-                      (message, context) -> singleton(message.getInventoryId()));
-        routing.route(LoanPeriodExtended.class,
+        routing.route(InventoryBatchAppended.class,
                       (message, context) -> singleton(message.getInventoryId()));
     }
 }
@@ -21,6 +21,7 @@
 package javaclasses.exlibris.q.admin;
 
 import com.google.protobuf.Timestamp;
+import io.spine.core.EventContext;
 import io.spine.core.Subscribe;
 import io.spine.net.EmailAddress;
 import io.spine.people.PersonName;
@@ -30,14 +31,22 @@ import javaclasses.exlibris.BookId;
 import javaclasses.exlibris.BookLoanViewId;
 import javaclasses.exlibris.InventoryItemId;
 import javaclasses.exlibris.c.BookBorrowed;
+import javaclasses.exlibris.c.BookLost;
+import javaclasses.exlibris.c.BookReturned;
 import javaclasses.exlibris.c.LoanPeriodExtended;
+import javaclasses.exlibris.c.UserProfileEnrichment;
 import javaclasses.exlibris.q.BookLoanView;
 import javaclasses.exlibris.q.BookLoanViewVBuilder;
 
+import static javaclasses.exlibris.EnrichmentHelper.getEnrichment;
 import static javaclasses.exlibris.Timestamps.toLocalDate;
 
 /**
- * The projection state of a one loan in relation to the book at the time of the borrowing.
+ * The projection state of a loan in relation to the book.
+ *
+ * <p>The loan stays in the view after it is closed. The current loans of a book and of
+ * a reader are found with the {@link BookLoansIndexProjection} and
+ * the {@link ReaderLoansIndexProjection}.
  *
  * @author Yurii Haidamaka
  */
@@ -51,7 +60,7 @@ public class BookLoanViewProjection extends Projection<BookLoanViewId, BookLoanV
     }
 
     @Subscribe
-    public void on(BookBorrowed event) {
+    public void on(BookBorrowed event, EventContext context) {
         final EmailAddress email = event.getWhoBorrowed()
                                         .getEmail();
         final BookId bookId = event.getInventoryId()
@@ -61,14 +70,15 @@ public class BookLoanViewProjection extends Projection<BookLoanViewId, BookLoanV
         final LocalDate whenTaken = toLocalDate(whenTakenTimestamp);
         final Timestamp whenDueTimestamp = event.getWhenDue();
         final LocalDate whenDue = toLocalDate(whenDueTimestamp);
-        // TODO: 4/26/2018 yurii.haidamaka SET USERNAME FROM GOOGLE BY EMAIL
-        final PersonName userName = PersonName.newBuilder()
-                                              .setGivenName("Ivan")
-                                              .setFamilyName("Petrov")
-                                              .build();
+        final UserProfileEnrichment userEnrichment = getEnrichment(UserProfileEnrichment.class,
+                                                                   context);
+        final PersonName userName = userEnrichment.getUser()
+                                                  .getName();
 
-        getBuilder().setBookId(bookId)
+        getBuilder().setId(getId())
+                    .setBookId(bookId)
                     .setItemId(inventoryItemId)
+                    .setUserId(event.getWhoBorrowed())
                     .setUserName(userName)
                     .setEmail(email)
                     .setWhenTaken(whenTaken)
@@ -76,27 +86,25 @@ public class BookLoanViewProjection extends Projection<BookLoanViewId, BookLoanV
     }
 
     @Subscribe
-    public void on(LoanPeriodExtended event) {
-        final EmailAddress email = event.getUserId()
-                                        .getEmail();
-        final BookId bookId = event.getInventoryId()
-                                   .getBookId();
-        final InventoryItemId inventoryItemId = event.getInventoryItemId();
-        final Timestamp whenTakenTimestamp = event.getWhenExtended();
-        final LocalDate whenTaken = toLocalDate(whenTakenTimestamp);
+    public void on(LoanPeriodExtended event, EventContext context) {
         final Timestamp whenDueTimestamp = event.getNewDueDate();
         final LocalDate whenDue = toLocalDate(whenDueTimestamp);
-        // TODO: 4/26/2018 yurii.haidamaka SET USERNAME FROM GOOGLE BY EMAIL
-        final PersonName userName = PersonName.newBuilder()
-                                              .setGivenName("Ivan")
-                                              .setFamilyName("Petrov")
-                                              .build();
+        final UserProfileEnrichment userEnrichment = getEnrichment(UserProfileEnrichment.class,
+                                                                   context);
+        final PersonName userName = userEnrichment.getUser()
+                                                  .getName();
 
-        getBuilder().setBookId(bookId)
-                    .setItemId(inventoryItemId)
-                    .setUserName(userName)
-                    .setEmail(email)
-                    .setWhenTaken(whenTaken)
+        getBuilder().setUserName(userName)
                     .setWhenDue(whenDue);
     }
+
+    @Subscribe
+    public void on(BookReturned event) {
+        getBuilder().setClosed(true);
+    }
+
+    @Subscribe
+    public void on(BookLost event) {
+        getBuilder().setClosed(true);
+    }
 }
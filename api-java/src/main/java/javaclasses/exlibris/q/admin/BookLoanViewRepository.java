@@ -20,16 +20,29 @@
 
 package javaclasses.exlibris.q.admin;
 
+import com.google.common.base.Optional;
 import io.spine.server.projection.ProjectionRepository;
+import io.spine.server.route.EventRouting;
 import javaclasses.exlibris.BookLoanViewId;
+import javaclasses.exlibris.LoanId;
+import javaclasses.exlibris.c.BookBorrowed;
+import javaclasses.exlibris.c.BookLost;
+import javaclasses.exlibris.c.BookReturned;
+import javaclasses.exlibris.c.LoanPeriodExtended;
 import javaclasses.exlibris.q.BookLoanView;
 
-import static io.spine.Identifier.newUuid;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.Collections.emptySet;
 import static java.util.Collections.singleton;
 
 /**
  * Repository for the {@link BookLoanViewProjection}.
  *
+ * <p>The events of a loan are routed to the view of the loan.
+ *
  * @author Yurii Haidamaka
  */
 public class BookLoanViewRepository extends ProjectionRepository<BookLoanViewId, BookLoanViewProjection, BookLoanView> {
@@ -39,15 +52,48 @@ public class BookLoanViewRepository extends ProjectionRepository<BookLoanViewId,
         setUpEventRoute();
     }
 
+    /**
+     * Obtains the views of the loans.
+     *
+     * <p>The loans without a view are skipped.
+     *
+     * @param loanIds the identifiers of the loans, e.g. from a loans index
+     * @return the views of the loans in the order of the identifiers
+     */
+    public List<BookLoanView> findAll(Iterable<LoanId> loanIds) {
+        checkNotNull(loanIds);
+        final List<BookLoanView> result = new ArrayList<>();
+        for (LoanId loanId : loanIds) {
+            final Optional<BookLoanViewProjection> loan = find(idOf(loanId));
+            if (loan.isPresent()) {
+                result.add(loan.get()
+                               .getState());
+            }
+        }
+        return result;
+    }
+
     /**
      * Adds the {@link io.spine.server.route.EventRoute EventRoute}s to the repository.
      */
     protected void setUpEventRoute() {
-        getEventRouting().replaceDefault(((message, context) -> {
-            final BookLoanViewId id = BookLoanViewId.newBuilder()
-                                                    .setValue(newUuid())
+        final EventRouting<BookLoanViewId> routing = getEventRouting();
+        routing.route(BookBorrowed.class,
+                      (message, context) -> singleton(idOf(message.getLoanId())));
+        routing.route(LoanPeriodExtended.class,
+                      (message, context) -> singleton(idOf(message.getLoanId())));
+        routing.route(BookReturned.class,
+                      (message, context) -> singleton(idOf(message.getLoanId())));
+        routing.route(BookLost.class,
+                      (message, context) -> message.hasLoanId()
+                                            ? singleton(idOf(message.getLoanId()))
+                                            : emptySet());
+    }
+
+    static BookLoanViewId idOf(LoanId loanId) {
+        final BookLoanViewId result = BookLoanViewId.newBuilder()
+                                                    .setLoanId(loanId)
                                                     .build();
-            return singleton(id);
-        }));
+        return result;
     }
 }
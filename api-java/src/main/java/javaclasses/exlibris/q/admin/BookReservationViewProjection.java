@@ -21,6 +21,7 @@
 package javaclasses.exlibris.q.admin;
 
 import com.google.protobuf.Timestamp;
+import io.spine.core.EventContext;
 import io.spine.core.Subscribe;
 import io.spine.net.EmailAddress;
 import io.spine.people.PersonName;
@@ -32,9 +33,12 @@ import javaclasses.exlibris.c.ReservationAdded;
 import javaclasses.exlibris.c.ReservationBecameLoan;
 import javaclasses.exlibris.c.ReservationCanceled;
 import javaclasses.exlibris.c.ReservationPickUpPeriodExpired;
+import javaclasses.exlibris.c.UserProfileEnrichment;
 import javaclasses.exlibris.q.BookReservationView;
 import javaclasses.exlibris.q.BookReservationViewVBuilder;
 
+import static javaclasses.exlibris.EnrichmentHelper.getEnrichment;
+
 /**
  * The projection state of a one book reservation.
  *
@@ -50,14 +54,13 @@ public class BookReservationViewProjection extends Projection<BookReservationVie
     }
 
     @Subscribe
-    public void on(ReservationAdded event) {
+    public void on(ReservationAdded event, EventContext context) {
         final BookId bookId = event.getInventoryId()
                                    .getBookId();
-        // TODO: 4/26/2018 yurii.haidamaka SET USERNAME FROM GOOGLE BY EMAIL
-        final PersonName userName = PersonName.newBuilder()
-                                              .setGivenName("Ivan")
-                                              .setFamilyName("Petrov")
-                                              .build();
+        final UserProfileEnrichment userEnrichment = getEnrichment(UserProfileEnrichment.class,
+                                                                   context);
+        final PersonName userName = userEnrichment.getUser()
+                                                  .getName();
         final UserId userId = event.getForWhomReserved();
         final EmailAddress email = userId.getEmail();
         final Timestamp whenReserved = event.getWhenCreated();
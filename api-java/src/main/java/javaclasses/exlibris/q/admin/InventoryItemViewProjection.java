@@ -0,0 +1,164 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.q.admin;
+
+import com.google.protobuf.Timestamp;
+import io.spine.core.EventContext;
+import io.spine.core.Subscribe;
+import io.spine.net.EmailAddress;
+import io.spine.people.PersonName;
+import io.spine.server.projection.Projection;
+import io.spine.time.LocalDate;
+import javaclasses.exlibris.InventoryItemId;
+import javaclasses.exlibris.UserId;
+import javaclasses.exlibris.c.BookBorrowed;
+import javaclasses.exlibris.c.BookLost;
+import javaclasses.exlibris.c.BookReturned;
+import javaclasses.exlibris.c.InventoryAppended;
+import javaclasses.exlibris.c.InventoryBatchAppended;
+import javaclasses.exlibris.c.InventoryDecreased;
+import javaclasses.exlibris.c.LoanBecameOverdue;
+import javaclasses.exlibris.c.LoanPeriodExtended;
+import javaclasses.exlibris.c.UserProfileEnrichment;
+import javaclasses.exlibris.q.InventoryItemState;
+import javaclasses.exlibris.q.InventoryItemView;
+import javaclasses.exlibris.q.InventoryItemViewVBuilder;
+import javaclasses.exlibris.q.LoanDetails;
+
+import static javaclasses.exlibris.EnrichmentHelper.getEnrichment;
+import static javaclasses.exlibris.Timestamps.toLocalDate;
+
+/**
+ * The projection state of an inventory item.
+ *
+ * <p>The items of an inventory are listed in the {@link BookInventoryViewProjection}.
+ */
+public class InventoryItemViewProjection extends Projection<InventoryItemId, InventoryItemView, InventoryItemViewVBuilder> {
+
+    /**
+     * @see Projection#Projection(Object)
+     */
+    public InventoryItemViewProjection(InventoryItemId id) {
+        super(id);
+    }
+
+    @Subscribe
+    public void on(InventoryAppended event) {
+        setInLibrary();
+    }
+
+    @Subscribe
+    public void on(InventoryBatchAppended event) {
+        setInLibrary();
+    }
+
+    @Subscribe
+    public void on(InventoryDecreased event) {
+        setDeleted(true);
+    }
+
+    @Subscribe
+    public void on(BookBorrowed event, EventContext context) {
+        final UserId userId = event.getWhoBorrowed();
+        final UserProfileEnrichment userEnrichment = getEnrichment(UserProfileEnrichment.class,
+                                                                   context);
+        final PersonName userName = userEnrichment.getUser()
+                                                  .getName();
+        final EmailAddress email = event.getWhoBorrowed()
+                                        .getEmail();
+        final Timestamp whenTakenTimestamp = event.getWhenBorrowed();
+        final LocalDate whenTaken = toLocalDate(whenTakenTimestamp);
+        final Timestamp whenDueTimestamp = event.getWhenDue();
+        final LocalDate whenDue = toLocalDate(whenDueTimestamp);
+        final LoanDetails loanDetails = LoanDetails.newBuilder()
+                                                   .setUserId(userId)
+                                                   .setUserName(userName)
+                                                   .setEmail(email)
+                                                   .setWhenTaken(whenTaken)
+                                                   .setWhenDue(whenDue)
+                                                   .setOverdue(false)
+                                                   .build();
+        final InventoryItemState state = InventoryItemState.newBuilder(getBuilder().getState())
+                                                           .setItemId(getId())
+                                                           .clearInLibrary()
+                                                           .setLoanDetails(loanDetails)
+                                                           .build();
+        updateState(state);
+    }
+
+    @Subscribe
+    public void on(BookLost event) {
+        final InventoryItemState state = InventoryItemState.newBuilder(getBuilder().getState())
+                                                           .setItemId(getId())
+                                                           .clearInLibrary()
+                                                           .clearLoanDetails()
+                                                           .setLost(true)
+                                                           .build();
+        updateState(state);
+    }
+
+    @Subscribe
+    public void on(LoanBecameOverdue event) {
+        final InventoryItemState current = getBuilder().getState();
+        final LoanDetails loanDetails = LoanDetails.newBuilder(current.getLoanDetails())
+                                                   .setOverdue(true)
+                                                   .build();
+        final InventoryItemState state = InventoryItemState.newBuilder(current)
+                                                           .setItemId(getId())
+                                                           .setLoanDetails(loanDetails)
+                                                           .build();
+        updateState(state);
+    }
+
+    @Subscribe
+    public void on(BookReturned event) {
+        setInLibrary();
+    }
+
+    @Subscribe
+    public void on(LoanPeriodExtended event) {
+        final Timestamp whenDueTimestamp = event.getNewDueDate();
+        final LocalDate whenDue = toLocalDate(whenDueTimestamp);
+        final InventoryItemState current = getBuilder().getState();
+        final LoanDetails loanDetails = LoanDetails.newBuilder(current.getLoanDetails())
+                                                   .setWhenDue(whenDue)
+                                                   .clearOverdue()
+                                                   .build();
+        final InventoryItemState state = InventoryItemState.newBuilder(current)
+                                                           .setItemId(getId())
+                                                           .setLoanDetails(loanDetails)
+                                                           .build();
+        updateState(state);
+    }
+
+    private void setInLibrary() {
+        final InventoryItemState state = InventoryItemState.newBuilder()
+                                                           .setItemId(getId())
+                                                           .setInLibrary(true)
+                                                           .build();
+        updateState(state);
+    }
+
+    private void updateState(InventoryItemState state) {
+        getBuilder().setId(getId())
+                    .setState(state);
+    }
+}
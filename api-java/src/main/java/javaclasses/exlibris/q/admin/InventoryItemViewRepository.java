@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.q.admin;
+
+import com.google.common.base.Optional;
+import io.spine.server.projection.ProjectionRepository;
+import io.spine.server.route.EventRouting;
+import javaclasses.exlibris.InventoryItemId;
+import javaclasses.exlibris.c.BookBorrowed;
+import javaclasses.exlibris.c.BookLost;
+import javaclasses.exlibris.c.BookReturned;
+import javaclasses.exlibris.c.InventoryAppended;
+import javaclasses.exlibris.c.InventoryBatchAppended;
+import javaclasses.exlibris.c.InventoryDecreased;
+import javaclasses.exlibris.c.LoanBecameOverdue;
+import javaclasses.exlibris.c.LoanPeriodExtended;
+import javaclasses.exlibris.q.BookInventoryView;
+import javaclasses.exlibris.q.InventoryItemState;
+import javaclasses.exlibris.q.InventoryItemView;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.Collections.singleton;
+
+/**
+ * Repository for the {@link InventoryItemViewProjection}.
+ *
+ * <p>The events of an inventory item are routed to the view of the item.
+ */
+public class InventoryItemViewRepository extends ProjectionRepository<InventoryItemId, InventoryItemViewProjection, InventoryItemView> {
+    @Override
+    public void onRegistered() {
+        super.onRegistered();
+        setUpEventRoute();
+    }
+
+    /**
+     * Obtains the states of the items of the inventory.
+     *
+     * @param inventory the view of the inventory listing the items
+     * @return the states of the items in the order of the inventory
+     */
+    public List<InventoryItemState> findItems(BookInventoryView inventory) {
+        checkNotNull(inventory);
+        final List<InventoryItemState> result = new ArrayList<>(inventory.getItemCount());
+        for (int itemNumber : inventory.getItemNumberList()) {
+            final InventoryItemId itemId = InventoryItemId.newBuilder()
+                                                          .setBookId(inventory.getInventoryId()
+                                                                              .getBookId())
+                                                          .setItemNumber(itemNumber)
+                                                          .build();
+            final Optional<InventoryItemViewProjection> item = find(itemId);
+            if (item.isPresent()) {
+                result.add(item.get()
+                               .getState()
+                               .getState());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds the {@link io.spine.server.route.EventRoute EventRoute}s to the repository.
+     */
+    protected void setUpEventRoute() {
+        final EventRouting<InventoryItemId> routing = getEventRouting();
+        routing.route(InventoryAppended.class,
+                      (message, context) -> singleton(message.getInventoryItemId()));
+        routing.route(InventoryBatchAppended.class,
+                      (message, context) -> new HashSet<>(message.getInventoryItemIdsList()));
+        routing.route(InventoryDecreased.class,
+                      (message, context) -> singleton(message.getInventoryItemId()));
+        routing.route(BookBorrowed.class,
+                      (message, context) -> singleton(message.getInventoryItemId()));
+        routing.route(BookLost.class,
+                      (message, context) -> singleton(message.getInventoryItemId()));
+        routing.route(LoanBecameOverdue.class,
+                      (message, context) -> singleton(message.getInventoryItemId()));
+        routing.route(BookReturned.class,
+                      (message, context) -> singleton(message.getInventoryItemId()));
+        routing.route(LoanPeriodExtended.class,
+                      (message, context) -> singleton(message.getInventoryItemId()));
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.q.admin;
+
+import com.google.common.base.Optional;
+import com.google.protobuf.Message;
+import com.google.protobuf.Timestamp;
+import io.spine.core.Event;
+import javaclasses.exlibris.InventoryItemId;
+import javaclasses.exlibris.LoanId;
+import javaclasses.exlibris.ProjectionCatchUp;
+import javaclasses.exlibris.c.BookBorrowed;
+import javaclasses.exlibris.c.BookLost;
+import javaclasses.exlibris.c.BookReturned;
+import javaclasses.exlibris.c.LoanBecameOverdue;
+import javaclasses.exlibris.c.LoanPeriodExtended;
+import javaclasses.exlibris.q.DueLoanItem;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static io.spine.protobuf.AnyPacker.pack;
+import static io.spine.protobuf.AnyPacker.unpack;
+
+/**
+ * Fills in the due dates of the loan events emitted before the due date was added to them.
+ *
+ * <p>{@code LoanBecameOverdue}, {@code BookReturned} and {@code BookLost} did not carry
+ * the due date of the loan at first, so the {@link LoansDueDateViewRepository} cannot route
+ * the stored ones. The migration follows the loans through the history and fills in the due
+ * date of such an event from the preceding {@code BookBorrowed} or {@code LoanPeriodExtended}
+ * of the item. The loan of a lost book is filled in as well.
+ *
+ * <p>Only the open loans are kept, one per item, so the memory used depends on the number of
+ * the open loans rather than on the length of the history.
+ *
+ * <p>Not thread-safe. Expects all the events of the history in the order they were emitted.
+ */
+public class LoanDueDateMigration implements ProjectionCatchUp.EventMigration {
+
+    private final Map<InventoryItemId, DueLoanItem> openLoans = new HashMap<>();
+
+    @Override
+    public Event migrate(Event event) {
+        checkNotNull(event);
+        final Optional<Message> migrated = upgrade(unpack(event.getMessage()));
+        if (!migrated.isPresent()) {
+            return event;
+        }
+        final Event result = event.toBuilder()
+                                  .setMessage(pack(migrated.get()))
+                                  .build();
+        return result;
+    }
+
+    private Optional<Message> upgrade(Message message) {
+        if (message instanceof BookBorrowed) {
+            final BookBorrowed event = (BookBorrowed) message;
+            openLoan(event.getInventoryItemId(), event.getLoanId(), event.getWhenDue());
+        } else if (message instanceof LoanPeriodExtended) {
+            final LoanPeriodExtended event = (LoanPeriodExtended) message;
+            openLoan(event.getInventoryItemId(), event.getLoanId(), event.getNewDueDate());
+        } else if (message instanceof LoanBecameOverdue) {
+            return upgrade((LoanBecameOverdue) message);
+        } else if (message instanceof BookReturned) {
+            return upgrade((BookReturned) message);
+        } else if (message instanceof BookLost) {
+            return upgrade((BookLost) message);
+        }
+        return Optional.absent();
+    }
+
+    private Optional<Message> upgrade(LoanBecameOverdue event) {
+        final Optional<DueLoanItem> loan =
+                Optional.fromNullable(openLoans.get(event.getInventoryItemId()));
+        if (event.hasWhenDue() || !loan.isPresent()) {
+            return Optional.absent();
+        }
+        final LoanBecameOverdue result = event.toBuilder()
+                                              .setWhenDue(loan.get()
+                                                              .getWhenDue())
+                                              .build();
+        return Optional.of(result);
+    }
+
+    private Optional<Message> upgrade(BookReturned event) {
+        final Optional<DueLoanItem> loan = closeLoan(event.getInventoryItemId());
+        if (event.hasWhenDue() || !loan.isPresent()) {
+            return Optional.absent();
+        }
+        final BookReturned result = event.toBuilder()
+                                         .setWhenDue(loan.get()
+                                                         .getWhenDue())
+                                         .build();
+        return Optional.of(result);
+    }
+
+    private Optional<Message> upgrade(BookLost event) {
+        final Optional<DueLoanItem> loan = closeLoan(event.getInventoryItemId());
+        if (event.hasWhenDue() || !loan.isPresent()) {
+            return Optional.absent();
+        }
+        final BookLost result = event.toBuilder()
+                                     .setLoanId(loan.get()
+                                                    .getLoanId())
+                                     .setWhenDue(loan.get()
+                                                     .getWhenDue())
+                                     .build();
+        return Optional.of(result);
+    }
+
+    private void openLoan(InventoryItemId itemId, LoanId loanId, Timestamp whenDue) {
+        final DueLoanItem loan = DueLoanItem.newBuilder()
+                                            .setLoanId(loanId)
+                                            .setInventoryItemId(itemId)
+                                            .setWhenDue(whenDue)
+                                            .build();
+        openLoans.put(itemId, loan);
+    }
+
+    private Optional<DueLoanItem> closeLoan(InventoryItemId itemId) {
+        return Optional.fromNullable(openLoans.remove(itemId));
+    }
+}
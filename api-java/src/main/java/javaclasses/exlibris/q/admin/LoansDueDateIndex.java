@@ -0,0 +1,275 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.q.admin;
+
+import com.google.protobuf.Timestamp;
+import javaclasses.exlibris.LoanId;
+import javaclasses.exlibris.LoansDueDateViewId;
+import com.google.common.collect.ImmutableList;
+import javaclasses.exlibris.q.DueDaySummary;
+import javaclasses.exlibris.q.DueLoanItem;
+import javaclasses.exlibris.q.LoansDueDateQuery;
+import javaclasses.exlibris.q.LoansDueDateQueryResult;
+import javaclasses.exlibris.q.LoansDueDateSummary;
+import javaclasses.exlibris.q.LoansDueDateView;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.Math.floorDiv;
+
+/**
+ * Utilities for partitioning and searching the {@link LoansDueDateView}.
+ *
+ * <p>The loans are split into the {@link LoansDueDateView} partitions by the day of their
+ * due dates, so an event changes only the small partition of a single day.
+ *
+ * <p>The loans of a partition and its overdue loans are sorted by the due date, so a range
+ * query takes {@code O(log n + k)} per partition and a count takes {@code O(log n)}, where
+ * {@code n} is the number of the loans due on the day and {@code k} is the number of the loans
+ * in the range.
+ *
+ * <p>The {@link LoansDueDateSummary} lists the days with the open loans, so a query reads only
+ * the partitions of these days and an unbounded count reads no partitions at all.
+ */
+public final class LoansDueDateIndex {
+
+    private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private static final Comparator<Timestamp> TIMESTAMP_ORDER =
+            Comparator.comparingLong(Timestamp::getSeconds)
+                      .thenComparingInt(Timestamp::getNanos);
+
+    private static final Comparator<DueLoanItem> LOAN_ORDER =
+            Comparator.comparing(DueLoanItem::getWhenDue, TIMESTAMP_ORDER)
+                      .thenComparingLong(item -> item.getLoanId()
+                                                     .getValue());
+
+    private LoansDueDateIndex() {
+        // Prevent instantiation of this utility class.
+    }
+
+    /**
+     * Obtains the identifier of the partition holding the loans due at the specified time.
+     *
+     * @param whenDue the due date of a loan
+     * @return the identifier of the partition
+     */
+    public static LoansDueDateViewId partitionOf(Timestamp whenDue) {
+        checkNotNull(whenDue);
+        return partitionId(dayOf(whenDue));
+    }
+
+    /**
+     * Obtains the identifier of the partition of the last day before the specified time.
+     *
+     * <p>Serves to find the last partition of a range with the exclusive end.
+     *
+     * @param dueTo the exclusive end of a due dates range
+     * @return the identifier of the partition
+     */
+    static LoansDueDateViewId lastPartitionBefore(Timestamp dueTo) {
+        checkNotNull(dueTo);
+        final long seconds = dueTo.getNanos() == 0
+                             ? dueTo.getSeconds() - 1
+                             : dueTo.getSeconds();
+        return partitionId(floorDiv(seconds, SECONDS_PER_DAY));
+    }
+
+    /**
+     * Obtains the identifier of the partition of the day.
+     *
+     * @param dueDay the number of days since 1970-01-01 in UTC
+     * @return the identifier of the partition
+     */
+    static LoansDueDateViewId partitionId(long dueDay) {
+        final LoansDueDateViewId result = LoansDueDateViewId.newBuilder()
+                                                            .setDueDay(dueDay)
+                                                            .build();
+        return result;
+    }
+
+    /**
+     * Obtains the partitions of the summary days within the range of the query.
+     *
+     * @param summary the summary of the days with the open loans
+     * @param query   the query to execute
+     * @return the identifiers of the partitions sorted by the day
+     */
+    static List<LoansDueDateViewId> partitionsOf(LoansDueDateSummary summary,
+                                                 LoansDueDateQuery query) {
+        final List<DueDaySummary> days = summary.getDayList();
+        final int from = query.hasDueFrom()
+                         ? dayInsertionPosition(days, dayOf(query.getDueFrom()))
+                         : 0;
+        final long lastDay = query.hasDueTo()
+                             ? lastPartitionBefore(query.getDueTo()).getDueDay()
+                             : Long.MAX_VALUE;
+        final ImmutableList.Builder<LoansDueDateViewId> result = ImmutableList.builder();
+        for (DueDaySummary day : days.subList(from, days.size())) {
+            if (day.getDueDay() > lastDay) {
+                break;
+            }
+            result.add(partitionId(day.getDueDay()));
+        }
+        return result.build();
+    }
+
+    /**
+     * Counts all the open loans or the overdue ones by the summary.
+     *
+     * @param summary     the summary of the days with the open loans
+     * @param overdueOnly whether to count only the overdue loans
+     * @return the number of the loans
+     */
+    static int count(LoansDueDateSummary summary, boolean overdueOnly) {
+        int result = 0;
+        for (DueDaySummary day : summary.getDayList()) {
+            result += overdueOnly ? day.getOverdueLoanCount() : day.getLoanCount();
+        }
+        return result;
+    }
+
+    /**
+     * Executes the query against the partitions.
+     *
+     * @param query      the query to execute
+     * @param partitions the partitions covering the due dates range sorted by the day
+     * @return the matching loans and their number
+     */
+    public static LoansDueDateQueryResult query(LoansDueDateQuery query,
+                                                Iterable<LoansDueDateView> partitions) {
+        checkNotNull(query);
+        checkNotNull(partitions);
+        final LoansDueDateQueryResult.Builder result = LoansDueDateQueryResult.newBuilder();
+        for (LoansDueDateView partition : partitions) {
+            queryPartition(partition, query, result);
+        }
+        return result.build();
+    }
+
+    private static void queryPartition(LoansDueDateView view,
+                                       LoansDueDateQuery query,
+                                       LoansDueDateQueryResult.Builder result) {
+        final List<DueLoanItem> loans = query.getOverdueOnly()
+                                        ? view.getOverdueLoanList()
+                                        : view.getLoanList();
+        final int from = query.hasDueFrom() ? lowerBound(loans, query.getDueFrom()) : 0;
+        final int to = query.hasDueTo() ? lowerBound(loans, query.getDueTo()) : loans.size();
+        final int count = Math.max(to - from, 0);
+        result.setCount(result.getCount() + count);
+        if (!query.getCountOnly() && count > 0) {
+            result.addAllLoan(loans.subList(from, to));
+        }
+    }
+
+    /**
+     * Obtains the position to insert the loan at to keep the loans sorted.
+     */
+    static int insertionPosition(List<DueLoanItem> loans, DueLoanItem loan) {
+        int low = 0;
+        int high = loans.size();
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (LOAN_ORDER.compare(loans.get(middle), loan) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Obtains the position of the loan with the specified due date.
+     *
+     * @return the position of the loan or {@code -1} if there is no such loan
+     */
+    static int positionOf(List<DueLoanItem> loans, LoanId loanId, Timestamp whenDue) {
+        final DueLoanItem key = DueLoanItem.newBuilder()
+                                           .setLoanId(loanId)
+                                           .setWhenDue(whenDue)
+                                           .build();
+        final int position = insertionPosition(loans, key);
+        final boolean found = position < loans.size()
+                && loans.get(position)
+                        .getLoanId()
+                        .equals(loanId);
+        return found ? position : -1;
+    }
+
+    /**
+     * Obtains the position to insert the day at to keep the days sorted.
+     */
+    static int dayInsertionPosition(List<DueDaySummary> days, long dueDay) {
+        int low = 0;
+        int high = days.size();
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (days.get(middle)
+                    .getDueDay() < dueDay) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Obtains the position to insert the loan identifier at to keep the identifiers sorted
+     * by the value.
+     */
+    static int loanIdInsertionPosition(List<LoanId> loanIds, LoanId loanId) {
+        int low = 0;
+        int high = loanIds.size();
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (loanIds.get(middle)
+                       .getValue() < loanId.getValue()) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int lowerBound(List<DueLoanItem> loans, Timestamp whenDue) {
+        int low = 0;
+        int high = loans.size();
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (TIMESTAMP_ORDER.compare(loans.get(middle)
+                                             .getWhenDue(), whenDue) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    static long dayOf(Timestamp timestamp) {
+        return floorDiv(timestamp.getSeconds(), SECONDS_PER_DAY);
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.q.admin;
+
+import com.google.protobuf.Timestamp;
+import io.spine.core.Subscribe;
+import io.spine.server.projection.Projection;
+import javaclasses.exlibris.LoanId;
+import javaclasses.exlibris.LoansDueDateSummaryId;
+import javaclasses.exlibris.c.BookBorrowed;
+import javaclasses.exlibris.c.BookLost;
+import javaclasses.exlibris.c.BookReturned;
+import javaclasses.exlibris.c.LoanBecameOverdue;
+import javaclasses.exlibris.c.LoanPeriodExtended;
+import javaclasses.exlibris.q.DueDaySummary;
+import javaclasses.exlibris.q.LoansDueDateSummary;
+import javaclasses.exlibris.q.LoansDueDateSummaryVBuilder;
+
+import java.util.List;
+
+import static javaclasses.exlibris.q.admin.LoansDueDateIndex.dayInsertionPosition;
+import static javaclasses.exlibris.q.admin.LoansDueDateIndex.dayOf;
+import static javaclasses.exlibris.q.admin.LoansDueDateIndex.loanIdInsertionPosition;
+
+/**
+ * The projection state of the days with the open loans.
+ *
+ * <p>Counts the open loans of each day and keeps the identifiers of the overdue ones, so
+ * a returned or an extended loan is known to be overdue without reading its partition.
+ * A day is removed from the summary together with its last loan.
+ *
+ * <p>The events without the due date are skipped, the same way as by
+ * the {@link LoansDueDateViewRepository}.
+ */
+public class LoansDueDateSummaryProjection extends Projection<LoansDueDateSummaryId, LoansDueDateSummary, LoansDueDateSummaryVBuilder> {
+
+    /**
+     * The {@link LoansDueDateSummaryProjection} is a singleton.
+     *
+     * <p>The {@code ID} value should be the same for all JVMs
+     * to support work with the same projection from execution to execution.
+     */
+    public static final LoansDueDateSummaryId ID =
+            LoansDueDateSummaryId.newBuilder()
+                                 .setValue("LoansDueDateSummaryProjection")
+                                 .build();
+
+    /**
+     * @see Projection#Projection(Object)
+     */
+    public LoansDueDateSummaryProjection(LoansDueDateSummaryId id) {
+        super(id);
+    }
+
+    @Subscribe
+    public void on(BookBorrowed event) {
+        if (event.hasWhenDue()) {
+            addLoan(event.getWhenDue());
+        }
+    }
+
+    @Subscribe
+    public void on(LoanPeriodExtended event) {
+        removeLoan(event.getLoanId(), event.getPreviousDueDate());
+        addLoan(event.getNewDueDate());
+    }
+
+    @Subscribe
+    public void on(LoanBecameOverdue event) {
+        if (!event.hasWhenDue()) {
+            return;
+        }
+        final int position = positionOf(event.getWhenDue());
+        if (position == -1) {
+            return;
+        }
+        final DueDaySummary day = getBuilder().getDay()
+                                              .get(position);
+        if (overduePositionOf(day, event.getLoanId()) != -1) {
+            return;
+        }
+        final int overduePosition = loanIdInsertionPosition(day.getOverdueLoanList(),
+                                                            event.getLoanId());
+        final DueDaySummary overdueDay = day.toBuilder()
+                                            .addOverdueLoan(overduePosition, event.getLoanId())
+                                            .build();
+        getBuilder().setDay(position, overdueDay);
+    }
+
+    @Subscribe
+    public void on(BookReturned event) {
+        if (event.hasWhenDue()) {
+            removeLoan(event.getLoanId(), event.getWhenDue());
+        }
+    }
+
+    @Subscribe
+    public void on(BookLost event) {
+        if (event.hasLoanId() && event.hasWhenDue()) {
+            removeLoan(event.getLoanId(), event.getWhenDue());
+        }
+    }
+
+    private void addLoan(Timestamp whenDue) {
+        final long dueDay = dayOf(whenDue);
+        final int position = positionOf(whenDue);
+        if (position == -1) {
+            final DueDaySummary day = DueDaySummary.newBuilder()
+                                                   .setDueDay(dueDay)
+                                                   .setLoanCount(1)
+                                                   .build();
+            getBuilder().addDay(dayInsertionPosition(getBuilder().getDay(), dueDay), day);
+            return;
+        }
+        final DueDaySummary day = getBuilder().getDay()
+                                              .get(position);
+        final DueDaySummary updatedDay = day.toBuilder()
+                                            .setLoanCount(day.getLoanCount() + 1)
+                                            .build();
+        getBuilder().setDay(position, updatedDay);
+    }
+
+    private void removeLoan(LoanId loanId, Timestamp whenDue) {
+        final int position = positionOf(whenDue);
+        if (position == -1) {
+            return;
+        }
+        final DueDaySummary day = getBuilder().getDay()
+                                              .get(position);
+        if (day.getLoanCount() <= 1) {
+            getBuilder().removeDay(position);
+            return;
+        }
+        final DueDaySummary.Builder updatedDay = day.toBuilder()
+                                                    .setLoanCount(day.getLoanCount() - 1);
+        final int overduePosition = overduePositionOf(day, loanId);
+        if (overduePosition != -1) {
+            updatedDay.removeOverdueLoan(overduePosition);
+        }
+        getBuilder().setDay(position, updatedDay.build());
+    }
+
+    /**
+     * Obtains the position of the day of the due date in the summary.
+     *
+     * @return the position of the day or {@code -1} if the day has no open loans
+     */
+    private int positionOf(Timestamp whenDue) {
+        final long dueDay = dayOf(whenDue);
+        final List<DueDaySummary> days = getBuilder().getDay();
+        final int position = dayInsertionPosition(days, dueDay);
+        final boolean found = position < days.size()
+                && days.get(position)
+                       .getDueDay() == dueDay;
+        return found ? position : -1;
+    }
+
+    /**
+     * Obtains the position of the loan among the overdue loans of the day.
+     *
+     * @return the position of the loan or {@code -1} if the loan is not overdue
+     */
+    private static int overduePositionOf(DueDaySummary day, LoanId loanId) {
+        final List<LoanId> overdueLoans = day.getOverdueLoanList();
+        final int position = loanIdInsertionPosition(overdueLoans, loanId);
+        final boolean found = position < overdueLoans.size()
+                && overdueLoans.get(position)
+                               .equals(loanId);
+        return found ? position : -1;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.q.admin;
+
+import com.google.common.base.Optional;
+import io.spine.server.projection.ProjectionRepository;
+import javaclasses.exlibris.LoansDueDateSummaryId;
+import javaclasses.exlibris.q.LoansDueDateSummary;
+
+import static java.util.Collections.singleton;
+import static javaclasses.exlibris.q.admin.LoansDueDateSummaryProjection.ID;
+
+/**
+ * Repository for the {@link LoansDueDateSummaryProjection}.
+ *
+ * <p>All the events are routed to the single summary.
+ */
+public class LoansDueDateSummaryRepository extends ProjectionRepository<LoansDueDateSummaryId, LoansDueDateSummaryProjection, LoansDueDateSummary> {
+
+    @Override
+    public void onRegistered() {
+        super.onRegistered();
+        setUpEventRoute();
+    }
+
+    /**
+     * Obtains the summary of the days with the open loans.
+     *
+     * @return the summary or the default instance if there were no loans yet
+     */
+    public LoansDueDateSummary getSummary() {
+        final Optional<LoansDueDateSummaryProjection> projection = find(ID);
+        final LoansDueDateSummary result = projection.isPresent()
+                                           ? projection.get()
+                                                       .getState()
+                                           : LoansDueDateSummary.getDefaultInstance();
+        return result;
+    }
+
+    /**
+     * Adds the {@link io.spine.server.route.EventRoute EventRoute}s to the repository.
+     */
+    protected void setUpEventRoute() {
+        getEventRouting().replaceDefault(((message, context) -> singleton(ID)));
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.q.admin;
+
+import com.google.protobuf.Timestamp;
+import io.spine.core.Subscribe;
+import io.spine.server.projection.Projection;
+import javaclasses.exlibris.LoanId;
+import javaclasses.exlibris.LoansDueDateViewId;
+import javaclasses.exlibris.c.BookBorrowed;
+import javaclasses.exlibris.c.BookLost;
+import javaclasses.exlibris.c.BookReturned;
+import javaclasses.exlibris.c.LoanBecameOverdue;
+import javaclasses.exlibris.c.LoanPeriodExtended;
+import javaclasses.exlibris.q.DueLoanItem;
+import javaclasses.exlibris.q.LoansDueDateView;
+import javaclasses.exlibris.q.LoansDueDateViewVBuilder;
+
+import static javaclasses.exlibris.q.admin.LoansDueDateIndex.insertionPosition;
+import static javaclasses.exlibris.q.admin.LoansDueDateIndex.partitionOf;
+import static javaclasses.exlibris.q.admin.LoansDueDateIndex.positionOf;
+
+/**
+ * The projection state of the open loans due on a day sorted by their due dates.
+ *
+ * <p>The events of a loan carry its due date, so a loan is found by a binary search
+ * in the partition of its day. An extended loan is moved to the partition of
+ * the new due date. The overdue loans are also kept in a separate sorted list, so
+ * the overdue loans of a range are found by a binary search as well.
+ *
+ * <p>A partition left without the loans is deleted. It is restored when a loan due on
+ * the day is added again.
+ *
+ * <p>Use {@link LoansDueDateViewRepository#query(javaclasses.exlibris.q.LoansDueDateQuery)
+ * LoansDueDateViewRepository.query()} to search the loans.
+ */
+public class LoansDueDateViewProjection extends Projection<LoansDueDateViewId, LoansDueDateView, LoansDueDateViewVBuilder> {
+
+    /**
+     * @see Projection#Projection(Object)
+     */
+    public LoansDueDateViewProjection(LoansDueDateViewId id) {
+        super(id);
+    }
+
+    @Subscribe
+    public void on(BookBorrowed event) {
+        final DueLoanItem loan = DueLoanItem.newBuilder()
+                                            .setLoanId(event.getLoanId())
+                                            .setInventoryId(event.getInventoryId())
+                                            .setInventoryItemId(event.getInventoryItemId())
+                                            .setUserId(event.getWhoBorrowed())
+                                            .setWhenDue(event.getWhenDue())
+                                            .build();
+        addLoan(loan);
+    }
+
+    /**
+     * Moves the extended loan between the partitions.
+     *
+     * <p>The event is routed to the partitions of both the previous and the new due dates.
+     */
+    @Subscribe
+    public void on(LoanPeriodExtended event) {
+        if (isPartitionOf(event.getPreviousDueDate())) {
+            removeLoan(event.getLoanId(), event.getPreviousDueDate());
+        }
+        if (isPartitionOf(event.getNewDueDate())) {
+            final DueLoanItem extendedLoan =
+                    DueLoanItem.newBuilder()
+                               .setLoanId(event.getLoanId())
+                               .setInventoryId(event.getInventoryId())
+                               .setInventoryItemId(event.getInventoryItemId())
+                               .setUserId(event.getUserId())
+                               .setWhenDue(event.getNewDueDate())
+                               .build();
+            addLoan(extendedLoan);
+        }
+    }
+
+    @Subscribe
+    public void on(LoanBecameOverdue event) {
+        final int position = positionOf(getBuilder().getLoan(), event.getLoanId(),
+                                        event.getWhenDue());
+        if (position == -1) {
+            return;
+        }
+        final DueLoanItem loan = getBuilder().getLoan()
+                                             .get(position);
+        if (!loan.getOverdue()) {
+            final DueLoanItem overdueLoan = DueLoanItem.newBuilder(loan)
+                                                       .setOverdue(true)
+                                                       .build();
+            getBuilder().setLoan(position, overdueLoan);
+            addOverdueLoan(overdueLoan);
+        }
+    }
+
+    @Subscribe
+    public void on(BookReturned event) {
+        removeLoan(event.getLoanId(), event.getWhenDue());
+    }
+
+    @Subscribe
+    public void on(BookLost event) {
+        if (event.hasLoanId()) {
+            removeLoan(event.getLoanId(), event.getWhenDue());
+        }
+    }
+
+    private boolean isPartitionOf(Timestamp whenDue) {
+        return partitionOf(whenDue).equals(getId());
+    }
+
+    private void addLoan(DueLoanItem loan) {
+        final int position = insertionPosition(getBuilder().getLoan(), loan);
+        getBuilder().addLoan(position, loan);
+        if (loan.getOverdue()) {
+            addOverdueLoan(loan);
+        }
+        setDeleted(false);
+    }
+
+    private void addOverdueLoan(DueLoanItem loan) {
+        final int position = insertionPosition(getBuilder().getOverdueLoan(), loan);
+        getBuilder().addOverdueLoan(position, loan);
+    }
+
+    private void removeLoan(LoanId loanId, Timestamp whenDue) {
+        final int position = positionOf(getBuilder().getLoan(), loanId, whenDue);
+        if (position == -1) {
+            return;
+        }
+        final DueLoanItem loan = getBuilder().getLoan()
+                                             .get(position);
+        getBuilder().removeLoan(position);
+        if (loan.getOverdue()) {
+            final int overduePosition = positionOf(getBuilder().getOverdueLoan(), loanId,
+                                                   whenDue);
+            getBuilder().removeOverdueLoan(overduePosition);
+        }
+        if (getBuilder().getLoan()
+                        .isEmpty()) {
+            setDeleted(true);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.q.admin;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.protobuf.Timestamp;
+import io.spine.server.projection.ProjectionRepository;
+import javaclasses.exlibris.LoansDueDateViewId;
+import javaclasses.exlibris.c.BookBorrowed;
+import javaclasses.exlibris.c.BookLost;
+import javaclasses.exlibris.c.BookReturned;
+import javaclasses.exlibris.c.LoanBecameOverdue;
+import javaclasses.exlibris.c.LoanPeriodExtended;
+import javaclasses.exlibris.q.LoansDueDateQuery;
+import javaclasses.exlibris.q.LoansDueDateQueryResult;
+import javaclasses.exlibris.q.LoansDueDateSummary;
+import javaclasses.exlibris.q.LoansDueDateView;
+
+import java.util.List;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static javaclasses.exlibris.q.admin.LoansDueDateIndex.partitionOf;
+import static javaclasses.exlibris.q.admin.LoansDueDateIndex.partitionsOf;
+
+/**
+ * Repository for the {@link LoansDueDateViewProjection}.
+ *
+ * <p>The events of a loan are routed to the partition of the day of its due date.
+ * {@code LoanPeriodExtended} is routed to the partitions of both the previous and
+ * the new due dates.
+ *
+ * <p>The events emitted before the due date was added to them are not routed anywhere.
+ * Such events are read only when the projections are rebuilt, and
+ * the {@link LoanDueDateMigration} fills in their due dates from the history beforehand.
+ *
+ * <p>The queries read the partitions of the days listed by the {@link LoansDueDateSummary}.
+ */
+public class LoansDueDateViewRepository extends ProjectionRepository<LoansDueDateViewId, LoansDueDateViewProjection, LoansDueDateView> {
+
+    private final LoansDueDateSummaryRepository summaryRepository;
+
+    /**
+     * Creates a repository reading the days with the open loans from the summary.
+     *
+     * @param summaryRepository the repository of the summary of the same loans
+     */
+    public LoansDueDateViewRepository(LoansDueDateSummaryRepository summaryRepository) {
+        super();
+        checkNotNull(summaryRepository);
+        this.summaryRepository = summaryRepository;
+    }
+
+    @Override
+    public void onRegistered() {
+        super.onRegistered();
+        setUpEventRoute();
+    }
+
+    /**
+     * Obtains the loans matching the query.
+     *
+     * <p>Reads only the partitions of the days with the open loans within the range.
+     * A count of the loans not bounded from either side is obtained from the summary
+     * without reading the partitions.
+     *
+     * @param query the query to execute
+     * @return the matching loans sorted by the due date and their number
+     * @see LoansDueDateIndex#query(LoansDueDateQuery, Iterable)
+     */
+    public LoansDueDateQueryResult query(LoansDueDateQuery query) {
+        checkNotNull(query);
+        final LoansDueDateSummary summary = summaryRepository.getSummary();
+        if (query.getCountOnly() && !query.hasDueFrom() && !query.hasDueTo()) {
+            final int count = LoansDueDateIndex.count(summary, query.getOverdueOnly());
+            return LoansDueDateQueryResult.newBuilder()
+                                          .setCount(count)
+                                          .build();
+        }
+        final List<LoansDueDateView> partitions = findPartitions(partitionsOf(summary, query));
+        final LoansDueDateQueryResult result = LoansDueDateIndex.query(query, partitions);
+        return result;
+    }
+
+    /**
+     * Adds the {@link io.spine.server.route.EventRoute EventRoute}s to the repository.
+     */
+    protected void setUpEventRoute() {
+        getEventRouting().route(BookBorrowed.class, (message, context) ->
+                singleton(partitionOf(message.getWhenDue())));
+        getEventRouting().route(LoanPeriodExtended.class, (message, context) ->
+                ImmutableSet.of(partitionOf(message.getPreviousDueDate()),
+                                partitionOf(message.getNewDueDate())));
+        getEventRouting().route(LoanBecameOverdue.class, (message, context) ->
+                dueDatePartition(message.hasWhenDue(), message.getWhenDue()));
+        getEventRouting().route(BookReturned.class, (message, context) ->
+                dueDatePartition(message.hasWhenDue(), message.getWhenDue()));
+        getEventRouting().route(BookLost.class, (message, context) ->
+                dueDatePartition(message.hasLoanId() && message.hasWhenDue(),
+                                 message.getWhenDue()));
+    }
+
+    private static Set<LoansDueDateViewId> dueDatePartition(boolean hasWhenDue,
+                                                             Timestamp whenDue) {
+        if (!hasWhenDue) {
+            return emptySet();
+        }
+        return singleton(partitionOf(whenDue));
+    }
+
+    private List<LoansDueDateView> findPartitions(Iterable<LoansDueDateViewId> ids) {
+        final ImmutableList.Builder<LoansDueDateView> result = ImmutableList.builder();
+        for (LoansDueDateViewId id : ids) {
+            final Optional<LoansDueDateViewProjection> partition = find(id);
+            if (partition.isPresent()) {
+                result.add(partition.get()
+                                    .getState());
+            }
+        }
+        return result.build();
+    }
+}
@@ -28,12 +28,13 @@ import io.spine.people.PersonName;
 import io.spine.server.projection.Projection;
 import io.spine.time.LocalDate;
 import javaclasses.exlibris.Author;
-import javaclasses.exlibris.BookDetails;
+import javaclasses.exlibris.BookSummary;
 import javaclasses.exlibris.BookTitle;
 import javaclasses.exlibris.InventoryItemId;
-import javaclasses.exlibris.c.BookEnrichment;
 import javaclasses.exlibris.c.BookLost;
+import javaclasses.exlibris.c.BookSummaryEnrichment;
 import javaclasses.exlibris.c.InventoryDecreased;
+import javaclasses.exlibris.c.UserProfileEnrichment;
 import javaclasses.exlibris.q.LostBookView;
 import javaclasses.exlibris.q.LostBookViewVBuilder;
 
@@ -63,16 +64,15 @@ public class LostBookViewProjection extends Projection<InventoryItemId, LostBook
         final LocalDate whenReported = toLocalDate(whenReportedTimestamp);
         final EmailAddress userEmail = event.getWhoLost()
                                             .getEmail();
-        // TODO: 4/26/2018 yurii.haidamaka SET USERNAME FROM GOOGLE BY EMAIL
-        final PersonName userName = PersonName.newBuilder()
-                                              .setGivenName("Ivan")
-                                              .setFamilyName("Petrov")
-                                              .build();
-        final BookEnrichment enrichment = getEnrichment(BookEnrichment.class, context);
-        final BookDetails bookDetails = enrichment.getBook()
-                                                  .getBookDetails();
-        final ArrayList<Author> authors = new ArrayList(bookDetails.getAuthorList());
-        final BookTitle title = bookDetails.getTitle();
+        final UserProfileEnrichment userEnrichment = getEnrichment(UserProfileEnrichment.class,
+                                                                   context);
+        final PersonName userName = userEnrichment.getUser()
+                                                  .getName();
+        final BookSummaryEnrichment enrichment = getEnrichment(BookSummaryEnrichment.class,
+                                                               context);
+        final BookSummary book = enrichment.getBook();
+        final ArrayList<Author> authors = new ArrayList(book.getAuthorList());
+        final BookTitle title = book.getTitle();
 
         getBuilder().setItemId(itemId)
                     .addAllAuthor(authors)
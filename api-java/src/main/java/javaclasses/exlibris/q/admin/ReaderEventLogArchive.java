@@ -0,0 +1,256 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.q.admin;
+
+import com.google.common.base.Optional;
+import com.google.common.hash.Hashing;
+import com.google.protobuf.Timestamp;
+import javaclasses.exlibris.UserId;
+import javaclasses.exlibris.q.ReaderEventLogRecord;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+
+/**
+ * The archive of the reader activity logs on the local disk.
+ *
+ * <p>The archived records of a reader are kept in the directory named by the hash of
+ * the reader identifier. Each batch of the archived records is an immutable gzip
+ * compressed segment of the delimited records. The segment is named by the emission
+ * seconds of its first and last records, so the segments of a time range are found
+ * without reading them. The name also holds the range of the ordinals of its records among
+ * all the archived records of the reader.
+ *
+ * <p>The records are archived before the log state dropping them is stored. If the state
+ * is not stored, the segment is not counted by the log and the archival is repeated from
+ * the same ordinal. So the segments not counted by the log are not read, and archiving
+ * a range of records replaces the segments overlapping it. Archiving the same batch again,
+ * e.g. while rebuilding the projections, leaves the existing segment as is.
+ */
+public class ReaderEventLogArchive {
+
+    private static final String SEGMENT_SUFFIX = ".log.gz";
+    private static final String SEGMENT_NAME_FORMAT = "%020d-%020d-%020d-%d" + SEGMENT_SUFFIX;
+    private static final String NAME_SEPARATOR = "-";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path directory;
+
+    /**
+     * Creates the archive in the specified directory.
+     *
+     * @param directory the root directory of the archive
+     */
+    public ReaderEventLogArchive(Path directory) {
+        this.directory = checkNotNull(directory);
+    }
+
+    /**
+     * Writes the records to a new segment.
+     *
+     * <p>Deletes the other segments having the records of the same ordinals, which were
+     * archived while the log state was not stored.
+     *
+     * @param userId       the identifier of the reader
+     * @param firstOrdinal the number of the records of the reader archived before
+     * @param records      the records sorted by the emission time
+     */
+    void append(UserId userId, int firstOrdinal, List<ReaderEventLogRecord> records) {
+        checkNotNull(userId);
+        checkNotNull(records);
+        checkArgument(firstOrdinal >= 0, "The ordinal of the record must not be negative.");
+        checkArgument(!records.isEmpty(), "There are no records to archive.");
+        final long first = records.get(0)
+                                  .getWhenEmitted()
+                                  .getSeconds();
+        final long last = records.get(records.size() - 1)
+                                 .getWhenEmitted()
+                                 .getSeconds();
+        final String name = String.format(SEGMENT_NAME_FORMAT, first, last, firstOrdinal,
+                                          records.size());
+        try {
+            final Path readerDirectory = Files.createDirectories(readerDirectory(userId));
+            final Path segment = readerDirectory.resolve(name);
+            if (!Files.exists(segment)) {
+                write(readerDirectory, name, records);
+            }
+            deleteOverlapping(readerDirectory, segment, firstOrdinal,
+                              firstOrdinal + records.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void write(Path readerDirectory, String name,
+                              List<ReaderEventLogRecord> records) throws IOException {
+        final Path segment = readerDirectory.resolve(name);
+        final Path temp = readerDirectory.resolve(name + TEMP_SUFFIX);
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp))) {
+            for (ReaderEventLogRecord record : records) {
+                record.writeDelimitedTo(out);
+            }
+        }
+        try {
+            Files.move(temp, segment, ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException ignored) {
+            Files.delete(temp);
+        }
+    }
+
+    /**
+     * Deletes the segments other than the specified one having the records of the ordinals
+     * in the range.
+     */
+    private static void deleteOverlapping(Path readerDirectory, Path segment,
+                                          int fromOrdinal, int toOrdinal) throws IOException {
+        final List<Path> overlapping = new ArrayList<>();
+        try (DirectoryStream<Path> segments =
+                     Files.newDirectoryStream(readerDirectory, '*' + SEGMENT_SUFFIX)) {
+            for (Path other : segments) {
+                final SegmentName otherName = SegmentName.of(other);
+                final boolean overlaps = otherName.firstOrdinal < toOrdinal
+                        && otherName.endOrdinal() > fromOrdinal;
+                if (overlaps && !other.equals(segment)) {
+                    overlapping.add(other);
+                }
+            }
+        }
+        for (Path other : overlapping) {
+            Files.deleteIfExists(other);
+        }
+    }
+
+    /**
+     * Obtains the segments having the records emitted in the time range.
+     *
+     * @param userId        the identifier of the reader
+     * @param archivedCount the number of the archived records counted by the log of the reader
+     * @param from          the start of the range, inclusive
+     * @param to            the end of the range, exclusive, if bounded
+     * @return the segments counted by the log sorted by the emission time of their records
+     */
+    List<Path> segments(UserId userId, int archivedCount, Timestamp from,
+                        Optional<Timestamp> to) {
+        checkNotNull(userId);
+        checkNotNull(from);
+        final Path readerDirectory = readerDirectory(userId);
+        final List<Path> result = new ArrayList<>();
+        if (!Files.isDirectory(readerDirectory)) {
+            return result;
+        }
+        try (DirectoryStream<Path> segments =
+                     Files.newDirectoryStream(readerDirectory, '*' + SEGMENT_SUFFIX)) {
+            for (Path segment : segments) {
+                final SegmentName name = SegmentName.of(segment);
+                final boolean counted = name.endOrdinal() <= archivedCount;
+                final boolean beforeRange = name.lastSeconds < from.getSeconds();
+                final boolean afterRange = to.isPresent()
+                        && name.firstSeconds > to.get()
+                                                 .getSeconds();
+                if (counted && !beforeRange && !afterRange) {
+                    result.add(segment);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // The zero-padded names are sorted as the emission times.
+        result.sort(null);
+        return result;
+    }
+
+    /**
+     * Reads the records of the segment.
+     *
+     * @param segment the segment to read
+     * @return the records sorted by the emission time
+     */
+    static List<ReaderEventLogRecord> read(Path segment) {
+        checkNotNull(segment);
+        final List<ReaderEventLogRecord> result = new ArrayList<>();
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(segment))) {
+            ReaderEventLogRecord record = ReaderEventLogRecord.parseDelimitedFrom(in);
+            while (record != null) {
+                result.add(record);
+                record = ReaderEventLogRecord.parseDelimitedFrom(in);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result;
+    }
+
+    private Path readerDirectory(UserId userId) {
+        final String email = userId.getEmail()
+                                   .getValue();
+        final String name = Hashing.sha256()
+                                   .hashString(email, StandardCharsets.UTF_8)
+                                   .toString();
+        return directory.resolve(name);
+    }
+
+    /**
+     * The bounds of the records of a segment parsed from its name.
+     */
+    private static final class SegmentName {
+
+        private final long firstSeconds;
+        private final long lastSeconds;
+        private final int firstOrdinal;
+        private final int count;
+
+        private SegmentName(long firstSeconds, long lastSeconds, int firstOrdinal, int count) {
+            this.firstSeconds = firstSeconds;
+            this.lastSeconds = lastSeconds;
+            this.firstOrdinal = firstOrdinal;
+            this.count = count;
+        }
+
+        private static SegmentName of(Path segment) {
+            final String fileName = segment.getFileName()
+                                           .toString();
+            final String[] parts = fileName.substring(0, fileName.length()
+                                                             - SEGMENT_SUFFIX.length())
+                                           .split(NAME_SEPARATOR);
+            return new SegmentName(Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+                                   Integer.parseInt(parts[2]), Integer.parseInt(parts[3]));
+        }
+
+        private int endOrdinal() {
+            return firstOrdinal + count;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.q.admin;
+
+import com.google.common.base.Optional;
+import com.google.protobuf.Timestamp;
+import javaclasses.exlibris.q.ReaderEventLogQuery;
+import javaclasses.exlibris.q.ReaderEventLogQueryResult;
+import javaclasses.exlibris.q.ReaderEventLogRecord;
+import javaclasses.exlibris.q.ReaderEventLogView;
+
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Utilities for searching the reader activity log.
+ *
+ * <p>The archived records are read from the archive segments overlapping the range,
+ * one segment at a time, and then the recent records are read from the
+ * {@link ReaderEventLogView}. A record delivered after its time was archived is kept with
+ * the recent records and is obtained after the archived ones.
+ */
+public final class ReaderEventLogIndex {
+
+    /** The earliest time supported by {@link Timestamp}, 0001-01-01T00:00:00Z. */
+    private static final Timestamp EARLIEST = Timestamp.newBuilder()
+                                                       .setSeconds(-62_135_596_800L)
+                                                       .build();
+
+    private static final Comparator<Timestamp> TIMESTAMP_ORDER =
+            Comparator.comparingLong(Timestamp::getSeconds)
+                      .thenComparingInt(Timestamp::getNanos);
+
+    private ReaderEventLogIndex() {
+        // Prevent instantiation of this utility class.
+    }
+
+    /**
+     * Executes the query against the activity log of the reader.
+     *
+     * @param query   the query to execute
+     * @param view    the recent records of the reader
+     * @param archive the archive of the older records
+     * @return the page of the records and the query of the next page
+     */
+    public static ReaderEventLogQueryResult query(ReaderEventLogQuery query,
+                                                  Optional<ReaderEventLogView> view,
+                                                  Optional<ReaderEventLogArchive> archive) {
+        checkNotNull(query);
+        checkNotNull(view);
+        checkNotNull(archive);
+        checkArgument(query.getPageSize() >= 0, "The page size must not be negative.");
+        if (!view.isPresent()) {
+            return ReaderEventLogQueryResult.getDefaultInstance();
+        }
+        final Timestamp from = query.hasEmittedFrom() ? query.getEmittedFrom() : EARLIEST;
+        final Optional<Timestamp> to = query.hasEmittedTo()
+                                       ? Optional.of(query.getEmittedTo())
+                                       : Optional.absent();
+        final Page page = new Page(query, from, to);
+
+        final ReaderEventLogView log = view.get();
+        final boolean archivedInRange = log.hasArchivedUntil()
+                && TIMESTAMP_ORDER.compare(from, log.getArchivedUntil()) <= 0;
+        if (archive.isPresent() && archivedInRange) {
+            final List<Path> segments = archive.get()
+                                               .segments(query.getUserId(),
+                                                         log.getArchivedCount(), from, to);
+            for (Path segment : segments) {
+                if (!page.addAll(ReaderEventLogArchive.read(segment))) {
+                    return page.build();
+                }
+            }
+        }
+        page.addAll(log.getRecordList());
+        return page.build();
+    }
+
+    /**
+     * Obtains the position to insert the record at to keep the records sorted.
+     *
+     * <p>The record is inserted after the records emitted at the same time.
+     */
+    static int insertionPosition(List<ReaderEventLogRecord> records,
+                                 ReaderEventLogRecord record) {
+        int low = 0;
+        int high = records.size();
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (TIMESTAMP_ORDER.compare(records.get(middle)
+                                               .getWhenEmitted(),
+                                        record.getWhenEmitted()) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Obtains the position of the first record emitted not earlier than the specified time.
+     */
+    static int lowerBound(List<ReaderEventLogRecord> records, Timestamp whenEmitted) {
+        int low = 0;
+        int high = records.size();
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (TIMESTAMP_ORDER.compare(records.get(middle)
+                                               .getWhenEmitted(), whenEmitted) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Collects the records of the page.
+     */
+    private static final class Page {
+
+        private final ReaderEventLogQuery query;
+        private final Timestamp from;
+        private final Optional<Timestamp> to;
+        private final ReaderEventLogQueryResult.Builder result =
+                ReaderEventLogQueryResult.newBuilder();
+        private int toSkip;
+
+        private Page(ReaderEventLogQuery query, Timestamp from, Optional<Timestamp> to) {
+            this.query = query;
+            this.from = from;
+            this.to = to;
+            this.toSkip = query.getSkip();
+        }
+
+        /**
+         * Adds the records in the range to the page.
+         *
+         * @param records the records sorted by the emission time
+         * @return {@code true} if the page may take more records, {@code false} otherwise
+         */
+        private boolean addAll(List<ReaderEventLogRecord> records) {
+            for (int i = lowerBound(records, from); i < records.size(); i++) {
+                final ReaderEventLogRecord record = records.get(i);
+                final Timestamp whenEmitted = record.getWhenEmitted();
+                if (to.isPresent() && TIMESTAMP_ORDER.compare(whenEmitted, to.get()) >= 0) {
+                    return false;
+                }
+                if (toSkip > 0 && whenEmitted.equals(from)) {
+                    toSkip--;
+                    continue;
+                }
+                final int pageSize = query.getPageSize();
+                if (pageSize > 0 && result.getRecordCount() == pageSize) {
+                    result.setNextPage(nextPage());
+                    return false;
+                }
+                result.addRecord(record);
+            }
+            return true;
+        }
+
+        private ReaderEventLogQueryResult build() {
+            return result.build();
+        }
+
+        /**
+         * Creates the query continuing after the last record of the page.
+         */
+        private ReaderEventLogQuery nextPage() {
+            final List<ReaderEventLogRecord> page = result.getRecordList();
+            final Timestamp last = page.get(page.size() - 1)
+                                       .getWhenEmitted();
+            int skip = 0;
+            for (int i = page.size() - 1; i >= 0 && page.get(i)
+                                                        .getWhenEmitted()
+                                                        .equals(last); i--) {
+                skip++;
+            }
+            if (last.equals(from)) {
+                skip += query.getSkip();
+            }
+            final ReaderEventLogQuery result = ReaderEventLogQuery.newBuilder(query)
+                                                                  .setEmittedFrom(last)
+                                                                  .setSkip(skip)
+                                                                  .build();
+            return result;
+        }
+    }
+}
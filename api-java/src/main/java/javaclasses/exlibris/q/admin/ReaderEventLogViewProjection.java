@@ -20,21 +20,17 @@
 
 package javaclasses.exlibris.q.admin;
 
+import com.google.protobuf.Message;
 import com.google.protobuf.Timestamp;
 import io.spine.core.EventContext;
 import io.spine.core.Subscribe;
 import io.spine.server.projection.Projection;
-import javaclasses.exlibris.Author;
-import javaclasses.exlibris.BookDetails;
-import javaclasses.exlibris.BookId;
-import javaclasses.exlibris.BookTitle;
-import javaclasses.exlibris.InventoryItemId;
+import javaclasses.exlibris.BookSummary;
 import javaclasses.exlibris.ReaderEventLogViewId;
-import javaclasses.exlibris.UserId;
 import javaclasses.exlibris.c.BookBorrowed;
-import javaclasses.exlibris.c.BookEnrichment;
 import javaclasses.exlibris.c.BookLost;
 import javaclasses.exlibris.c.BookReturned;
+import javaclasses.exlibris.c.BookSummaryEnrichment;
 import javaclasses.exlibris.c.LoanBecameOverdue;
 import javaclasses.exlibris.c.LoanBecameShouldReturnSoon;
 import javaclasses.exlibris.c.LoanPeriodExtended;
@@ -42,22 +38,40 @@ import javaclasses.exlibris.c.ReservationAdded;
 import javaclasses.exlibris.c.ReservationBecameLoan;
 import javaclasses.exlibris.c.ReservationCanceled;
 import javaclasses.exlibris.c.ReservationPickUpPeriodExpired;
+import javaclasses.exlibris.q.ReaderEventLogRecord;
 import javaclasses.exlibris.q.ReaderEventLogView;
 import javaclasses.exlibris.q.ReaderEventLogViewVBuilder;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.List;
 
 import static javaclasses.exlibris.EnrichmentHelper.getEnrichment;
+import static javaclasses.exlibris.q.admin.ReaderEventLogIndex.insertionPosition;
+import static javaclasses.exlibris.q.admin.ReaderEventLogIndex.lowerBound;
 
 /**
- * The projection state of a one user's action.
+ * The projection state of the activity log of a reader.
  *
- * <p>Includes all information about one user action.
+ * <p>If the {@linkplain #setArchival archival} is set, the records older than
+ * the retention age, counting from the latest record, are moved to the
+ * {@link ReaderEventLogArchive}. The records are moved when there are enough of them
+ * for a batch, so the archive does not consist of tiny segments.
+ *
+ * <p>The records are written to the archive before the state dropping them is stored.
+ * The archive names the written segment by the ordinals of its records, counting from
+ * the {@code archived_count} of the state, and reads only the segments counted by
+ * the stored state. So if the state is not stored, the written segment is not read and is
+ * replaced when the records are archived again.
  *
  * @author Yurii Haidamaka
  */
 public class ReaderEventLogViewProjection extends Projection<ReaderEventLogViewId, ReaderEventLogView, ReaderEventLogViewVBuilder> {
 
+    private ReaderEventLogArchive archive;
+    private Duration retention;
+    private int archiveBatchSize;
+
     /**
      * @see Projection#Projection(Object)
      */
@@ -65,157 +79,142 @@ public class ReaderEventLogViewProjection extends Projection<ReaderEventLogViewI
         super(id);
     }
 
+    void setArchival(ReaderEventLogArchive archive, Duration retention, int archiveBatchSize) {
+        this.archive = archive;
+        this.retention = retention;
+        this.archiveBatchSize = archiveBatchSize;
+    }
+
     @Subscribe
     public void on(BookBorrowed event, EventContext context) {
-        final InventoryItemId inventoryItemId = event.getInventoryItemId();
-        final Timestamp whenEmitted = event.getWhenBorrowed();
-        final UserId userId = event.getWhoBorrowed();
-        setAuthorAndTitle(context);
-
-        getBuilder().setUserId(userId)
-                    .setItemId(inventoryItemId)
-                    .setEventType(event.getClass()
-                                       .getSimpleName())
-                    .setWhenEmitted(whenEmitted);
+        final ReaderEventLogRecord.Builder record = newRecord(event, event.getWhenBorrowed(),
+                                                              context);
+        record.setItemId(event.getInventoryItemId());
+        append(record.build());
     }
 
     @Subscribe
     public void on(BookReturned event, EventContext context) {
-        final InventoryItemId inventoryItemId = event.getInventoryItemId();
-        final Timestamp whenEmitted = event.getWhenReturned();
-        final UserId userId = event.getWhoReturned();
-        setAuthorAndTitle(context);
-        getBuilder().setUserId(userId)
-                    .setItemId(inventoryItemId)
-                    .setEventType(event.getClass()
-                                       .getSimpleName())
-                    .setWhenEmitted(whenEmitted);
+        final ReaderEventLogRecord.Builder record = newRecord(event, event.getWhenReturned(),
+                                                              context);
+        record.setItemId(event.getInventoryItemId());
+        append(record.build());
     }
 
     @Subscribe
     public void on(ReservationAdded event, EventContext context) {
-        final BookId bookId = event.getInventoryId()
-                                   .getBookId();
-        final Timestamp whenEmitted = event.getWhenCreated();
-        final UserId userId = event.getForWhomReserved();
-        setAuthorAndTitle(context);
-
-        getBuilder().setUserId(userId)
-                    .setBookId(bookId)
-                    .setEventType(event.getClass()
-                                       .getSimpleName())
-                    .setWhenEmitted(whenEmitted);
+        final ReaderEventLogRecord.Builder record = newRecord(event, event.getWhenCreated(),
+                                                              context);
+        record.setBookId(event.getInventoryId()
+                                   .getBookId());
+        append(record.build());
     }
 
     @Subscribe
     public void on(ReservationCanceled event, EventContext context) {
-        final BookId bookId = event.getInventoryId()
-                                   .getBookId();
-        final Timestamp whenEmitted = event.getWhenCanceled();
-        final UserId userId = event.getWhoCanceled();
-        setAuthorAndTitle(context);
-
-        getBuilder().setUserId(userId)
-                    .setBookId(bookId)
-                    .setEventType(event.getClass()
-                                       .getSimpleName())
-                    .setWhenEmitted(whenEmitted);
+        final ReaderEventLogRecord.Builder record = newRecord(event, event.getWhenCanceled(),
+                                                              context);
+        record.setBookId(event.getInventoryId()
+                                   .getBookId());
+        append(record.build());
     }
 
     @Subscribe
     public void on(ReservationPickUpPeriodExpired event, EventContext context) {
-        final BookId bookId = event.getInventoryId()
-                                   .getBookId();
-        final Timestamp whenEmitted = event.getWhenExpired();
-        final UserId userId = event.getUserId();
-        setAuthorAndTitle(context);
-
-        getBuilder().setUserId(userId)
-                    .setBookId(bookId)
-                    .setEventType(event.getClass()
-                                       .getSimpleName())
-                    .setWhenEmitted(whenEmitted);
+        final ReaderEventLogRecord.Builder record = newRecord(event, event.getWhenExpired(),
+                                                              context);
+        record.setBookId(event.getInventoryId()
+                                   .getBookId());
+        append(record.build());
     }
 
     @Subscribe
     public void on(ReservationBecameLoan event, EventContext context) {
-        final BookId bookId = event.getInventoryId()
-                                   .getBookId();
-        final Timestamp whenEmitted = event.getWhenBecameLoan();
-        final UserId userId = event.getUserId();
-        setAuthorAndTitle(context);
-
-        getBuilder().setUserId(userId)
-                    .setBookId(bookId)
-                    .setEventType(event.getClass()
-                                       .getSimpleName())
-                    .setWhenEmitted(whenEmitted);
+        final ReaderEventLogRecord.Builder record = newRecord(event, event.getWhenBecameLoan(),
+                                                              context);
+        record.setBookId(event.getInventoryId()
+                                   .getBookId());
+        append(record.build());
     }
 
     @Subscribe
     public void on(LoanBecameOverdue event, EventContext context) {
-        final InventoryItemId itemId = event.getInventoryItemId();
-        final Timestamp whenEmitted = event.getWhenBecameOverdue();
-        final UserId userId = event.getUserId();
-        setAuthorAndTitle(context);
-
-        getBuilder().setUserId(userId)
-                    .setItemId(itemId)
-                    .setEventType(event.getClass()
-                                       .getSimpleName())
-                    .setWhenEmitted(whenEmitted);
+        final ReaderEventLogRecord.Builder record = newRecord(event, event.getWhenBecameOverdue(),
+                                                              context);
+        record.setItemId(event.getInventoryItemId());
+        append(record.build());
     }
 
     @Subscribe
     public void on(LoanBecameShouldReturnSoon event, EventContext context) {
-        final InventoryItemId itemId = event.getInventoryItemId();
         final Timestamp whenEmitted = event.getWhenBecameShouldReturnSoon();
-        final UserId userId = event.getUserId();
-        setAuthorAndTitle(context);
-
-        getBuilder().setUserId(userId)
-                    .setItemId(itemId)
-                    .setEventType(event.getClass()
-                                       .getSimpleName())
-                    .setWhenEmitted(whenEmitted);
+        final ReaderEventLogRecord.Builder record = newRecord(event, whenEmitted, context);
+        record.setItemId(event.getInventoryItemId());
+        append(record.build());
     }
 
     @Subscribe
     public void on(LoanPeriodExtended event, EventContext context) {
-        final InventoryItemId itemId = event.getInventoryItemId();
-        final Timestamp whenEmitted = event.getWhenExtended();
-        final UserId userId = event.getUserId();
-        setAuthorAndTitle(context);
-
-        getBuilder().setUserId(userId)
-                    .setItemId(itemId)
-                    .setEventType(event.getClass()
-                                       .getSimpleName())
-                    .setWhenEmitted(whenEmitted);
+        final ReaderEventLogRecord.Builder record = newRecord(event, event.getWhenExtended(),
+                                                              context);
+        record.setItemId(event.getInventoryItemId());
+        append(record.build());
     }
 
     @Subscribe
     public void on(BookLost event, EventContext context) {
-        final InventoryItemId itemId = event.getInventoryItemId();
-        final Timestamp whenEmitted = event.getWhenReported();
-        final UserId userId = event.getWhoLost();
-        setAuthorAndTitle(context);
-
-        getBuilder().setUserId(userId)
-                    .setItemId(itemId)
-                    .setEventType(event.getClass()
-                                       .getSimpleName())
-                    .setWhenEmitted(whenEmitted);
+        final ReaderEventLogRecord.Builder record = newRecord(event, event.getWhenReported(),
+                                                              context);
+        record.setItemId(event.getInventoryItemId());
+        append(record.build());
     }
 
-    private void setAuthorAndTitle(EventContext context) {
-        final BookEnrichment enrichment = getEnrichment(BookEnrichment.class, context);
-        final BookDetails bookDetails = enrichment.getBook()
-                                                  .getBookDetails();
-        final ArrayList<Author> authors = new ArrayList<>(bookDetails.getAuthorList());
-        final BookTitle title = bookDetails.getTitle();
-        getBuilder().setTitle(title)
-                    .addAllAuthor(authors);
+    private static ReaderEventLogRecord.Builder newRecord(Message event, Timestamp whenEmitted,
+                                                          EventContext context) {
+        final BookSummaryEnrichment enrichment = getEnrichment(BookSummaryEnrichment.class,
+                                                               context);
+        final BookSummary book = enrichment.getBook();
+        final String eventType = event.getClass()
+                                      .getSimpleName();
+        final ReaderEventLogRecord.Builder result =
+                ReaderEventLogRecord.newBuilder()
+                                    .setTitle(book.getTitle())
+                                    .addAllAuthor(book.getAuthorList())
+                                    .setEventType(eventType)
+                                    .setWhenEmitted(whenEmitted);
+        return result;
+    }
+
+    private void append(ReaderEventLogRecord record) {
+        final int position = insertionPosition(getBuilder().getRecord(), record);
+        getBuilder().setId(getId())
+                    .addRecord(position, record);
+        archiveOldRecords();
+    }
 
+    private void archiveOldRecords() {
+        if (archive == null) {
+            return;
+        }
+        final List<ReaderEventLogRecord> records = getBuilder().getRecord();
+        final Timestamp latest = records.get(records.size() - 1)
+                                        .getWhenEmitted();
+        final Timestamp cutoff = Timestamp.newBuilder(latest)
+                                          .setSeconds(latest.getSeconds()
+                                                              - retention.getSeconds())
+                                          .build();
+        final int oldCount = lowerBound(records, cutoff);
+        if (oldCount < archiveBatchSize) {
+            return;
+        }
+        final List<ReaderEventLogRecord> old = new ArrayList<>(records.subList(0, oldCount));
+        final List<ReaderEventLogRecord> recent =
+                new ArrayList<>(records.subList(oldCount, records.size()));
+        archive.append(getId().getUserId(), getBuilder().getArchivedCount(), old);
+        getBuilder().clearRecord()
+                    .addAllRecord(recent)
+                    .setArchivedCount(getBuilder().getArchivedCount() + oldCount)
+                    .setArchivedUntil(old.get(oldCount - 1)
+                                         .getWhenEmitted());
     }
 }
@@ -20,34 +20,142 @@
 
 package javaclasses.exlibris.q.admin;
 
+import com.google.common.base.Optional;
 import io.spine.server.projection.ProjectionRepository;
+import io.spine.server.route.EventRouting;
 import javaclasses.exlibris.ReaderEventLogViewId;
+import javaclasses.exlibris.UserId;
+import javaclasses.exlibris.c.BookBorrowed;
+import javaclasses.exlibris.c.BookLost;
+import javaclasses.exlibris.c.BookReturned;
+import javaclasses.exlibris.c.LoanBecameOverdue;
+import javaclasses.exlibris.c.LoanBecameShouldReturnSoon;
+import javaclasses.exlibris.c.LoanPeriodExtended;
+import javaclasses.exlibris.c.ReservationAdded;
+import javaclasses.exlibris.c.ReservationBecameLoan;
+import javaclasses.exlibris.c.ReservationCanceled;
+import javaclasses.exlibris.c.ReservationPickUpPeriodExpired;
+import javaclasses.exlibris.q.ReaderEventLogQuery;
+import javaclasses.exlibris.q.ReaderEventLogQueryResult;
 import javaclasses.exlibris.q.ReaderEventLogView;
 
-import static io.spine.Identifier.newUuid;
+import java.time.Duration;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.Collections.singleton;
 
 /**
  * Repository for the {@link ReaderEventLogViewProjection}.
  *
+ * <p>The events of a reader are routed to the activity log of the reader. If created with
+ * a {@link ReaderEventLogArchive}, the logs keep only the records emitted within
+ * the retention age and move the older records to the archive.
+ *
  * @author Yurii Haidamaka
  */
 public class ReaderEventLogViewRepository extends ProjectionRepository<ReaderEventLogViewId, ReaderEventLogViewProjection, ReaderEventLogView> {
+
+    /** The default number of the records moved to the archive at once. */
+    public static final int DEFAULT_ARCHIVE_BATCH_SIZE = 100;
+
+    private final Optional<ReaderEventLogArchive> archive;
+    private final Duration retention;
+    private final int archiveBatchSize;
+
+    /**
+     * Creates a repository keeping all the records in the projections.
+     */
+    public ReaderEventLogViewRepository() {
+        super();
+        this.archive = Optional.absent();
+        this.retention = Duration.ZERO;
+        this.archiveBatchSize = DEFAULT_ARCHIVE_BATCH_SIZE;
+    }
+
+    /**
+     * Creates a repository moving the old records to the archive.
+     *
+     * @param archive          the archive of the old records
+     * @param retention        the age of the records to archive, counting from the latest
+     *                         record of the reader
+     * @param archiveBatchSize the minimum number of the old records to archive at once
+     */
+    public ReaderEventLogViewRepository(ReaderEventLogArchive archive, Duration retention,
+                                        int archiveBatchSize) {
+        super();
+        checkNotNull(archive);
+        checkNotNull(retention);
+        checkArgument(!retention.isNegative(), "The retention age must not be negative.");
+        checkArgument(archiveBatchSize > 0, "The archive batch size must be positive.");
+        this.archive = Optional.of(archive);
+        this.retention = retention;
+        this.archiveBatchSize = archiveBatchSize;
+    }
+
     @Override
     public void onRegistered() {
         super.onRegistered();
         setUpEventRoute();
     }
 
+    @Override
+    public ReaderEventLogViewProjection create(ReaderEventLogViewId id) {
+        final ReaderEventLogViewProjection result = super.create(id);
+        if (archive.isPresent()) {
+            result.setArchival(archive.get(), retention, archiveBatchSize);
+        }
+        return result;
+    }
+
+    /**
+     * Obtains the page of the reader activity log including the archived records.
+     *
+     * @param query the query of the records
+     * @return the matching records and the query of the next page
+     */
+    public ReaderEventLogQueryResult query(ReaderEventLogQuery query) {
+        checkNotNull(query);
+        final Optional<ReaderEventLogViewProjection> projection = find(idOf(query.getUserId()));
+        final Optional<ReaderEventLogView> view = projection.isPresent()
+                                                  ? Optional.of(projection.get()
+                                                                          .getState())
+                                                  : Optional.absent();
+        final ReaderEventLogQueryResult result = ReaderEventLogIndex.query(query, view, archive);
+        return result;
+    }
+
     /**
      * Adds the {@link io.spine.server.route.EventRoute EventRoute}s to the repository.
      */
     protected void setUpEventRoute() {
-        getEventRouting().replaceDefault(((message, context) -> {
-            final ReaderEventLogViewId id = ReaderEventLogViewId.newBuilder()
-                                                                .setValue(newUuid())
+        final EventRouting<ReaderEventLogViewId> routing = getEventRouting();
+        routing.route(BookBorrowed.class,
+                      (message, context) -> singleton(idOf(message.getWhoBorrowed())));
+        routing.route(BookReturned.class,
+                      (message, context) -> singleton(idOf(message.getWhoReturned())));
+        routing.route(ReservationAdded.class,
+                      (message, context) -> singleton(idOf(message.getForWhomReserved())));
+        routing.route(ReservationCanceled.class,
+                      (message, context) -> singleton(idOf(message.getWhoCanceled())));
+        routing.route(ReservationPickUpPeriodExpired.class,
+                      (message, context) -> singleton(idOf(message.getUserId())));
+        routing.route(ReservationBecameLoan.class,
+                      (message, context) -> singleton(idOf(message.getUserId())));
+        routing.route(LoanBecameOverdue.class,
+                      (message, context) -> singleton(idOf(message.getUserId())));
+        routing.route(LoanBecameShouldReturnSoon.class,
+                      (message, context) -> singleton(idOf(message.getUserId())));
+        routing.route(LoanPeriodExtended.class,
+                      (message, context) -> singleton(idOf(message.getUserId())));
+        routing.route(BookLost.class,
+                      (message, context) -> singleton(idOf(message.getWhoLost())));
+    }
+
+    static ReaderEventLogViewId idOf(UserId userId) {
+        final ReaderEventLogViewId result = ReaderEventLogViewId.newBuilder()
+                                                                .setUserId(userId)
                                                                 .build();
-            return singleton(id);
-        }));
+        return result;
     }
 }
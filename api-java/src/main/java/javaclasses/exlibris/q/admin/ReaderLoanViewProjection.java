@@ -26,14 +26,14 @@ import io.spine.core.Subscribe;
 import io.spine.server.projection.Projection;
 import io.spine.time.LocalDate;
 import javaclasses.exlibris.Author;
-import javaclasses.exlibris.BookDetails;
+import javaclasses.exlibris.BookSummary;
 import javaclasses.exlibris.BookTitle;
 import javaclasses.exlibris.InventoryItemId;
 import javaclasses.exlibris.ReaderLoanViewId;
 import javaclasses.exlibris.UserId;
 import javaclasses.exlibris.c.BookBorrowed;
-import javaclasses.exlibris.c.BookEnrichment;
 import javaclasses.exlibris.c.BookReturned;
+import javaclasses.exlibris.c.BookSummaryEnrichment;
 import javaclasses.exlibris.c.LoanPeriodExtended;
 import javaclasses.exlibris.q.ReaderLoanView;
 import javaclasses.exlibris.q.ReaderLoanViewVBuilder;
@@ -67,11 +67,11 @@ public class ReaderLoanViewProjection extends Projection<ReaderLoanViewId, Reade
         final LocalDate whenTaken = toLocalDate(whenTakenTimestamp);
         final Timestamp whenDueTimestamp = event.getWhenDue();
         final LocalDate whenDue = toLocalDate(whenDueTimestamp);
-        final BookEnrichment enrichment = getEnrichment(BookEnrichment.class, context);
-        final BookDetails bookDetails = enrichment.getBook()
-                                                  .getBookDetails();
-        final ArrayList<Author> authors = new ArrayList<>(bookDetails.getAuthorList());
-        final BookTitle title = bookDetails.getTitle();
+        final BookSummaryEnrichment enrichment = getEnrichment(BookSummaryEnrichment.class,
+                                                               context);
+        final BookSummary book = enrichment.getBook();
+        final ArrayList<Author> authors = new ArrayList<>(book.getAuthorList());
+        final BookTitle title = book.getTitle();
         final ReaderLoanViewId readerLoanViewId = ReaderLoanViewId.newBuilder()
                                                                   .setUserId(userId)
                                                                   .setLoanId(event.getLoanId())
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.q.admin;
+
+import io.spine.core.Subscribe;
+import io.spine.server.projection.Projection;
+import javaclasses.exlibris.LoanId;
+import javaclasses.exlibris.UserId;
+import javaclasses.exlibris.c.BookBorrowed;
+import javaclasses.exlibris.c.BookLost;
+import javaclasses.exlibris.c.BookReturned;
+import javaclasses.exlibris.q.ReaderLoansIndexView;
+import javaclasses.exlibris.q.ReaderLoansIndexViewVBuilder;
+
+/**
+ * The index of the current loans of a reader.
+ *
+ * <p>The views of the loans are obtained from the {@link BookLoanViewRepository}
+ * by the identifiers kept in the index.
+ */
+public class ReaderLoansIndexProjection extends Projection<UserId, ReaderLoansIndexView, ReaderLoansIndexViewVBuilder> {
+
+    /**
+     * @see Projection#Projection(Object)
+     */
+    public ReaderLoansIndexProjection(UserId id) {
+        super(id);
+    }
+
+    @Subscribe
+    public void on(BookBorrowed event) {
+        final LoanId loanId = event.getLoanId();
+        if (!getBuilder().getLoanId()
+                         .contains(loanId)) {
+            getBuilder().setId(getId())
+                        .addLoanId(loanId);
+        }
+    }
+
+    @Subscribe
+    public void on(BookReturned event) {
+        removeLoan(event.getLoanId());
+    }
+
+    @Subscribe
+    public void on(BookLost event) {
+        if (event.hasLoanId()) {
+            removeLoan(event.getLoanId());
+        }
+    }
+
+    private void removeLoan(LoanId loanId) {
+        final int index = getBuilder().getLoanId()
+                                      .indexOf(loanId);
+        if (index != -1) {
+            getBuilder().removeLoanId(index);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.q.admin;
+
+import com.google.common.base.Optional;
+import io.spine.server.projection.ProjectionRepository;
+import io.spine.server.route.EventRouting;
+import javaclasses.exlibris.LoanId;
+import javaclasses.exlibris.UserId;
+import javaclasses.exlibris.c.BookBorrowed;
+import javaclasses.exlibris.c.BookLost;
+import javaclasses.exlibris.c.BookReturned;
+import javaclasses.exlibris.q.ReaderLoansIndexView;
+
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.Collections.singleton;
+
+/**
+ * Repository for the {@link ReaderLoansIndexProjection}.
+ */
+public class ReaderLoansIndexRepository extends ProjectionRepository<UserId, ReaderLoansIndexProjection, ReaderLoansIndexView> {
+
+    @Override
+    public void onRegistered() {
+        super.onRegistered();
+        setUpEventRoute();
+    }
+
+    /**
+     * Obtains the current loans of the reader.
+     *
+     * @param userId the identifier of the reader
+     * @return the identifiers of the loans
+     */
+    public List<LoanId> getCurrentLoans(UserId userId) {
+        checkNotNull(userId);
+        final Optional<ReaderLoansIndexProjection> index = find(userId);
+        if (!index.isPresent()) {
+            return Collections.emptyList();
+        }
+        return index.get()
+                    .getState()
+                    .getLoanIdList();
+    }
+
+    /**
+     * Adds the {@link io.spine.server.route.EventRoute EventRoute}s to the repository.
+     */
+    protected void setUpEventRoute() {
+        final EventRouting<UserId> routing = getEventRouting();
+        routing.route(BookBorrowed.class,
+                      (message, context) -> singleton(message.getWhoBorrowed()));
+        routing.route(BookReturned.class,
+                      (message, context) -> singleton(message.getWhoReturned()));
+        routing.route(BookLost.class,
+                      (message, context) -> singleton(message.getWhoLost()));
+    }
+}
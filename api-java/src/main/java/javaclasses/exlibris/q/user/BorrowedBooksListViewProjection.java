@@ -43,11 +43,9 @@ import javaclasses.exlibris.q.BorrowedBookItemStatus;
 import javaclasses.exlibris.q.BorrowedBooksListView;
 import javaclasses.exlibris.q.BorrowedBooksListViewVBuilder;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.OptionalInt;
-import java.util.stream.IntStream;
 
+import static io.spine.util.Exceptions.newIllegalStateException;
 import static javaclasses.exlibris.EnrichmentHelper.getEnrichment;
 import static javaclasses.exlibris.Timestamps.toLocalDate;
 
@@ -56,6 +54,16 @@ import static javaclasses.exlibris.Timestamps.toLocalDate;
  *
  * <p>Contains the list of borrowed books.
  *
+ * <p>The positions of the items are kept in the state by the book, so the item of a book is
+ * found without scanning the list. The order of the items is kept, so removing an item moves
+ * the positions of the items following it, which takes {@code O(n)} the same as the removal
+ * from the list itself. The number of overdue books is updated as the items change instead of
+ * being recounted on every event.
+ *
+ * <p>The events changing an item fail if the list has no item of the book, since such an event
+ * means the view missed the borrowing. Removing an absent item does nothing, as
+ * a {@code BookLost} may be reported by a user who did not borrow the book.
+ *
  * @author Yurii Haidamaka
  */
 public class BorrowedBooksListViewProjection extends Projection<UserId, BorrowedBooksListView, BorrowedBooksListViewVBuilder> {
@@ -95,33 +103,34 @@ public class BorrowedBooksListViewProjection extends Projection<UserId, Borrowed
                                                           .setStatus(status)
                                                           .setIsAllowedLoanExtension(false)
                                                           .build();
+        ensurePositions();
+        final int position = getBuilder().getBookItem()
+                                         .size();
         getBuilder().setUserId(event.getWhoBorrowed())
                     .addBookItem(bookItem)
-                    .setNumberOfBorrowedBooks(getBuilder().getBookItem()
-                                                          .size());
+                    .setNumberOfBorrowedBooks(position + 1);
+        getBuilder().putPosition(keyOf(bookId), position);
     }
 
     @Subscribe
     public void on(LoanBecameOverdue event) {
-        final List<BorrowedBookItem> items = new ArrayList<>(getBuilder().getBookItem());
-        final int index = getIndexByBookId(items, event.getInventoryId()
-                                                       .getBookId());
-        final BorrowedBookItem bookItem = items.get(index);
+        final int index = positionOf(event.getInventoryId()
+                                          .getBookId());
+        final BorrowedBookItem bookItem = getBuilder().getBookItem()
+                                                      .get(index);
         final BorrowedBookItem newBookItem = BorrowedBookItem.newBuilder(bookItem)
                                                              .setStatus(
                                                                      BorrowedBookItemStatus.OVERDUE)
                                                              .build();
-        getBuilder().setBookItem(index, newBookItem)
-                    .setNumberOfOverdueBooks(getNumberOfOverdueBooks(getBuilder().getBookItem()));
+        setBookItem(index, newBookItem);
     }
 
     @Subscribe
     public void on(LoanBecameShouldReturnSoon event) {
-        final List<BorrowedBookItem> items = new ArrayList<>(getBuilder().getBookItem());
-
-        final int index = getIndexByBookId(items, event.getInventoryId()
-                                                       .getBookId());
-        final BorrowedBookItem bookItem = items.get(index);
+        final int index = positionOf(event.getInventoryId()
+                                          .getBookId());
+        final BorrowedBookItem bookItem = getBuilder().getBookItem()
+                                                      .get(index);
         final BorrowedBookItem newBookItem =
                 BorrowedBookItem.newBuilder(bookItem)
                                 .setStatus(
@@ -129,88 +138,147 @@ public class BorrowedBooksListViewProjection extends Projection<UserId, Borrowed
                                 .setIsAllowedLoanExtension(
                                         event.getIsAllowedExtension())
                                 .build();
-        getBuilder().setBookItem(index, newBookItem);
+        setBookItem(index, newBookItem);
     }
 
     @Subscribe
     public void on(LoanPeriodExtended event) {
         final Timestamp newDueDateTimestamp = event.getNewDueDate();
         final LocalDate newDueDate = toLocalDate(newDueDateTimestamp);
-        final List<BorrowedBookItem> items = new ArrayList<>(getBuilder().getBookItem());
-        final int index = getIndexByBookId(items, event.getInventoryId()
-                                                       .getBookId());
-        final BorrowedBookItem bookItem = items.get(index);
+        final int index = positionOf(event.getInventoryId()
+                                          .getBookId());
+        final BorrowedBookItem bookItem = getBuilder().getBookItem()
+                                                      .get(index);
         final BorrowedBookItem newBookItem = BorrowedBookItem.newBuilder(bookItem)
                                                              .setStatus(
                                                                      BorrowedBookItemStatus.BORROWED)
                                                              .setIsAllowedLoanExtension(false)
                                                              .setDueDate(newDueDate)
                                                              .build();
-        getBuilder().setBookItem(index, newBookItem)
-                    .setNumberOfOverdueBooks(getNumberOfOverdueBooks(getBuilder().getBookItem()));
+        setBookItem(index, newBookItem);
     }
 
     @Subscribe
     public void on(BookReturned event) {
-        final List<BorrowedBookItem> items = new ArrayList<>(getBuilder().getBookItem());
-        final int index = getIndexByBookId(items, event.getInventoryId()
-                                                       .getBookId());
-        getBuilder().removeBookItem(index)
-                    .setNumberOfBorrowedBooks(getBuilder().getBookItem()
-                                                          .size());
+        removeBookItem(event.getInventoryId()
+                            .getBookId());
     }
 
     @Subscribe
     public void on(BookLost event) {
-        final List<BorrowedBookItem> items = new ArrayList<>(getBuilder().getBookItem());
-        final int index = getIndexByBookId(items, event.getInventoryId()
-                                                       .getBookId());
-        getBuilder().removeBookItem(index)
-                    .setNumberOfBorrowedBooks(getBuilder().getBookItem()
-                                                          .size());
+        removeBookItem(event.getInventoryId()
+                            .getBookId());
     }
 
     @Subscribe
     public void on(LoansExtensionAllowed event) {
-        final List<BorrowedBookItem> items = new ArrayList<>(getBuilder().getBookItem());
-        final int index = getIndexByBookId(items, event.getInventoryId()
-                                                       .getBookId());
-        final BorrowedBookItem bookItem = items.get(index);
+        final int index = positionOf(event.getInventoryId()
+                                          .getBookId());
+        final BorrowedBookItem bookItem = getBuilder().getBookItem()
+                                                      .get(index);
         if (!bookItem.getStatus()
                      .equals(BorrowedBookItemStatus.BORROWED)) {
             final BorrowedBookItem newBookItem = BorrowedBookItem.newBuilder(bookItem)
                                                                  .setIsAllowedLoanExtension(true)
                                                                  .build();
-            getBuilder().setBookItem(index, newBookItem);
+            setBookItem(index, newBookItem);
         }
     }
 
     @Subscribe
     public void on(LoansExtensionForbidden event) {
-        final List<BorrowedBookItem> items = new ArrayList<>(getBuilder().getBookItem());
-        final int index = getIndexByBookId(items, event.getInventoryId()
-                                                       .getBookId());
-        final BorrowedBookItem bookItem = items.get(index);
+        final int index = positionOf(event.getInventoryId()
+                                          .getBookId());
+        final BorrowedBookItem bookItem = getBuilder().getBookItem()
+                                                      .get(index);
         final BorrowedBookItem newBookItem = BorrowedBookItem.newBuilder(bookItem)
                                                              .setIsAllowedLoanExtension(false)
                                                              .build();
+        setBookItem(index, newBookItem);
+    }
+
+    /**
+     * Obtains the position of the item of the book.
+     *
+     * @throws IllegalStateException if the list has no item of the book
+     */
+    private int positionOf(BookId bookId) {
+        final int result = indexOf(bookId);
+        if (result == -1) {
+            throw newIllegalStateException("The list of the borrowed books has no book %s.",
+                                           keyOf(bookId));
+        }
+        return result;
+    }
+
+    private int indexOf(BookId bookId) {
+        ensurePositions();
+        final Integer position = getBuilder().getPosition()
+                                             .get(keyOf(bookId));
+        return position == null ? -1 : position;
+    }
+
+    /**
+     * Builds the positions of the state stored before the positions were kept.
+     */
+    private void ensurePositions() {
+        final int itemsCount = getBuilder().getBookItem()
+                                           .size();
+        if (getBuilder().getPosition()
+                        .size() != itemsCount) {
+            putPositions(0);
+        }
+    }
+
+    /**
+     * Puts the positions of the items starting from the specified one.
+     */
+    private void putPositions(int from) {
+        final List<BorrowedBookItem> items = getBuilder().getBookItem();
+        for (int i = from; i < items.size(); i++) {
+            getBuilder().putPosition(keyOf(items.get(i)
+                                                .getBookId()), i);
+        }
+    }
+
+    /**
+     * Replaces the item at the position and adjusts the number of overdue books
+     * if the item became or stopped being overdue.
+     */
+    private void setBookItem(int index, BorrowedBookItem newBookItem) {
+        final BorrowedBookItem bookItem = getBuilder().getBookItem()
+                                                      .get(index);
+        final int overdueChange = overdueCount(newBookItem) - overdueCount(bookItem);
         getBuilder().setBookItem(index, newBookItem);
+        if (overdueChange != 0) {
+            getBuilder().setNumberOfOverdueBooks(getBuilder().getNumberOfOverdueBooks()
+                                                         + overdueChange);
+        }
+    }
+
+    private void removeBookItem(BookId bookId) {
+        final int index = indexOf(bookId);
+        if (index == -1) {
+            return;
+        }
+        final BorrowedBookItem bookItem = getBuilder().getBookItem()
+                                                      .get(index);
+        getBuilder().removePosition(keyOf(bookId));
+        getBuilder().removeBookItem(index)
+                    .setNumberOfBorrowedBooks(getBuilder().getBookItem()
+                                                          .size())
+                    .setNumberOfOverdueBooks(getBuilder().getNumberOfOverdueBooks()
+                                                     - overdueCount(bookItem));
+        putPositions(index);
     }
 
-    private int getIndexByBookId(List<BorrowedBookItem> items, BookId id) {
-        final OptionalInt index = IntStream.range(0, items.size())
-                                           .filter(i -> items.get(i)
-                                                             .getBookId()
-                                                             .equals(id))
-                                           .findFirst();
-        return index.isPresent() ? index.getAsInt() : -1;
+    private static String keyOf(BookId bookId) {
+        return bookId.getIsbn62()
+                     .getValue();
     }
 
-    private int getNumberOfOverdueBooks(List<BorrowedBookItem> items) {
-        final int count = (int) items.stream()
-                                     .filter(item -> item.getStatus()
-                                                         .equals(BorrowedBookItemStatus.OVERDUE))
-                                     .count();
-        return count;
+    private static int overdueCount(BorrowedBookItem item) {
+        return item.getStatus()
+                   .equals(BorrowedBookItemStatus.OVERDUE) ? 1 : 0;
     }
 }
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.q.user;
+
+import com.google.common.base.Optional;
+import javaclasses.exlibris.BookId;
+import javaclasses.exlibris.ExpectedSoonBooksListViewId;
+import javaclasses.exlibris.q.ExpectedSoonBooksListView;
+import javaclasses.exlibris.q.ExpectedSoonBooksQuery;
+import javaclasses.exlibris.q.ExpectedSoonBooksQueryResult;
+import javaclasses.exlibris.q.ExpectedSoonItem;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Utilities for partitioning and paging the books that are expected in the library.
+ *
+ * <p>The books are split into a number of {@link ExpectedSoonBooksListView} partitions by
+ * the hash of the book identifier, so an event changes only a small partition. The number of
+ * the partitions is set by the {@link ExpectedSoonBooksListViewRepository} to keep
+ * the partitions small for the size of the catalog, and is recorded in the partition
+ * identifier.
+ * The books of a partition are sorted by the identifier, so a page continues after the last
+ * book of the previous page without reading the books before it.
+ */
+public final class ExpectedSoonBooksIndex {
+
+    /**
+     * The default number of the partitions.
+     *
+     * <p>Keeps the partitions under a few hundred books for a catalog of ten thousand books.
+     */
+    public static final int DEFAULT_PARTITION_COUNT = 32;
+
+    private static final Comparator<BookId> BOOK_ID_ORDER =
+            Comparator.comparing(bookId -> bookId.getIsbn62()
+                                                 .getValue());
+
+    private ExpectedSoonBooksIndex() {
+        // Prevent instantiation of this utility class.
+    }
+
+    /**
+     * Obtains the identifier of the partition holding the book.
+     *
+     * @param bookId         the identifier of the book
+     * @param partitionCount the number of the partitions
+     * @return the identifier of the partition
+     */
+    public static ExpectedSoonBooksListViewId partitionOf(BookId bookId, int partitionCount) {
+        checkNotNull(bookId);
+        checkPartitionCount(partitionCount);
+        final int hash = bookId.getIsbn62()
+                               .getValue()
+                               .hashCode();
+        return partitionId(Math.floorMod(hash, partitionCount), partitionCount);
+    }
+
+    /**
+     * Ensures the number of the partitions is positive.
+     *
+     * @throws IllegalArgumentException if the number is not positive
+     */
+    static void checkPartitionCount(int partitionCount) {
+        checkArgument(partitionCount > 0, "The number of the partitions must be positive.");
+    }
+
+    /**
+     * Executes the query against the partitions.
+     *
+     * @param query          the query to execute
+     * @param partitionCount the number of the partitions
+     * @param partitions     the function obtaining the partition by its identifier
+     * @return the page of the books and the query of the next page
+     */
+    public static ExpectedSoonBooksQueryResult
+    query(ExpectedSoonBooksQuery query,
+          int partitionCount,
+          Function<ExpectedSoonBooksListViewId, Optional<ExpectedSoonBooksListView>> partitions) {
+        checkNotNull(query);
+        checkNotNull(partitions);
+        checkPartitionCount(partitionCount);
+        checkArgument(query.getPageSize() >= 0, "The page size must not be negative.");
+        checkArgument(query.getPartition() >= 0 && query.getPartition() < partitionCount,
+                      "The partition must be in the range [0, %s).", partitionCount);
+        final int pageSize = query.getPageSize();
+        final ExpectedSoonBooksQueryResult.Builder result =
+                ExpectedSoonBooksQueryResult.newBuilder();
+
+        for (int partition = query.getPartition(); partition < partitionCount; partition++) {
+            final Optional<ExpectedSoonBooksListView> view =
+                    partitions.apply(partitionId(partition, partitionCount));
+            if (!view.isPresent()) {
+                continue;
+            }
+            final List<ExpectedSoonItem> items = view.get()
+                                                     .getBookItemList();
+            final boolean continued = partition == query.getPartition() && query.hasAfter();
+            final int start = continued ? upperBound(items, query.getAfter()) : 0;
+            for (int i = start; i < items.size(); i++) {
+                if (pageSize > 0 && result.getBookItemCount() == pageSize) {
+                    result.setNextPage(nextPage(query, result.getBookItemList(),
+                                                partitionCount));
+                    return result.build();
+                }
+                result.addBookItem(items.get(i));
+            }
+        }
+        return result.build();
+    }
+
+    /**
+     * Obtains the position to insert the book at to keep the books sorted.
+     */
+    static int insertionPosition(List<ExpectedSoonItem> items, BookId bookId) {
+        int low = 0;
+        int high = items.size();
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (BOOK_ID_ORDER.compare(items.get(middle)
+                                           .getBookId(), bookId) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Obtains the position of the book.
+     *
+     * @return the position of the book or {@code -1} if there is no such book
+     */
+    static int positionOf(List<ExpectedSoonItem> items, BookId bookId) {
+        final int position = insertionPosition(items, bookId);
+        final boolean found = position < items.size()
+                && items.get(position)
+                        .getBookId()
+                        .equals(bookId);
+        return found ? position : -1;
+    }
+
+    private static int upperBound(List<ExpectedSoonItem> items, BookId bookId) {
+        final int position = insertionPosition(items, bookId);
+        final boolean found = position < items.size()
+                && items.get(position)
+                        .getBookId()
+                        .equals(bookId);
+        return found ? position + 1 : position;
+    }
+
+    /**
+     * Creates the query continuing after the last book of the page.
+     */
+    private static ExpectedSoonBooksQuery nextPage(ExpectedSoonBooksQuery query,
+                                                   List<ExpectedSoonItem> page,
+                                                   int partitionCount) {
+        final BookId last = page.get(page.size() - 1)
+                                .getBookId();
+        final int partition = partitionOf(last, partitionCount).getPartition();
+        final ExpectedSoonBooksQuery result =
+                ExpectedSoonBooksQuery.newBuilder(query)
+                                      .setPartition(partition)
+                                      .setAfter(last)
+                                      .build();
+        return result;
+    }
+
+    private static ExpectedSoonBooksListViewId partitionId(int partition, int partitionCount) {
+        final ExpectedSoonBooksListViewId result =
+                ExpectedSoonBooksListViewId.newBuilder()
+                                           .setPartition(partition)
+                                           .setPartitionCount(partitionCount)
+                                           .build();
+        return result;
+    }
+}
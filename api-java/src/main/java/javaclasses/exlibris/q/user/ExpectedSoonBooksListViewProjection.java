@@ -27,37 +27,28 @@ import javaclasses.exlibris.BookId;
 import javaclasses.exlibris.ExpectedSoonBooksListViewId;
 import javaclasses.exlibris.c.BookAdded;
 import javaclasses.exlibris.c.InventoryAppended;
+import javaclasses.exlibris.c.InventoryBatchAppended;
 import javaclasses.exlibris.q.ExpectedSoonBooksListView;
 import javaclasses.exlibris.q.ExpectedSoonBooksListViewVBuilder;
 import javaclasses.exlibris.q.ExpectedSoonItem;
 import javaclasses.exlibris.q.ExpectedSoonItemStatus;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.OptionalInt;
-import java.util.stream.IntStream;
+
+import static javaclasses.exlibris.q.user.ExpectedSoonBooksIndex.insertionPosition;
+import static javaclasses.exlibris.q.user.ExpectedSoonBooksIndex.positionOf;
 
 /**
- * A projection state of books that are expected in the library.
+ * A projection state of a partition of books that are expected in the library.
  *
- * <p>Contains the list of books.
+ * <p>Contains the books of the partition sorted by the book identifier.
  *
+ * @see ExpectedSoonBooksIndex
  * @author Yurii Haidamaka
  */
 public class ExpectedSoonBooksListViewProjection extends Projection<ExpectedSoonBooksListViewId,
         ExpectedSoonBooksListView, ExpectedSoonBooksListViewVBuilder> {
 
-    /**
-     * The {@link ExpectedSoonBooksListViewProjection} is a singleton.
-     *
-     * <p>The {@code ID} value should be the same for all JVMs
-     * to support work with the same projection from execution to execution.
-     */
-    public static final ExpectedSoonBooksListViewId ID = ExpectedSoonBooksListViewId.newBuilder()
-                                                                                    .setValue(
-                                                                                            "ExpectedSoonBooksListViewProjection")
-                                                                                    .build();
-
     /**
      * @see Projection#Projection(Object)
      */
@@ -82,27 +73,32 @@ public class ExpectedSoonBooksListViewProjection extends Projection<ExpectedSoon
                                                                   ExpectedSoonItemStatus.EXPECTED_SOON)
                                                           .build();
 
-        getBuilder().addBookItem(bookItem);
+        final BookId bookId = event.getBookId();
+        final List<ExpectedSoonItem> items = getBuilder().getBookItem();
+        if (positionOf(items, bookId) == -1) {
+            getBuilder().setId(getId())
+                        .addBookItem(insertionPosition(items, bookId), bookItem);
+        }
     }
 
     @Subscribe
     public void on(InventoryAppended event) {
         final BookId id = event.getInventoryId()
                                .getBookId();
-        final List<ExpectedSoonItem> items = new ArrayList<>(getBuilder().getBookItem());
-        final int index = getIndexByBookId(items, id);
-        if (index != -1) {
-            getBuilder().removeBookItem(index);
-        }
+        removeBookItem(id);
     }
 
-    private int getIndexByBookId(List<ExpectedSoonItem> items, BookId id) {
-        final OptionalInt index = IntStream.range(0, items.size())
-                                           .filter(i -> items.get(i)
-                                                             .getBookId()
-                                                             .equals(id))
-                                           .findFirst();
-        return index.isPresent() ? index.getAsInt() : -1;
+    @Subscribe
+    public void on(InventoryBatchAppended event) {
+        final BookId id = event.getInventoryId()
+                               .getBookId();
+        removeBookItem(id);
     }
 
+    private void removeBookItem(BookId id) {
+        final int index = positionOf(getBuilder().getBookItem(), id);
+        if (index != -1) {
+            getBuilder().removeBookItem(index);
+        }
+    }
 }
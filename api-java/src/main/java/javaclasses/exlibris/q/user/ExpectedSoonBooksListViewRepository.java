@@ -20,19 +20,59 @@
 
 package javaclasses.exlibris.q.user;
 
+import com.google.common.base.Optional;
 import io.spine.server.projection.ProjectionRepository;
 import javaclasses.exlibris.ExpectedSoonBooksListViewId;
+import javaclasses.exlibris.c.BookAdded;
+import javaclasses.exlibris.c.InventoryAppended;
+import javaclasses.exlibris.c.InventoryBatchAppended;
 import javaclasses.exlibris.q.ExpectedSoonBooksListView;
+import javaclasses.exlibris.q.ExpectedSoonBooksQuery;
+import javaclasses.exlibris.q.ExpectedSoonBooksQueryResult;
 
 import static java.util.Collections.singleton;
-import static javaclasses.exlibris.q.user.ExpectedSoonBooksListViewProjection.ID;
+import static javaclasses.exlibris.q.user.ExpectedSoonBooksIndex.DEFAULT_PARTITION_COUNT;
+import static javaclasses.exlibris.q.user.ExpectedSoonBooksIndex.checkPartitionCount;
+import static javaclasses.exlibris.q.user.ExpectedSoonBooksIndex.partitionOf;
 
 /**
- * Repository for the {@link BookViewProjection}.
+ * Repository for the {@link ExpectedSoonBooksListViewProjection}.
+ *
+ * <p>The events of a book are routed to the partition of the book.
+ *
+ * <p>The number of the partitions should grow with the catalog, so that a partition
+ * keeps a few hundred books. The partitions made for another number are not read,
+ * so changing the number requires rebuilding the projection.
  *
  * @author Yurii Haidamaka
  */
 public class ExpectedSoonBooksListViewRepository extends ProjectionRepository<ExpectedSoonBooksListViewId, ExpectedSoonBooksListViewProjection, ExpectedSoonBooksListView> {
+
+    private final int partitionCount;
+
+    /**
+     * Creates the repository with the {@linkplain ExpectedSoonBooksIndex#DEFAULT_PARTITION_COUNT
+     * default} number of the partitions.
+     */
+    public ExpectedSoonBooksListViewRepository() {
+        this(DEFAULT_PARTITION_COUNT);
+    }
+
+    /**
+     * Creates the repository splitting the books into the specified number of the partitions.
+     *
+     * @param partitionCount the number of the partitions
+     */
+    public ExpectedSoonBooksListViewRepository(int partitionCount) {
+        super();
+        checkPartitionCount(partitionCount);
+        this.partitionCount = partitionCount;
+    }
+
+    public int getPartitionCount() {
+        return partitionCount;
+    }
+
     @Override
     public void onRegistered() {
         super.onRegistered();
@@ -40,12 +80,39 @@ public class ExpectedSoonBooksListViewRepository extends ProjectionRepository<Ex
     }
 
     /**
-     * Adds the {@link io.spine.server.route.EventRoute EventRoute}s to the repository.
+     * Obtains the page of the books that are expected in the library.
      *
-     * <p>Override this method in successor classes, otherwise all successors will use
-     * {@code ExpectedSoonBooksListViewProjection.ID}.
+     * @param query the query of the page
+     * @return the books of the page and the query of the next page
+     * @see ExpectedSoonBooksIndex#query(ExpectedSoonBooksQuery, int,
+     *      java.util.function.Function)
+     */
+    public ExpectedSoonBooksQueryResult query(ExpectedSoonBooksQuery query) {
+        final ExpectedSoonBooksQueryResult result =
+                ExpectedSoonBooksIndex.query(query, partitionCount, this::findPartition);
+        return result;
+    }
+
+    /**
+     * Adds the {@link io.spine.server.route.EventRoute EventRoute}s to the repository.
      */
     protected void setUpEventRoute() {
-        getEventRouting().replaceDefault(((message, context) -> singleton(ID)));
+        getEventRouting().route(BookAdded.class, (message, context) ->
+                singleton(partitionOf(message.getBookId(), partitionCount)));
+        getEventRouting().route(InventoryAppended.class, (message, context) ->
+                singleton(partitionOf(message.getInventoryId()
+                                             .getBookId(), partitionCount)));
+        getEventRouting().route(InventoryBatchAppended.class, (message, context) ->
+                singleton(partitionOf(message.getInventoryId()
+                                             .getBookId(), partitionCount)));
+    }
+
+    private Optional<ExpectedSoonBooksListView> findPartition(ExpectedSoonBooksListViewId id) {
+        final Optional<ExpectedSoonBooksListViewProjection> partition = find(id);
+        if (!partition.isPresent()) {
+            return Optional.absent();
+        }
+        return Optional.of(partition.get()
+                                    .getState());
     }
 }
@@ -39,11 +39,9 @@ import javaclasses.exlibris.q.ReservedBookItemStatus;
 import javaclasses.exlibris.q.ReservedBooksListView;
 import javaclasses.exlibris.q.ReservedBooksListViewVBuilder;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.OptionalInt;
-import java.util.stream.IntStream;
 
+import static io.spine.util.Exceptions.newIllegalStateException;
 import static javaclasses.exlibris.EnrichmentHelper.getEnrichment;
 import static javaclasses.exlibris.Timestamps.toLocalDate;
 
@@ -52,6 +50,13 @@ import static javaclasses.exlibris.Timestamps.toLocalDate;
  *
  * <p>Contains the list of reserved books.
  *
+ * <p>The positions of the items are kept in the state by the book, so the item of a book is
+ * found without scanning the list. The order of the items is kept, so removing an item moves
+ * the positions of the items following it.
+ *
+ * <p>{@code BookReadyToPickup} fails if the list has no item of the book, since the view then
+ * missed the reservation. Removing an absent item does nothing.
+ *
  * @author Yurii Haidamaka
  */
 public class ReservedBooksListViewProjection extends Projection<UserId, ReservedBooksListView, ReservedBooksListViewVBuilder> {
@@ -87,71 +92,104 @@ public class ReservedBooksListViewProjection extends Projection<UserId, Reserved
                                                           .setWhenReadyToPickUp(whenExpected)
                                                           .setStatus(status)
                                                           .build();
+        ensurePositions();
+        final int position = getBuilder().getBookItem()
+                                         .size();
         getBuilder().setUserId(event.getForWhomReserved())
                     .addBookItem(bookItem)
-                    .setNumberOfReservedBooks((getBuilder().getBookItem()
-                                                           .size()));
+                    .setNumberOfReservedBooks(position + 1);
+        getBuilder().putPosition(keyOf(bookId), position);
     }
 
     @Subscribe
     public void on(ReservationBecameLoan event) {
-        final List<ReservedBookItem> items = new ArrayList<>(getBuilder().getBookItem());
-        final int index = getIndexByBookId(items, event.getInventoryId()
-                                                       .getBookId());
-        if (index != -1) {
-            getBuilder().removeBookItem(index)
-                        .setNumberOfReservedBooks((getBuilder().getBookItem()
-                                                               .size()));
-        }
+        removeBookItem(event.getInventoryId()
+                            .getBookId());
     }
 
     @Subscribe
     public void on(ReservationCanceled event) {
-        final List<ReservedBookItem> items = new ArrayList<>(getBuilder().getBookItem());
-        final int index = getIndexByBookId(items, event.getInventoryId()
-                                                       .getBookId());
-        if (index != -1) {
-            getBuilder().removeBookItem(index)
-                        .setNumberOfReservedBooks((getBuilder().getBookItem()
-                                                               .size()));
-        }
+        removeBookItem(event.getInventoryId()
+                            .getBookId());
     }
 
     @Subscribe
     public void on(ReservationPickUpPeriodExpired event) {
-        final List<ReservedBookItem> items = new ArrayList<>(getBuilder().getBookItem());
-        final int index = getIndexByBookId(items, event.getInventoryId()
-                                                       .getBookId());
-        if (index != -1) {
-            getBuilder().removeBookItem(index)
-                        .setNumberOfReservedBooks((getBuilder().getBookItem()
-                                                               .size()));
-        }
+        removeBookItem(event.getInventoryId()
+                            .getBookId());
     }
 
     @Subscribe
     public void on(BookReadyToPickup event) {
-        final List<ReservedBookItem> items = new ArrayList<>(getBuilder().getBookItem());
-        final int index = getIndexByBookId(items, event.getInventoryId()
-                                                       .getBookId());
-        if (index != -1) {
-            final ReservedBookItem bookItem = items.get(index);
-            final ReservedBookItem newBookItem = ReservedBookItem.newBuilder(bookItem)
-                                                                 .setStatus(
-                                                                         ReservedBookItemStatus.READY_TO_PICK_UP)
-                                                                 .build();
-            getBuilder().setBookItem(index, newBookItem)
-                        .setNumberOfReservedBooks((getBuilder().getBookItem()
-                                                               .size()));
+        final int index = positionOf(event.getInventoryId()
+                                          .getBookId());
+        final ReservedBookItem bookItem = getBuilder().getBookItem()
+                                                      .get(index);
+        final ReservedBookItem newBookItem = ReservedBookItem.newBuilder(bookItem)
+                                                             .setStatus(
+                                                                     ReservedBookItemStatus.READY_TO_PICK_UP)
+                                                             .build();
+        getBuilder().setBookItem(index, newBookItem);
+    }
+
+    private void removeBookItem(BookId bookId) {
+        final int index = indexOf(bookId);
+        if (index == -1) {
+            return;
+        }
+        getBuilder().removePosition(keyOf(bookId));
+        getBuilder().removeBookItem(index)
+                    .setNumberOfReservedBooks((getBuilder().getBookItem()
+                                                           .size()));
+        putPositions(index);
+    }
+
+    /**
+     * Obtains the position of the item of the book.
+     *
+     * @throws IllegalStateException if the list has no item of the book
+     */
+    private int positionOf(BookId bookId) {
+        final int result = indexOf(bookId);
+        if (result == -1) {
+            throw newIllegalStateException("The list of the reserved books has no book %s.",
+                                           keyOf(bookId));
+        }
+        return result;
+    }
+
+    private int indexOf(BookId bookId) {
+        ensurePositions();
+        final Integer position = getBuilder().getPosition()
+                                             .get(keyOf(bookId));
+        return position == null ? -1 : position;
+    }
+
+    /**
+     * Builds the positions of the state stored before the positions were kept.
+     */
+    private void ensurePositions() {
+        final int itemsCount = getBuilder().getBookItem()
+                                           .size();
+        if (getBuilder().getPosition()
+                        .size() != itemsCount) {
+            putPositions(0);
+        }
+    }
+
+    /**
+     * Puts the positions of the items starting from the specified one.
+     */
+    private void putPositions(int from) {
+        final List<ReservedBookItem> items = getBuilder().getBookItem();
+        for (int i = from; i < items.size(); i++) {
+            getBuilder().putPosition(keyOf(items.get(i)
+                                                .getBookId()), i);
         }
     }
 
-    private int getIndexByBookId(List<ReservedBookItem> items, BookId id) {
-        final OptionalInt index = IntStream.range(0, items.size())
-                                           .filter(i -> items.get(i)
-                                                             .getBookId()
-                                                             .equals(id))
-                                           .findFirst();
-        return index.isPresent() ? index.getAsInt() : -1;
+    private static String keyOf(BookId bookId) {
+        return bookId.getIsbn62()
+                     .getValue();
     }
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris;
+
+import com.google.common.base.Optional;
+import javaclasses.exlibris.c.book.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static javaclasses.exlibris.testdata.BookEventFactory.bookAddedInstance;
+import static javaclasses.exlibris.testdata.BookEventFactory.bookRemovedInstance;
+import static javaclasses.exlibris.testdata.BookEventFactory.bookUpdatedInstance;
+import static javaclasses.exlibris.testdata.TestValues.BOOK_DETAILS;
+import static javaclasses.exlibris.testdata.TestValues.BOOK_ID;
+import static javaclasses.exlibris.testdata.TestValues.DETAILS_CHANGE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("BookEnrichmentCache should")
+class BookEnrichmentCacheTest {
+
+    private static final BookId OTHER_BOOK_ID = BookId.newBuilder()
+                                                       .setIsbn62(Isbn62.newBuilder()
+                                                                        .setValue("other"))
+                                                       .build();
+
+    private BookRepository bookRepo;
+    private BookEnrichmentCache cache;
+
+    @BeforeEach
+    void setUp() {
+        bookRepo = mock(BookRepository.class);
+        when(bookRepo.findState(any(BookId.class))).thenReturn(Optional.absent());
+        cache = new BookEnrichmentCache(bookRepo);
+    }
+
+    @Test
+    @DisplayName("obtain the added book without loading the aggregate")
+    void obtainAddedBook() {
+        cache.on(bookAddedInstance());
+
+        final Book book = cache.get(BOOK_ID);
+
+        assertEquals(BOOK_DETAILS, book.getBookDetails());
+        verify(bookRepo, never()).findState(any(BookId.class));
+    }
+
+    @Test
+    @DisplayName("replace the updated book")
+    void replaceUpdatedBook() {
+        cache.on(bookAddedInstance());
+        cache.on(bookUpdatedInstance());
+
+        assertEquals(DETAILS_CHANGE.getNewBookDetails(), cache.get(BOOK_ID)
+                                                              .getBookDetails());
+    }
+
+    @Test
+    @DisplayName("drop the removed book")
+    void dropRemovedBook() {
+        cache.on(bookAddedInstance());
+        cache.on(bookRemovedInstance());
+
+        assertEquals(0, cache.size());
+        assertEquals(Book.getDefaultInstance(), cache.get(BOOK_ID));
+    }
+
+    @Test
+    @DisplayName("evict the books exceeding the maximum size")
+    void evictBooks() {
+        final BookEnrichmentCache smallCache = new BookEnrichmentCache(bookRepo, 1);
+        smallCache.on(bookAddedInstance());
+        smallCache.get(OTHER_BOOK_ID);
+
+        assertEquals(1, smallCache.size());
+        assertEquals(1, smallCache.getStats()
+                                  .evictionCount());
+    }
+
+    @Test
+    @DisplayName("load an unknown book once")
+    void loadUnknownBookOnce() {
+        cache.get(BOOK_ID);
+        cache.get(BOOK_ID);
+
+        verify(bookRepo, times(1)).findState(BOOK_ID);
+        assertEquals(1, cache.size());
+    }
+}
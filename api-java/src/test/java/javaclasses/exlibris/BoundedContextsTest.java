@@ -21,12 +21,16 @@
 package javaclasses.exlibris;
 
 import io.spine.server.event.EventBus;
+import javaclasses.exlibris.c.deadline.DueDateScheduler;
+import javaclasses.exlibris.c.inventory.InventoryRepository;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import static io.spine.test.Tests.assertHasPrivateParameterlessCtor;
 import static javaclasses.exlibris.BoundedContexts.createBoundedContext;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @DisplayName("BoundedContexts should")
 class BoundedContextsTest {
@@ -43,4 +47,32 @@ class BoundedContextsTest {
         final EventBus.Builder builder = EventBus.newBuilder();
         assertThrows(IllegalStateException.class, () -> createBoundedContext(builder));
     }
+
+    @Test
+    @DisplayName("stop the started scheduler when the context is closed")
+    void stopScheduler() throws Exception {
+        InventoryRepository.setNewInstance();
+        final ExlibrisContext context =
+                BoundedContexts.createContext(SchedulingSettings.getDefault());
+        final DueDateScheduler scheduler = context.getScheduler()
+                                                  .get();
+        assertTrue(scheduler.isStarted());
+
+        context.close();
+
+        assertFalse(scheduler.isStarted());
+    }
+
+    @Test
+    @DisplayName("create the context without a scheduler if it is disabled")
+    void notCreateDisabledScheduler() throws Exception {
+        InventoryRepository.setNewInstance();
+        final SchedulingSettings settings = SchedulingSettings.newBuilder()
+                                                              .setSchedulerEnabled(false)
+                                                              .build();
+        try (ExlibrisContext context = BoundedContexts.createContext(settings)) {
+            assertFalse(context.getScheduler()
+                               .isPresent());
+        }
+    }
 }
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris;
+
+import com.google.common.base.Strings;
+import com.google.protobuf.Any;
+import com.google.protobuf.Message;
+import io.spine.core.Enrichment;
+import io.spine.core.Event;
+import io.spine.core.EventContext;
+import io.spine.core.EventEnvelope;
+import io.spine.core.Versions;
+import io.spine.server.command.TestEventFactory;
+import io.spine.server.event.EventEnricher;
+import io.spine.server.event.EventFactory;
+import io.spine.type.TypeName;
+import javaclasses.exlibris.c.BookEnrichment;
+import javaclasses.exlibris.c.BookSummaryEnrichment;
+import javaclasses.exlibris.c.book.BookRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static io.spine.time.Time.getCurrentTime;
+import static javaclasses.exlibris.testdata.BookEventFactory.bookAddedInstance;
+import static javaclasses.exlibris.testdata.InventoryEventFactory.bookBorrowedInstance;
+import static javaclasses.exlibris.testdata.InventoryEventFactory.bookLostInstance;
+import static javaclasses.exlibris.testdata.InventoryEventFactory.bookReturnedInstance;
+import static javaclasses.exlibris.testdata.InventoryEventFactory.inventoryAppendedInstance;
+import static javaclasses.exlibris.testdata.InventoryEventFactory.loanBecameOverdueInstance;
+import static javaclasses.exlibris.testdata.InventoryEventFactory.loanBecameShouldReturnSoonInstance;
+import static javaclasses.exlibris.testdata.InventoryEventFactory.loanPeriodExtendedInstance;
+import static javaclasses.exlibris.testdata.InventoryEventFactory.reservationAddedInstance;
+import static javaclasses.exlibris.testdata.InventoryEventFactory.reservationBecameLoanInstance;
+import static javaclasses.exlibris.testdata.InventoryEventFactory.reservationCanceledInstance;
+import static javaclasses.exlibris.testdata.TestValues.BOOK_DETAILS;
+import static javaclasses.exlibris.testdata.TestValues.BOOK_ID;
+import static javaclasses.exlibris.testdata.TestValues.LIBRARIAN_ID;
+
+/**
+ * Compares the size of the enriched inventory events with the full {@code Book} enrichment
+ * and with the field-selective enrichments.
+ *
+ * <p>For each event of the mix prints the size of the event enriched as before, when each
+ * event carried the full book, and as now. Also prints the average enrichment time.
+ *
+ * <p>The book has a synopsis of {@link #SYNOPSIS_LENGTH} characters.
+ */
+public final class EnrichmentSizeBenchmark {
+
+    private static final int SYNOPSIS_LENGTH = 2000;
+    private static final int ITERATIONS = 100_000;
+
+    private static final String FULL_KEY = TypeName.from(BookEnrichment.getDescriptor())
+                                                   .value();
+    private static final String SUMMARY_KEY =
+            TypeName.from(BookSummaryEnrichment.getDescriptor())
+                    .value();
+
+    private final EventFactory eventFactory = TestEventFactory.newInstance(getClass());
+    private final EventEnricher enricher;
+    private final Book book;
+
+    private EnrichmentSizeBenchmark() {
+        final BookDetails details = BookDetails.newBuilder(BOOK_DETAILS)
+                                               .setSynopsis(BookSynopsis.newBuilder()
+                                                                        .setValue(Strings.repeat(
+                                                                                "a",
+                                                                                SYNOPSIS_LENGTH)))
+                                               .build();
+        this.book = Book.newBuilder()
+                        .setBookId(BOOK_ID)
+                        .setBookDetails(details)
+                        .build();
+        final ExlibrisEnrichments enrichments =
+                ExlibrisEnrichments.newBuilder()
+                                   .setBookRepository(new BookRepository())
+                                   .build();
+        enrichments.getBookCache()
+                   .on(bookAddedInstance(BOOK_ID, details, LIBRARIAN_ID, getCurrentTime()));
+        this.enricher = enrichments.createEnricher();
+    }
+
+    public static void main(String[] args) {
+        final EnrichmentSizeBenchmark benchmark = new EnrichmentSizeBenchmark();
+        final List<Message> mix = Arrays.asList(bookBorrowedInstance(),
+                                                bookReturnedInstance(),
+                                                reservationAddedInstance(),
+                                                reservationBecameLoanInstance(),
+                                                reservationCanceledInstance(),
+                                                loanBecameOverdueInstance(),
+                                                loanBecameShouldReturnSoonInstance(),
+                                                loanPeriodExtendedInstance(),
+                                                inventoryAppendedInstance(),
+                                                bookLostInstance());
+        long totalBefore = 0;
+        long totalAfter = 0;
+        for (Message eventMessage : mix) {
+            final Event enriched = benchmark.enrich(eventMessage);
+            final int after = enriched.getSerializedSize();
+            final int before = benchmark.withFullBook(enriched)
+                                        .getSerializedSize();
+            totalBefore += before;
+            totalAfter += after;
+            System.out.printf("%-32s before: %6d bytes, after: %6d bytes%n",
+                              eventMessage.getClass()
+                                          .getSimpleName(), before, after);
+        }
+        System.out.printf("%-32s before: %6d bytes, after: %6d bytes%n",
+                          "total", totalBefore, totalAfter);
+        System.out.printf("enrichment: %d ns per event%n", benchmark.enrichmentNanos(mix));
+    }
+
+    private Event enrich(Message eventMessage) {
+        final Event event = eventFactory.createEvent(eventMessage, Versions.zero());
+        return enricher.enrich(EventEnvelope.of(event))
+                       .getOuterObject();
+    }
+
+    /**
+     * Replaces the enrichments of the event with the full book one as it was before
+     * the field-selective enrichments.
+     */
+    private Event withFullBook(Event event) {
+        final BookEnrichment fullBook = BookEnrichment.newBuilder()
+                                                      .setBook(book)
+                                                      .build();
+        final Enrichment.Builder enrichment = event.getContext()
+                                                   .getEnrichment()
+                                                   .toBuilder();
+        enrichment.getContainerBuilder()
+                  .removeItems(SUMMARY_KEY)
+                  .putItems(FULL_KEY, Any.pack(fullBook));
+        final EventContext context = event.getContext()
+                                          .toBuilder()
+                                          .setEnrichment(enrichment)
+                                          .build();
+        return event.toBuilder()
+                    .setContext(context)
+                    .build();
+    }
+
+    private long enrichmentNanos(List<Message> mix) {
+        final List<Event> events = new ArrayList<>(mix.size());
+        for (Message eventMessage : mix) {
+            events.add(eventFactory.createEvent(eventMessage, Versions.zero()));
+        }
+        final long startedAt = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            enricher.enrich(EventEnvelope.of(events.get(i % events.size())));
+        }
+        return (System.nanoTime() - startedAt) / ITERATIONS;
+    }
+}
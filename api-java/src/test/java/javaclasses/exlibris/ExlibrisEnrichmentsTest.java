@@ -43,6 +43,8 @@ import static io.spine.protobuf.AnyPacker.unpack;
 import static io.spine.server.command.TestEventFactory.newInstance;
 import static io.spine.validate.Validate.isDefault;
 import static javaclasses.exlibris.testdata.InventoryEventFactory.bookBorrowedInstance;
+import static javaclasses.exlibris.testdata.TestValues.BOOK_DETAILS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
@@ -59,7 +61,7 @@ class ExlibrisEnrichmentsTest {
     void setUp() {
         final BookRepository bookRepo = mock(BookRepository.class);
         final InventoryRepository inventoryRepo = mock(InventoryRepository.class);
-        when(bookRepo.find(any(BookId.class))).thenReturn(Optional.absent());
+        when(bookRepo.findState(any(BookId.class))).thenReturn(Optional.absent());
         when(inventoryRepo.find(any(InventoryId.class))).thenReturn(Optional.absent());
         enricher = ExlibrisEnrichments.newBuilder()
                                       .setBookRepository(bookRepo)
@@ -83,6 +85,16 @@ class ExlibrisEnrichmentsTest {
         assertTrue(isDefault(bookEnr.getBook()));
     }
 
+    @Test
+    @DisplayName("copy only the book details fields declared in the enrichment value")
+    void selectFields() {
+        final BookSummary summary =
+                ExlibrisEnrichments.selectFields(BOOK_DETAILS, BookSummary.getDefaultInstance());
+
+        assertEquals(BOOK_DETAILS.getTitle(), summary.getTitle());
+        assertEquals(BOOK_DETAILS.getAuthorList(), summary.getAuthorList());
+    }
+
     private static Event event(Message msg) {
         return events.createEvent(msg, Versions.zero());
     }
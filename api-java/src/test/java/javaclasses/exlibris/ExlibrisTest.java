@@ -40,6 +40,7 @@ import javaclasses.exlibris.q.BorrowedBookItem;
 import javaclasses.exlibris.q.BorrowedBookItemStatus;
 import javaclasses.exlibris.q.BorrowedBooksListView;
 import javaclasses.exlibris.q.InventoryItemState;
+import javaclasses.exlibris.q.InventoryItemView;
 import javaclasses.exlibris.q.LostBookView;
 import javaclasses.exlibris.q.ReaderLoanView;
 import javaclasses.exlibris.q.ReservedBookItem;
@@ -48,6 +49,7 @@ import javaclasses.exlibris.q.ReservedBooksListView;
 import javaclasses.exlibris.q.admin.BookDetailsViewProjection;
 import javaclasses.exlibris.q.admin.BookInventoryViewProjection;
 import javaclasses.exlibris.q.admin.BookReservationViewProjection;
+import javaclasses.exlibris.q.admin.InventoryItemViewRepository;
 import javaclasses.exlibris.q.admin.ReaderLoanViewProjection;
 import javaclasses.exlibris.q.user.BookViewProjection;
 import javaclasses.exlibris.q.user.BorrowedBooksListViewProjection;
@@ -57,6 +59,8 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static io.spine.protobuf.TypeConverter.toMessage;
 import static javaclasses.exlibris.testdata.BookCommandFactory.createBookInstance;
 import static javaclasses.exlibris.testdata.InventoryCommandFactory.appendInventoryInstance;
@@ -84,6 +88,7 @@ import static javaclasses.exlibris.testdata.TestValues.USER_EMAIL_2;
 import static javaclasses.exlibris.testdata.TestValues.USER_ID;
 import static javaclasses.exlibris.testdata.TestValues.USER_ID_2;
 import static javaclasses.exlibris.testdata.TestValues.USER_NAME;
+import static javaclasses.exlibris.testdata.TestValues.userDirectory;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -105,7 +110,7 @@ public class ExlibrisTest {
         public void setUp() {
             InventoryRepository.setNewInstance();
 
-            boundedContext = BoundedContexts.create();
+            boundedContext = BoundedContexts.create(userDirectory());
             commandBus = boundedContext.getCommandBus();
 
             final Command addBook = createCommand(createBookInstance());
@@ -167,7 +172,7 @@ public class ExlibrisTest {
         public void setUp() {
             InventoryRepository.setNewInstance();
 
-            boundedContext = BoundedContexts.create();
+            boundedContext = BoundedContexts.create(userDirectory());
             commandBus = boundedContext.getCommandBus();
 
             final Command addBook = createCommand(createBookInstance());
@@ -225,8 +230,7 @@ public class ExlibrisTest {
                                                             .find(INVENTORY_ID)
                                                             .get();
             final BookInventoryView state = projection.getState();
-            assertEquals(0, state.getItemStateList()
-                                 .size());
+            assertEquals(0, state.getItemCount());
         }
 
         @Test
@@ -250,7 +254,7 @@ public class ExlibrisTest {
         public void setUp() {
             InventoryRepository.setNewInstance();
 
-            boundedContext = BoundedContexts.create();
+            boundedContext = BoundedContexts.create(userDirectory());
             commandBus = boundedContext.getCommandBus();
 
             final Command addBook = createCommand(createBookInstance());
@@ -382,7 +386,12 @@ public class ExlibrisTest {
         assertEquals(BOOK_TITLE, state.getTitle());
         assertEquals(AUTHOR, state.getAuthorList()
                                   .get(0));
-        assertEquals(borrowedItemStateToday2, state.getItemState(0));
+        final Optional<Repository> itemRepository = boundedContext.findRepository(
+                InventoryItemView.class);
+        assertTrue(itemRepository.isPresent());
+        final List<InventoryItemState> items =
+                ((InventoryItemViewRepository) itemRepository.get()).findItems(state);
+        assertEquals(borrowedItemStateToday2, items.get(0));
     }
 
     private void testBookViewAfterBorrowing() {
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static javaclasses.exlibris.testdata.TestValues.USER_ID;
+import static javaclasses.exlibris.testdata.TestValues.USER_ID_2;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("InMemoryUserDirectory should")
+class InMemoryUserDirectoryTest {
+
+    @Test
+    @DisplayName("read the profiles from the file")
+    void readFile() throws IOException {
+        final Path file = Files.createTempFile("users", ".csv");
+        final String email = USER_ID.getEmail()
+                                    .getValue();
+        Files.write(file, ImmutableList.of("# email,given name,family name",
+                                           "",
+                                           email + ", Paul, Ageyev"),
+                    StandardCharsets.UTF_8);
+
+        final InMemoryUserDirectory directory = InMemoryUserDirectory.fromFile(file);
+        final Map<UserId, UserProfile> found = directory.findAll(ImmutableSet.of(USER_ID,
+                                                                                 USER_ID_2));
+
+        assertEquals(1, found.size());
+        assertEquals("Paul", found.get(USER_ID)
+                                  .getName()
+                                  .getGivenName());
+        assertEquals("Ageyev", found.get(USER_ID)
+                                    .getName()
+                                    .getFamilyName());
+        assertFalse(found.containsKey(USER_ID_2));
+    }
+
+    @Test
+    @DisplayName("reject a malformed line")
+    void rejectMalformedLine() throws IOException {
+        final Path file = Files.createTempFile("users", ".csv");
+        Files.write(file, ImmutableList.of("someone@example.com"), StandardCharsets.UTF_8);
+
+        assertThrows(IllegalArgumentException.class, () -> InMemoryUserDirectory.fromFile(file));
+    }
+}
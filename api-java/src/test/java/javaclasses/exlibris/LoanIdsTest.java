@@ -0,0 +1,132 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("LoanIds should")
+class LoanIdsTest {
+
+    private static final int THREADS = 8;
+    private static final int ALLOCATIONS_PER_THREAD = 125_000;
+
+    /**
+     * One million allocations within ten seconds correspond to 100k allocations per second.
+     */
+    private static final long MAX_ELAPSED_MILLIS = 10_000;
+
+    @Test
+    @DisplayName("allocate strictly increasing identifiers")
+    void allocateIncreasing() {
+        final LoanIds loanIds = new LoanIds(1);
+        long previous = loanIds.nextValue();
+        for (int i = 0; i < ALLOCATIONS_PER_THREAD; i++) {
+            final long next = loanIds.nextValue();
+            assertTrue(next > previous);
+            previous = next;
+        }
+    }
+
+    @Test
+    @DisplayName("allocate different identifiers on different nodes")
+    void allocateDifferentOnNodes() {
+        final LoanIds first = new LoanIds(1);
+        final LoanIds second = new LoanIds(2);
+        final Set<Long> values = new HashSet<>();
+        for (int i = 0; i < ALLOCATIONS_PER_THREAD; i++) {
+            values.add(first.nextValue());
+            values.add(second.nextValue());
+        }
+        assertEquals(2 * ALLOCATIONS_PER_THREAD, values.size());
+    }
+
+    @Test
+    @DisplayName("not accept the node ID out of range")
+    void rejectNodeIdOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new LoanIds(-1));
+        assertThrows(IllegalArgumentException.class, () -> new LoanIds(LoanIds.MAX_NODE_ID + 1));
+    }
+
+    @Test
+    @DisplayName("allocate unique identifiers concurrently at 100k allocations per second")
+    void allocateUniqueConcurrently() throws Exception {
+        final LoanIds loanIds = new LoanIds(LoanIds.MAX_NODE_ID);
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<long[]>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                final long[] values = new long[ALLOCATIONS_PER_THREAD];
+                for (int j = 0; j < ALLOCATIONS_PER_THREAD; j++) {
+                    values[j] = loanIds.nextValue();
+                }
+                return values;
+            }));
+        }
+
+        final long startedAt = System.currentTimeMillis();
+        start.countDown();
+        final Set<Long> allValues = new HashSet<>();
+        for (Future<long[]> future : futures) {
+            final long[] values = future.get();
+            for (int j = 0; j < values.length; j++) {
+                if (j > 0) {
+                    assertTrue(values[j] > values[j - 1]);
+                }
+                allValues.add(values[j]);
+            }
+        }
+        final long elapsed = System.currentTimeMillis() - startedAt;
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+
+        assertEquals(THREADS * ALLOCATIONS_PER_THREAD, allValues.size());
+        assertTrue(elapsed < MAX_ELAPSED_MILLIS,
+                   "Allocation took " + elapsed + " ms.");
+    }
+
+    @Test
+    @DisplayName("provide the default instance")
+    void provideDefaultInstance() {
+        final LoanId first = LoanIds.getInstance()
+                                    .next();
+        final LoanId second = LoanIds.getInstance()
+                                     .next();
+        assertNotEquals(first, second);
+    }
+}
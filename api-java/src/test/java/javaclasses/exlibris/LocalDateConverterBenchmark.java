@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris;
+
+import com.google.protobuf.Timestamp;
+import io.spine.time.LocalDate;
+import io.spine.time.MonthOfYear;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Compares the {@link LocalDateConverter} with the former {@code Calendar} based conversion
+ * of the timestamps to the local dates.
+ *
+ * <p>The timestamps are taken from a year of events, sorted as they come during
+ * a projection rebuild.
+ *
+ * <p>Run {@link #main(String[])} and compare the nanoseconds per conversion.
+ */
+public final class LocalDateConverterBenchmark {
+
+    private static final int TIMESTAMPS = 1_000_000;
+    private static final long YEAR_SECONDS = 365L * 24 * 60 * 60;
+    private static final long START_SECONDS = 1_514_764_800L; // 2018-01-01T00:00:00Z
+    private static final int ROUNDS = 5;
+
+    private LocalDateConverterBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        final Timestamp[] timestamps = timestamps();
+        final LocalDateConverter converter = LocalDateConverter.of(Timestamps.getLibraryTimeZone());
+        for (int round = 0; round < ROUNDS; round++) {
+            final double calendar = measure(timestamps, LocalDateConverterBenchmark::viaCalendar);
+            final double converted = measure(timestamps, converter::toLocalDate);
+            System.out.printf("Round %d: Calendar %.1f ns, LocalDateConverter %.1f ns%n",
+                              round + 1, calendar, converted);
+        }
+    }
+
+    private static Timestamp[] timestamps() {
+        final Random random = new Random(42);
+        final Timestamp[] result = new Timestamp[TIMESTAMPS];
+        long seconds = START_SECONDS;
+        for (int i = 0; i < TIMESTAMPS; i++) {
+            seconds += random.nextInt((int) (2 * YEAR_SECONDS / TIMESTAMPS));
+            result[i] = Timestamp.newBuilder()
+                                 .setSeconds(seconds)
+                                 .build();
+        }
+        return result;
+    }
+
+    /**
+     * Obtains the average nanoseconds per conversion.
+     */
+    private static double measure(Timestamp[] timestamps,
+                                  Function<Timestamp, LocalDate> conversion) {
+        long daysSum = 0;
+        final long startedAt = System.nanoTime();
+        for (Timestamp timestamp : timestamps) {
+            daysSum += conversion.apply(timestamp)
+                                 .getDay();
+        }
+        final long elapsed = System.nanoTime() - startedAt;
+        if (daysSum == 0) {
+            throw new IllegalStateException("The conversions were not performed.");
+        }
+        return (double) elapsed / timestamps.length;
+    }
+
+    /**
+     * The conversion used before the {@code LocalDateConverter}.
+     */
+    private static LocalDate viaCalendar(Timestamp timestamp) {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.setTime(new Date(timestamp.getSeconds() * 1000));
+        final LocalDate date = LocalDate.newBuilder()
+                                        .setDay(calendar.get(Calendar.DAY_OF_MONTH))
+                                        .setMonth(
+                                                MonthOfYear.valueOf(
+                                                        calendar.get(Calendar.MONTH) + 1))
+                                        .setYear(calendar.get(Calendar.YEAR))
+                                        .build();
+        return date;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris;
+
+import com.google.protobuf.Timestamp;
+import io.spine.time.LocalDate;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+@DisplayName("LocalDateConverter should")
+class LocalDateConverterTest {
+
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+    private static final ZoneId KYIV = ZoneId.of("Europe/Kiev");
+
+    @Test
+    @DisplayName("be shared per time zone")
+    void beSharedPerZone() {
+        assertSame(LocalDateConverter.of(KYIV), LocalDateConverter.of(KYIV));
+    }
+
+    @Test
+    @DisplayName("return the same date within a day")
+    void returnSameDate() {
+        final LocalDateConverter converter = LocalDateConverter.of(KYIV);
+        final ZonedDateTime morning = ZonedDateTime.of(2018, 5, 10, 0, 0, 0, 0, KYIV);
+
+        final LocalDate date = converter.toLocalDate(timestamp(morning.toInstant()));
+        final LocalDate sameDate = converter.toLocalDate(timestamp(morning.plusHours(23)
+                                                                          .plusMinutes(59)
+                                                                          .toInstant()));
+
+        assertSame(date, sameDate);
+        assertEquals(10, date.getDay());
+    }
+
+    @Test
+    @DisplayName("take the daylight saving time transitions into account")
+    void handleDaylightSavingTime() {
+        final LocalDateConverter converter = LocalDateConverter.of(NEW_YORK);
+        // The day of 23 hours.
+        final ZonedDateTime springForward = ZonedDateTime.of(2018, 3, 11, 0, 0, 0, 0, NEW_YORK);
+        // The day of 25 hours.
+        final ZonedDateTime fallBack = ZonedDateTime.of(2018, 11, 4, 0, 0, 0, 0, NEW_YORK);
+
+        assertEquals(11, converter.toLocalDate(timestamp(springForward.plusHours(22)
+                                                                      .toInstant()))
+                                  .getDay());
+        assertEquals(12, converter.toLocalDate(timestamp(springForward.plusHours(23)
+                                                                      .toInstant()))
+                                  .getDay());
+        assertEquals(4, converter.toLocalDate(timestamp(fallBack.plusHours(24)
+                                                                .toInstant()))
+                                 .getDay());
+        assertEquals(5, converter.toLocalDate(timestamp(fallBack.plusHours(25)
+                                                                .toInstant()))
+                                 .getDay());
+    }
+
+    @Test
+    @DisplayName("match java.time for random timestamps")
+    void matchJavaTime() {
+        final LocalDateConverter converter = LocalDateConverter.of(NEW_YORK);
+        final Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            final long seconds = (long) (random.nextDouble() * 4_000_000_000L) - 1_000_000_000L;
+            final Instant instant = Instant.ofEpochSecond(seconds);
+            final java.time.LocalDate expected = instant.atZone(NEW_YORK)
+                                                        .toLocalDate();
+
+            final LocalDate actual = converter.toLocalDate(timestamp(instant));
+
+            assertEquals(expected.getYear(), actual.getYear());
+            assertEquals(expected.getMonthValue(), actual.getMonth()
+                                                         .getNumber());
+            assertEquals(expected.getDayOfMonth(), actual.getDay());
+        }
+    }
+
+    private static Timestamp timestamp(Instant instant) {
+        return Timestamp.newBuilder()
+                        .setSeconds(instant.getEpochSecond())
+                        .setNanos(instant.getNano())
+                        .build();
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import io.spine.client.ActorRequestFactory;
+import io.spine.client.TestActorRequestFactory;
+import io.spine.core.Command;
+import io.spine.grpc.StreamObservers;
+import io.spine.server.BoundedContext;
+import io.spine.server.entity.Repository;
+import io.spine.server.projection.ProjectionRepository;
+import javaclasses.exlibris.c.inventory.InventoryRepository;
+import javaclasses.exlibris.q.BookView;
+import javaclasses.exlibris.q.user.BookViewProjection;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static javaclasses.exlibris.testdata.BookCommandFactory.createBookInstance;
+import static javaclasses.exlibris.testdata.TestValues.BOOK_ID;
+import static javaclasses.exlibris.testdata.TestValues.BOOK_TITLE;
+import static javaclasses.exlibris.testdata.TestValues.userDirectory;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("BoundedContexts.rebuildProjections should")
+class ProjectionCatchUpTest {
+
+    private final ActorRequestFactory requestFactory =
+            TestActorRequestFactory.newInstance(getClass());
+
+    private BoundedContext boundedContext;
+
+    @BeforeEach
+    void setUp() {
+        InventoryRepository.setNewInstance();
+        boundedContext = BoundedContexts.create(userDirectory());
+        final Command addBook = requestFactory.command()
+                                              .create(createBookInstance());
+        boundedContext.getCommandBus()
+                      .post(addBook, StreamObservers.noOpObserver());
+    }
+
+    @Test
+    @DisplayName("dispatch the event history to the projections and report the progress")
+    void dispatchHistory() {
+        final List<ProjectionCatchUp.Progress> reports = new CopyOnWriteArrayList<>();
+
+        final ProjectionCatchUp.Progress result =
+                BoundedContexts.rebuildProjections(boundedContext, userDirectory(),
+                                                   reports::add);
+
+        assertTrue(result.getTotal() > 0);
+        assertEquals(result.getTotal(), result.getDone());
+        assertFalse(reports.isEmpty());
+        assertEquals(result.getDone(), reports.get(reports.size() - 1)
+                                              .getDone());
+        assertEquals(0, result.getEstimatedRemaining()
+                              .get()
+                              .toNanos());
+    }
+
+    @Test
+    @DisplayName("keep the state of the projections built from the same events")
+    void keepState() {
+        BoundedContexts.rebuildProjections(boundedContext, userDirectory(), progress -> {});
+
+        final Optional<Repository> repository = boundedContext.findRepository(BookView.class);
+        assertTrue(repository.isPresent());
+        final BookViewProjection projection = (BookViewProjection) repository.get()
+                                                                             .find(BOOK_ID)
+                                                                             .get();
+        assertEquals(BOOK_TITLE, projection.getState()
+                                           .getTitle());
+    }
+
+    @Test
+    @DisplayName("read the history in chunks of the given size")
+    void readInChunks() {
+        final List<Integer> chunkSizes = new ArrayList<>();
+        final ProjectionCatchUp catchUp =
+                ProjectionCatchUp.newBuilder()
+                                 .setEventStore(boundedContext.getEventBus()
+                                                              .getEventStore())
+                                 .setChunkSize(1)
+                                 .setChunkListener(chunk -> chunkSizes.add(chunk.size()))
+                                 .build();
+        final Optional<Repository> repository = boundedContext.findRepository(BookView.class);
+        assertTrue(repository.isPresent());
+        final ProjectionRepository<?, ?, ?> bookViews =
+                (ProjectionRepository<?, ?, ?>) repository.get();
+
+        final ProjectionCatchUp.Progress result = catchUp.catchUp(ImmutableList.of(bookViews));
+
+        assertFalse(chunkSizes.isEmpty());
+        for (Integer chunkSize : chunkSizes) {
+            assertEquals(1, chunkSize.intValue());
+        }
+        assertTrue(result.getTotal() > 0);
+        assertEquals(result.getTotal(), result.getDone());
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static javaclasses.exlibris.c.procman.LoansExtensionProcmanRepository.NO_COALESCING;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("SchedulingSettings should")
+class SchedulingSettingsTest {
+
+    private static final int BATCH_SIZE = 4;
+    private static final int WINDOW = 60;
+
+    @Test
+    @DisplayName("not coalesce the loans extension changes by default")
+    void notCoalesceByDefault() {
+        final SchedulingSettings settings = SchedulingSettings.getDefault();
+
+        assertTrue(settings.isSchedulerEnabled());
+        assertEquals(NO_COALESCING, settings.getLoansExtensionBatchSize());
+        assertEquals(0, settings.getLoansExtensionWindow());
+    }
+
+    @Test
+    @DisplayName("reject the coalescing batch size without a window")
+    void rejectBatchWithoutWindow() {
+        final SchedulingSettings.Builder builder =
+                SchedulingSettings.newBuilder()
+                                  .setLoansExtensionBatchSize(BATCH_SIZE);
+
+        assertThrows(IllegalStateException.class, builder::build);
+    }
+
+    @Test
+    @DisplayName("accept the coalescing batch size with a window")
+    void acceptBatchWithWindow() {
+        final SchedulingSettings settings = SchedulingSettings.newBuilder()
+                                                              .setLoansExtensionBatchSize(
+                                                                      BATCH_SIZE)
+                                                              .setLoansExtensionWindow(WINDOW)
+                                                              .build();
+
+        assertEquals(BATCH_SIZE, settings.getLoansExtensionBatchSize());
+        assertEquals(WINDOW, settings.getLoansExtensionWindow());
+    }
+
+    @Test
+    @DisplayName("reject a non-positive batch size")
+    void rejectNonPositiveBatch() {
+        assertThrows(IllegalArgumentException.class,
+                     () -> SchedulingSettings.newBuilder()
+                                             .setLoansExtensionBatchSize(0));
+    }
+}
@@ -27,6 +27,7 @@ import org.junit.jupiter.api.Test;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.TimeZone;
 
 import static io.spine.test.Tests.assertHasPrivateParameterlessCtor;
@@ -80,4 +81,23 @@ class TimestampsTest {
                               .getNumber(), 12);
         assertEquals(localDate.getYear(), 1969);
     }
+
+    @Test
+    @DisplayName("create LocalDate in the configured library time zone")
+    void createLocalDateInLibraryTimeZone() {
+        final ZoneId defaultZone = Timestamps.getLibraryTimeZone();
+        try {
+            Timestamps.setLibraryTimeZone(ZoneId.of("Asia/Tokyo"));
+            final LocalDate localDate = toLocalDate(Timestamp.getDefaultInstance());
+            assertEquals(localDate.getDay(), 1);
+            assertEquals(localDate.getYear(), 1970);
+
+            Timestamps.setLibraryTimeZone(ZoneId.of("America/Los_Angeles"));
+            final LocalDate previousDay = toLocalDate(Timestamp.getDefaultInstance());
+            assertEquals(previousDay.getDay(), 31);
+            assertEquals(previousDay.getYear(), 1969);
+        } finally {
+            Timestamps.setLibraryTimeZone(defaultZone);
+        }
+    }
 }
@@ -0,0 +1,361 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris;
+
+import com.google.common.base.Optional;
+import com.google.protobuf.Message;
+import com.google.protobuf.Timestamp;
+import io.spine.client.ActorRequestFactory;
+import io.spine.client.TestActorRequestFactory;
+import io.spine.core.Subscribe;
+import io.spine.grpc.StreamObservers;
+import io.spine.net.EmailAddress;
+import io.spine.server.BoundedContext;
+import io.spine.server.commandbus.CommandBus;
+import io.spine.server.event.EventSubscriber;
+import javaclasses.exlibris.c.LoanBecameOverdue;
+import javaclasses.exlibris.c.LoanBecameShouldReturnSoon;
+import javaclasses.exlibris.c.ReservationPickUpPeriodExpired;
+import javaclasses.exlibris.c.deadline.DueDateScheduler;
+import javaclasses.exlibris.c.inventory.InventoryAggregate;
+import javaclasses.exlibris.c.inventory.InventoryRepository;
+import javaclasses.exlibris.testdata.VirtualClock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static javaclasses.exlibris.testdata.BookCommandFactory.createBookInstance;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.appendInventoryInstance;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.borrowBookInstance;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.cancelReservationInstance;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.reserveBookInstance;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.returnBookInstance;
+import static javaclasses.exlibris.testdata.TestValues.BOOK_DETAILS;
+import static javaclasses.exlibris.testdata.TestValues.LIBRARIAN_ID;
+
+/**
+ * Replays synthetic borrow, reserve and return traffic against the bounded context
+ * on a {@link VirtualClock}.
+ *
+ * <p>Every simulated hour readers perform random actions against random books, then the clock
+ * moves an hour forward and the {@link DueDateScheduler} posts the deadlines which have come.
+ * The report contains the throughput and the state sizes for each simulated day.
+ *
+ * <p>Run {@link #main(String[])} to simulate a year of traffic.
+ */
+public final class TrafficSimulation {
+
+    private static final long SECONDS_PER_HOUR = 60 * 60;
+    private static final int HOURS_PER_DAY = 24;
+
+    /**
+     * 2018-01-01T00:00:00Z.
+     */
+    private static final Timestamp START = Timestamp.newBuilder()
+                                                    .setSeconds(1514764800L)
+                                                    .build();
+
+    private final ActorRequestFactory requestFactory =
+            TestActorRequestFactory.newInstance(getClass());
+    private final Random random = new Random(42);
+
+    private final int booksCount;
+    private final int copiesCount;
+    private final int readersCount;
+    private final int actionsPerHour;
+
+    private final List<InventoryId> inventories = new ArrayList<>();
+    private final List<UserId> readers = new ArrayList<>();
+    private final DeadlineEventsCounter deadlineEvents = new DeadlineEventsCounter();
+
+    private VirtualClock clock;
+    private CommandBus commandBus;
+    private DueDateScheduler scheduler;
+    private long postedCommandsCount;
+    private long postedDeadlinesCount;
+
+    TrafficSimulation(int booksCount, int copiesCount, int readersCount, int actionsPerHour) {
+        this.booksCount = booksCount;
+        this.copiesCount = copiesCount;
+        this.readersCount = readersCount;
+        this.actionsPerHour = actionsPerHour;
+    }
+
+    public static void main(String[] args) {
+        final TrafficSimulation simulation = new TrafficSimulation(200, 3, 2000, 60);
+        final List<DayReport> reports = simulation.run(365);
+        for (DayReport report : reports) {
+            System.out.println(report);
+        }
+        System.out.printf("%d loans became should return soon, %d loans became overdue, " +
+                                  "%d reservations expired%n",
+                          simulation.getShouldReturnSoonLoansCount(),
+                          simulation.getOverdueLoansCount(),
+                          simulation.getExpiredReservationsCount());
+    }
+
+    /**
+     * Runs the simulation.
+     *
+     * @param days the number of days to simulate
+     * @return the report for each of the simulated days
+     */
+    List<DayReport> run(int days) {
+        clock = VirtualClock.startingAt(START);
+        clock.install();
+        try {
+            InventoryRepository.setNewInstance();
+            final SchedulingSettings settings = SchedulingSettings.newBuilder()
+                                                                  .setSchedulerEnabled(false)
+                                                                  .build();
+            final BoundedContext boundedContext = BoundedContexts.createContext(settings)
+                                                                 .getBoundedContext();
+            commandBus = boundedContext.getCommandBus();
+            boundedContext.getEventBus()
+                          .register(deadlineEvents);
+            scheduler = DueDateScheduler.newInstance(boundedContext);
+            setUpLibrary();
+
+            final List<DayReport> reports = new ArrayList<>(days);
+            for (int day = 1; day <= days; day++) {
+                final long startedAt = System.nanoTime();
+                final long commandsBefore = postedCommandsCount;
+                for (int hour = 0; hour < HOURS_PER_DAY; hour++) {
+                    for (int i = 0; i < actionsPerHour; i++) {
+                        act();
+                    }
+                    clock.advance(SECONDS_PER_HOUR);
+                    postedDeadlinesCount += scheduler.postDue();
+                }
+                final long elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000;
+                reports.add(report(day, postedCommandsCount - commandsBefore, elapsedMillis));
+            }
+            return reports;
+        } finally {
+            VirtualClock.uninstall();
+        }
+    }
+
+    private void setUpLibrary() {
+        for (int i = 0; i < readersCount; i++) {
+            final EmailAddress email = EmailAddress.newBuilder()
+                                                   .setValue("reader" + i + "@example.com")
+                                                   .build();
+            readers.add(UserId.newBuilder()
+                              .setEmail(email)
+                              .build());
+        }
+        for (int i = 0; i < booksCount; i++) {
+            final BookId bookId = BookId.newBuilder()
+                                        .setIsbn62(Isbn62.newBuilder()
+                                                         .setValue("book" + i))
+                                        .build();
+            post(createBookInstance(bookId, LIBRARIAN_ID, BOOK_DETAILS));
+            final InventoryId inventoryId = InventoryId.newBuilder()
+                                                       .setBookId(bookId)
+                                                       .build();
+            for (int number = 1; number <= copiesCount; number++) {
+                final InventoryItemId itemId = InventoryItemId.newBuilder()
+                                                              .setBookId(bookId)
+                                                              .setItemNumber(number)
+                                                              .build();
+                post(appendInventoryInstance(inventoryId, itemId, LIBRARIAN_ID));
+            }
+            inventories.add(inventoryId);
+        }
+    }
+
+    /**
+     * Performs a random reader action depending on the state of a random inventory.
+     */
+    private void act() {
+        final InventoryId inventoryId = inventories.get(random.nextInt(inventories.size()));
+        final UserId reader = readers.get(random.nextInt(readers.size()));
+        final Inventory inventory = inventory(inventoryId);
+
+        for (Loan loan : inventory.getLoansList()) {
+            if (loan.getWhoBorrowed()
+                    .equals(reader)) {
+                if (random.nextBoolean()) {
+                    post(returnBookInstance(inventoryId, loan.getInventoryItemId(), reader));
+                }
+                return;
+            }
+        }
+        for (Reservation reservation : inventory.getReservationsList()) {
+            if (reservation.getWhoReserved()
+                           .equals(reader)) {
+                if (reservation.getIsSatisfied()) {
+                    borrow(inventory, reader);
+                } else if (random.nextInt(10) == 0) {
+                    post(cancelReservationInstance(inventoryId, reader));
+                }
+                return;
+            }
+        }
+        final int availableCount = inventory.getInLibraryCount()
+                - inventory.getSatisfiedReservationsCount();
+        if (availableCount > 0) {
+            borrow(inventory, reader);
+        } else {
+            post(reserveBookInstance(reader, inventoryId));
+        }
+    }
+
+    private void borrow(Inventory inventory, UserId reader) {
+        for (InventoryItem item : inventory.getInventoryItemsList()) {
+            if (item.getInLibrary()) {
+                post(borrowBookInstance(inventory.getInventoryId(), item.getInventoryItemId(),
+                                        reader));
+                return;
+            }
+        }
+    }
+
+    private DayReport report(int day, long commandsCount, long elapsedMillis) {
+        int loansCount = 0;
+        int overdueLoansCount = 0;
+        int reservationsCount = 0;
+        for (InventoryId inventoryId : inventories) {
+            final Inventory inventory = inventory(inventoryId);
+            loansCount += inventory.getLoansCount();
+            reservationsCount += inventory.getReservationsCount();
+            for (Loan loan : inventory.getLoansList()) {
+                if (loan.getStatus() == LoanStatus.LOAN_OVERDUE) {
+                    overdueLoansCount++;
+                }
+            }
+        }
+        return new DayReport(day, commandsCount, elapsedMillis, loansCount, overdueLoansCount,
+                             reservationsCount, scheduler.getScheduledCount());
+    }
+
+    long getPostedDeadlinesCount() {
+        return postedDeadlinesCount;
+    }
+
+    /**
+     * Obtains the number of the emitted {@code LoanBecameOverdue} events.
+     */
+    long getOverdueLoansCount() {
+        return deadlineEvents.overdueCount;
+    }
+
+    /**
+     * Obtains the number of the emitted {@code LoanBecameShouldReturnSoon} events.
+     */
+    long getShouldReturnSoonLoansCount() {
+        return deadlineEvents.shouldReturnSoonCount;
+    }
+
+    /**
+     * Obtains the number of the emitted {@code ReservationPickUpPeriodExpired} events.
+     */
+    long getExpiredReservationsCount() {
+        return deadlineEvents.expiredCount;
+    }
+
+    private static Inventory inventory(InventoryId inventoryId) {
+        final Optional<InventoryAggregate> aggregate = InventoryRepository.getRepository()
+                                                                          .find(inventoryId);
+        return aggregate.get()
+                        .getState();
+    }
+
+    private void post(Message commandMessage) {
+        commandBus.post(requestFactory.command()
+                                      .create(commandMessage),
+                        StreamObservers.noOpObserver());
+        postedCommandsCount++;
+    }
+
+    /**
+     * Counts the events emitted for the commands posted by the {@link DueDateScheduler}.
+     */
+    public static final class DeadlineEventsCounter extends EventSubscriber {
+
+        private long overdueCount;
+        private long shouldReturnSoonCount;
+        private long expiredCount;
+
+        @Subscribe
+        public void on(LoanBecameOverdue event) {
+            overdueCount++;
+        }
+
+        @Subscribe
+        public void on(LoanBecameShouldReturnSoon event) {
+            shouldReturnSoonCount++;
+        }
+
+        @Subscribe
+        public void on(ReservationPickUpPeriodExpired event) {
+            expiredCount++;
+        }
+    }
+
+    /**
+     * The throughput and the state sizes after a simulated day.
+     */
+    static final class DayReport {
+
+        private final int day;
+        private final long commandsCount;
+        private final long elapsedMillis;
+        private final int loansCount;
+        private final int overdueLoansCount;
+        private final int reservationsCount;
+        private final int scheduledDeadlinesCount;
+
+        private DayReport(int day, long commandsCount, long elapsedMillis, int loansCount,
+                          int overdueLoansCount, int reservationsCount,
+                          int scheduledDeadlinesCount) {
+            this.day = day;
+            this.commandsCount = commandsCount;
+            this.elapsedMillis = elapsedMillis;
+            this.loansCount = loansCount;
+            this.overdueLoansCount = overdueLoansCount;
+            this.reservationsCount = reservationsCount;
+            this.scheduledDeadlinesCount = scheduledDeadlinesCount;
+        }
+
+        int getLoansCount() {
+            return loansCount;
+        }
+
+        int getOverdueLoansCount() {
+            return overdueLoansCount;
+        }
+
+        @Override
+        public String toString() {
+            final long commandsPerSecond = elapsedMillis == 0
+                                           ? commandsCount
+                                           : commandsCount * 1000 / elapsedMillis;
+            return String.format("day %d: %d commands in %d ms (%d/s), %d loans (%d overdue), " +
+                                         "%d reservations, %d deadlines scheduled",
+                                 day, commandsCount, elapsedMillis, commandsPerSecond,
+                                 loansCount, overdueLoansCount, reservationsCount,
+                                 scheduledDeadlinesCount);
+        }
+    }
+}
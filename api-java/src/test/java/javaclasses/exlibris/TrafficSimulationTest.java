@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris;
+
+import javaclasses.exlibris.TrafficSimulation.DayReport;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("TrafficSimulation should")
+class TrafficSimulationTest {
+
+    @Test
+    @DisplayName("replay the loan period on the virtual clock")
+    void replayLoanPeriod() {
+        final TrafficSimulation simulation = new TrafficSimulation(3, 2, 30, 2);
+
+        final List<DayReport> reports = simulation.run(20);
+
+        assertEquals(20, reports.size());
+        assertTrue(simulation.getPostedDeadlinesCount() > 0);
+        final DayReport lastDay = reports.get(reports.size() - 1);
+        assertTrue(lastDay.getLoansCount() > 0);
+    }
+
+    @Test
+    @DisplayName("emit an event for each of the posted deadlines")
+    void emitDeadlineEvents() {
+        final TrafficSimulation simulation = new TrafficSimulation(3, 2, 100, 1);
+
+        final List<DayReport> reports = simulation.run(30);
+
+        final long overdueCount = simulation.getOverdueLoansCount();
+        final long shouldReturnSoonCount = simulation.getShouldReturnSoonLoansCount();
+        assertTrue(overdueCount > 0);
+        assertTrue(shouldReturnSoonCount >= overdueCount);
+        assertEquals(simulation.getPostedDeadlinesCount(),
+                     shouldReturnSoonCount + overdueCount
+                             + simulation.getExpiredReservationsCount());
+
+        final DayReport lastDay = reports.get(reports.size() - 1);
+        assertTrue(overdueCount >= lastDay.getOverdueLoansCount());
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.Message;
+import io.spine.core.Event;
+import io.spine.core.Versions;
+import io.spine.net.EmailAddress;
+import io.spine.server.command.TestEventFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static javaclasses.exlibris.testdata.InventoryEventFactory.bookBorrowedInstance;
+import static javaclasses.exlibris.testdata.TestValues.DEFAULT_TIMESTAMP1;
+import static javaclasses.exlibris.testdata.TestValues.DEFAULT_TIMESTAMP2;
+import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ID;
+import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ITEM_ID_1;
+import static javaclasses.exlibris.testdata.TestValues.LOAN_ID;
+import static javaclasses.exlibris.testdata.TestValues.USER_ID;
+import static javaclasses.exlibris.testdata.TestValues.USER_ID_2;
+import static javaclasses.exlibris.testdata.TestValues.USER_PROFILE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@DisplayName("UserProfileCache should")
+class UserProfileCacheTest {
+
+    private static final Duration TIME_TO_LIVE = Duration.ofMinutes(1);
+    private static final int BATCH_SIZE = 10;
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker ticker = new Ticker() {
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+    };
+
+    private UserDirectory directory;
+    private UserProfileCache cache;
+
+    @BeforeEach
+    void setUp() {
+        final InMemoryUserDirectory users = new InMemoryUserDirectory();
+        users.put(USER_ID, USER_PROFILE);
+        directory = spy(users);
+        cache = new UserProfileCache(directory, TIME_TO_LIVE, BATCH_SIZE, ticker);
+    }
+
+    @Test
+    @DisplayName("look up the user in the directory once")
+    void lookUpOnce() {
+        assertEquals(USER_PROFILE, cache.get(USER_ID));
+        assertEquals(USER_PROFILE, cache.get(USER_ID));
+
+        verify(directory, times(1)).findAll(anySet());
+    }
+
+    @Test
+    @DisplayName("look up the user again after the time to live")
+    void expireProfile() {
+        cache.get(USER_ID);
+        nanos.addAndGet(TIME_TO_LIVE.plusSeconds(1)
+                                    .toNanos());
+        cache.get(USER_ID);
+
+        verify(directory, times(2)).findAll(anySet());
+    }
+
+    @Test
+    @DisplayName("name the unknown user by the e-mail")
+    void nameUnknownUser() {
+        final UserProfile profile = cache.get(USER_ID_2);
+
+        assertEquals(UserProfileCache.defaultProfile(USER_ID_2), profile);
+        assertEquals("petrVase4kin", profile.getName()
+                                            .getGivenName());
+    }
+
+    @Test
+    @DisplayName("preload the users in batches")
+    void preloadInBatches() {
+        final Set<UserId> users = new HashSet<>();
+        for (int i = 0; i < BATCH_SIZE * 3; i++) {
+            users.add(userId("reader" + i + "@example.com"));
+        }
+
+        cache.preload(users);
+        for (UserId user : users) {
+            cache.get(user);
+        }
+
+        verify(directory, times(3)).findAll(anySet());
+    }
+
+    @Test
+    @DisplayName("not look up the preloaded users again")
+    void skipPreloadedUsers() {
+        cache.preload(ImmutableList.of(USER_ID, USER_ID_2));
+        cache.preload(ImmutableList.of(USER_ID, USER_ID_2));
+
+        verify(directory, times(1)).findAll(anySet());
+    }
+
+    @Test
+    @DisplayName("preload the users named in the events at once")
+    void preloadUsersOfEvents() {
+        final ImmutableList<Event> events = ImmutableList.of(borrowedBy(USER_ID),
+                                                             borrowedBy(USER_ID_2),
+                                                             borrowedBy(USER_ID));
+
+        cache.preloadUsersOf(events);
+        cache.get(USER_ID);
+        cache.get(USER_ID_2);
+
+        verify(directory, times(1)).findAll(anySet());
+    }
+
+    private static Event borrowedBy(UserId user) {
+        final Message message = bookBorrowedInstance(INVENTORY_ID, INVENTORY_ITEM_ID_1, user,
+                                                     LOAN_ID, DEFAULT_TIMESTAMP1,
+                                                     DEFAULT_TIMESTAMP2);
+        return TestEventFactory.newInstance(UserProfileCacheTest.class)
+                               .createEvent(message, Versions.zero());
+    }
+
+    private static UserId userId(String email) {
+        final EmailAddress emailAddress = EmailAddress.newBuilder()
+                                                      .setValue(email)
+                                                      .build();
+        return UserId.newBuilder()
+                     .setEmail(emailAddress)
+                     .build();
+    }
+}
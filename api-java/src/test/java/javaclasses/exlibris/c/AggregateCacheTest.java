@@ -0,0 +1,177 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.c;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.CacheStats;
+import javaclasses.exlibris.Book;
+import javaclasses.exlibris.BookDetails;
+import javaclasses.exlibris.BookId;
+import javaclasses.exlibris.Isbn62;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static javaclasses.exlibris.testdata.TestValues.BOOK_DETAILS;
+import static javaclasses.exlibris.testdata.TestValues.BOOK_ID;
+import static javaclasses.exlibris.testdata.TestValues.DETAILS_CHANGE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("AggregateCache should")
+class AggregateCacheTest {
+
+    private static final long MAXIMUM_WEIGHT = 1024 * 1024;
+
+    @Test
+    @DisplayName("load a state once and count hits and misses")
+    void loadOnce() {
+        final AggregateCache<BookId, Book> cache = AggregateCache.newInstance(MAXIMUM_WEIGHT);
+        final Book book = book(BOOK_DETAILS);
+        final AtomicInteger loadsCount = new AtomicInteger();
+        final Function<BookId, Optional<Book>> loader = id -> {
+            loadsCount.incrementAndGet();
+            return Optional.of(book);
+        };
+
+        cache.find(BOOK_ID, loader);
+        final Optional<Book> found = cache.find(BOOK_ID, loader);
+
+        assertEquals(book, found.get());
+        assertEquals(1, loadsCount.get());
+        final CacheStats stats = cache.getStats();
+        assertEquals(1, stats.hitCount());
+        assertEquals(1, stats.missCount());
+    }
+
+    @Test
+    @DisplayName("not cache a missing aggregate")
+    void notCacheAbsent() {
+        final AggregateCache<BookId, Book> cache = AggregateCache.newInstance(MAXIMUM_WEIGHT);
+
+        final Optional<Book> found = cache.find(BOOK_ID, id -> Optional.absent());
+
+        assertFalse(found.isPresent());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("replace the cached state on update")
+    void replaceOnUpdate() {
+        final AggregateCache<BookId, Book> cache = AggregateCache.newInstance(MAXIMUM_WEIGHT);
+        final Book updated = book(DETAILS_CHANGE.getNewBookDetails());
+        cache.update(BOOK_ID, updated);
+        assertEquals(0, cache.size());
+
+        cache.find(BOOK_ID, id -> Optional.of(book(BOOK_DETAILS)));
+        cache.update(BOOK_ID, updated);
+
+        final Optional<Book> found = cache.find(BOOK_ID, id -> Optional.absent());
+        assertEquals(updated, found.get());
+    }
+
+    @Test
+    @DisplayName("evict states exceeding the maximum weight")
+    void evictByWeight() {
+        final AggregateCache<BookId, Book> cache = AggregateCache.newInstance(1);
+
+        cache.find(BOOK_ID, id -> Optional.of(book(BOOK_DETAILS)));
+
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getStats()
+                             .evictionCount());
+    }
+
+    @Test
+    @DisplayName("evict the least recently used state")
+    void evictLeastRecentlyUsed() {
+        final long bookWeight = book(bookId("A")).getSerializedSize();
+        final AggregateCache<BookId, Book> cache = AggregateCache.newInstance(2 * bookWeight, 1);
+        final Function<BookId, Optional<Book>> loader = id -> Optional.of(book(id));
+        cache.find(bookId("A"), loader);
+        cache.find(bookId("B"), loader);
+        cache.find(bookId("A"), loader);
+
+        cache.find(bookId("C"), loader);
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.find(bookId("A"), id -> Optional.absent())
+                        .isPresent());
+        assertFalse(cache.find(bookId("B"), id -> Optional.absent())
+                         .isPresent());
+    }
+
+    @Test
+    @DisplayName("evict several light states for a heavy one")
+    void evictForHeavyState() {
+        final Book heavyBook = book(BOOK_DETAILS);
+        final long maximumWeight = heavyBook.getSerializedSize();
+        final AggregateCache<BookId, Book> cache = AggregateCache.newInstance(maximumWeight, 1);
+        cache.find(bookId("A"), id -> Optional.of(book(id)));
+        cache.find(bookId("B"), id -> Optional.of(book(id)));
+
+        cache.find(BOOK_ID, id -> Optional.of(heavyBook));
+
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.getStats()
+                             .evictionCount());
+    }
+
+    @Test
+    @DisplayName("not cache a state loaded before an update")
+    void notCacheStaleState() {
+        final AggregateCache<BookId, Book> cache = AggregateCache.newInstance(MAXIMUM_WEIGHT);
+        final Book updated = book(DETAILS_CHANGE.getNewBookDetails());
+
+        cache.find(BOOK_ID, id -> {
+            cache.update(BOOK_ID, updated);
+            return Optional.of(book(BOOK_DETAILS));
+        });
+
+        assertEquals(0, cache.size());
+    }
+
+    private static Book book(BookDetails details) {
+        final Book result = Book.newBuilder()
+                                .setBookId(BOOK_ID)
+                                .setBookDetails(details)
+                                .build();
+        return result;
+    }
+
+    private static Book book(BookId id) {
+        final Book result = Book.newBuilder()
+                                .setBookId(id)
+                                .build();
+        return result;
+    }
+
+    private static BookId bookId(String isbn62) {
+        final BookId result = BookId.newBuilder()
+                                    .setIsbn62(Isbn62.newBuilder()
+                                                     .setValue(isbn62))
+                                    .build();
+        return result;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.c.deadline;
+
+import com.google.protobuf.Message;
+import javaclasses.exlibris.LoanId;
+import javaclasses.exlibris.c.MarkLoanOverdue;
+import javaclasses.exlibris.c.MarkReservationExpired;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ID;
+import static javaclasses.exlibris.testdata.TestValues.USER_ID;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("DeadlineQueue should")
+class DeadlineQueueTest {
+
+    private DeadlineQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        queue = new DeadlineQueue();
+    }
+
+    @Test
+    @DisplayName("obtain the due commands in the order of their deadlines")
+    void pollInOrder() {
+        final Message first = markLoanOverdue(1);
+        final Message second = markLoanOverdue(2);
+        final Message notDue = markLoanOverdue(3);
+        queue.schedule(second, 20);
+        queue.schedule(notDue, 40);
+        queue.schedule(first, 10);
+
+        final List<Message> due = queue.pollDue(30, DueDateScheduler.BATCH_SIZE);
+
+        assertEquals(asList(first, second), due);
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    @DisplayName("limit the number of commands in a batch")
+    void limitBatch() {
+        queue.schedule(markLoanOverdue(1), 10);
+        queue.schedule(markLoanOverdue(2), 10);
+        queue.schedule(markLoanOverdue(3), 10);
+
+        assertEquals(2, queue.pollDue(10, 2)
+                             .size());
+        assertEquals(1, queue.pollDue(10, 2)
+                             .size());
+    }
+
+    @Test
+    @DisplayName("not obtain cancelled commands")
+    void skipCancelled() {
+        final Message command = MarkReservationExpired.newBuilder()
+                                                      .setInventoryId(INVENTORY_ID)
+                                                      .setUserId(USER_ID)
+                                                      .build();
+        queue.schedule(command, 10);
+        queue.cancel(command);
+
+        assertTrue(queue.pollDue(10, DueDateScheduler.BATCH_SIZE)
+                        .isEmpty());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    @DisplayName("replace the deadline of a rescheduled command")
+    void reschedule() {
+        final Message command = markLoanOverdue(1);
+        queue.schedule(command, 10);
+        queue.schedule(command, 50);
+
+        assertTrue(queue.pollDue(30, DueDateScheduler.BATCH_SIZE)
+                        .isEmpty());
+        assertEquals(singletonList(command), queue.pollDue(50, DueDateScheduler.BATCH_SIZE));
+    }
+
+    @Test
+    @DisplayName("keep the deadline of a command scheduled if absent")
+    void scheduleIfAbsent() {
+        final Message command = markLoanOverdue(1);
+
+        assertTrue(queue.scheduleIfAbsent(command, 10));
+        assertFalse(queue.scheduleIfAbsent(command, 50));
+        assertEquals(singletonList(command), queue.pollDue(10, DueDateScheduler.BATCH_SIZE));
+    }
+
+    private static MarkLoanOverdue markLoanOverdue(long loanId) {
+        final MarkLoanOverdue result = MarkLoanOverdue.newBuilder()
+                                                      .setInventoryId(INVENTORY_ID)
+                                                      .setLoanId(LoanId.newBuilder()
+                                                                       .setValue(loanId))
+                                                      .build();
+        return result;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.c.deadline;
+
+import com.google.common.collect.ImmutableList;
+import io.spine.server.commandbus.CommandBus;
+import javaclasses.exlibris.Inventory;
+import javaclasses.exlibris.Loan;
+import javaclasses.exlibris.LoanStatus;
+import javaclasses.exlibris.Reservation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static javaclasses.exlibris.LoanStatus.LOAN_OVERDUE;
+import static javaclasses.exlibris.LoanStatus.LOAN_RECENT;
+import static javaclasses.exlibris.testdata.TestValues.DEFAULT_TIMESTAMP1;
+import static javaclasses.exlibris.testdata.TestValues.DEFAULT_TIMESTAMP2;
+import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ID;
+import static javaclasses.exlibris.testdata.TestValues.LOAN_ID;
+import static javaclasses.exlibris.testdata.TestValues.USER_ID;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("DueDateScheduler should")
+class DueDateSchedulerTest {
+
+    private DueDateScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new DueDateScheduler(mock(CommandBus.class));
+    }
+
+    @Test
+    @DisplayName("schedule the deadlines of the stored loans and satisfied reservations")
+    void rebuildFromInventories() {
+        final Inventory inventory = inventory(loan(LOAN_RECENT));
+
+        scheduler.rebuild(ImmutableList.of(inventory));
+
+        // MarkLoanShouldReturnSoon, MarkLoanOverdue and MarkReservationExpired.
+        assertEquals(3, scheduler.getScheduledCount());
+    }
+
+    @Test
+    @DisplayName("not schedule the deadlines of the overdue loans again")
+    void skipOverdueLoans() {
+        final Inventory inventory = inventory(loan(LOAN_OVERDUE));
+
+        scheduler.rebuild(ImmutableList.of(inventory));
+
+        assertEquals(1, scheduler.getScheduledCount());
+    }
+
+    @Test
+    @DisplayName("replace the scheduled deadlines on rebuild")
+    void replaceDeadlines() {
+        scheduler.rebuild(ImmutableList.of(inventory(loan(LOAN_RECENT))));
+
+        scheduler.rebuild(ImmutableList.of());
+
+        assertEquals(0, scheduler.getScheduledCount());
+    }
+
+    private static Loan loan(LoanStatus status) {
+        final Loan result = Loan.newBuilder()
+                                .setLoanId(LOAN_ID)
+                                .setWhoBorrowed(USER_ID)
+                                .setWhenDue(DEFAULT_TIMESTAMP2)
+                                .setStatus(status)
+                                .build();
+        return result;
+    }
+
+    private static Inventory inventory(Loan loan) {
+        final Reservation reservation = Reservation.newBuilder()
+                                                   .setWhoReserved(USER_ID)
+                                                   .setIsSatisfied(true)
+                                                   .setPickUpDeadline(DEFAULT_TIMESTAMP1)
+                                                   .build();
+        final Inventory result = Inventory.newBuilder()
+                                          .setInventoryId(INVENTORY_ID)
+                                          .addLoans(loan)
+                                          .addReservations(reservation)
+                                          .build();
+        return result;
+    }
+}
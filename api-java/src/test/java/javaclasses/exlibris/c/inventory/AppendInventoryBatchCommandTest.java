@@ -0,0 +1,158 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.c.inventory;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.Message;
+import javaclasses.exlibris.Inventory;
+import javaclasses.exlibris.InventoryItemId;
+import javaclasses.exlibris.c.AppendInventoryBatch;
+import javaclasses.exlibris.c.BookBecameAvailable;
+import javaclasses.exlibris.c.BookReadyToPickup;
+import javaclasses.exlibris.c.InventoryBatchAppended;
+import javaclasses.exlibris.c.ReserveBook;
+import javaclasses.exlibris.c.rejection.CannotAppendInventoryBatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static io.spine.server.aggregate.AggregateMessageDispatcher.dispatchCommand;
+import static java.util.Collections.emptyList;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.appendInventoryBatchInstance;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.reserveBookInstance;
+import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ID;
+import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ITEM_ID_1;
+import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ITEM_ID_2;
+import static javaclasses.exlibris.testdata.TestValues.LIBRARIAN_ID;
+import static javaclasses.exlibris.testdata.TestValues.USER_ID;
+import static javaclasses.exlibris.testdata.TestValues.USER_ID_2;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("AppendInventoryBatch command should be interpreted by InventoryAggregate and")
+public class AppendInventoryBatchCommandTest extends InventoryCommandTest<AppendInventoryBatch> {
+
+    private static final List<InventoryItemId> ITEM_IDS = ImmutableList.of(INVENTORY_ITEM_ID_1,
+                                                                           INVENTORY_ITEM_ID_2);
+
+    @Override
+    @BeforeEach
+    public void setUp() {
+        super.setUp();
+    }
+
+    @Test
+    @DisplayName("produce InventoryBatchAppended and BookBecameAvailable events")
+    void produceEvents() {
+        final AppendInventoryBatch appendInventoryBatch =
+                appendInventoryBatchInstance(INVENTORY_ID, ITEM_IDS, LIBRARIAN_ID);
+
+        final List<? extends Message> messageList =
+                dispatchCommand(aggregate, envelopeOf(appendInventoryBatch));
+
+        assertEquals(2, messageList.size());
+        final InventoryBatchAppended batchAppended = (InventoryBatchAppended) messageList.get(0);
+        assertEquals(ITEM_IDS, batchAppended.getInventoryItemIdsList());
+        assertEquals(LIBRARIAN_ID, batchAppended.getLibrarianId());
+
+        final BookBecameAvailable bookBecameAvailable = (BookBecameAvailable) messageList.get(1);
+        assertEquals(2, bookBecameAvailable.getAvailableBooksCount());
+    }
+
+    @Test
+    @DisplayName("add all inventory items to the state")
+    void appendItems() {
+        final AppendInventoryBatch appendInventoryBatch =
+                appendInventoryBatchInstance(INVENTORY_ID, ITEM_IDS, LIBRARIAN_ID);
+        dispatchCommand(aggregate, envelopeOf(appendInventoryBatch));
+
+        final Inventory inventory = aggregate.getState();
+        assertEquals(2, inventory.getInventoryItemsCount());
+        assertEquals(2, inventory.getInLibraryCount());
+        assertEquals(INVENTORY_ITEM_ID_2, inventory.getInventoryItems(1)
+                                                   .getInventoryItemId());
+    }
+
+    @Test
+    @DisplayName("satisfy the eldest reservations in the same write")
+    void satisfyReservations() {
+        final ReserveBook firstReservation = reserveBookInstance(USER_ID, INVENTORY_ID);
+        final ReserveBook secondReservation = reserveBookInstance(USER_ID_2, INVENTORY_ID);
+        dispatchCommand(aggregate, envelopeOf(firstReservation));
+        dispatchCommand(aggregate, envelopeOf(secondReservation));
+
+        final AppendInventoryBatch appendInventoryBatch =
+                appendInventoryBatchInstance(INVENTORY_ID,
+                                             ImmutableList.of(INVENTORY_ITEM_ID_1),
+                                             LIBRARIAN_ID);
+        final List<? extends Message> messageList =
+                dispatchCommand(aggregate, envelopeOf(appendInventoryBatch));
+
+        assertEquals(2, messageList.size());
+        final BookReadyToPickup bookReadyToPickup = (BookReadyToPickup) messageList.get(1);
+        assertEquals(USER_ID, bookReadyToPickup.getForWhom());
+
+        final Inventory inventory = aggregate.getState();
+        assertEquals(1, inventory.getSatisfiedReservationsCount());
+        assertEquals(1, inventory.getUnsatisfiedReservationsCount());
+        assertEquals(1, inventory.getInLibraryCount());
+    }
+
+    @Test
+    @DisplayName("throw CannotAppendInventoryBatch rejection upon an empty batch")
+    void rejectEmptyBatch() {
+        assertRejected(appendInventoryBatchInstance(INVENTORY_ID, emptyList(), LIBRARIAN_ID));
+    }
+
+    @Test
+    @DisplayName("throw CannotAppendInventoryBatch rejection upon a batch repeating an item")
+    void rejectRepeatedItem() {
+        final List<InventoryItemId> itemIds = ImmutableList.of(INVENTORY_ITEM_ID_1,
+                                                               INVENTORY_ITEM_ID_1);
+
+        assertRejected(appendInventoryBatchInstance(INVENTORY_ID, itemIds, LIBRARIAN_ID));
+    }
+
+    @Test
+    @DisplayName("throw CannotAppendInventoryBatch rejection upon an item already appended")
+    void rejectExistingItem() {
+        dispatchCommand(aggregate, envelopeOf(
+                appendInventoryBatchInstance(INVENTORY_ID, ImmutableList.of(INVENTORY_ITEM_ID_1),
+                                             LIBRARIAN_ID)));
+
+        assertRejected(appendInventoryBatchInstance(INVENTORY_ID, ITEM_IDS, LIBRARIAN_ID));
+        assertEquals(1, aggregate.getState()
+                                 .getInventoryItemsCount());
+    }
+
+    private void assertRejected(AppendInventoryBatch appendInventoryBatch) {
+        final Throwable t = assertThrows(Throwable.class,
+                                         () -> dispatchCommand(aggregate,
+                                                               envelopeOf(appendInventoryBatch)));
+        final Throwable cause = Throwables.getRootCause(t);
+        assertThat(cause, instanceOf(CannotAppendInventoryBatch.class));
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.c.inventory;
+
+import com.google.common.collect.ImmutableList;
+import javaclasses.exlibris.InventoryItem;
+import javaclasses.exlibris.InventoryItemId;
+import javaclasses.exlibris.Loan;
+import javaclasses.exlibris.LoanId;
+import javaclasses.exlibris.Reservation;
+import javaclasses.exlibris.UserId;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+import static javaclasses.exlibris.c.inventory.InventoryIndex.ABSENT;
+import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ITEM_ID_1;
+import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ITEM_ID_2;
+import static javaclasses.exlibris.testdata.TestValues.USER_ID;
+import static javaclasses.exlibris.testdata.TestValues.USER_ID_2;
+import static javaclasses.exlibris.testdata.TestValues.USER_ID_3;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("InventoryIndex should")
+class InventoryIndexTest {
+
+    @Test
+    @DisplayName("index the positions of the inventory lists")
+    void indexPositions() {
+        final List<InventoryItem> items = ImmutableList.of(item(INVENTORY_ITEM_ID_1),
+                                                           item(INVENTORY_ITEM_ID_2));
+        final List<Loan> loans = ImmutableList.of(loan(1, USER_ID), loan(2, USER_ID_2));
+        final List<Reservation> reservations = ImmutableList.of(reservation(USER_ID_3));
+
+        final InventoryIndex index = InventoryIndex.of(items, loans, reservations);
+
+        assertTrue(index.matches(items, loans, reservations));
+        assertEquals(1, index.itemPosition(INVENTORY_ITEM_ID_2));
+        assertEquals(1, index.loanPosition(loanId(2)));
+        assertEquals(0, index.loanPositionOf(USER_ID));
+        assertEquals(0, index.reservationPositionOf(USER_ID_3));
+        assertEquals(ABSENT, index.reservationPositionOf(USER_ID));
+    }
+
+    @Test
+    @DisplayName("shift the positions following the removed one")
+    void shiftPositions() {
+        final Loan firstLoan = loan(1, USER_ID);
+        final List<Loan> loans = ImmutableList.of(firstLoan, loan(2, USER_ID_2),
+                                                  loan(3, USER_ID_3));
+        final InventoryIndex index = InventoryIndex.of(emptyList(), loans, emptyList());
+
+        index.loanRemoved(firstLoan);
+
+        assertFalse(index.containsLoan(firstLoan.getLoanId()));
+        assertFalse(index.hasLoanOf(USER_ID));
+        assertEquals(0, index.loanPosition(loanId(2)));
+        assertEquals(1, index.loanPositionOf(USER_ID_3));
+    }
+
+    @Test
+    @DisplayName("find the first loan allowed for extension after the removal")
+    void findLoanAllowedForExtension() {
+        final Loan firstLoan = allowedLoan(1, USER_ID);
+        final List<Loan> loans = ImmutableList.of(firstLoan, loan(2, USER_ID_2),
+                                                  allowedLoan(3, USER_ID_3));
+        final InventoryIndex index = InventoryIndex.of(emptyList(), loans, emptyList());
+        assertEquals(0, index.firstLoanAllowedForExtension());
+
+        index.loanRemoved(firstLoan);
+        assertEquals(1, index.firstLoanAllowedForExtension());
+
+        final Loan forbidden = Loan.newBuilder(loans.get(2))
+                                   .setIsAllowedExtension(false)
+                                   .build();
+        index.loanUpdated(forbidden, 1);
+        assertEquals(ABSENT, index.firstLoanAllowedForExtension());
+        assertTrue(index.matches(emptyList(), ImmutableList.of(loans.get(1), forbidden),
+                                 emptyList()));
+    }
+
+    @Test
+    @DisplayName("not match the lists of a different size")
+    void notMatchDifferentLists() {
+        final InventoryIndex index = new InventoryIndex();
+        final List<InventoryItem> items = ImmutableList.of(item(INVENTORY_ITEM_ID_1));
+
+        assertFalse(index.matches(items, emptyList(), emptyList()));
+    }
+
+    @Test
+    @DisplayName("not match the lists of the same size with other content")
+    void notMatchOtherContent() {
+        final List<Loan> loans = ImmutableList.of(loan(1, USER_ID), loan(2, USER_ID_2));
+        final InventoryIndex index = InventoryIndex.of(emptyList(), loans, emptyList());
+        final List<Loan> reordered = ImmutableList.of(loan(2, USER_ID_2), loan(1, USER_ID));
+        final List<Loan> replaced = ImmutableList.of(loan(1, USER_ID), loan(3, USER_ID_3));
+
+        assertFalse(index.matches(emptyList(), reordered, emptyList()));
+        assertFalse(index.matches(emptyList(), replaced, emptyList()));
+    }
+
+    @Test
+    @DisplayName("not match the reservation satisfied bypassing the index")
+    void notMatchSatisfiedReservation() {
+        final InventoryIndex index =
+                InventoryIndex.of(emptyList(), emptyList(),
+                                  ImmutableList.of(reservation(USER_ID_3)));
+        final Reservation satisfied = Reservation.newBuilder(reservation(USER_ID_3))
+                                                 .setIsSatisfied(true)
+                                                 .build();
+
+        assertFalse(index.matches(emptyList(), emptyList(), ImmutableList.of(satisfied)));
+    }
+
+    private static InventoryItem item(InventoryItemId itemId) {
+        return InventoryItem.newBuilder()
+                            .setInventoryItemId(itemId)
+                            .setInLibrary(true)
+                            .build();
+    }
+
+    private static Loan loan(long id, UserId borrower) {
+        return Loan.newBuilder()
+                   .setLoanId(loanId(id))
+                   .setWhoBorrowed(borrower)
+                   .build();
+    }
+
+    private static Loan allowedLoan(long id, UserId borrower) {
+        return Loan.newBuilder(loan(id, borrower))
+                   .setIsAllowedExtension(true)
+                   .build();
+    }
+
+    private static LoanId loanId(long id) {
+        return LoanId.newBuilder()
+                     .setValue(id)
+                     .build();
+    }
+
+    private static Reservation reservation(UserId user) {
+        return Reservation.newBuilder()
+                          .setWhoReserved(user)
+                          .build();
+    }
+}
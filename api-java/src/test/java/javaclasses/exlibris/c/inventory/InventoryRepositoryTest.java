@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.c.inventory;
+
+import com.google.protobuf.Message;
+import io.grpc.stub.StreamObserver;
+import io.spine.client.TestActorRequestFactory;
+import io.spine.core.Ack;
+import io.spine.grpc.StreamObservers;
+import io.spine.server.BoundedContext;
+import io.spine.server.aggregate.AggregateStateRecord;
+import io.spine.server.commandbus.CommandBus;
+import javaclasses.exlibris.BoundedContexts;
+import javaclasses.exlibris.Inventory;
+import javaclasses.exlibris.testdata.InventoryRejectionsSubscriber;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static io.spine.protobuf.TypeConverter.toMessage;
+import static javaclasses.exlibris.testdata.BookCommandFactory.createBookInstance;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.appendInventoryInstance;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.borrowBookInstance;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.reserveBookInstance;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.returnBookInstance;
+import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ID;
+import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ITEM_ID_2;
+import static javaclasses.exlibris.testdata.TestValues.USER_ID;
+import static javaclasses.exlibris.testdata.TestValues.USER_ID_2;
+import static javaclasses.exlibris.testdata.TestValues.USER_ID_3;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("InventoryRepository should")
+class InventoryRepositoryTest {
+
+    private static final int SNAPSHOT_TRIGGER = 2;
+
+    private final TestActorRequestFactory requestFactory =
+            TestActorRequestFactory.newInstance(getClass());
+
+    private CommandBus commandBus;
+    private InventoryRejectionsSubscriber rejectionsSubscriber;
+
+    @BeforeEach
+    void setUp() {
+        InventoryRepository.setNewInstance();
+        InventoryRepository.getRepository()
+                           .setSnapshotTrigger(SNAPSHOT_TRIGGER);
+        final BoundedContext boundedContext = BoundedContexts.create();
+        commandBus = boundedContext.getCommandBus();
+        rejectionsSubscriber = new InventoryRejectionsSubscriber();
+        boundedContext.getRejectionBus()
+                      .register(rejectionsSubscriber);
+    }
+
+    @AfterEach
+    void tearDown() {
+        InventoryRepository.setNewInstance();
+    }
+
+    @Test
+    @DisplayName("restore the inventory from a snapshot and handle the following commands")
+    void restoreFromSnapshot() {
+        post(createBookInstance());
+        post(appendInventoryInstance());
+        post(appendInventoryInstance(INVENTORY_ID, INVENTORY_ITEM_ID_2, USER_ID));
+        post(borrowBookInstance());
+        post(borrowBookInstance(INVENTORY_ID, INVENTORY_ITEM_ID_2, USER_ID_2));
+        post(reserveBookInstance(USER_ID_3, INVENTORY_ID));
+        post(returnBookInstance(INVENTORY_ID, INVENTORY_ITEM_ID_2, USER_ID_2));
+
+        final InventoryRepository repository = InventoryRepository.getRepository();
+        final Inventory state = repository.find(INVENTORY_ID)
+                                          .get()
+                                          .getState();
+        assertEquals(2, state.getInventoryItemsCount());
+        assertEquals(1, state.getLoansCount());
+        assertTrue(state.getReservations(0)
+                        .getIsSatisfied());
+        assertEquals(1, state.getSatisfiedReservationsCount());
+        assertFalse(rejectionsSubscriber.wasCalled());
+
+        final AggregateStateRecord record = repository.readStateRecord(INVENTORY_ID)
+                                                      .get();
+        assertTrue(record.hasSnapshot());
+        assertTrue(record.getEventCount() < SNAPSHOT_TRIGGER);
+    }
+
+    private void post(Message commandMessage) {
+        final StreamObserver<Ack> observer = StreamObservers.noOpObserver();
+        commandBus.post(requestFactory.createCommand(toMessage(commandMessage)), observer);
+    }
+}
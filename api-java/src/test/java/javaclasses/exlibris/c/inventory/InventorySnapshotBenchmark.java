@@ -0,0 +1,124 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.c.inventory;
+
+import com.google.protobuf.Message;
+import io.spine.client.TestActorRequestFactory;
+import io.spine.grpc.StreamObservers;
+import io.spine.server.BoundedContext;
+import io.spine.server.commandbus.CommandBus;
+import io.spine.server.storage.StorageFactory;
+import io.spine.server.storage.memory.InMemoryStorageFactory;
+
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.appendInventoryInstance;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.borrowBookInstance;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.returnBookInstance;
+import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ID;
+import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ITEM_ID_1;
+import static javaclasses.exlibris.testdata.TestValues.LIBRARIAN_ID;
+import static javaclasses.exlibris.testdata.TestValues.USER_ID;
+
+/**
+ * Compares loading an {@link InventoryAggregate} with a long loan history from the snapshot
+ * with loading it from all of its events.
+ *
+ * <p>The inventory is borrowed and returned {@link #LOANS} times, which stores about
+ * four thousand events.
+ *
+ * <p>Run {@link #main(String[])} and compare the microseconds per load.
+ */
+public final class InventorySnapshotBenchmark {
+
+    private static final String NAME = "ExlibrisInventorySnapshotBenchmark";
+    private static final int LOANS = 2_000;
+    private static final int LOADS = 200;
+    private static final int ROUNDS = 5;
+    private static final int NO_SNAPSHOTS = Integer.MAX_VALUE;
+
+    private static final TestActorRequestFactory requestFactory =
+            TestActorRequestFactory.newInstance(InventorySnapshotBenchmark.class);
+
+    private InventorySnapshotBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        final InventoryRepository withoutSnapshots = prepare(NO_SNAPSHOTS);
+        final InventoryRepository withSnapshots =
+                prepare(InventoryRepository.DEFAULT_SNAPSHOT_TRIGGER);
+        for (int round = 0; round < ROUNDS; round++) {
+            final double allEvents = measure(withoutSnapshots);
+            final double snapshot = measure(withSnapshots);
+            System.out.printf("Round %d: all events %.1f us, snapshot %.1f us%n",
+                              round + 1, allEvents, snapshot);
+        }
+    }
+
+    /**
+     * Creates a repository with a fresh storage and stores the loan history in it.
+     */
+    private static InventoryRepository prepare(int snapshotTrigger) {
+        InventoryRepository.setNewInstance();
+        final InventoryRepository repository = InventoryRepository.getRepository();
+        repository.setSnapshotTrigger(snapshotTrigger);
+        final String name = NAME + snapshotTrigger;
+        final StorageFactory storageFactory =
+                InMemoryStorageFactory.newInstance(BoundedContext.newName(name), false);
+        final BoundedContext boundedContext = BoundedContext.newBuilder()
+                                                            .setName(name)
+                                                            .setStorageFactorySupplier(
+                                                                    () -> storageFactory)
+                                                            .build();
+        boundedContext.register(repository);
+        final CommandBus commandBus = boundedContext.getCommandBus();
+        post(commandBus, appendInventoryInstance(INVENTORY_ID, INVENTORY_ITEM_ID_1,
+                                                 LIBRARIAN_ID));
+        for (int i = 0; i < LOANS; i++) {
+            post(commandBus, borrowBookInstance(INVENTORY_ID, INVENTORY_ITEM_ID_1, USER_ID));
+            post(commandBus, returnBookInstance(INVENTORY_ID, INVENTORY_ITEM_ID_1, USER_ID));
+        }
+        return repository;
+    }
+
+    /**
+     * Obtains the average microseconds per load.
+     */
+    private static double measure(InventoryRepository repository) {
+        int itemsSum = 0;
+        final long startedAt = System.nanoTime();
+        for (int i = 0; i < LOADS; i++) {
+            itemsSum += repository.find(INVENTORY_ID)
+                                  .get()
+                                  .getState()
+                                  .getInventoryItemsCount();
+        }
+        final long elapsed = System.nanoTime() - startedAt;
+        if (itemsSum != LOADS) {
+            throw new IllegalStateException("The inventory was not restored.");
+        }
+        return elapsed / 1000.0 / LOADS;
+    }
+
+    private static void post(CommandBus commandBus, Message commandMessage) {
+        commandBus.post(requestFactory.command()
+                                      .create(commandMessage),
+                        StreamObservers.noOpObserver());
+    }
+}
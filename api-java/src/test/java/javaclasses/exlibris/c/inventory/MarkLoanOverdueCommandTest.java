@@ -20,6 +20,7 @@
 
 package javaclasses.exlibris.c.inventory;
 
+import com.google.common.base.Throwables;
 import com.google.protobuf.Message;
 import javaclasses.exlibris.Inventory;
 import javaclasses.exlibris.LoanId;
@@ -28,6 +29,7 @@ import javaclasses.exlibris.c.BookBorrowed;
 import javaclasses.exlibris.c.BorrowBook;
 import javaclasses.exlibris.c.LoanBecameOverdue;
 import javaclasses.exlibris.c.MarkLoanOverdue;
+import javaclasses.exlibris.c.rejection.CannotMarkMissingLoan;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -39,8 +41,12 @@ import static javaclasses.exlibris.LoanStatus.LOAN_OVERDUE;
 import static javaclasses.exlibris.testdata.InventoryCommandFactory.appendInventoryInstance;
 import static javaclasses.exlibris.testdata.InventoryCommandFactory.borrowBookInstance;
 import static javaclasses.exlibris.testdata.InventoryCommandFactory.markLoanOverdue;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.returnBookInstance;
 import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ID;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -88,6 +94,21 @@ public class MarkLoanOverdueCommandTest extends InventoryCommandTest<MarkLoanOve
                           .getStatus(), LOAN_OVERDUE);
     }
 
+    @Test
+    @DisplayName("throw CannotMarkMissingLoan rejection if the book is already returned")
+    void notMarkReturnedLoan() {
+        final LoanId loanId = prepareLoan();
+        dispatchCommand(aggregate, envelopeOf(returnBookInstance()));
+
+        final MarkLoanOverdue markLoanOverdue = markLoanOverdue(loanId, INVENTORY_ID);
+
+        final Throwable t = assertThrows(Throwable.class,
+                                         () -> dispatchCommand(aggregate,
+                                                               envelopeOf(markLoanOverdue)));
+        final Throwable cause = Throwables.getRootCause(t);
+        assertThat(cause, instanceOf(CannotMarkMissingLoan.class));
+    }
+
     @SuppressWarnings("Duplicates")
     private LoanId prepareLoan() {
         final AppendInventory appendInventory = appendInventoryInstance();
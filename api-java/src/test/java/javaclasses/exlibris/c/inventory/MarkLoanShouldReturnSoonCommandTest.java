@@ -20,6 +20,7 @@
 
 package javaclasses.exlibris.c.inventory;
 
+import com.google.common.base.Throwables;
 import com.google.protobuf.Message;
 import javaclasses.exlibris.Inventory;
 import javaclasses.exlibris.LoanId;
@@ -28,6 +29,7 @@ import javaclasses.exlibris.c.BookBorrowed;
 import javaclasses.exlibris.c.BorrowBook;
 import javaclasses.exlibris.c.LoanBecameShouldReturnSoon;
 import javaclasses.exlibris.c.MarkLoanShouldReturnSoon;
+import javaclasses.exlibris.c.rejection.CannotMarkMissingLoan;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -39,8 +41,12 @@ import static javaclasses.exlibris.LoanStatus.LOAN_SOULD_RETURN_SOON;
 import static javaclasses.exlibris.testdata.InventoryCommandFactory.appendInventoryInstance;
 import static javaclasses.exlibris.testdata.InventoryCommandFactory.borrowBookInstance;
 import static javaclasses.exlibris.testdata.InventoryCommandFactory.markLoanShouldReturnSoon;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.returnBookInstance;
 import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ID;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -89,6 +95,22 @@ public class MarkLoanShouldReturnSoonCommandTest extends InventoryCommandTest<Ma
                           .getStatus(), LOAN_SOULD_RETURN_SOON);
     }
 
+    @Test
+    @DisplayName("throw CannotMarkMissingLoan rejection if the book is already returned")
+    void notMarkReturnedLoan() {
+        final LoanId loanId = prepareLoan();
+        dispatchCommand(aggregate, envelopeOf(returnBookInstance()));
+
+        final MarkLoanShouldReturnSoon shouldReturnSoon = markLoanShouldReturnSoon(loanId,
+                                                                                   INVENTORY_ID);
+
+        final Throwable t = assertThrows(Throwable.class,
+                                         () -> dispatchCommand(aggregate,
+                                                               envelopeOf(shouldReturnSoon)));
+        final Throwable cause = Throwables.getRootCause(t);
+        assertThat(cause, instanceOf(CannotMarkMissingLoan.class));
+    }
+
     @SuppressWarnings("Duplicates")
     private LoanId prepareLoan() {
         final AppendInventory appendInventory = appendInventoryInstance();
@@ -20,11 +20,13 @@
 
 package javaclasses.exlibris.c.inventory;
 
+import com.google.common.base.Throwables;
 import com.google.protobuf.Message;
 import javaclasses.exlibris.Inventory;
 import javaclasses.exlibris.c.MarkReservationExpired;
 import javaclasses.exlibris.c.ReservationPickUpPeriodExpired;
 import javaclasses.exlibris.c.ReserveBook;
+import javaclasses.exlibris.c.rejection.CannotExpireMissingReservation;
 import javaclasses.exlibris.testdata.InventoryCommandFactory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -33,7 +35,10 @@ import org.junit.jupiter.api.Test;
 import java.util.List;
 
 import static io.spine.server.aggregate.AggregateMessageDispatcher.dispatchCommand;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
  * @author Paul Ageyev
@@ -74,6 +79,19 @@ public class MarkReservationExpiredCommandTest extends InventoryCommandTest<Mark
         assertEquals(0, reservationsCount);
     }
 
+    @Test
+    @DisplayName("throw CannotExpireMissingReservation rejection if there is no reservation")
+    void notExpireMissingReservation() {
+        final MarkReservationExpired reservationExpired =
+                InventoryCommandFactory.markReservationExpiredInstance();
+
+        final Throwable t = assertThrows(Throwable.class,
+                                         () -> dispatchCommand(aggregate,
+                                                               envelopeOf(reservationExpired)));
+        final Throwable cause = Throwables.getRootCause(t);
+        assertThat(cause, instanceOf(CannotExpireMissingReservation.class));
+    }
+
     void dispatchReserveBook() {
         final ReserveBook reserveBook = InventoryCommandFactory.reserveBookInstance();
         dispatchCommand(aggregate, envelopeOf(reserveBook));
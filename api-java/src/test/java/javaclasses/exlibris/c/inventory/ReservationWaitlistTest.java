@@ -0,0 +1,88 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.c.inventory;
+
+import com.google.common.collect.ImmutableList;
+import javaclasses.exlibris.Reservation;
+import javaclasses.exlibris.UserId;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static javaclasses.exlibris.testdata.TestValues.USER_ID;
+import static javaclasses.exlibris.testdata.TestValues.USER_ID_2;
+import static javaclasses.exlibris.testdata.TestValues.USER_ID_3;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("ReservationWaitlist should")
+class ReservationWaitlistTest {
+
+    @Test
+    @DisplayName("return the eldest pending reservation as the next to satisfy")
+    void returnEldestPending() {
+        final ReservationWaitlist waitlist =
+                ReservationWaitlist.of(ImmutableList.of(reservation(USER_ID, true),
+                                                        reservation(USER_ID_2, false),
+                                                        reservation(USER_ID_3, false)));
+
+        assertEquals(USER_ID_2, waitlist.next(1)
+                                        .get(0)
+                                        .getWhoReserved());
+    }
+
+    @Test
+    @DisplayName("keep the order when the reservations are satisfied and removed")
+    void keepOrder() {
+        final ReservationWaitlist waitlist =
+                ReservationWaitlist.of(ImmutableList.of(reservation(USER_ID, false),
+                                                        reservation(USER_ID_2, false),
+                                                        reservation(USER_ID_3, false)));
+        waitlist.satisfy(USER_ID);
+        waitlist.remove(USER_ID_2);
+
+        assertEquals(USER_ID_3, waitlist.next(1)
+                                        .get(0)
+                                        .getWhoReserved());
+        assertTrue(waitlist.contains(USER_ID));
+        assertFalse(waitlist.isPending(USER_ID));
+        assertFalse(waitlist.contains(USER_ID_2));
+        assertTrue(waitlist.isPending(USER_ID_3));
+    }
+
+    @Test
+    @DisplayName("have no reservation to satisfy when all of them are satisfied")
+    void haveNoNextReservation() {
+        final ReservationWaitlist waitlist =
+                ReservationWaitlist.of(ImmutableList.of(reservation(USER_ID, false)));
+        waitlist.satisfy(USER_ID);
+
+        assertTrue(waitlist.next(1)
+                           .isEmpty());
+    }
+
+    private static Reservation reservation(UserId user, boolean isSatisfied) {
+        return Reservation.newBuilder()
+                          .setWhoReserved(user)
+                          .setIsSatisfied(isSatisfied)
+                          .build();
+    }
+}
@@ -132,6 +132,29 @@ public class ReserveBookCommandTest extends InventoryCommandTest<ReserveBook> {
                                                         .getSeconds());
     }
 
+    @Test
+    @DisplayName("update the reservations and forbidden for extension loans counters")
+    void updateCounters() {
+        final AppendInventory appendInventory = appendInventoryInstance();
+        dispatchCommand(aggregate, envelopeOf(appendInventory));
+
+        final BorrowBook borrowBook = borrowBookInstance();
+        dispatchCommand(aggregate, envelopeOf(borrowBook));
+
+        final ReserveBook reserveBook = reserveBookInstance(USER_ID_2, INVENTORY_ID);
+        dispatchCommand(aggregate, envelopeOf(reserveBook));
+
+        final ForbidLoansExtension forbidLoansExtension =
+                forbidLoansExtensionInstance(INVENTORY_ID, Collections.singletonList(USER_ID));
+        dispatchCommand(aggregate, envelopeOf(forbidLoansExtension));
+
+        final Inventory inventory = aggregate.getState();
+        assertEquals(0, inventory.getInLibraryCount());
+        assertEquals(0, inventory.getSatisfiedReservationsCount());
+        assertEquals(1, inventory.getUnsatisfiedReservationsCount());
+        assertEquals(1, inventory.getExtensionForbiddenLoansCount());
+    }
+
     @Test
     @DisplayName("throw BookAlreadyReserved rejection upon " +
             "an attempt reserve the book that is already reserved")
@@ -98,6 +98,7 @@ public class ReturnBookCommandTest extends InventoryCommandTest<AppendInventory>
         assertTrue(returnedItem.getInLibrary());
         assertFalse(returnedItem.getLost());
         assertFalse(returnedItem.getBorrowed());
+        assertEquals(1, updatedInventory.getInLibraryCount());
     }
 
     @Test
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.c.inventory;
+
+import com.google.protobuf.Message;
+import javaclasses.exlibris.Inventory;
+import javaclasses.exlibris.InventoryItemId;
+import javaclasses.exlibris.UserId;
+import javaclasses.exlibris.c.AppendInventory;
+import javaclasses.exlibris.c.BookReturnResult;
+import javaclasses.exlibris.c.BookReturned;
+import javaclasses.exlibris.c.BorrowBook;
+import javaclasses.exlibris.c.InventoryBooksReturned;
+import javaclasses.exlibris.c.ReturnInventoryBooks;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static io.spine.server.aggregate.AggregateMessageDispatcher.dispatchCommand;
+import static javaclasses.exlibris.c.BookReturnResult.OutcomeCase.LOAN_ID;
+import static javaclasses.exlibris.c.BookReturnResult.OutcomeCase.MISSING_BOOK;
+import static javaclasses.exlibris.c.BookReturnResult.OutcomeCase.NON_BORROWED_BOOK;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.appendInventoryInstance;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.borrowBookInstance;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.returnInventoryBooksInstance;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.returnedItemInstance;
+import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ID;
+import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ITEM_ID_1;
+import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ITEM_ID_2;
+import static javaclasses.exlibris.testdata.TestValues.USER_ID;
+import static javaclasses.exlibris.testdata.TestValues.USER_ID_2;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DisplayName("ReturnInventoryBooks command should be interpreted by InventoryAggregate and")
+public class ReturnInventoryBooksCommandTest extends InventoryCommandTest<ReturnInventoryBooks> {
+
+    @Override
+    @BeforeEach
+    public void setUp() {
+        super.setUp();
+    }
+
+    @Test
+    @DisplayName("return all the borrowed books in a single command")
+    void returnBooks() {
+        appendInventory();
+        borrowBook(INVENTORY_ITEM_ID_1, USER_ID);
+        appendSecondItem();
+        borrowBook(INVENTORY_ITEM_ID_2, USER_ID_2);
+
+        final ReturnInventoryBooks returnBooks =
+                returnInventoryBooksInstance(INVENTORY_ID,
+                                             returnedItemInstance(INVENTORY_ITEM_ID_1, USER_ID),
+                                             returnedItemInstance(INVENTORY_ITEM_ID_2, USER_ID_2));
+        final List<? extends Message> messageList = dispatchCommand(aggregate,
+                                                                    envelopeOf(returnBooks));
+
+        assertEquals(3, messageList.size());
+        assertEquals(BookReturned.class, messageList.get(0)
+                                                    .getClass());
+        assertEquals(BookReturned.class, messageList.get(1)
+                                                    .getClass());
+
+        final Inventory inventory = aggregate.getState();
+        assertEquals(0, inventory.getLoansCount());
+        assertEquals(2, inventory.getInLibraryCount());
+    }
+
+    @Test
+    @DisplayName("report the items that cannot be returned individually")
+    void reportRejections() {
+        appendInventory();
+        borrowBook(INVENTORY_ITEM_ID_1, USER_ID);
+
+        final ReturnInventoryBooks returnBooks =
+                returnInventoryBooksInstance(INVENTORY_ID,
+                                             returnedItemInstance(INVENTORY_ITEM_ID_2, USER_ID),
+                                             returnedItemInstance(INVENTORY_ITEM_ID_1, USER_ID_2),
+                                             returnedItemInstance(INVENTORY_ITEM_ID_1, USER_ID),
+                                             returnedItemInstance(INVENTORY_ITEM_ID_1, USER_ID));
+        final List<? extends Message> messageList = dispatchCommand(aggregate,
+                                                                    envelopeOf(returnBooks));
+
+        assertEquals(2, messageList.size());
+        final InventoryBooksReturned booksReturned = (InventoryBooksReturned) messageList.get(1);
+        final List<BookReturnResult> results = booksReturned.getResultsList();
+        assertEquals(4, results.size());
+        assertEquals(MISSING_BOOK, results.get(0)
+                                          .getOutcomeCase());
+        assertEquals(NON_BORROWED_BOOK, results.get(1)
+                                               .getOutcomeCase());
+        assertEquals(LOAN_ID, results.get(2)
+                                     .getOutcomeCase());
+        assertEquals(NON_BORROWED_BOOK, results.get(3)
+                                               .getOutcomeCase());
+        assertEquals(0, aggregate.getState()
+                                 .getLoansCount());
+    }
+
+    private void appendInventory() {
+        final AppendInventory appendInventory = appendInventoryInstance();
+        dispatchCommand(aggregate, envelopeOf(appendInventory));
+    }
+
+    private void appendSecondItem() {
+        final AppendInventory appendInventory = appendInventoryInstance(INVENTORY_ID,
+                                                                        INVENTORY_ITEM_ID_2,
+                                                                        USER_ID);
+        dispatchCommand(aggregate, envelopeOf(appendInventory));
+    }
+
+    private void borrowBook(InventoryItemId inventoryItemId, UserId userId) {
+        final BorrowBook borrowBook = borrowBookInstance(INVENTORY_ID, inventoryItemId, userId);
+        dispatchCommand(aggregate, envelopeOf(borrowBook));
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.c.procman;
+
+import com.google.protobuf.Message;
+import io.spine.client.TestActorRequestFactory;
+import io.spine.core.Subscribe;
+import io.spine.grpc.StreamObservers;
+import io.spine.net.EmailAddress;
+import io.spine.server.BoundedContext;
+import io.spine.server.commandbus.CommandBus;
+import io.spine.server.event.EventSubscriber;
+import io.spine.server.storage.StorageFactory;
+import io.spine.server.storage.memory.InMemoryStorageFactory;
+import javaclasses.exlibris.Inventory;
+import javaclasses.exlibris.InventoryItemId;
+import javaclasses.exlibris.UserId;
+import javaclasses.exlibris.c.LoansExtensionForbidden;
+import javaclasses.exlibris.c.deadline.DueDateScheduler;
+import javaclasses.exlibris.c.inventory.InventoryRepository;
+import javaclasses.exlibris.testdata.VirtualClock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.appendInventoryInstance;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.borrowBookInstance;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.reserveBookInstance;
+import static javaclasses.exlibris.testdata.TestValues.DEFAULT_TIMESTAMP1;
+import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ID;
+import static javaclasses.exlibris.testdata.TestValues.LIBRARIAN_ID;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DisplayName("LoansExtensionProcman with coalescing should")
+class LoansExtensionCoalescingTest {
+
+    private static final String NAME = "ExlibrisLoansExtensionCoalescingTestBoundedContext";
+    private static final int BATCH_SIZE = 4;
+    private static final int WINDOW = 60;
+    private static final int LOANS_COUNT = 6;
+
+    private final TestActorRequestFactory requestFactory =
+            TestActorRequestFactory.newInstance(getClass());
+    private final ForbiddenCounter forbiddenCounter = new ForbiddenCounter();
+
+    private VirtualClock clock;
+    private CommandBus commandBus;
+    private DueDateScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        clock = VirtualClock.startingAt(DEFAULT_TIMESTAMP1);
+        clock.install();
+        InventoryRepository.setNewInstance();
+        final StorageFactory storageFactory =
+                InMemoryStorageFactory.newInstance(BoundedContext.newName(NAME), false);
+        final BoundedContext boundedContext = BoundedContext.newBuilder()
+                                                            .setName(NAME)
+                                                            .setStorageFactorySupplier(
+                                                                    () -> storageFactory)
+                                                            .build();
+        boundedContext.register(InventoryRepository.getRepository());
+        boundedContext.register(new ReservationQueueProcmanRepository());
+        boundedContext.register(new LoansExtensionProcmanRepository(BATCH_SIZE));
+        boundedContext.getEventBus()
+                      .register(forbiddenCounter);
+        scheduler = DueDateScheduler.newInstance(boundedContext);
+        scheduler.setLoansExtensionWindow(WINDOW);
+        commandBus = boundedContext.getCommandBus();
+    }
+
+    @AfterEach
+    void tearDown() {
+        VirtualClock.uninstall();
+    }
+
+    @Test
+    @DisplayName("route a single command per batch of reservations and the rest after the window")
+    void coalesceReservations() {
+        for (int number = 1; number <= LOANS_COUNT; number++) {
+            final InventoryItemId itemId = InventoryItemId.newBuilder()
+                                                          .setBookId(INVENTORY_ID.getBookId())
+                                                          .setItemNumber(number)
+                                                          .build();
+            post(appendInventoryInstance(INVENTORY_ID, itemId, LIBRARIAN_ID));
+            post(borrowBookInstance(INVENTORY_ID, itemId, reader(number)));
+        }
+        for (int number = 1; number <= LOANS_COUNT; number++) {
+            post(reserveBookInstance(reader(LOANS_COUNT + number), INVENTORY_ID));
+        }
+
+        assertEquals(1, forbiddenCounter.count);
+        assertEquals(BATCH_SIZE, inventory().getExtensionForbiddenLoansCount());
+
+        clock.advance(WINDOW);
+        scheduler.postDue();
+
+        assertEquals(2, forbiddenCounter.count);
+        assertEquals(LOANS_COUNT, inventory().getExtensionForbiddenLoansCount());
+    }
+
+    private static Inventory inventory() {
+        return InventoryRepository.getRepository()
+                                  .find(INVENTORY_ID)
+                                  .get()
+                                  .getState();
+    }
+
+    private static UserId reader(int number) {
+        final EmailAddress email = EmailAddress.newBuilder()
+                                               .setValue("reader" + number + "@example.com")
+                                               .build();
+        return UserId.newBuilder()
+                     .setEmail(email)
+                     .build();
+    }
+
+    private void post(Message commandMessage) {
+        commandBus.post(requestFactory.command()
+                                      .create(commandMessage),
+                        StreamObservers.noOpObserver());
+    }
+
+    /**
+     * Counts the {@code LoansExtensionForbidden} events.
+     */
+    private static class ForbiddenCounter extends EventSubscriber {
+
+        private int count;
+
+        @Subscribe
+        public void on(LoansExtensionForbidden event) {
+            count++;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.c.procman;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import com.google.protobuf.Message;
+import io.spine.client.TestActorRequestFactory;
+import io.spine.grpc.StreamObservers;
+import io.spine.net.EmailAddress;
+import io.spine.server.BoundedContext;
+import io.spine.server.commandbus.CommandBus;
+import io.spine.server.storage.StorageFactory;
+import io.spine.server.storage.memory.InMemoryStorageFactory;
+import javaclasses.exlibris.ExtensionLoan;
+import javaclasses.exlibris.Inventory;
+import javaclasses.exlibris.InventoryItem;
+import javaclasses.exlibris.InventoryItemId;
+import javaclasses.exlibris.Loan;
+import javaclasses.exlibris.LoansExtension;
+import javaclasses.exlibris.Reservation;
+import javaclasses.exlibris.UserId;
+import javaclasses.exlibris.c.AllowLoansExtension;
+import javaclasses.exlibris.c.ForbidLoansExtension;
+import javaclasses.exlibris.c.inventory.InventoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.appendInventoryInstance;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.borrowBookInstance;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.cancelReservationInstance;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.reserveBookInstance;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.returnBookInstance;
+import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ID;
+import static javaclasses.exlibris.testdata.TestValues.LIBRARIAN_ID;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("LoansExtensionProcman state should")
+class LoansExtensionProcmanStateTest {
+
+    private static final String NAME = "ExlibrisLoansExtensionTestBoundedContext";
+    private static final int COPIES_COUNT = 3;
+    private static final int READERS_COUNT = 8;
+    private static final int STEPS_COUNT = 400;
+
+    private final TestActorRequestFactory requestFactory =
+            TestActorRequestFactory.newInstance(getClass());
+    private final Random random = new Random(7);
+
+    private LoansExtensionProcmanRepository repository;
+    private CommandBus commandBus;
+
+    @BeforeEach
+    void setUp() {
+        InventoryRepository.setNewInstance();
+        final StorageFactory storageFactory =
+                InMemoryStorageFactory.newInstance(BoundedContext.newName(NAME), false);
+        final BoundedContext boundedContext = BoundedContext.newBuilder()
+                                                            .setName(NAME)
+                                                            .setStorageFactorySupplier(
+                                                                    () -> storageFactory)
+                                                            .build();
+        repository = new LoansExtensionProcmanRepository();
+        boundedContext.register(InventoryRepository.getRepository());
+        boundedContext.register(new ReservationQueueProcmanRepository());
+        boundedContext.register(repository);
+        commandBus = boundedContext.getCommandBus();
+    }
+
+    @Test
+    @DisplayName("lead to the same decisions as the inventory aggregate state")
+    void matchInventoryDecisions() {
+        for (int number = 1; number <= COPIES_COUNT; number++) {
+            final InventoryItemId itemId = InventoryItemId.newBuilder()
+                                                          .setBookId(INVENTORY_ID.getBookId())
+                                                          .setItemNumber(number)
+                                                          .build();
+            post(appendInventoryInstance(INVENTORY_ID, itemId, LIBRARIAN_ID));
+        }
+
+        int forbiddenLoansStepsCount = 0;
+        for (int step = 0; step < STEPS_COUNT; step++) {
+            act(reader(random.nextInt(READERS_COUNT)));
+
+            final Inventory inventory = inventory();
+            final LoansExtension state = procmanState();
+            assertEquals(extensionLoansOf(inventory), state.getLoansList());
+            assertEquals(inventory.getUnsatisfiedReservationsCount(),
+                         state.getUnsatisfiedReservationsCount());
+            assertEquals(inventory.getExtensionForbiddenLoansCount(),
+                         state.getForbiddenLoansCount());
+            assertEquals(inventoryDecision(inventory),
+                         LoansExtensionProcman.balanceCommand(INVENTORY_ID,
+                                                              state.getLoansList(),
+                                                              state.getForbiddenLoansCount(),
+                                                              state.getUnsatisfiedReservationsCount()));
+            if (inventory.getExtensionForbiddenLoansCount() > 0) {
+                forbiddenLoansStepsCount++;
+            }
+        }
+        assertTrue(forbiddenLoansStepsCount > 0);
+    }
+
+    private void act(UserId reader) {
+        final Inventory inventory = inventory();
+        for (Loan loan : inventory.getLoansList()) {
+            if (loan.getWhoBorrowed()
+                    .equals(reader)) {
+                post(returnBookInstance(INVENTORY_ID, loan.getInventoryItemId(), reader));
+                return;
+            }
+        }
+        for (Reservation reservation : inventory.getReservationsList()) {
+            if (reservation.getWhoReserved()
+                           .equals(reader)) {
+                if (reservation.getIsSatisfied()) {
+                    borrow(inventory, reader);
+                } else if (random.nextInt(3) == 0) {
+                    post(cancelReservationInstance(INVENTORY_ID, reader));
+                }
+                return;
+            }
+        }
+        if (inventory.getInLibraryCount() > inventory.getSatisfiedReservationsCount()) {
+            borrow(inventory, reader);
+        } else {
+            post(reserveBookInstance(reader, INVENTORY_ID));
+        }
+    }
+
+    private void borrow(Inventory inventory, UserId reader) {
+        for (InventoryItem item : inventory.getInventoryItemsList()) {
+            if (item.getInLibrary()) {
+                post(borrowBookInstance(INVENTORY_ID, item.getInventoryItemId(), reader));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Decides on the loans extension the way the process manager did when it read
+     * the {@code InventoryAggregate} state.
+     */
+    private static Optional<Message> inventoryDecision(Inventory inventory) {
+        final List<Loan> loans = inventory.getLoansList();
+        final int queueDifference = inventory.getUnsatisfiedReservationsCount()
+                - inventory.getExtensionForbiddenLoansCount();
+        if (queueDifference > 0) {
+            final List<UserId> borrowers = loans.stream()
+                                                .filter(Loan::getIsAllowedExtension)
+                                                .map(Loan::getWhoBorrowed)
+                                                .limit(queueDifference)
+                                                .collect(Collectors.toList());
+            return borrowers.isEmpty()
+                   ? Optional.absent()
+                   : Optional.of(ForbidLoansExtension.newBuilder()
+                                                     .setInventoryId(INVENTORY_ID)
+                                                     .addAllBorrowers(borrowers)
+                                                     .build());
+        }
+        final List<UserId> borrowers = Lists.reverse(loans)
+                                            .stream()
+                                            .filter(loan -> !loan.getIsAllowedExtension())
+                                            .map(Loan::getWhoBorrowed)
+                                            .limit(Math.abs(queueDifference))
+                                            .collect(Collectors.toList());
+        return borrowers.isEmpty()
+               ? Optional.absent()
+               : Optional.of(AllowLoansExtension.newBuilder()
+                                                .setInventoryId(INVENTORY_ID)
+                                                .addAllBorrowers(borrowers)
+                                                .build());
+    }
+
+    private static List<ExtensionLoan> extensionLoansOf(Inventory inventory) {
+        final List<ExtensionLoan> result = new ArrayList<>();
+        for (Loan loan : inventory.getLoansList()) {
+            result.add(ExtensionLoan.newBuilder()
+                                    .setWhoBorrowed(loan.getWhoBorrowed())
+                                    .setIsAllowedExtension(loan.getIsAllowedExtension())
+                                    .build());
+        }
+        return result;
+    }
+
+    private Inventory inventory() {
+        return InventoryRepository.getRepository()
+                                  .find(INVENTORY_ID)
+                                  .get()
+                                  .getState();
+    }
+
+    private LoansExtension procmanState() {
+        final Optional<LoansExtensionProcman> procman =
+                repository.find(LoansExtensionProcmanRepository.idOf(INVENTORY_ID));
+        return procman.isPresent()
+               ? procman.get()
+                        .getState()
+               : LoansExtension.getDefaultInstance();
+    }
+
+    private static UserId reader(int number) {
+        final EmailAddress email = EmailAddress.newBuilder()
+                                               .setValue("reader" + number + "@example.com")
+                                               .build();
+        return UserId.newBuilder()
+                     .setEmail(email)
+                     .build();
+    }
+
+    private void post(Message commandMessage) {
+        commandBus.post(requestFactory.command()
+                                      .create(commandMessage),
+                        StreamObservers.noOpObserver());
+    }
+}
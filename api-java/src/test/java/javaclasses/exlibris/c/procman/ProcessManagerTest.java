@@ -149,6 +149,7 @@ public class ProcessManagerTest {
         final InventoryRepository inventoryRepository = InventoryRepository.getRepository();
         final ReservationQueueProcmanRepository reservationQueueRepository = new ReservationQueueProcmanRepository();
         final LoansExtensionProcmanRepository loansExtensionRepository = new LoansExtensionProcmanRepository();
+        final ReturnDeskProcmanRepository returnDeskRepository = new ReturnDeskProcmanRepository();
 
         final EventBus.Builder eventBus = createEventBus(IN_MEMORY_FACTORY);
 
@@ -158,6 +159,7 @@ public class ProcessManagerTest {
         boundedContext.register(inventoryRepository);
         boundedContext.register(reservationQueueRepository);
         boundedContext.register(loansExtensionRepository);
+        boundedContext.register(returnDeskRepository);
         return boundedContext;
     }
 
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.c.procman;
+
+import com.google.protobuf.Message;
+import io.spine.client.ActorRequestFactory;
+import io.spine.client.TestActorRequestFactory;
+import io.spine.grpc.StreamObservers;
+import io.spine.server.BoundedContext;
+import io.spine.server.commandbus.CommandBus;
+import javaclasses.exlibris.BookId;
+import javaclasses.exlibris.BoundedContexts;
+import javaclasses.exlibris.InventoryId;
+import javaclasses.exlibris.InventoryItemId;
+import javaclasses.exlibris.Isbn62;
+import javaclasses.exlibris.c.inventory.InventoryRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static javaclasses.exlibris.testdata.BookCommandFactory.createBookInstance;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.appendInventoryInstance;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.borrowBookInstance;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.returnBookInstance;
+import static javaclasses.exlibris.testdata.TestValues.BOOK_DETAILS;
+import static javaclasses.exlibris.testdata.TestValues.LIBRARIAN_ID;
+import static javaclasses.exlibris.testdata.TestValues.USER_ID;
+
+/**
+ * Measures the reaction throughput of the {@link ReservationQueueProcman} depending on the
+ * number of threads posting commands.
+ *
+ * <p>Each thread borrows and returns copies of its own books. Every return is a
+ * {@code BookReturned} event the process manager reacts on. Since the process managers are
+ * partitioned by inventory, the threads do not share a process manager instance.
+ *
+ * <p>Run {@link #main(String[])} and compare the reactions per second for the thread counts
+ * up to the number of available cores.
+ */
+public final class ReservationQueueBenchmark {
+
+    private static final int BOOKS_PER_THREAD = 16;
+    private static final int CYCLES_PER_BOOK = 200;
+
+    private final ActorRequestFactory requestFactory =
+            TestActorRequestFactory.newInstance(getClass());
+
+    private CommandBus commandBus;
+
+    public static void main(String[] args) throws Exception {
+        final int cores = Runtime.getRuntime()
+                                 .availableProcessors();
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            final ReservationQueueBenchmark benchmark = new ReservationQueueBenchmark();
+            final long reactionsPerSecond = benchmark.run(threads);
+            System.out.printf("%d thread(s): %d reactions/s%n", threads, reactionsPerSecond);
+        }
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param threads the number of threads posting commands
+     * @return the number of {@code BookReturned} reactions per second
+     */
+    long run(int threads) throws Exception {
+        InventoryRepository.setNewInstance();
+        final BoundedContext boundedContext = BoundedContexts.create();
+        commandBus = boundedContext.getCommandBus();
+
+        final List<List<InventoryItemId>> partitions = new ArrayList<>(threads);
+        for (int thread = 0; thread < threads; thread++) {
+            final List<InventoryItemId> items = new ArrayList<>(BOOKS_PER_THREAD);
+            for (int book = 0; book < BOOKS_PER_THREAD; book++) {
+                items.add(addBook(thread + "-" + book));
+            }
+            partitions.add(items);
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final long startedAt = System.nanoTime();
+            final List<Future<?>> futures = new ArrayList<>(threads);
+            for (List<InventoryItemId> items : partitions) {
+                futures.add(executor.submit(() -> borrowAndReturn(items)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            final long elapsedNanos = System.nanoTime() - startedAt;
+            final long reactions = (long) threads * BOOKS_PER_THREAD * CYCLES_PER_BOOK;
+            return reactions * 1_000_000_000L / elapsedNanos;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void borrowAndReturn(List<InventoryItemId> items) {
+        for (int cycle = 0; cycle < CYCLES_PER_BOOK; cycle++) {
+            for (InventoryItemId item : items) {
+                final InventoryId inventoryId = inventoryIdOf(item);
+                post(borrowBookInstance(inventoryId, item, USER_ID));
+                post(returnBookInstance(inventoryId, item, USER_ID));
+            }
+        }
+    }
+
+    private InventoryItemId addBook(String isbn) {
+        final BookId bookId = BookId.newBuilder()
+                                    .setIsbn62(Isbn62.newBuilder()
+                                                     .setValue(isbn))
+                                    .build();
+        final InventoryItemId itemId = InventoryItemId.newBuilder()
+                                                      .setBookId(bookId)
+                                                      .setItemNumber(1)
+                                                      .build();
+        post(createBookInstance(bookId, LIBRARIAN_ID, BOOK_DETAILS));
+        post(appendInventoryInstance(inventoryIdOf(itemId), itemId, LIBRARIAN_ID));
+        return itemId;
+    }
+
+    private static InventoryId inventoryIdOf(InventoryItemId itemId) {
+        return InventoryId.newBuilder()
+                          .setBookId(itemId.getBookId())
+                          .build();
+    }
+
+    private void post(Message commandMessage) {
+        commandBus.post(requestFactory.command()
+                                      .create(commandMessage),
+                        StreamObservers.noOpObserver());
+    }
+}
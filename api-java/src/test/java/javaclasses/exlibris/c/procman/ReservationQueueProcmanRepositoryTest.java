@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.c.procman;
+
+import javaclasses.exlibris.BookId;
+import javaclasses.exlibris.InventoryId;
+import javaclasses.exlibris.Isbn62;
+import javaclasses.exlibris.ReservationQueueId;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ID;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("ReservationQueueProcmanRepository should")
+class ReservationQueueProcmanRepositoryTest {
+
+    private static final int SHARD_COUNT = 4;
+
+    @Test
+    @DisplayName("route the events of different inventories to different process managers")
+    void partitionPerInventory() {
+        final ReservationQueueProcmanRepository repository =
+                new ReservationQueueProcmanRepository();
+
+        assertEquals(repository.idOf(inventoryId("1")), repository.idOf(inventoryId("1")));
+        assertNotEquals(repository.idOf(inventoryId("1")), repository.idOf(inventoryId("2")));
+    }
+
+    @Test
+    @DisplayName("distribute inventories between the configured shards")
+    void partitionByShard() {
+        final ReservationQueueProcmanRepository repository =
+                new ReservationQueueProcmanRepository(SHARD_COUNT);
+        final Set<ReservationQueueId> ids = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            ids.add(repository.idOf(inventoryId(String.valueOf(i))));
+        }
+
+        assertEquals(SHARD_COUNT, ids.size());
+        assertEquals(repository.idOf(INVENTORY_ID), repository.idOf(INVENTORY_ID));
+    }
+
+    @Test
+    @DisplayName("not accept a negative number of shards")
+    void rejectNegativeShardCount() {
+        assertThrows(IllegalArgumentException.class,
+                     () -> new ReservationQueueProcmanRepository(-1));
+    }
+
+    private static InventoryId inventoryId(String isbn) {
+        final BookId bookId = BookId.newBuilder()
+                                    .setIsbn62(Isbn62.newBuilder()
+                                                     .setValue(isbn))
+                                    .build();
+        return InventoryId.newBuilder()
+                          .setBookId(bookId)
+                          .build();
+    }
+}
@@ -86,6 +86,20 @@ public class ReservationQueueProcmanTest extends ProcessManagerTest {
         assertFalse(inventoryRejectionsSubscriber.wasCalled());
     }
 
+    @Test
+    @DisplayName("skip the canceled unsatisfied reservation when the book becomes available.")
+    void skipCanceledUnsatisfiedReservation() {
+        commandBus.post(reserveBookUser2, observer);
+        commandBus.post(reserveBookUser3, observer);
+        commandBus.post(cancelReservationUser2, observer);
+        commandBus.post(appendInventoryItem1, observer);
+        commandBus.post(borrowBookUser3Item1, observer);
+
+        assertFalse(inventoryRejectionsSubscriber.wasCalled());
+        assertTrue(getAggregateState().getReservationsList()
+                                      .isEmpty());
+    }
+
     @Test
     @DisplayName("react on reservation pickup period expired event and make book available for borrowing.")
     void reactOnReservationExpiredMakesBookAvailable() {
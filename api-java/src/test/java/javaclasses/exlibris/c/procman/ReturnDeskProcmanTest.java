@@ -0,0 +1,153 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.c.procman;
+
+import com.google.protobuf.Message;
+import io.spine.core.Command;
+import io.spine.core.Subscribe;
+import io.spine.server.event.EventSubscriber;
+import javaclasses.exlibris.BookId;
+import javaclasses.exlibris.InventoryId;
+import javaclasses.exlibris.InventoryItemId;
+import javaclasses.exlibris.Isbn62;
+import javaclasses.exlibris.ReturnDeskId;
+import javaclasses.exlibris.c.BookReturnResult;
+import javaclasses.exlibris.c.InventoryBooksReturned;
+import javaclasses.exlibris.c.ReturnBooks;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.spine.protobuf.TypeConverter.toMessage;
+import static javaclasses.exlibris.testdata.BookCommandFactory.createBookInstance;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.appendInventoryInstance;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.borrowBookInstance;
+import static javaclasses.exlibris.testdata.InventoryCommandFactory.returnedItemInstance;
+import static javaclasses.exlibris.testdata.TestValues.BOOK_DETAILS_2;
+import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ID;
+import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ITEM_ID_1;
+import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ITEM_ID_2;
+import static javaclasses.exlibris.testdata.TestValues.USER_ID;
+import static javaclasses.exlibris.testdata.TestValues.USER_ID_2;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@DisplayName("ReturnDeskProcman should")
+public class ReturnDeskProcmanTest extends ProcessManagerTest {
+
+    private static final BookId BOOK_ID_2 =
+            BookId.newBuilder()
+                  .setIsbn62(Isbn62.newBuilder()
+                                   .setValue("0321356683"))
+                  .build();
+    private static final InventoryId INVENTORY_ID_2 = InventoryId.newBuilder()
+                                                                 .setBookId(BOOK_ID_2)
+                                                                 .build();
+    private static final InventoryItemId INVENTORY_2_ITEM_ID_1 =
+            InventoryItemId.newBuilder()
+                           .setBookId(BOOK_ID_2)
+                           .setItemNumber(1)
+                           .build();
+    private static final ReturnDeskId RETURN_DESK_ID = ReturnDeskId.newBuilder()
+                                                                   .setValue("return-desk-1")
+                                                                   .build();
+
+    private final InventoryBooksReturnedSubscriber returnsSubscriber =
+            new InventoryBooksReturnedSubscriber();
+
+    @Override
+    @BeforeEach
+    public void setUp() {
+        super.setUp();
+        boundedContext.getEventBus()
+                      .register(returnsSubscriber);
+    }
+
+    @Test
+    @DisplayName("route a single ReturnInventoryBooks command for each of the inventories")
+    void splitReturnByInventory() {
+        commandBus.post(appendInventoryItem1, observer);
+        commandBus.post(appendInventoryItem2, observer);
+        commandBus.post(borrowBookUser1Item1, observer);
+        commandBus.post(borrowBookUser2Item2, observer);
+        post(createBookInstance(BOOK_ID_2, USER_ID, BOOK_DETAILS_2));
+        post(appendInventoryInstance(INVENTORY_ID_2, INVENTORY_2_ITEM_ID_1, USER_ID));
+        post(borrowBookInstance(INVENTORY_ID_2, INVENTORY_2_ITEM_ID_1, USER_ID));
+
+        final ReturnBooks returnBooks =
+                ReturnBooks.newBuilder()
+                           .setReturnDeskId(RETURN_DESK_ID)
+                           .addItems(returnedItemInstance(INVENTORY_ITEM_ID_1, USER_ID))
+                           .addItems(returnedItemInstance(INVENTORY_2_ITEM_ID_1, USER_ID))
+                           .addItems(returnedItemInstance(INVENTORY_ITEM_ID_2, USER_ID_2))
+                           .build();
+        post(returnBooks);
+
+        final List<InventoryBooksReturned> returns = returnsSubscriber.getEvents();
+        assertEquals(2, returns.size());
+
+        final InventoryBooksReturned firstInventory = returns.get(0);
+        assertEquals(INVENTORY_ID, firstInventory.getInventoryId());
+        assertEquals(2, firstInventory.getResultsCount());
+        assertEquals(INVENTORY_ITEM_ID_1, firstInventory.getResults(0)
+                                                        .getInventoryItemId());
+        assertEquals(INVENTORY_ITEM_ID_2, firstInventory.getResults(1)
+                                                        .getInventoryItemId());
+
+        final InventoryBooksReturned secondInventory = returns.get(1);
+        assertEquals(INVENTORY_ID_2, secondInventory.getInventoryId());
+        assertEquals(1, secondInventory.getResultsCount());
+        assertEquals(INVENTORY_2_ITEM_ID_1, secondInventory.getResults(0)
+                                                           .getInventoryItemId());
+
+        for (InventoryBooksReturned inventoryReturn : returns) {
+            for (BookReturnResult result : inventoryReturn.getResultsList()) {
+                assertEquals(BookReturnResult.OutcomeCase.LOAN_ID, result.getOutcomeCase());
+            }
+        }
+        assertFalse(inventoryRejectionsSubscriber.wasCalled());
+    }
+
+    private void post(Message commandMessage) {
+        final Command command = requestFactory.createCommand(toMessage(commandMessage));
+        commandBus.post(command, observer);
+    }
+
+    /**
+     * Collects the {@code InventoryBooksReturned} events in the order they are emitted.
+     */
+    public static class InventoryBooksReturnedSubscriber extends EventSubscriber {
+
+        private final List<InventoryBooksReturned> events = new ArrayList<>();
+
+        @Subscribe
+        public void on(InventoryBooksReturned event) {
+            events.add(event);
+        }
+
+        List<InventoryBooksReturned> getEvents() {
+            return events;
+        }
+    }
+}
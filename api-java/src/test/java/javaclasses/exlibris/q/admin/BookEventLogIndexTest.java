@@ -0,0 +1,172 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.q.admin;
+
+import com.google.common.base.Optional;
+import com.google.protobuf.Timestamp;
+import javaclasses.exlibris.BookEventLogViewId;
+import javaclasses.exlibris.q.BookEventLogQuery;
+import javaclasses.exlibris.q.BookEventLogQueryResult;
+import javaclasses.exlibris.q.BookEventLogRecord;
+import javaclasses.exlibris.q.BookEventLogView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static javaclasses.exlibris.q.admin.BookEventLogIndex.insertionPosition;
+import static javaclasses.exlibris.q.admin.BookEventLogIndex.segmentOf;
+import static javaclasses.exlibris.testdata.TestValues.BOOK_ID;
+import static javaclasses.exlibris.testdata.TestValues.USER_EMAIL_1;
+import static javaclasses.exlibris.testdata.TestValues.USER_NAME;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("BookEventLogIndex should")
+class BookEventLogIndexTest {
+
+    private static final long DAY_SECONDS = 24 * 60 * 60;
+    private static final int DAYS = 100;
+    private static final int EVENTS_PER_DAY = 3;
+
+    private final Map<BookEventLogViewId, BookEventLogView> segments = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int day = 0; day < DAYS; day++) {
+            for (int event = 0; event < EVENTS_PER_DAY; event++) {
+                // The events of a day are emitted at the same time.
+                append(record("Event" + event, timestamp(day * DAY_SECONDS)));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("split the log by month")
+    void splitByMonth() {
+        assertEquals(segmentOf(BOOK_ID, timestamp(0)), segmentOf(BOOK_ID, timestamp(
+                30 * DAY_SECONDS)));
+        assertNotEquals(segmentOf(BOOK_ID, timestamp(0)), segmentOf(BOOK_ID, timestamp(
+                31 * DAY_SECONDS)));
+        assertEquals(4, segments.size());
+    }
+
+    @Test
+    @DisplayName("insert the record after the records emitted at the same time")
+    void insertAfterSameTime() {
+        final List<BookEventLogRecord> records = new ArrayList<>();
+        records.add(record("First", timestamp(10)));
+        records.add(record("Second", timestamp(20)));
+
+        assertEquals(1, insertionPosition(records, record("Late", timestamp(10))));
+        assertEquals(0, insertionPosition(records, record("Earliest", timestamp(5))));
+        assertEquals(2, insertionPosition(records, record("Latest", timestamp(30))));
+    }
+
+    @Test
+    @DisplayName("obtain the records in the range")
+    void queryRange() {
+        final BookEventLogQuery query = BookEventLogQuery.newBuilder()
+                                                         .setBookId(BOOK_ID)
+                                                         .setEmittedFrom(timestamp(
+                                                                 25 * DAY_SECONDS))
+                                                         .setEmittedTo(timestamp(
+                                                                 65 * DAY_SECONDS))
+                                                         .build();
+
+        final BookEventLogQueryResult result = BookEventLogIndex.query(query, this::find);
+
+        assertEquals(40 * EVENTS_PER_DAY, result.getRecordCount());
+        assertEquals(timestamp(25 * DAY_SECONDS), result.getRecord(0)
+                                                        .getWhenEmitted());
+        assertFalse(result.hasNextPage());
+    }
+
+    @Test
+    @DisplayName("page through the records emitted at the same time")
+    void pageThroughRange() {
+        BookEventLogQuery query = BookEventLogQuery.newBuilder()
+                                                   .setBookId(BOOK_ID)
+                                                   .setEmittedFrom(timestamp(0))
+                                                   .setEmittedTo(timestamp(
+                                                           DAYS * DAY_SECONDS))
+                                                   .setPageSize(2)
+                                                   .build();
+        final List<BookEventLogRecord> all = new ArrayList<>();
+        int pages = 0;
+        while (true) {
+            final BookEventLogQueryResult result = BookEventLogIndex.query(query, this::find);
+            all.addAll(result.getRecordList());
+            pages++;
+            if (!result.hasNextPage()) {
+                break;
+            }
+            query = result.getNextPage();
+        }
+
+        assertEquals(DAYS * EVENTS_PER_DAY, all.size());
+        assertEquals(DAYS * EVENTS_PER_DAY / 2, pages);
+        for (int i = 0; i < all.size(); i++) {
+            assertEquals("Event" + i % EVENTS_PER_DAY, all.get(i)
+                                                          .getEventType());
+        }
+        assertTrue(all.get(all.size() - 1)
+                      .getWhenEmitted()
+                      .getSeconds() < DAYS * DAY_SECONDS);
+    }
+
+    private Optional<BookEventLogView> find(BookEventLogViewId id) {
+        return Optional.fromNullable(segments.get(id));
+    }
+
+    private void append(BookEventLogRecord record) {
+        final BookEventLogViewId id = segmentOf(BOOK_ID, record.getWhenEmitted());
+        final BookEventLogView segment = segments.getOrDefault(id,
+                                                               BookEventLogView.newBuilder()
+                                                                               .setId(id)
+                                                                               .build());
+        final int position = insertionPosition(segment.getRecordList(), record);
+        segments.put(id, BookEventLogView.newBuilder(segment)
+                                         .addRecord(position, record)
+                                         .build());
+    }
+
+    private static BookEventLogRecord record(String eventType, Timestamp whenEmitted) {
+        return BookEventLogRecord.newBuilder()
+                                 .setUserName(USER_NAME)
+                                 .setEmail(USER_EMAIL_1)
+                                 .setEventType(eventType)
+                                 .setWhenEmitted(whenEmitted)
+                                 .build();
+    }
+
+    private static Timestamp timestamp(long seconds) {
+        return Timestamp.newBuilder()
+                        .setSeconds(seconds)
+                        .build();
+    }
+}
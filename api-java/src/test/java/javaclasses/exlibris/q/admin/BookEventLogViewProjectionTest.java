@@ -21,7 +21,6 @@
 package javaclasses.exlibris.q.admin;
 
 import com.google.protobuf.Message;
-import io.spine.Identifier;
 import javaclasses.exlibris.BookEventLogViewId;
 import javaclasses.exlibris.c.BookBorrowed;
 import javaclasses.exlibris.c.BookLost;
@@ -34,6 +33,7 @@ import javaclasses.exlibris.c.ReservationAdded;
 import javaclasses.exlibris.c.ReservationBecameLoan;
 import javaclasses.exlibris.c.ReservationCanceled;
 import javaclasses.exlibris.c.ReservationPickUpPeriodExpired;
+import javaclasses.exlibris.q.BookEventLogRecord;
 import javaclasses.exlibris.q.BookEventLogView;
 import javaclasses.exlibris.q.ProjectionTest;
 import org.junit.jupiter.api.BeforeEach;
@@ -42,6 +42,7 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
 import static io.spine.server.projection.ProjectionEventDispatcher.dispatch;
+import static javaclasses.exlibris.q.admin.BookEventLogIndex.segmentOf;
 import static javaclasses.exlibris.testdata.InventoryEventFactory.bookBorrowedInstance;
 import static javaclasses.exlibris.testdata.InventoryEventFactory.bookLostInstance;
 import static javaclasses.exlibris.testdata.InventoryEventFactory.bookReadyToPickUpInstance;
@@ -65,9 +66,7 @@ class BookEventLogViewProjectionTest extends ProjectionTest {
 
     @BeforeEach
     void setUp() {
-        final BookEventLogViewId id = BookEventLogViewId.newBuilder()
-                                                        .setValue(Identifier.newUuid())
-                                                        .build();
+        final BookEventLogViewId id = segmentOf(BOOK_ID, DEFAULT_TIMESTAMP1);
         projection = new BookEventLogViewProjection(id);
     }
 
@@ -223,19 +222,23 @@ class BookEventLogViewProjectionTest extends ProjectionTest {
     }
 
     private void assertEqualsAllFields(Message bookBorrowed) {
-        final BookEventLogView state = projection.getState();
-        assertEquals(INVENTORY_ITEM_ID_1, state.getItemId());
+        final BookEventLogRecord record = projection.getState()
+                                                    .getRecord(0);
+        assertEquals(INVENTORY_ITEM_ID_1, record.getItemId());
         assertEqualsAllFieldsWithoutItemId(bookBorrowed);
     }
 
     private void assertEqualsAllFieldsWithoutItemId(Message bookBorrowed) {
         final BookEventLogView state = projection.getState();
-        assertEquals(BOOK_ID, state.getBookId());
-        assertEquals(USER_NAME, state.getUserName());
-        assertEquals(USER_EMAIL_1, state.getEmail());
+        assertEquals(BOOK_ID, state.getId()
+                                   .getBookId());
+        assertEquals(1, state.getRecordCount());
+        final BookEventLogRecord record = state.getRecord(0);
+        assertEquals(USER_NAME, record.getUserName());
+        assertEquals(USER_EMAIL_1, record.getEmail());
         assertEquals(bookBorrowed.getClass()
-                                 .getSimpleName(), state.getEventType());
-        assertEquals(DEFAULT_TIMESTAMP1, state.getWhenEmitted());
+                                 .getSimpleName(), record.getEventType());
+        assertEquals(DEFAULT_TIMESTAMP1, record.getWhenEmitted());
     }
 
 }
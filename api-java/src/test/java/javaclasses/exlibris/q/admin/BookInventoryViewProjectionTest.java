@@ -21,14 +21,9 @@
 package javaclasses.exlibris.q.admin;
 
 import io.spine.server.entity.LifecycleFlags;
-import javaclasses.exlibris.c.BookBorrowed;
-import javaclasses.exlibris.c.BookLost;
-import javaclasses.exlibris.c.BookReturned;
 import javaclasses.exlibris.c.InventoryAppended;
 import javaclasses.exlibris.c.InventoryDecreased;
 import javaclasses.exlibris.c.InventoryRemoved;
-import javaclasses.exlibris.c.LoanBecameOverdue;
-import javaclasses.exlibris.c.LoanPeriodExtended;
 import javaclasses.exlibris.q.BookInventoryView;
 import javaclasses.exlibris.q.ProjectionTest;
 import org.junit.jupiter.api.BeforeEach;
@@ -37,22 +32,14 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
 import static io.spine.server.projection.ProjectionEventDispatcher.dispatch;
-import static javaclasses.exlibris.testdata.InventoryEventFactory.bookBorrowedInstance;
-import static javaclasses.exlibris.testdata.InventoryEventFactory.bookLostInstance;
-import static javaclasses.exlibris.testdata.InventoryEventFactory.bookReturnedInstance;
+import static java.util.Collections.singletonList;
 import static javaclasses.exlibris.testdata.InventoryEventFactory.inventoryAppendedInstance;
 import static javaclasses.exlibris.testdata.InventoryEventFactory.inventoryDecreasedInstance;
 import static javaclasses.exlibris.testdata.InventoryEventFactory.inventoryRemovedInstance;
-import static javaclasses.exlibris.testdata.InventoryEventFactory.loanBecameOverdueInstance;
-import static javaclasses.exlibris.testdata.InventoryEventFactory.loanPeriodExtendedInstance;
 import static javaclasses.exlibris.testdata.TestValues.AUTHOR;
 import static javaclasses.exlibris.testdata.TestValues.BOOK_TITLE;
-import static javaclasses.exlibris.testdata.TestValues.BORROWED_ITEM_STATE;
-import static javaclasses.exlibris.testdata.TestValues.DEFAULT_DATE2;
 import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ID;
-import static javaclasses.exlibris.testdata.TestValues.IN_LIBRARY_ITEM_STATE;
-import static javaclasses.exlibris.testdata.TestValues.LOST_ITEM_STATE;
-import static javaclasses.exlibris.testdata.TestValues.OVERDUE_ITEM_STATE;
+import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ITEM_ID_1;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -79,7 +66,9 @@ class BookInventoryViewProjectionTest extends ProjectionTest {
             assertEquals(BOOK_TITLE, state.getTitle());
             assertEquals(AUTHOR, state.getAuthorList()
                                       .get(0));
-            assertEquals(IN_LIBRARY_ITEM_STATE, state.getItemState(0));
+            assertEquals(singletonList(INVENTORY_ITEM_ID_1.getItemNumber()),
+                         state.getItemNumberList());
+            assertEquals(1, state.getItemCount());
         }
     }
 
@@ -107,7 +96,7 @@ class BookInventoryViewProjectionTest extends ProjectionTest {
     class InventoryDecreasedEvent {
 
         @Test
-        @DisplayName("remove this Inventory item state")
+        @DisplayName("remove the inventory item")
         void removeItemState() {
             final InventoryAppended inventoryAppended = inventoryAppendedInstance();
             dispatch(projection, createEvent(inventoryAppended));
@@ -117,110 +106,9 @@ class BookInventoryViewProjectionTest extends ProjectionTest {
             dispatch(projection, createEvent(inventoryDecreased));
 
             final BookInventoryView state = projection.getState();
-            assertEquals(0, state.getItemStateList()
-                                 .size());
-        }
-    }
-
-    @Nested
-    @DisplayName("BookBorrowed event should be interpreted by BookInventoryViewProjection and")
-    class BookBorrowedEvent {
-
-        @Test
-        @DisplayName("all loan details")
-        void addLoanDetails() {
-            final InventoryAppended inventoryAppended = inventoryAppendedInstance();
-            dispatch(projection, createEvent(inventoryAppended));
-
-            final BookBorrowed bookBorrowed = bookBorrowedInstance();
-            dispatch(projection, createEvent(bookBorrowed));
-
-            final BookInventoryView state = projection.getState();
-            assertEquals(BORROWED_ITEM_STATE, state.getItemState(0));
-        }
-    }
-
-    @Nested
-    @DisplayName("BookLost event should be interpreted by BookInventoryViewProjection and")
-    class BookLostEvent {
-
-        @Test
-        @DisplayName("change inventory item state")
-        void changeState() {
-            final InventoryAppended inventoryAppended = inventoryAppendedInstance();
-            dispatch(projection, createEvent(inventoryAppended));
-
-            final BookLost bookLost = bookLostInstance();
-            dispatch(projection, createEvent(bookLost));
-
-            final BookInventoryView state = projection.getState();
-            assertEquals(LOST_ITEM_STATE, state.getItemState(0));
-        }
-    }
-
-    @Nested
-    @DisplayName("LoanBecameOverdue event should be interpreted by BookInventoryViewProjection and")
-    class LoanBecameOverdueEvent {
-
-        @Test
-        @DisplayName("change inventory item state")
-        void changeState() {
-            final InventoryAppended inventoryAppended = inventoryAppendedInstance();
-            dispatch(projection, createEvent(inventoryAppended));
-
-            final BookBorrowed bookBorrowed = bookBorrowedInstance();
-            dispatch(projection, createEvent(bookBorrowed));
-
-            final LoanBecameOverdue loanBecameOverdue = loanBecameOverdueInstance();
-            dispatch(projection, createEvent(loanBecameOverdue));
-
-            final BookInventoryView state = projection.getState();
-            assertEquals(OVERDUE_ITEM_STATE, state.getItemState(0));
-        }
-    }
-
-    @Nested
-    @DisplayName("BookReturned event should be interpreted by BookInventoryViewProjection and")
-    class BookReturnedEvent {
-
-        @Test
-        @DisplayName("change inventory item state to in library")
-        void changeState() {
-            final InventoryAppended inventoryAppended = inventoryAppendedInstance();
-            dispatch(projection, createEvent(inventoryAppended));
-
-            final BookBorrowed bookBorrowed = bookBorrowedInstance();
-            dispatch(projection, createEvent(bookBorrowed));
-
-            final BookReturned bookReturned = bookReturnedInstance();
-            dispatch(projection, createEvent(bookReturned));
-
-            final BookInventoryView state = projection.getState();
-            assertEquals(IN_LIBRARY_ITEM_STATE, state.getItemState(0));
-        }
-    }
-
-    @Nested
-    @DisplayName("LoanPeriodExtended event should be interpreted by BookInventoryViewProjection and")
-    class LoanPeriodExtendedEvent {
-
-        @Test
-        @DisplayName("change due date")
-        void changeDueDate() {
-            final InventoryAppended inventoryAppended = inventoryAppendedInstance();
-            dispatch(projection, createEvent(inventoryAppended));
-
-            final BookBorrowed bookBorrowed = bookBorrowedInstance();
-            dispatch(projection, createEvent(bookBorrowed));
-
-            final LoanPeriodExtended loanPeriodExtended = loanPeriodExtendedInstance();
-            dispatch(projection, createEvent(loanPeriodExtended));
-
-            final BookInventoryView state = projection.getState();
-            assertEquals(DEFAULT_DATE2, state.getItemState(0)
-                                             .getLoanDetails()
-                                             .getWhenDue());
+            assertTrue(state.getItemNumberList()
+                            .isEmpty());
+            assertEquals(0, state.getItemCount());
         }
     }
 }
-
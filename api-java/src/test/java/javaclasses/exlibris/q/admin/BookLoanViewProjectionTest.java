@@ -20,7 +20,6 @@
 
 package javaclasses.exlibris.q.admin;
 
-import io.spine.Identifier;
 import javaclasses.exlibris.BookLoanViewId;
 import javaclasses.exlibris.c.BookBorrowed;
 import javaclasses.exlibris.c.LoanPeriodExtended;
@@ -33,15 +32,20 @@ import org.junit.jupiter.api.Test;
 
 import static io.spine.server.projection.ProjectionEventDispatcher.dispatch;
 import static javaclasses.exlibris.testdata.InventoryEventFactory.bookBorrowedInstance;
+import static javaclasses.exlibris.testdata.InventoryEventFactory.bookReturnedInstance;
 import static javaclasses.exlibris.testdata.InventoryEventFactory.loanPeriodExtendedInstance;
 import static javaclasses.exlibris.testdata.TestValues.BOOK_ID;
 import static javaclasses.exlibris.testdata.TestValues.DEFAULT_DATE1;
 import static javaclasses.exlibris.testdata.TestValues.DEFAULT_DATE2;
 import static javaclasses.exlibris.testdata.TestValues.DEFAULT_DUE_DATE;
 import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ITEM_ID_1;
+import static javaclasses.exlibris.testdata.TestValues.LOAN_ID;
 import static javaclasses.exlibris.testdata.TestValues.USER_EMAIL_1;
+import static javaclasses.exlibris.testdata.TestValues.USER_ID;
 import static javaclasses.exlibris.testdata.TestValues.USER_NAME;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class BookLoanViewProjectionTest extends ProjectionTest {
 
@@ -49,9 +53,7 @@ class BookLoanViewProjectionTest extends ProjectionTest {
 
     @BeforeEach
     void setUp() {
-        final BookLoanViewId id = BookLoanViewId.newBuilder()
-                                                .setValue(Identifier.newUuid())
-                                                .build();
+        final BookLoanViewId id = BookLoanViewRepository.idOf(LOAN_ID);
         projection = new BookLoanViewProjection(id);
     }
 
@@ -69,9 +71,11 @@ class BookLoanViewProjectionTest extends ProjectionTest {
             assertEquals(BOOK_ID, state.getBookId());
             assertEquals(INVENTORY_ITEM_ID_1, state.getItemId());
             assertEquals(USER_NAME, state.getUserName());
+            assertEquals(USER_ID, state.getUserId());
             assertEquals(USER_EMAIL_1, state.getEmail());
             assertEquals(DEFAULT_DATE1, state.getWhenTaken());
             assertEquals(DEFAULT_DUE_DATE, state.getWhenDue());
+            assertFalse(state.getClosed());
         }
     }
 
@@ -82,6 +86,7 @@ class BookLoanViewProjectionTest extends ProjectionTest {
         @Test
         @DisplayName("add information about start loan period")
         void addInformation() {
+            dispatch(projection, createEvent(bookBorrowedInstance()));
             final LoanPeriodExtended loanPeriodExtended = loanPeriodExtendedInstance();
             dispatch(projection, createEvent(loanPeriodExtended));
 
@@ -94,4 +99,20 @@ class BookLoanViewProjectionTest extends ProjectionTest {
             assertEquals(DEFAULT_DATE2, state.getWhenDue());
         }
     }
+
+    @Nested
+    @DisplayName("BookReturned event should be interpreted by BookLoanViewProjection and")
+    class BookReturnedEvent {
+
+        @Test
+        @DisplayName("close the loan")
+        void closeLoan() {
+            dispatch(projection, createEvent(bookBorrowedInstance()));
+            dispatch(projection, createEvent(bookReturnedInstance()));
+
+            final BookLoanView state = projection.getState();
+            assertTrue(state.getClosed());
+            assertEquals(DEFAULT_DATE1, state.getWhenTaken());
+        }
+    }
 }
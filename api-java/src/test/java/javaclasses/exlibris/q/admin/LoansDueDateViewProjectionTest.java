@@ -0,0 +1,304 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.q.admin;
+
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.Timestamp;
+import io.spine.core.Event;
+import javaclasses.exlibris.LoanId;
+import javaclasses.exlibris.LoansDueDateViewId;
+import javaclasses.exlibris.c.BookBorrowed;
+import javaclasses.exlibris.c.BookReturned;
+import javaclasses.exlibris.c.LoanBecameOverdue;
+import javaclasses.exlibris.c.LoanPeriodExtended;
+import javaclasses.exlibris.q.DueLoanItem;
+import javaclasses.exlibris.q.LoansDueDateQuery;
+import javaclasses.exlibris.q.LoansDueDateQueryResult;
+import javaclasses.exlibris.q.LoansDueDateSummary;
+import javaclasses.exlibris.q.ProjectionTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static io.spine.protobuf.AnyPacker.unpack;
+import static io.spine.server.projection.ProjectionEventDispatcher.dispatch;
+import static java.util.Collections.singletonList;
+import static javaclasses.exlibris.q.admin.LoansDueDateIndex.lastPartitionBefore;
+import static javaclasses.exlibris.q.admin.LoansDueDateIndex.partitionId;
+import static javaclasses.exlibris.q.admin.LoansDueDateIndex.partitionOf;
+import static javaclasses.exlibris.q.admin.LoansDueDateIndex.partitionsOf;
+import static javaclasses.exlibris.q.admin.LoansDueDateSummaryProjection.ID;
+import static javaclasses.exlibris.testdata.InventoryEventFactory.bookBorrowedInstance;
+import static javaclasses.exlibris.testdata.InventoryEventFactory.bookReturnedInstance;
+import static javaclasses.exlibris.testdata.InventoryEventFactory.loanBecameOverdueInstance;
+import static javaclasses.exlibris.testdata.InventoryEventFactory.loanPeriodExtendedInstance;
+import static javaclasses.exlibris.testdata.TestValues.DEFAULT_TIMESTAMP1;
+import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ID;
+import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ITEM_ID_1;
+import static javaclasses.exlibris.testdata.TestValues.USER_ID;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DisplayName("LoansDueDateViewProjection should")
+class LoansDueDateViewProjectionTest extends ProjectionTest {
+
+    private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private LoansDueDateViewProjection projection;
+    private LoansDueDateSummaryProjection summary;
+
+    @BeforeEach
+    void setUp() {
+        projection = new LoansDueDateViewProjection(partitionId(0));
+        summary = new LoansDueDateSummaryProjection(ID);
+    }
+
+    @Test
+    @DisplayName("keep the loans sorted by the due date")
+    void sortLoans() {
+        borrow(3, 300);
+        borrow(1, 100);
+        borrow(2, 200);
+
+        final List<DueLoanItem> loans = projection.getState()
+                                                  .getLoanList();
+        assertEquals(3, loans.size());
+        assertEquals(loanId(1), loans.get(0)
+                                     .getLoanId());
+        assertEquals(loanId(3), loans.get(2)
+                                     .getLoanId());
+    }
+
+    @Test
+    @DisplayName("remove the returned loans")
+    void removeReturned() {
+        borrow(1, 100);
+        borrow(2, 200);
+        final BookReturned bookReturned =
+                bookReturnedInstance(INVENTORY_ID, INVENTORY_ITEM_ID_1, USER_ID,
+                                     DEFAULT_TIMESTAMP1, loanId(1))
+                        .toBuilder()
+                        .setWhenDue(timestamp(100))
+                        .build();
+        dispatch(projection, createEvent(bookReturned));
+
+        final List<DueLoanItem> loans = projection.getState()
+                                                  .getLoanList();
+        assertEquals(1, loans.size());
+        assertEquals(loanId(2), loans.get(0)
+                                     .getLoanId());
+    }
+
+    @Test
+    @DisplayName("move the extended loan to the partition of the new due date")
+    void moveExtended() {
+        final LoansDueDateViewProjection nextDay = new LoansDueDateViewProjection(partitionId(1));
+        borrow(1, 100);
+        final LoanPeriodExtended loanExtended =
+                loanPeriodExtendedInstance(INVENTORY_ID, INVENTORY_ITEM_ID_1, loanId(1),
+                                           USER_ID, timestamp(100),
+                                           timestamp(SECONDS_PER_DAY + 100),
+                                           DEFAULT_TIMESTAMP1);
+
+        dispatch(projection, createEvent(loanExtended));
+        dispatch(nextDay, createEvent(loanExtended));
+
+        assertEquals(0, projection.getState()
+                                  .getLoanCount());
+        assertEquals(loanId(1), nextDay.getState()
+                                       .getLoan(0)
+                                       .getLoanId());
+    }
+
+    @Test
+    @DisplayName("find the loans due within the range")
+    void queryRange() {
+        borrow(1, 100);
+        borrow(2, 200);
+        borrow(3, 300);
+        final LoansDueDateQuery query = LoansDueDateQuery.newBuilder()
+                                                         .setDueFrom(timestamp(150))
+                                                         .setDueTo(timestamp(300))
+                                                         .build();
+
+        final LoansDueDateQueryResult result =
+                LoansDueDateIndex.query(query, singletonList(projection.getState()));
+
+        assertEquals(1, result.getCount());
+        assertEquals(loanId(2), result.getLoan(0)
+                                      .getLoanId());
+    }
+
+    @Test
+    @DisplayName("count the overdue loans of all the partitions")
+    void countOverdue() {
+        final LoansDueDateViewProjection nextDay = new LoansDueDateViewProjection(partitionId(1));
+        borrow(1, 100);
+        borrow(2, 200);
+        final LoanBecameOverdue becameOverdue =
+                loanBecameOverdueInstance(INVENTORY_ID, INVENTORY_ITEM_ID_1, loanId(1),
+                                          DEFAULT_TIMESTAMP1, USER_ID)
+                        .toBuilder()
+                        .setWhenDue(timestamp(100))
+                        .build();
+        dispatch(projection, createEvent(becameOverdue));
+        dispatch(nextDay, createEvent(bookBorrowedInstance(INVENTORY_ID, INVENTORY_ITEM_ID_1,
+                                                           USER_ID, loanId(3),
+                                                           DEFAULT_TIMESTAMP1,
+                                                           timestamp(SECONDS_PER_DAY))));
+        final LoansDueDateQuery query = LoansDueDateQuery.newBuilder()
+                                                         .setOverdueOnly(true)
+                                                         .setCountOnly(true)
+                                                         .build();
+
+        final LoansDueDateQueryResult result =
+                LoansDueDateIndex.query(query, ImmutableList.of(projection.getState(),
+                                                                nextDay.getState()));
+
+        assertEquals(1, result.getCount());
+        assertEquals(0, result.getLoanCount());
+    }
+
+    @Test
+    @DisplayName("find the overdue loans within the range")
+    void queryOverdueRange() {
+        borrow(1, 100);
+        borrow(2, 200);
+        borrow(3, 300);
+        becomeOverdue(1, 100);
+        becomeOverdue(3, 300);
+        final LoansDueDateQuery query = LoansDueDateQuery.newBuilder()
+                                                         .setDueFrom(timestamp(50))
+                                                         .setDueTo(timestamp(250))
+                                                         .setOverdueOnly(true)
+                                                         .build();
+
+        final LoansDueDateQueryResult result =
+                LoansDueDateIndex.query(query, singletonList(projection.getState()));
+
+        assertEquals(1, result.getCount());
+        assertEquals(loanId(1), result.getLoan(0)
+                                      .getLoanId());
+    }
+
+    @Test
+    @DisplayName("list only the days with the open loans in the summary")
+    void summarizeDays() {
+        borrow(1, 100);
+        dispatch(summary, createEvent(bookBorrowedInstance(INVENTORY_ID, INVENTORY_ITEM_ID_1,
+                                                           USER_ID, loanId(2),
+                                                           DEFAULT_TIMESTAMP1,
+                                                           timestamp(SECONDS_PER_DAY))));
+        returnBook(1, 100);
+
+        final List<LoansDueDateViewId> partitions =
+                partitionsOf(summary.getState(), LoansDueDateQuery.getDefaultInstance());
+
+        assertEquals(singletonList(partitionId(1)), partitions);
+    }
+
+    @Test
+    @DisplayName("count the overdue loans by the summary")
+    void countOverdueBySummary() {
+        borrow(1, 100);
+        borrow(2, 200);
+        becomeOverdue(1, 100);
+        assertEquals(2, LoansDueDateIndex.count(summary.getState(), false));
+        assertEquals(1, LoansDueDateIndex.count(summary.getState(), true));
+
+        returnBook(1, 100);
+
+        final LoansDueDateSummary state = summary.getState();
+        assertEquals(1, LoansDueDateIndex.count(state, false));
+        assertEquals(0, LoansDueDateIndex.count(state, true));
+    }
+
+    @Test
+    @DisplayName("fill in the due date of the loan events stored without it")
+    void migrateDueDate() {
+        final LoanDueDateMigration migration = new LoanDueDateMigration();
+        migration.migrate(createEvent(bookBorrowedInstance(INVENTORY_ID, INVENTORY_ITEM_ID_1,
+                                                           USER_ID, loanId(1),
+                                                           DEFAULT_TIMESTAMP1,
+                                                           timestamp(100))));
+        final BookReturned bookReturned = bookReturnedInstance(INVENTORY_ID, INVENTORY_ITEM_ID_1,
+                                                               USER_ID, DEFAULT_TIMESTAMP1,
+                                                               loanId(1));
+
+        final Event migrated = migration.migrate(createEvent(bookReturned));
+
+        final BookReturned result = (BookReturned) unpack(migrated.getMessage());
+        assertEquals(timestamp(100), result.getWhenDue());
+    }
+
+    @Test
+    @DisplayName("partition the loans by the day of the due date")
+    void partitionByDay() {
+        assertEquals(partitionId(0), partitionOf(timestamp(SECONDS_PER_DAY - 1)));
+        assertEquals(partitionId(1), partitionOf(timestamp(SECONDS_PER_DAY)));
+        assertEquals(partitionId(0), lastPartitionBefore(timestamp(SECONDS_PER_DAY)));
+        assertEquals(partitionId(-1), partitionOf(timestamp(-1)));
+    }
+
+    private void borrow(long loanId, long dueSeconds) {
+        final BookBorrowed bookBorrowed = bookBorrowedInstance(INVENTORY_ID, INVENTORY_ITEM_ID_1,
+                                                               USER_ID, loanId(loanId),
+                                                               DEFAULT_TIMESTAMP1,
+                                                               timestamp(dueSeconds));
+        dispatch(projection, createEvent(bookBorrowed));
+        dispatch(summary, createEvent(bookBorrowed));
+    }
+
+    private void becomeOverdue(long loanId, long dueSeconds) {
+        final LoanBecameOverdue becameOverdue =
+                loanBecameOverdueInstance(INVENTORY_ID, INVENTORY_ITEM_ID_1, loanId(loanId),
+                                          DEFAULT_TIMESTAMP1, USER_ID)
+                        .toBuilder()
+                        .setWhenDue(timestamp(dueSeconds))
+                        .build();
+        dispatch(projection, createEvent(becameOverdue));
+        dispatch(summary, createEvent(becameOverdue));
+    }
+
+    private void returnBook(long loanId, long dueSeconds) {
+        final BookReturned bookReturned =
+                bookReturnedInstance(INVENTORY_ID, INVENTORY_ITEM_ID_1, USER_ID,
+                                     DEFAULT_TIMESTAMP1, loanId(loanId))
+                        .toBuilder()
+                        .setWhenDue(timestamp(dueSeconds))
+                        .build();
+        dispatch(projection, createEvent(bookReturned));
+        dispatch(summary, createEvent(bookReturned));
+    }
+
+    private static LoanId loanId(long value) {
+        return LoanId.newBuilder()
+                     .setValue(value)
+                     .build();
+    }
+
+    private static Timestamp timestamp(long seconds) {
+        return Timestamp.newBuilder()
+                        .setSeconds(seconds)
+                        .build();
+    }
+}
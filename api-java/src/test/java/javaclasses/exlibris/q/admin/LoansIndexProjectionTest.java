@@ -0,0 +1,92 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.q.admin;
+
+import com.google.protobuf.Message;
+import javaclasses.exlibris.q.ProjectionTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static io.spine.server.projection.ProjectionEventDispatcher.dispatch;
+import static java.util.Collections.singletonList;
+import static javaclasses.exlibris.testdata.InventoryEventFactory.bookBorrowedInstance;
+import static javaclasses.exlibris.testdata.InventoryEventFactory.bookReturnedInstance;
+import static javaclasses.exlibris.testdata.TestValues.BOOK_ID;
+import static javaclasses.exlibris.testdata.TestValues.LOAN_ID;
+import static javaclasses.exlibris.testdata.TestValues.USER_ID;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Loans index projections should")
+class LoansIndexProjectionTest extends ProjectionTest {
+
+    private BookLoansIndexProjection bookIndex;
+    private ReaderLoansIndexProjection readerIndex;
+
+    @BeforeEach
+    void setUp() {
+        bookIndex = new BookLoansIndexProjection(BOOK_ID);
+        readerIndex = new ReaderLoansIndexProjection(USER_ID);
+    }
+
+    @Test
+    @DisplayName("index the loan when a book is borrowed")
+    void indexBorrowedLoan() {
+        dispatchBoth(bookBorrowedInstance());
+
+        assertEquals(singletonList(LOAN_ID), bookIndex.getState()
+                                                      .getLoanIdList());
+        assertEquals(singletonList(LOAN_ID), readerIndex.getState()
+                                                        .getLoanIdList());
+    }
+
+    @Test
+    @DisplayName("not duplicate the loan on a redelivered event")
+    void notDuplicateLoan() {
+        dispatchBoth(bookBorrowedInstance());
+        dispatchBoth(bookBorrowedInstance());
+
+        assertEquals(1, bookIndex.getState()
+                                 .getLoanIdCount());
+        assertEquals(1, readerIndex.getState()
+                                   .getLoanIdCount());
+    }
+
+    @Test
+    @DisplayName("drop the loan when a book is returned")
+    void dropReturnedLoan() {
+        dispatchBoth(bookBorrowedInstance());
+        dispatchBoth(bookReturnedInstance());
+
+        assertTrue(bookIndex.getState()
+                            .getLoanIdList()
+                            .isEmpty());
+        assertTrue(readerIndex.getState()
+                              .getLoanIdList()
+                              .isEmpty());
+    }
+
+    private void dispatchBoth(Message event) {
+        dispatch(bookIndex, createEvent(event));
+        dispatch(readerIndex, createEvent(event));
+    }
+}
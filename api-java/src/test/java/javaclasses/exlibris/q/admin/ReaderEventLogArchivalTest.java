@@ -0,0 +1,183 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.q.admin;
+
+import com.google.common.base.Optional;
+import com.google.protobuf.Timestamp;
+import javaclasses.exlibris.c.BookBorrowed;
+import javaclasses.exlibris.q.ProjectionTest;
+import javaclasses.exlibris.q.ReaderEventLogQuery;
+import javaclasses.exlibris.q.ReaderEventLogQueryResult;
+import javaclasses.exlibris.q.ReaderEventLogRecord;
+import javaclasses.exlibris.q.ReaderEventLogView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.spine.server.projection.ProjectionEventDispatcher.dispatch;
+import static javaclasses.exlibris.testdata.InventoryEventFactory.bookBorrowedInstance;
+import static javaclasses.exlibris.testdata.TestValues.USER_ID;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("ReaderEventLogViewProjection with the archive should")
+class ReaderEventLogArchivalTest extends ProjectionTest {
+
+    private static final long DAY_SECONDS = 24 * 60 * 60;
+    private static final Duration RETENTION = Duration.ofDays(30);
+    private static final int BATCH_SIZE = 50;
+    private static final int DAYS = 1000;
+
+    private Path directory;
+    private ReaderEventLogArchive archive;
+    private ReaderEventLogViewProjection projection;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("reader-event-log");
+        archive = new ReaderEventLogArchive(directory);
+        projection = new ReaderEventLogViewProjection(ReaderEventLogViewRepository.idOf(USER_ID));
+        projection.setArchival(archive, RETENTION, BATCH_SIZE);
+        for (int day = 0; day < DAYS; day++) {
+            final BookBorrowed event = BookBorrowed.newBuilder(bookBorrowedInstance())
+                                                   .setWhenBorrowed(timestamp(day))
+                                                   .build();
+            dispatch(projection, createEvent(event));
+        }
+    }
+
+    @Test
+    @DisplayName("keep the recent records only")
+    void keepRecentRecords() {
+        final ReaderEventLogView state = projection.getState();
+
+        assertTrue(state.getRecordCount() <= RETENTION.toDays() + BATCH_SIZE);
+        assertEquals(DAYS, state.getRecordCount() + state.getArchivedCount());
+        assertTrue(state.getArchivedCount() > 0);
+    }
+
+    @Test
+    @DisplayName("page through the archived and the recent records")
+    void pageThroughAllRecords() {
+        ReaderEventLogQuery query = ReaderEventLogQuery.newBuilder()
+                                                       .setUserId(USER_ID)
+                                                       .setPageSize(64)
+                                                       .build();
+        final List<ReaderEventLogRecord> records = new ArrayList<>();
+        while (true) {
+            final ReaderEventLogQueryResult result = query(query);
+            records.addAll(result.getRecordList());
+            if (!result.hasNextPage()) {
+                break;
+            }
+            query = result.getNextPage();
+        }
+
+        assertEquals(DAYS, records.size());
+        for (int day = 0; day < DAYS; day++) {
+            assertEquals(timestamp(day), records.get(day)
+                                                .getWhenEmitted());
+        }
+    }
+
+    @Test
+    @DisplayName("read only the archived records in the range")
+    void queryArchivedRange() {
+        final ReaderEventLogQuery query = ReaderEventLogQuery.newBuilder()
+                                                             .setUserId(USER_ID)
+                                                             .setEmittedFrom(timestamp(120))
+                                                             .setEmittedTo(timestamp(130))
+                                                             .build();
+
+        final ReaderEventLogQueryResult result = query(query);
+
+        assertEquals(10, result.getRecordCount());
+        assertEquals(timestamp(120), result.getRecord(0)
+                                           .getWhenEmitted());
+        assertFalse(result.hasNextPage());
+        assertEquals(1, archive.segments(USER_ID, archivedCount(), timestamp(120),
+                                         Optional.of(timestamp(130)))
+                               .size());
+    }
+
+    @Test
+    @DisplayName("not rewrite the archived segments")
+    void keepSegmentsImmutable() throws IOException {
+        final List<Path> segments = archive.segments(USER_ID, archivedCount(), timestamp(0),
+                                                     Optional.absent());
+        final Path first = segments.get(0);
+        final List<ReaderEventLogRecord> records = ReaderEventLogArchive.read(first);
+        final long modified = Files.getLastModifiedTime(first)
+                                   .toMillis();
+
+        archive.append(USER_ID, 0, records);
+
+        assertEquals(segments, archive.segments(USER_ID, archivedCount(), timestamp(0),
+                                                Optional.absent()));
+        assertEquals(modified, Files.getLastModifiedTime(first)
+                                    .toMillis());
+    }
+
+    @Test
+    @DisplayName("replace the segment archived while the log state was not stored")
+    void replaceUncountedSegment() {
+        final Path first = archive.segments(USER_ID, archivedCount(), timestamp(0),
+                                            Optional.absent())
+                                  .get(0);
+        final List<ReaderEventLogRecord> records = ReaderEventLogArchive.read(first);
+        final ReaderEventLogArchive retried =
+                new ReaderEventLogArchive(directory.resolve("retried"));
+
+        retried.append(USER_ID, 0, records.subList(0, 10));
+        assertTrue(retried.segments(USER_ID, 0, timestamp(0), Optional.absent())
+                          .isEmpty());
+
+        retried.append(USER_ID, 0, records);
+        final List<Path> segments = retried.segments(USER_ID, records.size(), timestamp(0),
+                                                     Optional.absent());
+        assertEquals(1, segments.size());
+        assertEquals(records, ReaderEventLogArchive.read(segments.get(0)));
+    }
+
+    private int archivedCount() {
+        return projection.getState()
+                         .getArchivedCount();
+    }
+
+    private ReaderEventLogQueryResult query(ReaderEventLogQuery query) {
+        return ReaderEventLogIndex.query(query, Optional.of(projection.getState()),
+                                         Optional.of(archive));
+    }
+
+    private static Timestamp timestamp(int day) {
+        return Timestamp.newBuilder()
+                        .setSeconds(day * DAY_SECONDS)
+                        .build();
+    }
+}
@@ -33,13 +33,13 @@ import javaclasses.exlibris.c.ReservationBecameLoan;
 import javaclasses.exlibris.c.ReservationCanceled;
 import javaclasses.exlibris.c.ReservationPickUpPeriodExpired;
 import javaclasses.exlibris.q.ProjectionTest;
+import javaclasses.exlibris.q.ReaderEventLogRecord;
 import javaclasses.exlibris.q.ReaderEventLogView;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
-import static io.spine.Identifier.newUuid;
 import static io.spine.server.projection.ProjectionEventDispatcher.dispatch;
 import static javaclasses.exlibris.testdata.InventoryEventFactory.bookBorrowedInstance;
 import static javaclasses.exlibris.testdata.InventoryEventFactory.bookLostInstance;
@@ -63,9 +63,7 @@ class ReaderEventLogViewProjectionTest extends ProjectionTest {
 
     @BeforeEach
     void setUp() {
-        ReaderEventLogViewId id = ReaderEventLogViewId.newBuilder()
-                                                      .setValue(newUuid())
-                                                      .build();
+        final ReaderEventLogViewId id = ReaderEventLogViewRepository.idOf(USER_ID);
         projection = new ReaderEventLogViewProjection(id);
     }
 
@@ -206,19 +204,25 @@ class ReaderEventLogViewProjectionTest extends ProjectionTest {
 
     private void assertEqualsWithItemId(Message event) {
         final ReaderEventLogView state = projection.getState();
-        assertEquals(USER_ID, state.getUserId());
-        assertEquals(INVENTORY_ITEM_ID_1, state.getItemId());
+        assertEquals(USER_ID, state.getId()
+                                   .getUserId());
+        assertEquals(1, state.getRecordCount());
+        final ReaderEventLogRecord record = state.getRecord(0);
+        assertEquals(INVENTORY_ITEM_ID_1, record.getItemId());
         assertEquals(event.getClass()
-                          .getSimpleName(), state.getEventType());
-        assertEquals(DEFAULT_TIMESTAMP1, state.getWhenEmitted());
+                          .getSimpleName(), record.getEventType());
+        assertEquals(DEFAULT_TIMESTAMP1, record.getWhenEmitted());
     }
 
     private void assertEqualsWithBookId(Message event) {
         final ReaderEventLogView state = projection.getState();
-        assertEquals(USER_ID, state.getUserId());
-        assertEquals(BOOK_ID, state.getBookId());
+        assertEquals(USER_ID, state.getId()
+                                   .getUserId());
+        assertEquals(1, state.getRecordCount());
+        final ReaderEventLogRecord record = state.getRecord(0);
+        assertEquals(BOOK_ID, record.getBookId());
         assertEquals(event.getClass()
-                          .getSimpleName(), state.getEventType());
-        assertEquals(DEFAULT_TIMESTAMP1, state.getWhenEmitted());
+                          .getSimpleName(), record.getEventType());
+        assertEquals(DEFAULT_TIMESTAMP1, record.getWhenEmitted());
     }
 }
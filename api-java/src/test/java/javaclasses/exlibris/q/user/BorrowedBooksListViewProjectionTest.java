@@ -20,6 +20,11 @@
 
 package javaclasses.exlibris.q.user;
 
+import javaclasses.exlibris.BookId;
+import javaclasses.exlibris.InventoryId;
+import javaclasses.exlibris.InventoryItemId;
+import javaclasses.exlibris.Isbn62;
+import javaclasses.exlibris.LoanId;
 import javaclasses.exlibris.UserId;
 import javaclasses.exlibris.c.BookBorrowed;
 import javaclasses.exlibris.c.BookLost;
@@ -31,6 +36,7 @@ import javaclasses.exlibris.c.LoansExtensionAllowed;
 import javaclasses.exlibris.c.LoansExtensionForbidden;
 import javaclasses.exlibris.q.BorrowedBookItem;
 import javaclasses.exlibris.q.BorrowedBookItemStatus;
+import javaclasses.exlibris.q.BorrowedBooksListView;
 import javaclasses.exlibris.q.ProjectionTest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -38,6 +44,7 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
+import java.util.Map;
 
 import static io.spine.server.projection.ProjectionEventDispatcher.dispatch;
 import static javaclasses.exlibris.testdata.InventoryEventFactory.bookBorrowedInstance;
@@ -57,10 +64,13 @@ import static javaclasses.exlibris.testdata.TestValues.COVER_URL;
 import static javaclasses.exlibris.testdata.TestValues.DEFAULT_DATE1;
 import static javaclasses.exlibris.testdata.TestValues.DEFAULT_DATE2;
 import static javaclasses.exlibris.testdata.TestValues.DEFAULT_DUE_DATE;
+import static javaclasses.exlibris.testdata.TestValues.DEFAULT_TIMESTAMP1;
+import static javaclasses.exlibris.testdata.TestValues.DUE_TIMESTAMP;
 import static javaclasses.exlibris.testdata.TestValues.ISBN;
 import static javaclasses.exlibris.testdata.TestValues.LOAN_ID;
 import static javaclasses.exlibris.testdata.TestValues.USER_ID;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class BorrowedBooksListViewProjectionTest extends ProjectionTest {
 
@@ -255,4 +265,116 @@ class BorrowedBooksListViewProjectionTest extends ProjectionTest {
             assertEquals(false, bookItem.getIsAllowedLoanExtension());
         }
     }
+
+    @Nested
+    @DisplayName("BorrowedBooksListViewProjection with several borrowed books should")
+    class SeveralBooks {
+
+        private final InventoryId first = inventoryIdOf("first");
+        private final InventoryId second = inventoryIdOf("second");
+        private final InventoryId third = inventoryIdOf("third");
+
+        @BeforeEach
+        void borrowBooks() {
+            borrow(first, 1);
+            borrow(second, 2);
+            borrow(third, 3);
+        }
+
+        @Test
+        @DisplayName("keep the order of the items when a book is returned")
+        void keepOrder() {
+            dispatch(projection, createEvent(bookReturnedInstance(first, itemOf(first), USER_ID,
+                                                                  DEFAULT_TIMESTAMP1,
+                                                                  loanIdOf(1))));
+            dispatch(projection, createEvent(loanBecameOverdueInstance(third, itemOf(third),
+                                                                       loanIdOf(3),
+                                                                       DEFAULT_TIMESTAMP1,
+                                                                       USER_ID)));
+            final BorrowedBooksListView state = projection.getState();
+            assertEquals(2, state.getNumberOfBorrowedBooks());
+            assertEquals(1, state.getNumberOfOverdueBooks());
+            final BorrowedBookItem secondItem = state.getBookItem(0);
+            final BorrowedBookItem thirdItem = state.getBookItem(1);
+            assertEquals(second.getBookId(), secondItem.getBookId());
+            assertEquals(BorrowedBookItemStatus.BORROWED, secondItem.getStatus());
+            assertEquals(third.getBookId(), thirdItem.getBookId());
+            assertEquals(BorrowedBookItemStatus.OVERDUE, thirdItem.getStatus());
+        }
+
+        @Test
+        @DisplayName("keep the positions of the items following a returned book")
+        void keepPositions() {
+            dispatch(projection, createEvent(bookReturnedInstance(first, itemOf(first), USER_ID,
+                                                                  DEFAULT_TIMESTAMP1,
+                                                                  loanIdOf(1))));
+            final Map<String, Integer> positions = projection.getState()
+                                                             .getPositionMap();
+            assertEquals(2, positions.size());
+            assertEquals(0, (int) positions.get("second"));
+            assertEquals(1, (int) positions.get("third"));
+        }
+
+        @Test
+        @DisplayName("fail on the status of a book that is not borrowed")
+        void failOnUnknownBook() {
+            final InventoryId unknown = inventoryIdOf("unknown");
+            assertThrows(IllegalStateException.class,
+                         () -> dispatch(projection,
+                                        createEvent(loanBecameOverdueInstance(unknown,
+                                                                              itemOf(unknown),
+                                                                              loanIdOf(4),
+                                                                              DEFAULT_TIMESTAMP1,
+                                                                              USER_ID))));
+        }
+
+        @Test
+        @DisplayName("decrease the number of overdue books when an overdue book is returned")
+        void decreaseOverdueBooks() {
+            dispatch(projection, createEvent(loanBecameOverdueInstance(second, itemOf(second),
+                                                                       loanIdOf(2),
+                                                                       DEFAULT_TIMESTAMP1,
+                                                                       USER_ID)));
+            assertEquals(1, projection.getState()
+                                      .getNumberOfOverdueBooks());
+
+            dispatch(projection, createEvent(bookReturnedInstance(second, itemOf(second), USER_ID,
+                                                                  DEFAULT_TIMESTAMP1,
+                                                                  loanIdOf(2))));
+            final BorrowedBooksListView state = projection.getState();
+            assertEquals(0, state.getNumberOfOverdueBooks());
+            assertEquals(2, state.getNumberOfBorrowedBooks());
+            assertEquals(2, state.getBookItemCount());
+        }
+
+        private void borrow(InventoryId inventoryId, long loanNumber) {
+            dispatch(projection, createEvent(bookBorrowedInstance(inventoryId, itemOf(inventoryId),
+                                                                  USER_ID, loanIdOf(loanNumber),
+                                                                  DEFAULT_TIMESTAMP1,
+                                                                  DUE_TIMESTAMP)));
+        }
+    }
+
+    private static InventoryId inventoryIdOf(String isbn62) {
+        final BookId bookId = BookId.newBuilder()
+                                    .setIsbn62(Isbn62.newBuilder()
+                                                     .setValue(isbn62))
+                                    .build();
+        return InventoryId.newBuilder()
+                          .setBookId(bookId)
+                          .build();
+    }
+
+    private static InventoryItemId itemOf(InventoryId inventoryId) {
+        return InventoryItemId.newBuilder()
+                              .setBookId(inventoryId.getBookId())
+                              .setItemNumber(1)
+                              .build();
+    }
+
+    private static LoanId loanIdOf(long value) {
+        return LoanId.newBuilder()
+                     .setValue(value)
+                     .build();
+    }
 }
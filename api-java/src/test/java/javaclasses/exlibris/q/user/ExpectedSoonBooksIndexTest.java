@@ -0,0 +1,177 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.q.user;
+
+import com.google.common.base.Optional;
+import javaclasses.exlibris.BookId;
+import javaclasses.exlibris.ExpectedSoonBooksListViewId;
+import javaclasses.exlibris.Isbn62;
+import javaclasses.exlibris.q.ExpectedSoonBooksListView;
+import javaclasses.exlibris.q.ExpectedSoonBooksQuery;
+import javaclasses.exlibris.q.ExpectedSoonBooksQueryResult;
+import javaclasses.exlibris.q.ExpectedSoonItem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static javaclasses.exlibris.q.user.ExpectedSoonBooksIndex.insertionPosition;
+import static javaclasses.exlibris.q.user.ExpectedSoonBooksIndex.partitionOf;
+import static javaclasses.exlibris.q.user.ExpectedSoonBooksIndex.positionOf;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("ExpectedSoonBooksIndex should")
+class ExpectedSoonBooksIndexTest {
+
+    private static final int BOOKS = 200;
+    private static final int PARTITION_COUNT = 8;
+
+    private final Map<ExpectedSoonBooksListViewId, ExpectedSoonBooksListView> partitions =
+            new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int book = 0; book < BOOKS; book++) {
+            add(bookId("book" + book));
+        }
+    }
+
+    @Test
+    @DisplayName("spread the books over the partitions")
+    void spreadBooks() {
+        assertTrue(partitions.size() > 1);
+        for (ExpectedSoonBooksListViewId id : partitions.keySet()) {
+            assertTrue(id.getPartition() >= 0 && id.getPartition() < PARTITION_COUNT);
+            assertEquals(PARTITION_COUNT, id.getPartitionCount());
+        }
+        assertEquals(partitionOf(bookId("book1"), PARTITION_COUNT),
+                     partitionOf(bookId("book1"), PARTITION_COUNT));
+    }
+
+    @Test
+    @DisplayName("obtain all the books if the page size is not set")
+    void queryAll() {
+        final ExpectedSoonBooksQueryResult result =
+                ExpectedSoonBooksIndex.query(ExpectedSoonBooksQuery.getDefaultInstance(),
+                                             PARTITION_COUNT, this::find);
+
+        assertEquals(BOOKS, result.getBookItemCount());
+        assertFalse(result.hasNextPage());
+    }
+
+    @Test
+    @DisplayName("page through all the books exactly once")
+    void pageThroughBooks() {
+        ExpectedSoonBooksQuery query = ExpectedSoonBooksQuery.newBuilder()
+                                                             .setPageSize(7)
+                                                             .build();
+        final Set<BookId> seen = new HashSet<>();
+        int pages = 0;
+        while (true) {
+            final ExpectedSoonBooksQueryResult page =
+                    ExpectedSoonBooksIndex.query(query, PARTITION_COUNT, this::find);
+            assertTrue(page.getBookItemCount() <= 7);
+            for (ExpectedSoonItem item : page.getBookItemList()) {
+                assertTrue(seen.add(item.getBookId()));
+            }
+            pages++;
+            if (!page.hasNextPage()) {
+                break;
+            }
+            query = page.getNextPage();
+        }
+
+        assertEquals(BOOKS, seen.size());
+        assertEquals((BOOKS + 6) / 7, pages);
+    }
+
+    @Test
+    @DisplayName("continue the page after the removed book")
+    void continueAfterRemovedBook() {
+        final ExpectedSoonBooksQuery query = ExpectedSoonBooksQuery.newBuilder()
+                                                                   .setPageSize(BOOKS / 2)
+                                                                   .build();
+        final ExpectedSoonBooksQueryResult first =
+                ExpectedSoonBooksIndex.query(query, PARTITION_COUNT, this::find);
+        remove(first.getNextPage()
+                    .getAfter());
+
+        final ExpectedSoonBooksQueryResult second =
+                ExpectedSoonBooksIndex.query(first.getNextPage(), PARTITION_COUNT, this::find);
+
+        assertEquals(BOOKS / 2, second.getBookItemCount());
+        assertFalse(second.hasNextPage());
+    }
+
+    @Test
+    @DisplayName("keep the partitions of different partition counts apart")
+    void separatePartitionCounts() {
+        final BookId bookId = bookId("book1");
+        final ExpectedSoonBooksListViewId id = partitionOf(bookId, PARTITION_COUNT);
+        final ExpectedSoonBooksListViewId otherId = partitionOf(bookId, PARTITION_COUNT * 2);
+
+        assertNotEquals(id, otherId);
+        assertEquals(PARTITION_COUNT * 2, otherId.getPartitionCount());
+    }
+
+    private void add(BookId bookId) {
+        final ExpectedSoonBooksListViewId id = partitionOf(bookId, PARTITION_COUNT);
+        final ExpectedSoonBooksListView view =
+                partitions.getOrDefault(id, ExpectedSoonBooksListView.newBuilder()
+                                                                     .setId(id)
+                                                                     .build());
+        final List<ExpectedSoonItem> items = view.getBookItemList();
+        final ExpectedSoonItem item = ExpectedSoonItem.newBuilder()
+                                                      .setBookId(bookId)
+                                                      .build();
+        partitions.put(id, view.toBuilder()
+                               .addBookItem(insertionPosition(items, bookId), item)
+                               .build());
+    }
+
+    private void remove(BookId bookId) {
+        final ExpectedSoonBooksListViewId id = partitionOf(bookId, PARTITION_COUNT);
+        final ExpectedSoonBooksListView view = partitions.get(id);
+        final int position = positionOf(view.getBookItemList(), bookId);
+        partitions.put(id, view.toBuilder()
+                               .removeBookItem(position)
+                               .build());
+    }
+
+    private Optional<ExpectedSoonBooksListView> find(ExpectedSoonBooksListViewId id) {
+        return Optional.fromNullable(partitions.get(id));
+    }
+
+    private static BookId bookId(String isbn62) {
+        return BookId.newBuilder()
+                     .setIsbn62(Isbn62.newBuilder()
+                                      .setValue(isbn62))
+                     .build();
+    }
+}
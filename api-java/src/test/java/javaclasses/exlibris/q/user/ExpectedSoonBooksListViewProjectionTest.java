@@ -34,8 +34,9 @@ import org.junit.jupiter.api.Test;
 
 import java.util.List;
 
-import static io.spine.Identifier.newUuid;
 import static io.spine.server.projection.ProjectionEventDispatcher.dispatch;
+import static javaclasses.exlibris.q.user.ExpectedSoonBooksIndex.DEFAULT_PARTITION_COUNT;
+import static javaclasses.exlibris.q.user.ExpectedSoonBooksIndex.partitionOf;
 import static javaclasses.exlibris.testdata.BookEventFactory.bookAddedInstance;
 import static javaclasses.exlibris.testdata.InventoryEventFactory.inventoryAppendedInstance;
 import static javaclasses.exlibris.testdata.TestValues.AUTHOR;
@@ -53,10 +54,8 @@ class ExpectedSoonBooksListViewProjectionTest extends ProjectionTest {
 
     @BeforeEach
     void setUp() {
-        final ExpectedSoonBooksListViewId bookListId = ExpectedSoonBooksListViewId.newBuilder()
-                                                                                  .setValue(
-                                                                                          newUuid())
-                                                                                  .build();
+        final ExpectedSoonBooksListViewId bookListId =
+                partitionOf(BOOK_ID, DEFAULT_PARTITION_COUNT);
         projection = new ExpectedSoonBooksListViewProjection(bookListId);
     }
 
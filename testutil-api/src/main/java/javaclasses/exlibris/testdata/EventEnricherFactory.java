@@ -22,9 +22,14 @@ package javaclasses.exlibris.testdata;
 
 import io.spine.server.event.EventEnricher;
 import javaclasses.exlibris.Book;
+import javaclasses.exlibris.BookSummary;
 import javaclasses.exlibris.InventoryId;
+import javaclasses.exlibris.UserId;
+import javaclasses.exlibris.UserProfile;
 
 import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ID_TO_BOOK;
+import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ID_TO_BOOK_SUMMARY;
+import static javaclasses.exlibris.testdata.TestValues.USER_ID_TO_PROFILE;
 
 /**
  * Provides event enricher for the test needs.
@@ -46,6 +51,12 @@ public class EventEnricherFactory {
                                                   .add(InventoryId.class,
                                                        Book.class,
                                                        INVENTORY_ID_TO_BOOK::apply)
+                                                  .add(InventoryId.class,
+                                                       BookSummary.class,
+                                                       INVENTORY_ID_TO_BOOK_SUMMARY::apply)
+                                                  .add(UserId.class,
+                                                       UserProfile.class,
+                                                       USER_ID_TO_PROFILE::apply)
                                                   .build();
         return result;
     }
@@ -27,6 +27,7 @@ import javaclasses.exlibris.UserId;
 import javaclasses.exlibris.WriteOffReason;
 import javaclasses.exlibris.c.AllowLoansExtension;
 import javaclasses.exlibris.c.AppendInventory;
+import javaclasses.exlibris.c.AppendInventoryBatch;
 import javaclasses.exlibris.c.BorrowBook;
 import javaclasses.exlibris.c.CancelReservation;
 import javaclasses.exlibris.c.ExtendLoanPeriod;
@@ -39,11 +40,14 @@ import javaclasses.exlibris.c.MarkReservationExpired;
 import javaclasses.exlibris.c.ReportLostBook;
 import javaclasses.exlibris.c.ReserveBook;
 import javaclasses.exlibris.c.ReturnBook;
+import javaclasses.exlibris.c.ReturnInventoryBooks;
+import javaclasses.exlibris.c.ReturnedItem;
 import javaclasses.exlibris.c.SatisfyReservation;
 import javaclasses.exlibris.c.WriteBookOff;
 
 import java.util.List;
 
+import static java.util.Arrays.asList;
 import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ID;
 import static javaclasses.exlibris.testdata.TestValues.INVENTORY_ITEM_ID_1;
 import static javaclasses.exlibris.testdata.TestValues.LOAN;
@@ -80,6 +84,36 @@ public class InventoryCommandFactory {
         return result;
     }
 
+    public static AppendInventoryBatch appendInventoryBatchInstance(InventoryId inventoryId,
+                                                                    List<InventoryItemId> inventoryItemIds,
+                                                                    UserId userId) {
+        final AppendInventoryBatch result = AppendInventoryBatch.newBuilder()
+                                                                .setInventoryId(inventoryId)
+                                                                .addAllInventoryItemIds(
+                                                                        inventoryItemIds)
+                                                                .setLibrarianId(userId)
+                                                                .build();
+        return result;
+    }
+
+    public static ReturnInventoryBooks returnInventoryBooksInstance(InventoryId inventoryId,
+                                                                    ReturnedItem... items) {
+        final ReturnInventoryBooks result = ReturnInventoryBooks.newBuilder()
+                                                                .setInventoryId(inventoryId)
+                                                                .addAllItems(asList(items))
+                                                                .build();
+        return result;
+    }
+
+    public static ReturnedItem returnedItemInstance(InventoryItemId inventoryItemId,
+                                                    UserId userId) {
+        final ReturnedItem result = ReturnedItem.newBuilder()
+                                                .setInventoryItemId(inventoryItemId)
+                                                .setUserId(userId)
+                                                .build();
+        return result;
+    }
+
     public static BorrowBook borrowBookInstance() {
 
         return borrowBookInstance(INVENTORY_ID, INVENTORY_ITEM_ID_1, USER_ID);
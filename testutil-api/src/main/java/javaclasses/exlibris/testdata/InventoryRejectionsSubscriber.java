@@ -82,6 +82,11 @@ public class InventoryRejectionsSubscriber extends RejectionSubscriber {
         wasCalled = true;
     }
 
+    @Subscribe
+    public void on(Rejections.CannotAppendInventoryBatch rejection) {
+        wasCalled = true;
+    }
+
     public void clear() {
         wasCalled = false;
     }
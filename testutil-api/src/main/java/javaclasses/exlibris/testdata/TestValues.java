@@ -31,9 +31,11 @@ import javaclasses.exlibris.Book;
 import javaclasses.exlibris.BookDetails;
 import javaclasses.exlibris.BookDetailsChange;
 import javaclasses.exlibris.BookId;
+import javaclasses.exlibris.BookSummary;
 import javaclasses.exlibris.BookSynopsis;
 import javaclasses.exlibris.BookTitle;
 import javaclasses.exlibris.Category;
+import javaclasses.exlibris.InMemoryUserDirectory;
 import javaclasses.exlibris.InventoryId;
 import javaclasses.exlibris.InventoryItemId;
 import javaclasses.exlibris.Isbn;
@@ -43,6 +45,7 @@ import javaclasses.exlibris.LoanId;
 import javaclasses.exlibris.QRcodeURL;
 import javaclasses.exlibris.Rfid;
 import javaclasses.exlibris.UserId;
+import javaclasses.exlibris.UserProfile;
 import javaclasses.exlibris.WriteOffReason;
 import javaclasses.exlibris.q.InventoryItemState;
 import javaclasses.exlibris.q.LoanDetails;
@@ -346,4 +349,28 @@ public class TestValues {
 
     public static final Function<InventoryId, Book> INVENTORY_ID_TO_BOOK = inventoryId -> BOOK;
 
+    private static final BookSummary BOOK_SUMMARY = BookSummary.newBuilder()
+                                                               .setTitle(BOOK_DETAILS.getTitle())
+                                                               .addAllAuthor(
+                                                                       BOOK_DETAILS.getAuthorList())
+                                                               .build();
+
+    public static final Function<InventoryId, BookSummary> INVENTORY_ID_TO_BOOK_SUMMARY =
+            inventoryId -> BOOK_SUMMARY;
+
+    public static final UserProfile USER_PROFILE = UserProfile.newBuilder()
+                                                              .setName(USER_NAME)
+                                                              .build();
+
+    public static final Function<UserId, UserProfile> USER_ID_TO_PROFILE = userId -> USER_PROFILE;
+
+    /**
+     * Creates the user directory which knows the test users by the {@link #USER_NAME}.
+     */
+    public static InMemoryUserDirectory userDirectory() {
+        final InMemoryUserDirectory result = new InMemoryUserDirectory();
+        result.put(USER_ID, USER_PROFILE);
+        result.put(USER_ID_2, USER_PROFILE);
+        return result;
+    }
 }
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2018, TeamDev Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and/or binary forms, with or without
+ * modification, must retain the above copyright notice and the following
+ * disclaimer.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package javaclasses.exlibris.testdata;
+
+import com.google.protobuf.Timestamp;
+import io.spine.time.Time;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The clock which time moves only when it is advanced.
+ *
+ * <p>Once {@linkplain #install() installed}, it provides the current time for all the handlers
+ * which use {@link Time#getCurrentTime()}, so that days of library traffic may be replayed
+ * as fast as the CPU allows.
+ *
+ * <p>Each reading of the time moves the clock one nanosecond forward, so that the readings
+ * stay distinct and ordered.
+ */
+public final class VirtualClock implements Time.Provider {
+
+    private static final int NANOS_PER_SECOND = 1_000_000_000;
+
+    private long seconds;
+    private int nanos;
+
+    private VirtualClock(Timestamp start) {
+        this.seconds = start.getSeconds();
+        this.nanos = start.getNanos();
+    }
+
+    /**
+     * Creates a new clock starting at the specified time.
+     */
+    public static VirtualClock startingAt(Timestamp start) {
+        checkNotNull(start);
+        return new VirtualClock(start);
+    }
+
+    /**
+     * Makes the clock provide the current time for {@link Time#getCurrentTime()}.
+     */
+    public void install() {
+        Time.setProvider(this);
+    }
+
+    /**
+     * Restores the system time for {@link Time#getCurrentTime()}.
+     */
+    public static void uninstall() {
+        Time.resetProvider();
+    }
+
+    @Override
+    public synchronized Timestamp getCurrentTime() {
+        final Timestamp result = Timestamp.newBuilder()
+                                          .setSeconds(seconds)
+                                          .setNanos(nanos)
+                                          .build();
+        nanos++;
+        if (nanos == NANOS_PER_SECOND) {
+            nanos = 0;
+            seconds++;
+        }
+        return result;
+    }
+
+    /**
+     * Moves the clock forward.
+     *
+     * @param secondsToAdvance the number of seconds to move the clock by
+     */
+    public synchronized void advance(long secondsToAdvance) {
+        checkArgument(secondsToAdvance >= 0, "The clock cannot go back.");
+        seconds += secondsToAdvance;
+    }
+}